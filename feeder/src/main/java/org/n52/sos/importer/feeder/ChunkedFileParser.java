@@ -0,0 +1,376 @@
+/**
+ * Copyright (C) 2011-2015 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.importer.feeder;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.n52.sos.importer.feeder.csv.MappedCsvParser;
+import org.n52.sos.importer.feeder.model.requests.InsertObservation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Parses a local data file in chunks of complete lines on a
+ * {@link ForkJoinPool}.
+ * <br>
+ * The file is split into byte ranges aligned to line boundaries. Each range
+ * is parsed by its own {@link MappedCsvParser} and every row is converted by
+ * the {@link RowHandler}. {@link #next()} returns the {@link Chunk}s in file
+ * order, hence the caller could merge the results exactly like in sequential
+ * mode. At most two chunks per thread are parsed ahead of the caller, which
+ * bounds the memory consumption.
+ * <br>
+ * A line boundary splits a row, if a quoted field contains line breaks.
+ * Hence, the rows of a chunk are only converted if none of them spans
+ * several lines. Otherwise, the chunks ahead are dropped and the file is
+ * parsed sequentially in the calling thread from the start of this chunk on.
+ *
+ * @author <a href="mailto:e.h.juerrens@52north.org">Eike Hinderk J&uuml;rrens</a>
+ */
+final class ChunkedFileParser implements Closeable {
+
+	private static final Logger LOG = LoggerFactory.getLogger(ChunkedFileParser.class);
+
+	private static final int DEFAULT_CHUNK_SIZE = 1024 * 1024;
+
+	private static final int ALIGNMENT_BUFFER_SIZE = 4096;
+
+	/**
+	 * Converts one row into observations. Implementations are called
+	 * concurrently.
+	 */
+	interface RowHandler {
+
+		/**
+		 * @param values the values of the row
+		 * @return the observations of the row or <code>null</code>, if the row
+		 *         is skipped
+		 */
+		InsertObservation[] handle(String[] values);
+
+	}
+
+	/**
+	 * The result of parsing one byte range of the file.
+	 */
+	static final class Chunk {
+
+		private final long start;
+
+		// moved to the end of the row crossing it, if parsed sequentially
+		private long end;
+
+		private boolean spanningLines;
+
+		private final List<InsertObservation[]> observations = new ArrayList<>();
+
+		private int rowCount;
+
+		private RuntimeException runtimeException;
+
+		private IOException ioException;
+
+		private Chunk(final long start, final long end) {
+			this.start = start;
+			this.end = end;
+		}
+
+		/**
+		 * @return the observations of all not skipped rows in file order
+		 */
+		List<InsertObservation[]> getObservations() {
+			return Collections.unmodifiableList(observations);
+		}
+
+		/**
+		 * @return the number of rows read from this chunk, including skipped
+		 *         rows, until the end of the chunk or the first failure.
+		 */
+		int getRowCount() {
+			return rowCount;
+		}
+
+		/**
+		 * Rethrows the exception that stopped the parsing of this chunk, if any.
+		 *
+		 * @throws IOException if the chunk could not be read
+		 */
+		void rethrowFailure() throws IOException {
+			if (runtimeException != null) {
+				throw runtimeException;
+			}
+			if (ioException != null) {
+				throw ioException;
+			}
+		}
+
+		@Override
+		public String toString() {
+			return String.format("Chunk [start=%s, end=%s, rowCount=%s]", start, end, rowCount);
+		}
+
+	}
+
+	private final File file;
+
+	private final Configuration configuration;
+
+	private final RowHandler rowHandler;
+
+	private final ForkJoinPool pool;
+
+	private final FileChannel channel;
+
+	private final long end;
+
+	private final int chunkSize;
+
+	private final int maxChunksAhead;
+
+	private final LinkedList<ChunkTask> pending = new LinkedList<>();
+
+	private final ByteBuffer alignmentBuffer = ByteBuffer.allocate(ALIGNMENT_BUFFER_SIZE);
+
+	private long position;
+
+	private boolean sequential;
+
+	ChunkedFileParser(final File file,
+			final Configuration configuration,
+			final long start,
+			final long end,
+			final int parallelism,
+			final RowHandler rowHandler) throws IOException {
+		this(file, configuration, start, end, parallelism, DEFAULT_CHUNK_SIZE, rowHandler);
+	}
+
+	/**
+	 * @param end the offset after the last byte of the last row, or a
+	 *        negative value to parse until the end of the file
+	 */
+	ChunkedFileParser(final File file,
+			final Configuration configuration,
+			final long start,
+			final long end,
+			final int parallelism,
+			final int chunkSize,
+			final RowHandler rowHandler) throws IOException {
+		this.file = file;
+		this.configuration = configuration;
+		this.rowHandler = rowHandler;
+		this.chunkSize = chunkSize;
+		maxChunksAhead = 2 * parallelism;
+		channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		this.end = end < 0 ? channel.size() : Math.min(end, channel.size());
+		position = start;
+		pool = new ForkJoinPool(parallelism);
+		LOG.debug("Parsing bytes [{}, {}) of '{}' in chunks of {} bytes using {} threads.",
+				start, end, file, chunkSize, parallelism);
+	}
+
+	/**
+	 * @return the offset after the last byte parsed, i.e. the given end or
+	 *         the file size when this parser was created
+	 */
+	long getEnd() {
+		return end;
+	}
+
+	/**
+	 * @return the next {@link Chunk} in file order, or <code>null</code> if
+	 *         the end of the file is reached.
+	 * @throws IOException if the line boundaries could not be determined
+	 */
+	Chunk next() throws IOException {
+		if (sequential) {
+			return parseSequentially();
+		}
+		while (pending.size() < maxChunksAhead && position < end) {
+			final long chunkEnd = alignToLineStart(Math.min(position + chunkSize, end));
+			final ChunkTask task = new ChunkTask(new Chunk(position, chunkEnd));
+			pool.execute(task);
+			pending.add(task);
+			position = chunkEnd;
+		}
+		if (pending.isEmpty()) {
+			return null;
+		}
+		final ChunkTask task = pending.removeFirst();
+		task.join();
+		if (task.chunk.spanningLines) {
+			LOG.info("Rows of data file '{}' span several lines. Parsing it sequentially from byte {} on.",
+					file.getName(),
+					task.chunk.start);
+			cancelPending();
+			sequential = true;
+			position = task.chunk.start;
+			return parseSequentially();
+		}
+		LOG.trace("Parsed {}", task.chunk);
+		return task.chunk;
+	}
+
+	/*
+	 * Parses the rows starting in the next chunk size bytes in this thread.
+	 */
+	private Chunk parseSequentially() {
+		if (position >= end) {
+			return null;
+		}
+		final Chunk chunk = new Chunk(position, Math.min(position + chunkSize, end));
+		parse(chunk, true);
+		position = chunk.end;
+		LOG.trace("Parsed sequentially {}", chunk);
+		return chunk;
+	}
+
+	/*
+	 * Reads the rows starting before the end of the chunk. In parallel, the
+	 * rows are only converted if none of them spans several lines, because
+	 * the chunk might not start or end at a row then. Sequentially, the rows
+	 * are converted while reading and the end of the chunk is moved to the
+	 * end of its last row.
+	 */
+	private void parse(final Chunk chunk, final boolean isSequential) {
+		final MappedCsvParser parser = new MappedCsvParser();
+		try {
+			parser.init(file, configuration, chunk.start, isSequential? end : chunk.end);
+			final List<String[]> rows = new ArrayList<>();
+			String[] values;
+			while (parser.getPosition() < chunk.end && (values = parser.readNext()) != null) {
+				if (isSequential) {
+					handle(chunk, values);
+				} else if (parser.isSpanningLines()) {
+					chunk.spanningLines = true;
+					return;
+				} else {
+					rows.add(values);
+				}
+			}
+			if (isSequential) {
+				chunk.end = parser.getPosition();
+			}
+			for (final String[] row : rows) {
+				handle(chunk, row);
+			}
+		} catch (final IOException e) {
+			chunk.ioException = e;
+		} catch (final RuntimeException e) {
+			chunk.runtimeException = e;
+		} finally {
+			try {
+				parser.close();
+			} catch (final IOException e) {
+				LOG.error("Could not close parser for {}: {}", chunk, e.getMessage(), e);
+			}
+		}
+	}
+
+	private void handle(final Chunk chunk, final String[] values) {
+		chunk.rowCount++;
+		final InsertObservation[] ios = rowHandler.handle(values);
+		if (ios != null) {
+			chunk.observations.add(ios);
+		}
+	}
+
+	private void cancelPending() {
+		for (final ChunkTask task : pending) {
+			task.cancel(true);
+		}
+		pending.clear();
+	}
+
+	/*
+	 * Returns the offset of the first line starting at or after offset.
+	 */
+	private long alignToLineStart(final long offset) throws IOException {
+		if (offset >= end) {
+			return end;
+		}
+		// start at the previous byte to detect offsets at a line start
+		long readPosition = offset - 1;
+		boolean afterCarriageReturn = false;
+		while (readPosition < end) {
+			alignmentBuffer.clear();
+			final int read = channel.read(alignmentBuffer, readPosition);
+			if (read < 0) {
+				break;
+			}
+			for (int i = 0; i < read; i++) {
+				final byte b = alignmentBuffer.get(i);
+				if (afterCarriageReturn) {
+					return b == '\n' ? readPosition + i + 1 : readPosition + i;
+				}
+				if (b == '\n') {
+					return readPosition + i + 1;
+				}
+				afterCarriageReturn = b == '\r';
+			}
+			readPosition += read;
+		}
+		return end;
+	}
+
+	@Override
+	public void close() throws IOException {
+		cancelPending();
+		pool.shutdownNow();
+		channel.close();
+	}
+
+	private final class ChunkTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Chunk chunk;
+
+		private ChunkTask(final Chunk chunk) {
+			this.chunk = chunk;
+		}
+
+		@Override
+		protected void compute() {
+			parse(chunk, false);
+		}
+
+	}
+
+}
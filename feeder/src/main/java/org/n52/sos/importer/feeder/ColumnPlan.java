@@ -0,0 +1,239 @@
+/**
+ * Copyright (C) 2011-2015 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.importer.feeder;
+
+import java.text.ParseException;
+import java.util.Map;
+
+import org.n52.sos.importer.feeder.model.FeatureOfInterest;
+import org.n52.sos.importer.feeder.model.ObservedProperty;
+import org.n52.sos.importer.feeder.model.Offering;
+import org.n52.sos.importer.feeder.model.Position;
+import org.n52.sos.importer.feeder.model.Sensor;
+import org.n52.sos.importer.feeder.model.Timestamp;
+import org.n52.sos.importer.feeder.model.UnitOfMeasurement;
+import org.n52.sos.importer.feeder.model.requests.InsertObservation;
+
+/**
+ * All information required to create the observation of one measured value
+ * column, resolved once from the {@link Configuration}. The methods of this
+ * class only access the values of the current line.
+ *
+ * @see ImportPlan
+ *
+ * @author <a href="mailto:e.h.juerrens@52north.org">Eike Hinderk J&uuml;rrens</a>
+ */
+public final class ColumnPlan {
+
+	/**
+	 * The value types supported by the feeder, see Metadata.Key TYPE of
+	 * measured value columns.
+	 */
+	enum ValueType {
+		TEXT,
+		BOOLEAN,
+		COUNT,
+		NUMERIC,
+		UNKNOWN;
+
+		static ValueType fromType(final String type) {
+			if (type != null) {
+				for (final ValueType valueType : values()) {
+					if (valueType.name().equals(type)) {
+						return valueType;
+					}
+				}
+			}
+			return UNKNOWN;
+		}
+	}
+
+	private final int columnId;
+
+	private final String type;
+
+	private final ValueType valueType;
+
+	private final ValueDecoder decoder;
+
+	private final ResourceResolver sensor;
+
+	private final ResourceResolver foi;
+
+	// if true, the foi is read from a column
+	private final boolean isFoiColumn;
+
+	private final int foiColumnId;
+
+	// Position of the foi, if the position is defined in the configuration
+	private final Position foiPosition;
+
+	// Position of the foi, if the position is contained in the data file
+	private final PositionResolver foiPositionResolver;
+
+	private final Map<String, Position> foiPositions;
+
+	private final TimestampResolver timestamp;
+
+	private final ResourceResolver uom;
+
+	private final ResourceResolver observedProperty;
+
+	private final ImportPlan plan;
+
+	ColumnPlan(final int columnId,
+			final String type,
+			final ValueDecoder decoder,
+			final ImportPlan plan,
+			final ResourceResolver sensor,
+			final ResourceResolver foi,
+			final int foiColumnId,
+			final Position foiPosition,
+			final PositionResolver foiPositionResolver,
+			final Map<String, Position> foiPositions,
+			final TimestampResolver timestamp,
+			final ResourceResolver uom,
+			final ResourceResolver observedProperty) {
+		this.columnId = columnId;
+		this.type = type;
+		valueType = ValueType.fromType(type);
+		this.decoder = decoder;
+		this.plan = plan;
+		this.sensor = sensor;
+		this.foi = foi;
+		this.foiColumnId = foiColumnId;
+		isFoiColumn = foiColumnId > -1;
+		this.foiPosition = foiPosition;
+		this.foiPositionResolver = foiPositionResolver;
+		this.foiPositions = foiPositions;
+		this.timestamp = timestamp;
+		this.uom = uom;
+		this.observedProperty = observedProperty;
+	}
+
+	public int getColumnId() {
+		return columnId;
+	}
+
+	/**
+	 * @return the value of the Metadata.Key TYPE of the measured value column
+	 */
+	public String getType() {
+		return type;
+	}
+
+	public Sensor getSensor(final String[] values) {
+		return plan.getResources().getSensor(sensor, values);
+	}
+
+	public FeatureOfInterest getFeatureOfInterest(final String[] values) throws ParseException {
+		Position p;
+		if (isFoiColumn) {
+			// the uri of the foi is the value of its column
+			p = foiPositions.get(values[foiColumnId]);
+			if (p == null && foiPositionResolver != null) {
+				p = foiPositionResolver.resolve(values);
+			}
+		} else {
+			p = foiPositionResolver != null? foiPositionResolver.resolve(values) : foiPosition;
+		}
+		return plan.getResources().getFeatureOfInterest(foi, values, p, !isFoiColumn);
+	}
+
+	/**
+	 * @return the value of this column, boxed
+	 * @see #createInsertObservation(String[], Sensor, FeatureOfInterest, Timestamp, UnitOfMeasurement, ObservedProperty, Offering)
+	 */
+	public Object getValue(final String[] values) throws ParseException {
+		final String value = values[columnId];
+		switch (valueType) {
+		case TEXT:
+			return decoder.decodeText(value);
+		case BOOLEAN:
+			return decoder.decodeBoolean(value);
+		case COUNT:
+			return decoder.decodeInt(value);
+		case NUMERIC:
+			return decoder.decodeDouble(value);
+		default:
+			return null;
+		}
+	}
+
+	/**
+	 * @return an {@link InsertObservation} holding the value of this column
+	 *         unboxed, if its type is primitive
+	 * @throws ParseException if the value could not be parsed
+	 * @throws NumberFormatException if a COUNT value is not an integer
+	 */
+	public InsertObservation createInsertObservation(final String[] values,
+			final Sensor sensor,
+			final FeatureOfInterest foi,
+			final Timestamp timestamp,
+			final UnitOfMeasurement uom,
+			final ObservedProperty observedProperty,
+			final Offering offering) throws ParseException {
+		final String value = values[columnId];
+		switch (valueType) {
+		case TEXT:
+			return new InsertObservation(sensor, foi, decoder.decodeText(value),
+					timestamp, uom, observedProperty, offering, type);
+		case BOOLEAN:
+			return new InsertObservation(sensor, foi, decoder.decodeBoolean(value),
+					timestamp, uom, observedProperty, offering, type);
+		case COUNT:
+			return new InsertObservation(sensor, foi, decoder.decodeInt(value),
+					timestamp, uom, observedProperty, offering, type);
+		case NUMERIC:
+			return new InsertObservation(sensor, foi, decoder.decodeDouble(value),
+					timestamp, uom, observedProperty, offering, type);
+		default:
+			return new InsertObservation(sensor, foi, null,
+					timestamp, uom, observedProperty, offering, type);
+		}
+	}
+
+	public Timestamp getTimestamp(final String[] values) throws ParseException {
+		return timestamp != null? timestamp.resolve(values) : null;
+	}
+
+	public UnitOfMeasurement getUnitOfMeasurement(final String[] values) {
+		return plan.getResources().getUnitOfMeasurement(uom, values);
+	}
+
+	public ObservedProperty getObservedProperty(final String[] values) {
+		return plan.getResources().getObservedProperty(observedProperty, values);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("ColumnPlan [columnId=%s, type=%s]", columnId, type);
+	}
+
+}
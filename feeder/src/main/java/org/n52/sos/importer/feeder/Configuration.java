@@ -32,14 +32,15 @@ import java.io.File;
 import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
-import java.text.DecimalFormat;
-import java.text.DecimalFormatSymbols;
-import java.text.MessageFormat;
 import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.LinkedList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
 
 import javax.xml.namespace.QName;
@@ -51,6 +52,7 @@ import org.n52.sos.importer.feeder.csv.WrappedCSVReader;
 import org.n52.sos.importer.feeder.model.Offering;
 import org.n52.sos.importer.feeder.model.Position;
 import org.n52.sos.importer.feeder.model.Sensor;
+import org.n52.sos.importer.feeder.util.DecimalParser;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.x52North.sensorweb.sos.importer.x04.AdditionalMetadataDocument.AdditionalMetadata.FOIPosition;
@@ -80,10 +82,10 @@ public final class Configuration {
 
     private static final Logger LOG = LoggerFactory.getLogger(Configuration.class);
 
-    private static final String POSITION_PARSEPATTERN_LATITUDE = "LAT";
-    private static final String POSITION_PARSEPATTERN_LONGITUDE = "LON";
-    private static final String POSITION_PARSEPATTERN_ALTITUDE = "ALT";
-    private static final String POSITION_PARSEPATTERN_EPSG = "EPSG";
+    static final String POSITION_PARSEPATTERN_LATITUDE = "LAT";
+    static final String POSITION_PARSEPATTERN_LONGITUDE = "LON";
+    static final String POSITION_PARSEPATTERN_ALTITUDE = "ALT";
+    static final String POSITION_PARSEPATTERN_EPSG = "EPSG";
     // TODO read from configuration file
     public static final String SOS_200_EPSG_CODE_PREFIX = "http://www.opengis.net/def/crs/EPSG/0/";
     public static final String SOS_100_EPSG_CODE_PREFIX = "urn:ogc:def:crs:EPSG::";
@@ -152,6 +154,11 @@ public final class Configuration {
 
     private Pattern localeFilePattern = null;
 
+    // immutable, hence a racy initialization is harmless
+    private volatile DecimalParser decimalParser;
+
+    private final ConcurrentMap<String, PositionResolver> positionResolvers = new ConcurrentHashMap<>();
+
     public Configuration(final String pathToFile) throws XmlException, IOException {
         LOG.trace("Configuration({})",pathToFile);
         configFile = new File(pathToFile);
@@ -567,6 +574,33 @@ public final class Configuration {
         return null;
     }
 
+    /**
+     * @return all completely defined positions of
+     *             <code>AdditionalMetadata.FOIPosition[]</code> by foi uri.
+     * @see #getFoiPosition(String)
+     */
+    public Map<String, Position> getFoiPositions() {
+        LOG.trace("getFoiPositions()");
+        final Map<String, Position> positions = new HashMap<>();
+        if (importConf.getAdditionalMetadata() != null &&
+                importConf.getAdditionalMetadata().getFOIPositionArray() != null) {
+            for (final FOIPosition pos : importConf.getAdditionalMetadata().getFOIPositionArray()) {
+                if (pos.getURI() != null &&
+                        pos.getURI().getStringValue() != null &&
+                        !positions.containsKey(pos.getURI().getStringValue())) {
+                    final org.x52North.sensorweb.sos.importer.x04.PositionDocument.Position p = pos.getPosition();
+                    if (p.isSetAlt() &&
+                            p.isSetEPSGCode() &&
+                            p.isSetLat() &&
+                            p.isSetLong()) {
+                        positions.put(pos.getURI().getStringValue(), getModelPositionXBPosition(p));
+                    }
+                }
+            }
+        }
+        return positions;
+    }
+
     /**
      * @param p {@link org.x52North.sensorweb.sos.importer.x04.PositionDocument.Position}
      * @return {@link org.n52.sos.importer.feeder.model.Position}
@@ -604,6 +638,7 @@ public final class Configuration {
                 mvColumnId));
         final Column c = getColumnById(mvColumnId);
         if (c.getRelatedFOIArray() != null &&
+                c.getRelatedFOIArray().length > 0 &&
                 c.getRelatedFOIArray(0) != null &&
                 c.getRelatedFOIArray(0).isSetIdRef()) {
             final String foiXmlId = c.getRelatedFOIArray(0).getIdRef();
@@ -634,89 +669,33 @@ public final class Configuration {
         LOG.trace(String.format("getPosition(group:%s,%s)",
                 group,
                 Arrays.toString(values)));
-        final Column[] cols = getAllColumnsForGroup(group, Type.POSITION);
-        // combine the values from the different columns
-        final String[] units = new String[3];
-        final double[] posValues = new double[3];
-        int epsgCode = -1;
-        for (final Column c : cols) {
-            //            boolean isCombination = false; // now every position is of type combination
-            for (final Metadata m : c.getMetadataArray()) {
-                // check for type combination
-                //                if (m.getKey().equals(Key.TYPE) && m.getValue().equals(Configuration.POSITION_TYPE_COMBINATION)) {
-                //                    isCombination = true;
-                //                }
-                // get parse pattern and parse available values
-                /*else*/ if (m.getKey().equals(Key.PARSE_PATTERN)) {
-                    String pattern = m.getValue();
-                    pattern = pattern.replaceAll(Configuration.POSITION_PARSEPATTERN_LATITUDE, "{0}");
-                    pattern = pattern.replaceAll(Configuration.POSITION_PARSEPATTERN_LONGITUDE, "{1}");
-                    pattern = pattern.replaceAll(Configuration.POSITION_PARSEPATTERN_ALTITUDE, "{2}");
-                    pattern = pattern.replaceAll(Configuration.POSITION_PARSEPATTERN_EPSG, "{3}");
-
-                    final MessageFormat mf = new MessageFormat(pattern);
-                    Object[] tokens = null;
-                    try {
-                        tokens = mf.parse(values[c.getNumber()]);
-                    } catch (final ParseException e) {
-                        throw new NumberFormatException();
-                    }
-
-                    if (tokens == null) {
-                        throw new NumberFormatException();
-                    }
-
-                    Object[] latitude, longitude, height;
+        return getPositionResolver(group).resolve(values);
+    }
 
-                    if (tokens.length > 0 && tokens[0] != null) {
-                        latitude = parseLat((String) tokens[0]);
-                        posValues[Position.LAT] = (Double) latitude[0];
-                        units[Position.LAT] = (String) latitude[1];
-                    }
-                    if (tokens.length > 1 && tokens[1] != null) {
-                        longitude = parseLon((String)tokens[1]);
-                        posValues[Position.LONG] = (Double) longitude[0];
-                        units[Position.LONG] = (String) longitude[1];
-                    }
-                    if (tokens.length > 2 && tokens[2] != null) {
-                        height = parseAlt((String)tokens[2]);
-                        posValues[Position.ALT] = (Double) height[0];
-                        units[Position.ALT] = (String) height[1];
-                    }
-                    if (tokens.length > 3 && tokens[3] != null) {
-                        epsgCode = Integer.valueOf((String)tokens[3]);
-                    }
-                }
-                // get additional information
-                // LATITUDE
-                else if (m.getKey().equals(Key.POSITION_LATITUDE)) {
-                    final Object[] latitude = parseLat(m.getValue());
-                    posValues[Position.LAT] = (Double) latitude[0];
-                    units[Position.LAT] = (String) latitude[1];
-                }
-                // LONGITUDE
-                else if (m.getKey().equals(Key.POSITION_LONGITUDE)) {
-                    final Object[] longitude = parseLon(m.getValue());
-                    posValues[Position.LONG] = (Double) longitude[0];
-                    units[Position.LONG] = (String) longitude[1];
-                }
-                // ALTITUDE
-                else if (m.getKey().equals(Key.POSITION_ALTITUDE)) {
-                    final Object[] altitude = parseAlt(m.getValue());
-                    posValues[Position.ALT] = (Double) altitude[0];
-                    units[Position.ALT] = (String) altitude[1];
-                }
-                // EPSG
-                else if (m.getKey().equals(Key.POSITION_EPSG_CODE)) {
-                    epsgCode = Integer.valueOf(m.getValue());
+    /**
+     * @param group the identifier of a POSITION group
+     * @return the {@link PositionResolver} of the group, compiled once per
+     *         configuration, or <code>null</code>, if <code>group</code> is
+     *         <code>null</code> or has no columns.
+     */
+    PositionResolver getPositionResolver(final String group) {
+        if (group == null) {
+            return null;
+        }
+        PositionResolver resolver = positionResolvers.get(group);
+        if (resolver == null) {
+            resolver = PositionResolver.compile(this, group);
+            if (resolver != null) {
+                final PositionResolver existing = positionResolvers.putIfAbsent(group, resolver);
+                if (existing != null) {
+                    resolver = existing;
                 }
             }
-
         }
-        return new Position(posValues, units, epsgCode);
+        return resolver;
     }
 
-    private Object[] parseAlt(final String alt) throws ParseException {
+    Object[] parseAlt(final String alt) throws ParseException {
         LOG.trace(String.format("parseAlt(%s)",
                 alt));
         double value = Position.VALUE_NOT_SET;
@@ -747,7 +726,7 @@ public final class Configuration {
         return new Object[] {value, unit};
     }
 
-    private Object[] parseLon(final String lon) throws ParseException {
+    Object[] parseLon(final String lon) throws ParseException {
         LOG.trace(String.format("parseLon(%s)",
                 lon));
         double value;
@@ -780,7 +759,7 @@ public final class Configuration {
         return result;
     }
 
-    private Object[] parseLat(final String lat) throws ParseException {
+    Object[] parseLat(final String lat) throws ParseException {
         LOG.trace(String.format("parseLat(%s)",
                 lat));
         double value;
@@ -814,29 +793,22 @@ public final class Configuration {
     }
 
     public double parseToDouble(final String number) throws ParseException{
-        LOG.trace(String.format("parseToDouble(%s)",
-                number));
-        final DecimalFormatSymbols symbols = new DecimalFormatSymbols();
-        final char dSep = getDecimalSeparator();
-        symbols.setDecimalSeparator(dSep);
-        symbols.setGroupingSeparator(getThousandsSeparator(dSep));
-
-        Number n;
-        final DecimalFormat formatter = new DecimalFormat();
-        formatter.setDecimalFormatSymbols(symbols);
-        n = formatter.parse(number);
-
-        return n.doubleValue();
-    }
-
-    private char getThousandsSeparator(final char dSep) {
-        if (dSep == '.') {
-            return ',';
-        } else if (dSep == ',') {
-            return '.';
-        } else {
-            return 0;
+        LOG.trace("parseToDouble({})", number);
+        return getDecimalParser().parse(number);
+    }
+
+    /**
+     * @return the parser of decimal numbers configured once with
+     *         <code>SosImportConfiguration/CsvMetadata/DecimalSeparator</code>
+     *         and the matching grouping separator. It is thread safe.
+     */
+    public DecimalParser getDecimalParser() {
+        DecimalParser parser = decimalParser;
+        if (parser == null) {
+            parser = DecimalParser.forDecimalSeparator(getDecimalSeparator());
+            decimalParser = parser;
         }
+        return parser;
     }
 
     private char getDecimalSeparator() {
@@ -994,8 +966,7 @@ public final class Configuration {
 
     public Offering getOffering(final Sensor s) {
         LOG.trace("getOffering()");
-        if( importConf.getSosMetadata().getOffering().isSetGenerate() &&
-                importConf.getSosMetadata().getOffering().getGenerate()) {
+        if(isOfferingGenerated()) {
             return new Offering(s.getName(), s.getUri());
         } else {
             final String o = importConf.getSosMetadata().getOffering().getStringValue();
@@ -1003,6 +974,15 @@ public final class Configuration {
         }
     }
 
+    /**
+     * @return <code>true</code>, if the offering should be generated from the
+     *             sensor, else the fixed offering of the SosMetadata is used.
+     */
+    public boolean isOfferingGenerated() {
+        return importConf.getSosMetadata().getOffering().isSetGenerate() &&
+                importConf.getSosMetadata().getOffering().getGenerate();
+    }
+
     public String getFileName() {
         return configFile.getName();
     }
@@ -1276,6 +1256,104 @@ public final class Configuration {
 		throw new IllegalArgumentException("Attribute 'insertSweArrayObservationTimeoutBuffer' of <SosMetadata> not set.");
 	}
 
+	/**
+	 * @return the value of <code>SosImportConfiguration/SosMetadata@revalidateSensorRegistry</code>
+	 *         or its default value <code>true</code>.
+	 */
+	public boolean isRevalidateSensorRegistry() {
+		return importConf.getSosMetadata().getRevalidateSensorRegistry();
+	}
+
+	/**
+	 * @return the value of <code>SosImportConfiguration/SosMetadata@capabilitiesTimeToLive</code>
+	 *         or its default value 3600 seconds, in milliseconds.
+	 */
+	public long getCapabilitiesTimeToLive() {
+		return TimeUnit.SECONDS.toMillis(importConf.getSosMetadata().getCapabilitiesTimeToLive());
+	}
+
+	/**
+	 * @return the value of <code>SosImportConfiguration/SosMetadata@preRegisterSensorsParallelism</code>
+	 *         or its default value 0.
+	 */
+	public int getPreRegisterSensorsParallelism() {
+		return importConf.getSosMetadata().getPreRegisterSensorsParallelism();
+	}
+
+	/**
+	 * @return the value of <code>SosImportConfiguration/SosMetadata@adaptiveHunkSize</code>
+	 *         or its default value <code>false</code>.
+	 */
+	public boolean isAdaptiveHunkSize() {
+		return importConf.getSosMetadata().getAdaptiveHunkSize();
+	}
+
+	/**
+	 * @return the value of <code>SosImportConfiguration/SosMetadata@hunkTargetBytes</code>
+	 *         or its default value 8388608.
+	 */
+	public long getHunkTargetBytes() {
+		return importConf.getSosMetadata().getHunkTargetBytes();
+	}
+
+	/**
+	 * @return the value of <code>SosImportConfiguration/SosMetadata@hunkTargetLatency</code>
+	 *         or its default value 15000 milliseconds.
+	 */
+	public long getHunkTargetLatency() {
+		return importConf.getSosMetadata().getHunkTargetLatency();
+	}
+
+	/**
+	 * @return the value of <code>SosImportConfiguration/SosMetadata@insertSweArrayObservationParallelism</code>
+	 *         or its default value 1.
+	 */
+	public int getInsertSweArrayObservationParallelism() {
+		return importConf.getSosMetadata().getInsertSweArrayObservationParallelism();
+	}
+
+	/**
+	 * @return <code>true</code>, if SOS version 2.0.0 is used and
+	 *         <code>SosImportConfiguration/SosMetadata@insertObservationBatchSize</code>
+	 *         is greater than 1,<br />
+	 *         else <code>false</code>.
+	 */
+	public boolean isInsertObservationBatchingEnabled() {
+		return importConf.getSosMetadata().isSetInsertObservationBatchSize() &&
+				importConf.getSosMetadata().getInsertObservationBatchSize() > 1 &&
+				"2.0.0".equals(getSosVersion());
+	}
+
+	public int getInsertObservationBatchSize() {
+		if (importConf.getSosMetadata().isSetInsertObservationBatchSize()) {
+			return importConf.getSosMetadata().getInsertObservationBatchSize();
+		}
+		return 1;
+	}
+
+	public int getInsertObservationBatchBytes() {
+		return importConf.getSosMetadata().getInsertObservationBatchBytes();
+	}
+
+	public boolean isInsertThreadsSet() {
+		return importConf.getSosMetadata().isSetInsertThreads();
+	}
+
+	public int getInsertThreads() {
+		if (isInsertThreadsSet()) {
+			return importConf.getSosMetadata().getInsertThreads();
+		}
+		throw new IllegalArgumentException("Attribute 'insertThreads' of <SosMetadata> not set.");
+	}
+
+	/**
+	 * @return the value of <code>SosImportConfiguration/SosMetadata@insertQueueCapacity</code>
+	 *         or its default value 100.
+	 */
+	public int getInsertQueueCapacity() {
+		return importConf.getSosMetadata().getInsertQueueCapacity();
+	}
+
 	public int getSampleSizeDivisor() {
 		if (isSamplingFile() && importConf.getDataFile().isSetSampleSizeDivisor()) {
 			return importConf.getDataFile().getSampleSizeDivisor();
@@ -1291,4 +1369,46 @@ public final class Configuration {
 		return isCsvParserDefined()?importConf.getCsvMetadata().getCsvParserClass():WrappedCSVReader.class.getName();
 	}
 
+	/**
+	 * @return <code>true</code>, if <code>SosImportConfiguration/DataFile@parallelParsing</code>
+	 *         is set to <code>true</code>,<br />
+	 *         else <code>false</code>.
+	 */
+	public boolean isParallelParsing() {
+		return importConf.getDataFile().isSetParallelParsing() &&
+				importConf.getDataFile().getParallelParsing();
+	}
+
+	/**
+	 * @return the value of <code>SosImportConfiguration/DataFile@backlogFileParallelism</code>
+	 *         or its default value 1.
+	 */
+	public int getBacklogFileParallelism() {
+		return importConf.getDataFile().getBacklogFileParallelism();
+	}
+
+	/**
+	 * @return the value of <code>SosImportConfiguration/DataFile@followFlushInterval</code>
+	 *         in milliseconds or its default value 10000.
+	 */
+	public int getFollowFlushInterval() {
+		return importConf.getDataFile().getFollowFlushInterval();
+	}
+
+	/**
+	 * @return the value of <code>SosImportConfiguration/DataFile@followFlushLineCount</code>
+	 *         or its default value 100.
+	 */
+	public int getFollowFlushLineCount() {
+		return importConf.getDataFile().getFollowFlushLineCount();
+	}
+
+	/**
+	 * @return the value of <code>SosImportConfiguration/DataFile@watchStableInterval</code>
+	 *         in milliseconds or its default value 5000.
+	 */
+	public int getWatchStableInterval() {
+		return importConf.getDataFile().getWatchStableInterval();
+	}
+
 }
@@ -41,6 +41,9 @@ import java.util.jar.Attributes.Name;
 import java.util.jar.Manifest;
 
 import org.apache.xmlbeans.XmlException;
+import org.n52.sos.importer.feeder.task.DirectoryWatchingFeeder;
+import org.n52.sos.importer.feeder.task.FeederDaemon;
+import org.n52.sos.importer.feeder.task.FollowingFeeder;
 import org.n52.sos.importer.feeder.task.OneTimeFeeder;
 import org.n52.sos.importer.feeder.task.RepeatedFeeder;
 import org.slf4j.Logger;
@@ -54,12 +57,19 @@ public final class Feeder {
 
 	private static final Logger LOG = LoggerFactory.getLogger(Feeder.class);
 
-	private static final String[] ALLOWED_PARAMETERS = { "-c", "-d", "-p"};
+	private static final String[] ALLOWED_PARAMETERS = { "-c", "-d", "-p", "-f", "-m", "-t"};
 
 	public static void main(final String[] args) {
 		LOG.trace("main()");
 		logApplicationMetadata();
-		if (checkArgs(args)) {
+		if (args != null && args.length > 0 && isDaemonModeSet(args[0])) {
+			if (checkDaemonArgs(args)) {
+				startDaemon(args);
+			} else {
+				showUsage();
+			}
+		}
+		else if (checkArgs(args)) {
 			// read configuration
 			final String configFile = args[1];
 			try {
@@ -70,6 +80,10 @@ public final class Feeder {
 					// Case: one time feeding with defined configuration
 					new Thread(new OneTimeFeeder(c), OneTimeFeeder.class.getSimpleName()).start();
 				}
+				else if (args.length == 3) {
+					// Case: following the data file from configuration
+					following(c,c.getDataFile());
+				}
 				else if (args.length == 4) {
 					// Case: one time feeding with file override or period with file from configuration
 					if (isFileOverride(args[2])) {
@@ -82,6 +96,10 @@ public final class Feeder {
 						repeatedFeeding(c,parseInt(args[3]));
 					}
 				}
+				else if (args.length == 5) {
+					// Case: following with file override
+					following(c,new File(args[3]));
+				}
 				else if (args.length == 6) {
 					// Case: repeated feeding with file override
 					repeatedFeeding(c,new File(args[3]),parseInt(args[5]));
@@ -113,6 +131,34 @@ public final class Feeder {
 		}
 	}
 
+	private static void startDaemon(final String[] args) {
+		try {
+			final int parallelism = args.length == 6? parseInt(args[5]) : Runtime.getRuntime().availableProcessors();
+			final FeederDaemon daemon = new FeederDaemon(new File(args[1]), parseInt(args[3]), parallelism);
+			if (daemon.start() > 0) {
+				Runtime.getRuntime().addShutdownHook(new Thread("FeederDaemonShutdown") {
+					@Override
+					public void run() {
+						daemon.stop();
+					}
+				});
+			}
+		}
+		catch (final IllegalArgumentException iae)
+		{
+			LOG.error("Given parameters could not be parsed! -p and -t must be positive numbers.");
+			LOG.debug("Exception Stack Trace:",iae);
+		}
+	}
+
+	private static void following(final Configuration c, final File f) {
+		if (f.isDirectory()) {
+			new Thread(new DirectoryWatchingFeeder(c,f),DirectoryWatchingFeeder.class.getSimpleName()).start();
+		} else {
+			new Thread(new FollowingFeeder(c,f),FollowingFeeder.class.getSimpleName()).start();
+		}
+	}
+
 	private static void repeatedFeeding(final Configuration c, final File f, final int periodInMinutes) {
 		final Timer t = new Timer("FeederTimer");
 		t.schedule(new RepeatedFeeder(c,f,periodInMinutes), 1, periodInMinutes*1000*60);
@@ -128,11 +174,16 @@ public final class Feeder {
 	 */
 	private static void showUsage() {
 		LOG.trace("showUsage()");
-		System.out.println(new StringBuffer("usage: java -jar Feeder.jar -c file [-d datafile] [-p period]\n")
+		System.out.println(new StringBuffer("usage: java -jar Feeder.jar -c file [-d datafile] [-p period | -f]\n")
+				.append("       java -jar Feeder.jar -m directory -p period [-t threads]\n")
 				.append("options and arguments:\n")
 				.append("-c file	 : read the config file and start the import process\n")
 				.append("-d datafile : OPTIONAL override of the datafile defined in config file\n")
-				.append("-p period   : OPTIONAL time period in minutes for repeated feeding")
+				.append("-p period   : OPTIONAL time period in minutes for repeated feeding\n")
+				.append("-f          : OPTIONAL follow the growing datafile and import appended lines continuously,\n")
+				.append("              or watch the datafile directory and import new files when they are complete\n")
+				.append("-m directory: run the feeders of all config files (*.xml) in the directory repeatedly\n")
+				.append("-t threads  : OPTIONAL maximum number of feeders running at the same time; default: number of processors")
 				.toString());
 	}
 
@@ -154,12 +205,22 @@ public final class Feeder {
 			if (isConfigFileSet(args[0])) {
 				return true;
 			}
+		} else if (args.length == 3) {
+			if (isConfigFileSet(args[0]) && isFollowing(args[2])) {
+				return true;
+			}
 		} else if (args.length == 4) {
 			if (isConfigFileSet(args[0]) && (
 					isFileOverride(args[2]) ||
 					isTimePeriodSet(args[2]) ) ) {
 				return true;
 			}
+		} else if (args.length == 5) {
+			if (isConfigFileSet(args[0]) &&
+					isFileOverride(args[2]) &&
+					isFollowing(args[4])) {
+				return true;
+			}
 		} else if (args.length == 6) {
 			if (args[0].equals(ALLOWED_PARAMETERS[0]) &&
 					isFileOverride(args[2]) &&
@@ -171,6 +232,28 @@ public final class Feeder {
 		return false;
 	}
 
+	private static boolean checkDaemonArgs(final String[] args) {
+		LOG.trace("checkDaemonArgs({})",Arrays.toString(args));
+		if ((args.length == 4 || args.length == 6) &&
+				new File(args[1]).isDirectory() &&
+				isTimePeriodSet(args[2]) &&
+				(args.length == 4 || isThreadCountSet(args[4]))) {
+			return true;
+		}
+		LOG.error("Given parameters do not match programm specification. ");
+		return false;
+	}
+
+	private static boolean isDaemonModeSet(final String parameter)
+	{
+		return ALLOWED_PARAMETERS[4].equals(parameter);
+	}
+
+	private static boolean isThreadCountSet(final String parameter)
+	{
+		return ALLOWED_PARAMETERS[5].equals(parameter);
+	}
+
 	private static boolean isConfigFileSet(final String parameter)
 	{
 		return ALLOWED_PARAMETERS[0].equals(parameter);
@@ -186,6 +269,11 @@ public final class Feeder {
 		return parameter.equals(ALLOWED_PARAMETERS[2]);
 	}
 
+	private static boolean isFollowing(final String parameter)
+	{
+		return parameter.equals(ALLOWED_PARAMETERS[3]);
+	}
+
 	/**
 	 * Method print all available information from the jar's manifest file.
 	 */
@@ -0,0 +1,124 @@
+/**
+ * Copyright (C) 2011-2015 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.importer.feeder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Sizes the hunks of import strategy
+ * <code>SweArrayObservationWithSplitExtension</code> using additive increase
+ * and multiplicative decrease (AIMD):
+ * <ul>
+ * <li>After a hunk was inserted within the target latency, the hunk size is
+ * increased by a tenth of the initial size.</li>
+ * <li>After a hunk took longer, it is decreased to three quarters.</li>
+ * <li>After a request of a hunk failed, e.g. because of a timeout or an
+ * exception report, it is halved.</li>
+ * </ul>
+ * The hunk size is limited to the number of lines whose payload fits into the
+ * target number of bytes. Thread safe.
+ *
+ * @author <a href="mailto:e.h.juerrens@52north.org">Eike Hinderk J&uuml;rrens</a>
+ */
+final class HunkSizeController {
+
+	private static final Logger LOG = LoggerFactory.getLogger(HunkSizeController.class);
+
+	private final int increment;
+
+	private final long targetBytes;
+
+	private final long targetLatency;
+
+	// guarded by this
+	private int hunkSize;
+
+	/**
+	 * @param initialHunkSize the number of lines of the first hunk
+	 * @param targetBytes the maximum payload of all requests of one hunk
+	 * @param targetLatency the maximum duration of one request in
+	 *        milliseconds
+	 * @throws IllegalArgumentException if a value is below 1
+	 */
+	HunkSizeController(final int initialHunkSize, final long targetBytes, final long targetLatency) {
+		if (initialHunkSize < 1 || targetBytes < 1 || targetLatency < 1) {
+			throw new IllegalArgumentException(String.format(
+					"Hunk size, target bytes, and target latency must be greater than 0: %d, %d, %d",
+					initialHunkSize,
+					targetBytes,
+					targetLatency));
+		}
+		increment = Math.max(1, initialHunkSize / 10);
+		this.targetBytes = targetBytes;
+		this.targetLatency = targetLatency;
+		hunkSize = initialHunkSize;
+	}
+
+	/**
+	 * @return the number of lines of the next hunk
+	 */
+	synchronized int getHunkSize() {
+		return hunkSize;
+	}
+
+	/**
+	 * @param lines the number of lines of the hunk
+	 * @param bytes the payload of all requests of the hunk
+	 * @param latency the duration of the slowest request of the hunk in
+	 *        milliseconds
+	 * @param failed <code>true</code>, if at least one request of the hunk
+	 *        failed
+	 */
+	synchronized void completed(final int lines, final long bytes, final long latency, final boolean failed) {
+		if (lines < 1) {
+			return;
+		}
+		final int previous = hunkSize;
+		if (failed) {
+			hunkSize = hunkSize / 2;
+		} else if (latency > targetLatency) {
+			hunkSize = hunkSize * 3 / 4;
+		} else if (hunkSize <= Integer.MAX_VALUE - increment) {
+			hunkSize += increment;
+		}
+		final long bytesPerLine = Math.max(1, bytes / lines);
+		hunkSize = (int) Math.max(1, Math.min(hunkSize, targetBytes / bytesPerLine));
+		if (hunkSize != previous) {
+			LOG.info("Changed hunk size from {} to {} lines. Last hunk: {} lines, {} bytes, {}ms{}.",
+					previous,
+					hunkSize,
+					lines,
+					bytes,
+					latency,
+					failed? ", failed" : "");
+		}
+	}
+
+}
@@ -0,0 +1,340 @@
+/**
+ * Copyright (C) 2011-2015 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.importer.feeder;
+
+import java.io.File;
+import java.text.ParseException;
+import java.util.Map;
+
+import org.n52.sos.importer.feeder.model.Offering;
+import org.n52.sos.importer.feeder.model.Position;
+import org.n52.sos.importer.feeder.model.Sensor;
+import org.n52.sos.importer.feeder.model.Timestamp;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.x52North.sensorweb.sos.importer.x04.ColumnDocument.Column;
+import org.x52North.sensorweb.sos.importer.x04.FeatureOfInterestType;
+import org.x52North.sensorweb.sos.importer.x04.GeneratedResourceType;
+import org.x52North.sensorweb.sos.importer.x04.GeneratedSpatialResourceType;
+import org.x52North.sensorweb.sos.importer.x04.ManualResourceType;
+import org.x52North.sensorweb.sos.importer.x04.ObservedPropertyType;
+import org.x52North.sensorweb.sos.importer.x04.RelatedObservedPropertyDocument.RelatedObservedProperty;
+import org.x52North.sensorweb.sos.importer.x04.RelatedUnitOfMeasurementDocument.RelatedUnitOfMeasurement;
+import org.x52North.sensorweb.sos.importer.x04.SensorType;
+import org.x52North.sensorweb.sos.importer.x04.SpatialResourceType;
+import org.x52North.sensorweb.sos.importer.x04.UnitOfMeasurementType;
+
+/**
+ * Holds one {@link ColumnPlan} for each measured value column of a
+ * {@link DataFile}. The plan is built once per import from the
+ * {@link Configuration}, hence the XmlBeans configuration is not accessed
+ * while processing the lines of the data file.
+ *
+ * @author <a href="mailto:e.h.juerrens@52north.org">Eike Hinderk J&uuml;rrens</a>
+ */
+public final class ImportPlan {
+
+	private static final Logger LOG = LoggerFactory.getLogger(ImportPlan.class);
+
+	private final int[] measuredValueColumnIds;
+
+	private final ColumnPlan[] columnPlans;
+
+	// indexed by column id
+	private final ColumnPlan[] columnPlansById;
+
+	private final boolean isOfferingGenerated;
+
+	// the offering of all sensors, if not generated
+	private final Offering offering;
+
+	private final ResourceCache resources = new ResourceCache();
+
+	private ImportPlan(final Configuration configuration, final File file) {
+		final int[] mvColumnIds = configuration.getMeasureValueColumnIds();
+		measuredValueColumnIds = mvColumnIds != null? mvColumnIds : new int[0];
+		isOfferingGenerated = configuration.isOfferingGenerated();
+		if (isOfferingGenerated) {
+			offering = null;
+		} else {
+			final String name = configuration.getOffering(null).getName();
+			offering = new Offering(name, name);
+			ResourceCache.cleanNCName(offering, "Offering");
+		}
+
+		// timestamp information from the data file itself
+		Timestamp fileTimestamp = null;
+		ParseException fileTimestampException = null;
+		if (configuration.isDateInfoExtractionFromFileNameSetupValid() ||
+				configuration.isUseDateInfoFromFileModificationSet()) {
+			fileTimestamp = new Timestamp();
+			if (configuration.isDateInfoExtractionFromFileNameSetupValid()) {
+				try {
+					fileTimestamp.enrich(
+							file.getName(),
+							configuration.getRegExDateInfoInFileName(),
+							configuration.getDateInfoPattern());
+				} catch (final ParseException e) {
+					fileTimestampException = e;
+				}
+			}
+			if (configuration.isUseDateInfoFromFileModificationSet()) {
+				fileTimestamp.enrich(file.lastModified(), configuration.getLastModifiedDelta());
+			}
+		}
+		// only the first date time group is supported
+		final TimestampResolver timestamp = TimestampResolver.compile(configuration,
+				configuration.getFirstDateTimeGroup(),
+				fileTimestamp,
+				fileTimestampException);
+		final Map<String, Position> foiPositions = configuration.getFoiPositions();
+
+		final ValueDecoder decoder = new ValueDecoder(configuration.getDecimalParser());
+		columnPlans = new ColumnPlan[measuredValueColumnIds.length];
+		int maxColumnId = -1;
+		for (int i = 0; i < measuredValueColumnIds.length; i++) {
+			final int mvColumnId = measuredValueColumnIds[i];
+			maxColumnId = Math.max(maxColumnId, mvColumnId);
+			final Column column = configuration.getColumnById(mvColumnId);
+			// FOI
+			ResourceResolver foi = ResourceResolver.NONE;
+			Position foiPosition = null;
+			PositionResolver foiPositionResolver = null;
+			final int foiColumnId = configuration.getColumnIdForFoi(mvColumnId);
+			if (foiColumnId > -1) {
+				foi = ResourceResolver.column(foiColumnId);
+				foiPositionResolver = configuration.getPositionResolver(configuration.getFirstPositionGroup());
+			} else {
+				final FeatureOfInterestType foiT = configuration.getRelatedFoi(mvColumnId);
+				if (foiT != null && foiT.getResource() != null) {
+					org.x52North.sensorweb.sos.importer.x04.PositionDocument.Position xbPosition = null;
+					if (foiT.getResource() instanceof GeneratedSpatialResourceType) {
+						final GeneratedSpatialResourceType gSRT = (GeneratedSpatialResourceType) foiT.getResource();
+						foi = ResourceResolver.generated(
+								gSRT.isSetConcatString()?gSRT.getConcatString():null,
+								gSRT.isSetURI()?gSRT.getURI().getStringValue():null,
+								gSRT.isSetURI()&&gSRT.getURI().isSetUseAsPrefix()?gSRT.getURI().getUseAsPrefix():false,
+								gSRT.getNumberArray());
+						xbPosition = gSRT.getPosition();
+					} else if (foiT.getResource() instanceof SpatialResourceType) {
+						final SpatialResourceType mSRT = (SpatialResourceType) foiT.getResource();
+						foi = ResourceResolver.manual(mSRT.getName(), mSRT.getURI().getStringValue());
+						xbPosition = mSRT.getPosition();
+					}
+					if (xbPosition != null) {
+						// Case A: Position is in configuration
+						if (!xbPosition.isSetGroup() &&
+								xbPosition.isSetEPSGCode() &&
+								xbPosition.isSetLat() &&
+								xbPosition.isSetLong()) {
+							foiPosition = configuration.getModelPositionXBPosition(xbPosition);
+						}
+						// Case B: Position is in data file (and configuration [missing values])
+						else if (xbPosition.isSetGroup() &&
+								!xbPosition.isSetEPSGCode() &&
+								!xbPosition.isSetLat() &&
+								!xbPosition.isSetLong()) {
+							foiPositionResolver = configuration.getPositionResolver(xbPosition.getGroup());
+						}
+					}
+				}
+			}
+			columnPlans[i] = new ColumnPlan(mvColumnId,
+					configuration.getType(mvColumnId),
+					decoder,
+					this,
+					getSensorResolver(configuration, mvColumnId),
+					foi,
+					foiColumnId,
+					foiPosition,
+					foiPositionResolver,
+					foiPositions,
+					timestamp,
+					getUomResolver(configuration, column, mvColumnId),
+					getObservedPropertyResolver(configuration, column, mvColumnId));
+			LOG.debug("Compiled {}", columnPlans[i]);
+		}
+		columnPlansById = new ColumnPlan[maxColumnId + 1];
+		for (final ColumnPlan columnPlan : columnPlans) {
+			columnPlansById[columnPlan.getColumnId()] = columnPlan;
+		}
+	}
+
+	/**
+	 * @return a new {@link ImportPlan} for the given data file
+	 */
+	public static ImportPlan compile(final Configuration configuration, final File file) {
+		LOG.trace("compile()");
+		return new ImportPlan(configuration, file);
+	}
+
+	/**
+	 * @return the measured value column ids in the order of the configuration
+	 */
+	public int[] getMeasuredValueColumnIds() {
+		return measuredValueColumnIds;
+	}
+
+	/**
+	 * @return one {@link ColumnPlan} for each measured value column in the
+	 * 			order of {@link #getMeasuredValueColumnIds()}.
+	 */
+	public ColumnPlan[] getColumnPlans() {
+		return columnPlans;
+	}
+
+	/**
+	 * @return the {@link ColumnPlan} for the given measured value column or
+	 * 			<code>null</code>
+	 */
+	public ColumnPlan getColumnPlan(final int mvColumnId) {
+		if (mvColumnId < 0 || mvColumnId >= columnPlansById.length) {
+			return null;
+		}
+		return columnPlansById[mvColumnId];
+	}
+
+	/**
+	 * @return the offering of the given sensor, shared by all observations
+	 * 			of the sensor
+	 */
+	public Offering getOffering(final Sensor s) {
+		return isOfferingGenerated? resources.getOffering(s) : offering;
+	}
+
+	/**
+	 * @return the cache of the resources of this import
+	 */
+	ResourceCache getResources() {
+		return resources;
+	}
+
+	private static ResourceResolver getSensorResolver(final Configuration configuration,
+			final int mvColumnId) {
+		// check for sensor column
+		final int sensorColumnId = configuration.getColumnIdForSensor(mvColumnId);
+		if (sensorColumnId > -1) {
+			return ResourceResolver.column(sensorColumnId);
+		}
+		// else build sensor from manual or generated resource
+		SensorType sensorType = configuration.getRelatedSensor(mvColumnId);
+		// Case: one mv column => no related sensor element => check for one single sensor in additional metadata
+		if (sensorType == null && configuration.isOneMvColumn()) {
+			sensorType = configuration.getSensorFromAdditionalMetadata();
+		}
+		if (sensorType != null && sensorType.getResource() != null) {
+			if (sensorType.getResource() instanceof GeneratedResourceType) {
+				return ResourceResolver.generated((GeneratedResourceType) sensorType.getResource());
+			} else if (sensorType.getResource() instanceof ManualResourceType) {
+				return ResourceResolver.manual((ManualResourceType) sensorType.getResource());
+			}
+		}
+		return ResourceResolver.NONE;
+	}
+
+	/**
+	 * @see DataFile#getUnitOfMeasurement(int, String[])
+	 */
+	private static ResourceResolver getUomResolver(final Configuration configuration,
+			final Column mvColumn,
+			final int mVColumnId) {
+		// Case A*
+		if (mvColumn.getRelatedUnitOfMeasurementArray() != null &&
+				mvColumn.getRelatedUnitOfMeasurementArray().length > 0) {
+			final RelatedUnitOfMeasurement relUom = mvColumn.getRelatedUnitOfMeasurementArray(0);
+			// Case A.1.*: idRef
+			if (relUom.isSetIdRef() && !relUom.isSetNumber()) {
+				final UnitOfMeasurementType uom = configuration.getUomById(relUom.getIdRef());
+				if (uom != null) {
+					// Case A.1.1
+					if (uom.getResource() instanceof ManualResourceType) {
+						return ResourceResolver.manual((ManualResourceType) uom.getResource());
+					}
+					// Case A.1.2
+					if (uom.getResource() instanceof GeneratedResourceType) {
+						final GeneratedResourceType uomGRT = (GeneratedResourceType) uom.getResource();
+						return ResourceResolver.generated(
+								uomGRT.isSetConcatString()? uomGRT.getConcatString():"",
+								"",
+								false,
+								uomGRT.getNumberArray());
+					}
+				}
+			}
+			// Case A.2: number
+			if (relUom.isSetNumber() && !relUom.isSetIdRef()) {
+				return ResourceResolver.column(relUom.getNumber());
+			}
+		}
+		// Case B: Information stored in another column
+		final int uomColumnId = configuration.getColumnIdForUom(mVColumnId);
+		if (uomColumnId > -1) {
+			return ResourceResolver.column(uomColumnId);
+		}
+		return ResourceResolver.NONE;
+	}
+
+	/**
+	 * @see DataFile#getObservedProperty(int, String[])
+	 */
+	private static ResourceResolver getObservedPropertyResolver(final Configuration configuration,
+			final Column mvColumn,
+			final int mVColumnId) {
+		// Case A*
+		if (mvColumn.getRelatedObservedPropertyArray() != null &&
+				mvColumn.getRelatedObservedPropertyArray().length > 0) {
+			final RelatedObservedProperty relOp = mvColumn.getRelatedObservedPropertyArray(0);
+			// Case A.1.*: idRef
+			if (relOp.isSetIdRef() && !relOp.isSetNumber()) {
+				final ObservedPropertyType op = configuration.getObsPropById(relOp.getIdRef());
+				if (op != null) {
+					// Case A.1.1
+					if (op.getResource() instanceof ManualResourceType) {
+						return ResourceResolver.manual((ManualResourceType) op.getResource());
+					}
+					// Case A.1.2
+					if (op.getResource() instanceof GeneratedResourceType) {
+						return ResourceResolver.generated((GeneratedResourceType) op.getResource());
+					}
+				}
+			}
+			// Case A.2: number
+			if (relOp.isSetNumber() && !relOp.isSetIdRef()) {
+				return ResourceResolver.column(relOp.getNumber());
+			}
+		}
+		// Case B: Information stored in another column
+		final int opColumnId = configuration.getColumnIdForOpsProp(mVColumnId);
+		if (opColumnId > -1) {
+			return ResourceResolver.column(opColumnId);
+		}
+		return ResourceResolver.NONE;
+	}
+
+}
@@ -0,0 +1,328 @@
+/**
+ * Copyright (C) 2011-2015 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.importer.feeder;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.xmlbeans.XmlException;
+import org.n52.oxf.OXFException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Bounded producer/consumer pipeline decoupling the parsing of the data file
+ * from the requests sent to the SOS.
+ * <br>
+ * The parsing thread {@link #submit(RequestBuilder)}s one
+ * {@link RequestBuilder} per line or hunk. A single request building thread
+ * calls them in submission order, e.g. to register sensors and to create the
+ * request parameters. The resulting insert requests are executed by a pool
+ * of insert worker threads. Both queues are bounded, hence a slow SOS slows
+ * down the parsing instead of filling the heap.
+ * <br>
+ * Insert requests MUST handle their own failures, e.g. by storing the
+ * affected observations. Any exception thrown by a {@link RequestBuilder}
+ * and any {@link RuntimeException} thrown by an insert request stops the
+ * pipeline and is rethrown by {@link #submit(RequestBuilder)} or
+ * {@link #finish()}.
+ *
+ * @author <a href="mailto:e.h.juerrens@52north.org">Eike Hinderk J&uuml;rrens</a>
+ */
+final class InsertPipeline {
+
+	private static final Logger LOG = LoggerFactory.getLogger(InsertPipeline.class);
+
+	private static final long OFFER_TIMEOUT_MILLIS = 100;
+
+	/**
+	 * Called by the request building thread in submission order.
+	 */
+	interface RequestBuilder {
+
+		/**
+		 * @return the insert requests to execute concurrently by the insert
+		 *         workers
+		 */
+		List<Runnable> build() throws OXFException, XmlException, IOException;
+
+	}
+
+	private static final RequestBuilder END_OF_BUILDERS = new RequestBuilder() {
+		@Override
+		public List<Runnable> build() {
+			return null;
+		}
+	};
+
+	private static final Runnable END_OF_REQUESTS = new Runnable() {
+		@Override
+		public void run() {
+			// marker only
+		}
+	};
+
+	private final BlockingQueue<RequestBuilder> builders;
+
+	private final BlockingQueue<Runnable> requests;
+
+	private final Thread builderThread;
+
+	private final Thread[] insertWorkers;
+
+	private volatile Exception failure;
+
+	private boolean finished;
+
+	InsertPipeline(final int insertWorkerCount, final int queueCapacity) {
+		builders = new ArrayBlockingQueue<>(queueCapacity);
+		requests = new ArrayBlockingQueue<>(queueCapacity);
+		builderThread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				buildRequests();
+			}
+		}, "sos-importer-request-builder");
+		builderThread.setDaemon(true);
+		insertWorkers = new Thread[insertWorkerCount];
+		for (int i = 0; i < insertWorkerCount; i++) {
+			insertWorkers[i] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					executeRequests();
+				}
+			}, "sos-importer-insert-worker-" + i);
+			insertWorkers[i].setDaemon(true);
+		}
+		builderThread.start();
+		for (final Thread insertWorker : insertWorkers) {
+			insertWorker.start();
+		}
+		LOG.info("Started insert pipeline with {} insert workers and queue capacity {}.",
+				insertWorkerCount, queueCapacity);
+	}
+
+	/**
+	 * Blocks while the queue of the request building thread is full.
+	 *
+	 * @param builder creates the insert requests of one line or hunk
+	 * @throws OXFException rethrown from a failed pipeline stage
+	 * @throws XmlException rethrown from a failed pipeline stage
+	 * @throws IOException rethrown from a failed pipeline stage
+	 */
+	void submit(final RequestBuilder builder) throws OXFException, XmlException, IOException {
+		if (finished) {
+			throw new IllegalStateException("Insert pipeline already finished.");
+		}
+		put(builders, builder);
+		rethrowFailure();
+	}
+
+	/**
+	 * Submits the last {@link RequestBuilder}, e.g. flushing open batches,
+	 * and {@link #finish()}es the pipeline. Does nothing if the pipeline is
+	 * already finished.
+	 *
+	 * @param lastBuilder creates the last insert requests
+	 * @throws OXFException rethrown from a failed pipeline stage
+	 * @throws XmlException rethrown from a failed pipeline stage
+	 * @throws IOException rethrown from a failed pipeline stage
+	 */
+	void finish(final RequestBuilder lastBuilder) throws OXFException, XmlException, IOException {
+		if (finished) {
+			return;
+		}
+		submit(lastBuilder);
+		finish();
+	}
+
+	/**
+	 * Waits until all submitted requests are executed and stops the threads.
+	 * Does nothing if the pipeline is already finished.
+	 *
+	 * @throws OXFException rethrown from a failed pipeline stage
+	 * @throws XmlException rethrown from a failed pipeline stage
+	 * @throws IOException rethrown from a failed pipeline stage
+	 */
+	void finish() throws OXFException, XmlException, IOException {
+		if (finished) {
+			return;
+		}
+		finished = true;
+		put(builders, END_OF_BUILDERS);
+		join();
+		rethrowFailure();
+	}
+
+	/**
+	 * Stops the pipeline without waiting for pending requests. Does nothing
+	 * if the pipeline is already finished.
+	 */
+	void abort() {
+		if (finished) {
+			return;
+		}
+		finished = true;
+		fail(new InterruptedException("Insert pipeline aborted."));
+		builderThread.interrupt();
+		for (final Thread insertWorker : insertWorkers) {
+			insertWorker.interrupt();
+		}
+		join();
+	}
+
+	private void buildRequests() {
+		try {
+			RequestBuilder builder;
+			while ((builder = builders.take()) != END_OF_BUILDERS && failure == null) {
+				final List<Runnable> built = builder.build();
+				if (built != null) {
+					for (final Runnable request : built) {
+						put(requests, request);
+					}
+				}
+			}
+		} catch (final InterruptedException e) {
+			fail(e);
+		} catch (final OXFException | XmlException | IOException | RuntimeException e) {
+			if (failure == null) {
+				LOG.error("Request building failed: {}", e.getMessage());
+				LOG.debug("Exception Stack Trace:", e);
+			}
+			fail(e);
+		}
+		stopInsertWorkers();
+	}
+
+	/*
+	 * Each insert worker stops after taking one end marker. After a failure
+	 * the pending requests are dropped once to make room for the markers.
+	 * Markers put afterwards are kept, because busy workers take them later.
+	 */
+	private void stopInsertWorkers() {
+		if (failure != null) {
+			requests.clear();
+		}
+		int stopped = 0;
+		while (stopped < insertWorkers.length) {
+			try {
+				if (requests.offer(END_OF_REQUESTS, OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+					stopped++;
+				} else if (!isInsertWorkerAlive()) {
+					// e.g. aborted or failed workers, which take no marker
+					return;
+				}
+			} catch (final InterruptedException e) {
+				fail(e);
+			}
+		}
+	}
+
+	private boolean isInsertWorkerAlive() {
+		for (final Thread insertWorker : insertWorkers) {
+			if (insertWorker.isAlive()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void executeRequests() {
+		try {
+			Runnable request;
+			while ((request = requests.take()) != END_OF_REQUESTS) {
+				if (failure == null) {
+					request.run();
+				}
+			}
+		} catch (final InterruptedException e) {
+			fail(e);
+		} catch (final RuntimeException e) {
+			LOG.error("Insert request failed: {}", e.getMessage());
+			LOG.debug("Exception Stack Trace:", e);
+			fail(e);
+		}
+	}
+
+	/*
+	 * put with regular checks of the failure state to prevent deadlocks if a
+	 * consuming stage stopped.
+	 */
+	private <T> void put(final BlockingQueue<T> queue, final T element) throws IOException {
+		try {
+			while (!queue.offer(element, OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+				if (failure != null) {
+					return;
+				}
+			}
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while waiting for the insert pipeline.", e);
+		}
+	}
+
+	private void join() {
+		try {
+			builderThread.join();
+			for (final Thread insertWorker : insertWorkers) {
+				insertWorker.join();
+			}
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			LOG.error("Interrupted while waiting for the insert pipeline to finish.");
+		}
+	}
+
+	private synchronized void fail(final Exception e) {
+		if (failure == null) {
+			failure = e;
+		}
+	}
+
+	private void rethrowFailure() throws OXFException, XmlException, IOException {
+		final Exception e = failure;
+		if (e == null || e instanceof InterruptedException) {
+			return;
+		}
+		if (e instanceof OXFException) {
+			throw (OXFException) e;
+		}
+		if (e instanceof XmlException) {
+			throw (XmlException) e;
+		}
+		if (e instanceof IOException) {
+			throw (IOException) e;
+		}
+		throw (RuntimeException) e;
+	}
+
+}
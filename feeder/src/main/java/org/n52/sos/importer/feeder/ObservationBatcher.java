@@ -0,0 +1,182 @@
+/**
+ * Copyright (C) 2011-2015 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.importer.feeder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Collects single observations into batches that are inserted with one
+ * request each.
+ * <br>
+ * The observations are grouped by a key, e.g. the offering, because all
+ * observations of one SOS 2.0 InsertObservation request are added to the
+ * same offerings. A batch is closed when it reaches the maximum number of
+ * observations or when the next observation would exceed the maximum
+ * estimated request size.
+ * <br>
+ * If the SOS rejects a batch, it is split in half and both halves are sent
+ * again. Hence, duplicates and invalid observations are isolated until they
+ * are rejected individually and reported via
+ * {@link Sender#rejected(Object)}.
+ * <br>
+ * Not thread safe: {@link #add(String, Object, int)} and {@link #flush()}
+ * MUST be called by one thread, the returned requests might be executed
+ * concurrently.
+ *
+ * @param <E> the type of the batched observations
+ *
+ * @author <a href="mailto:e.h.juerrens@52north.org">Eike Hinderk J&uuml;rrens</a>
+ */
+final class ObservationBatcher<E> {
+
+	private static final Logger LOG = LoggerFactory.getLogger(ObservationBatcher.class);
+
+	interface Sender<E> {
+
+		/**
+		 * @param key the key of the batch, e.g. the offering
+		 * @param batch the observations to insert with one request
+		 * @return <code>true</code>, if the SOS accepted the batch
+		 */
+		boolean send(String key, List<E> batch);
+
+		/**
+		 * Called for each observation that the SOS rejected individually.
+		 *
+		 * @param observation the rejected observation
+		 */
+		void rejected(E observation);
+
+	}
+
+	private final int maxCount;
+
+	private final long maxBytes;
+
+	private final Sender<E> sender;
+
+	private final Map<String, Batch<E>> openBatches = new LinkedHashMap<>();
+
+	/**
+	 * @param maxCount the maximum number of observations per batch
+	 * @param maxBytes the maximum estimated size of a batch request in bytes
+	 * @param sender sends the batches to the SOS
+	 */
+	ObservationBatcher(final int maxCount, final long maxBytes, final Sender<E> sender) {
+		if (maxCount < 1 || maxBytes < 1) {
+			throw new IllegalArgumentException(String.format("Invalid batch limits: maxCount=%d, maxBytes=%d",
+					maxCount,
+					maxBytes));
+		}
+		this.maxCount = maxCount;
+		this.maxBytes = maxBytes;
+		this.sender = sender;
+	}
+
+	/**
+	 * @param key the key of the batch, e.g. the offering
+	 * @param observation the observation to add
+	 * @param bytes the estimated size of the observation in the request
+	 * @return the requests sending the batches closed by adding the
+	 *         observation, might be empty
+	 */
+	List<Runnable> add(final String key, final E observation, final int bytes) {
+		List<Runnable> requests = Collections.emptyList();
+		Batch<E> batch = openBatches.get(key);
+		if (batch != null && !batch.observations.isEmpty() && batch.bytes + bytes > maxBytes) {
+			requests = new ArrayList<>(2);
+			requests.add(createRequest(key, openBatches.remove(key).observations));
+			batch = null;
+		}
+		if (batch == null) {
+			batch = new Batch<>();
+			openBatches.put(key, batch);
+		}
+		batch.observations.add(observation);
+		batch.bytes += bytes;
+		if (batch.observations.size() >= maxCount || batch.bytes >= maxBytes) {
+			if (requests.isEmpty()) {
+				requests = new ArrayList<>(1);
+			}
+			requests.add(createRequest(key, openBatches.remove(key).observations));
+		}
+		return requests;
+	}
+
+	/**
+	 * @return the requests sending all open batches
+	 */
+	List<Runnable> flush() {
+		final List<Runnable> requests = new ArrayList<>(openBatches.size());
+		for (final Map.Entry<String, Batch<E>> entry : openBatches.entrySet()) {
+			requests.add(createRequest(entry.getKey(), entry.getValue().observations));
+		}
+		openBatches.clear();
+		return requests;
+	}
+
+	private Runnable createRequest(final String key, final List<E> observations) {
+		return new Runnable() {
+			@Override
+			public void run() {
+				send(key, observations);
+			}
+		};
+	}
+
+	private void send(final String key, final List<E> observations) {
+		if (sender.send(key, observations)) {
+			return;
+		}
+		if (observations.size() == 1) {
+			sender.rejected(observations.get(0));
+			return;
+		}
+		final int half = observations.size() / 2;
+		LOG.debug("Batch of {} observations for '{}' rejected. Splitting it.", observations.size(), key);
+		send(key, observations.subList(0, half));
+		send(key, observations.subList(half, observations.size()));
+	}
+
+	private static final class Batch<E> {
+
+		private final List<E> observations = new ArrayList<>();
+
+		private long bytes;
+
+	}
+
+}
@@ -0,0 +1,314 @@
+/**
+ * Copyright (C) 2011-2015 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.importer.feeder;
+
+import java.text.MessageFormat;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.n52.sos.importer.feeder.model.Position;
+import org.x52North.sensorweb.sos.importer.x04.ColumnDocument.Column;
+import org.x52North.sensorweb.sos.importer.x04.KeyDocument.Key;
+import org.x52North.sensorweb.sos.importer.x04.MetadataDocument.Metadata;
+import org.x52North.sensorweb.sos.importer.x04.TypeDocument.Type;
+
+/**
+ * Compiled form of one POSITION group of the configuration. The metadata of
+ * all columns of the group is evaluated once. The parse patterns are
+ * compiled into token extractors. Per line, only the columns containing
+ * position information are parsed into a reused holder, and only if their
+ * content differs from all lines before: the positions are cached by the
+ * content of these columns, because most lines of one station repeat the
+ * same coordinates. Thread safe.
+ *
+ * @see Configuration#getPosition(String, String[])
+ *
+ * @author <a href="mailto:e.h.juerrens@52north.org">Eike Hinderk J&uuml;rrens</a>
+ */
+final class PositionResolver {
+
+	// positions of one group, the cache is cleared if exceeded
+	private static final int MAX_CACHED_POSITIONS = 1024;
+
+	// separates the contents of several position columns in cache keys
+	private static final char KEY_SEPARATOR = '\u001F';
+
+	private final Configuration configuration;
+
+	// steps are applied in the order of the metadata elements
+	private final Step[] steps;
+
+	// the columns read by the steps
+	private final int[] columnIds;
+
+	private final Map<String, Position> positions = new ConcurrentHashMap<>();
+
+	// thread local because rows might be parsed concurrently, see ChunkedFileParser
+	private final ThreadLocal<PositionBuilder> builders = new ThreadLocal<PositionBuilder>() {
+		@Override
+		protected PositionBuilder initialValue() {
+			return new PositionBuilder();
+		}
+	};
+
+	private PositionResolver(final Configuration configuration, final Step[] steps, final int[] columnIds) {
+		this.configuration = configuration;
+		this.steps = steps;
+		this.columnIds = columnIds;
+	}
+
+	/**
+	 * @return a {@link PositionResolver} for the given group or
+	 * 			<code>null</code>, if <code>group</code> is <code>null</code>.
+	 */
+	static PositionResolver compile(final Configuration configuration, final String group) {
+		final Column[] cols = configuration.getAllColumnsForGroup(group, Type.POSITION);
+		if (cols == null) {
+			return null;
+		}
+		final List<Step> steps = new ArrayList<>();
+		final List<Integer> columnIds = new ArrayList<>();
+		for (final Column c : cols) {
+			for (final Metadata m : c.getMetadataArray()) {
+				if (m.getKey().equals(Key.PARSE_PATTERN)) {
+					String pattern = m.getValue();
+					pattern = pattern.replaceAll(Configuration.POSITION_PARSEPATTERN_LATITUDE, "{0}");
+					pattern = pattern.replaceAll(Configuration.POSITION_PARSEPATTERN_LONGITUDE, "{1}");
+					pattern = pattern.replaceAll(Configuration.POSITION_PARSEPATTERN_ALTITUDE, "{2}");
+					pattern = pattern.replaceAll(Configuration.POSITION_PARSEPATTERN_EPSG, "{3}");
+					steps.add(new PatternStep(c.getNumber(), pattern));
+					if (!columnIds.contains(c.getNumber())) {
+						columnIds.add(c.getNumber());
+					}
+				} else if (m.getKey().equals(Key.POSITION_LATITUDE)) {
+					steps.add(new ConstantStep(Position.LAT, m.getValue()));
+				} else if (m.getKey().equals(Key.POSITION_LONGITUDE)) {
+					steps.add(new ConstantStep(Position.LONG, m.getValue()));
+				} else if (m.getKey().equals(Key.POSITION_ALTITUDE)) {
+					steps.add(new ConstantStep(Position.ALT, m.getValue()));
+				} else if (m.getKey().equals(Key.POSITION_EPSG_CODE)) {
+					steps.add(new EpsgStep(m.getValue()));
+				}
+			}
+		}
+		final int[] ids = new int[columnIds.size()];
+		for (int i = 0; i < ids.length; i++) {
+			ids[i] = columnIds.get(i);
+		}
+		return new PositionResolver(configuration, steps.toArray(new Step[steps.size()]), ids);
+	}
+
+	/**
+	 * @return the position of the given line. Lines with the same content in
+	 *         the position columns share one {@link Position} instance.
+	 */
+	Position resolve(final String[] values) throws ParseException {
+		final PositionBuilder builder = builders.get();
+		final String key = builder.getKey(values, columnIds);
+		Position position = positions.get(key);
+		if (position == null) {
+			builder.reset();
+			for (final Step step : steps) {
+				step.apply(configuration, values, builder);
+			}
+			position = builder.build();
+			if (positions.size() >= MAX_CACHED_POSITIONS) {
+				positions.clear();
+			}
+			positions.put(key, position);
+		}
+		return position;
+	}
+
+	/*
+	 * Collects the values of one position. Reused for all lines of one thread.
+	 */
+	private static final class PositionBuilder {
+
+		private final String[] units = new String[3];
+
+		private final double[] posValues = new double[3];
+
+		private int epsgCode = -1;
+
+		// the tokens of one parse pattern: lat, lon, alt, epsg
+		private final String[] tokens = new String[4];
+
+		private final StringBuilder key = new StringBuilder();
+
+		private void set(final int index, final Object[] valueAndUnit) {
+			posValues[index] = (Double) valueAndUnit[0];
+			units[index] = (String) valueAndUnit[1];
+		}
+
+		private String getKey(final String[] values, final int[] columnIds) {
+			if (columnIds.length == 1) {
+				return values[columnIds[0]];
+			}
+			key.setLength(0);
+			for (final int columnId : columnIds) {
+				key.append(values[columnId]).append(KEY_SEPARATOR);
+			}
+			return key.toString();
+		}
+
+		private void reset() {
+			Arrays.fill(units, null);
+			Arrays.fill(posValues, 0.0);
+			epsgCode = -1;
+		}
+
+		private Position build() {
+			return new Position(posValues.clone(), units.clone(), epsgCode);
+		}
+	}
+
+	private abstract static class Step {
+		abstract void apply(Configuration configuration, String[] values, PositionBuilder builder) throws ParseException;
+	}
+
+	private static final class PatternStep extends Step {
+
+		private final int columnId;
+
+		private final String pattern;
+
+		// null, if the pattern is only supported by MessageFormat
+		private final TokenPattern tokenPattern;
+
+		private PatternStep(final int columnId, final String pattern) {
+			this.columnId = columnId;
+			this.pattern = pattern;
+			tokenPattern = TokenPattern.compile(pattern);
+		}
+
+		@Override
+		void apply(final Configuration configuration,
+				final String[] values,
+				final PositionBuilder builder) throws ParseException {
+			final String[] tokens = builder.tokens;
+			Arrays.fill(tokens, null);
+			if (tokenPattern != null) {
+				if (!tokenPattern.extract(values[columnId], tokens)) {
+					throw new NumberFormatException(String.format("Value '%s' does not match position pattern '%s'.",
+							values[columnId],
+							pattern));
+				}
+			} else {
+				extractUsingMessageFormat(values[columnId], tokens);
+			}
+			if (tokens[0] != null) {
+				builder.set(Position.LAT, configuration.parseLat(tokens[0]));
+			}
+			if (tokens[1] != null) {
+				builder.set(Position.LONG, configuration.parseLon(tokens[1]));
+			}
+			if (tokens[2] != null) {
+				builder.set(Position.ALT, configuration.parseAlt(tokens[2]));
+			}
+			if (tokens[3] != null) {
+				builder.epsgCode = Integer.parseInt(tokens[3]);
+			}
+		}
+
+		private void extractUsingMessageFormat(final String value, final String[] tokens) {
+			// MessageFormat is not thread safe, hence one instance per call
+			Object[] parsed = null;
+			try {
+				parsed = new MessageFormat(pattern).parse(value);
+			} catch (final ParseException e) {
+				throw new NumberFormatException();
+			}
+			if (parsed == null) {
+				throw new NumberFormatException();
+			}
+			for (int i = 0; i < parsed.length && i < tokens.length; i++) {
+				tokens[i] = (String) parsed[i];
+			}
+		}
+	}
+
+	private static final class ConstantStep extends Step {
+
+		private final int index;
+
+		private final String value;
+
+		private Object[] parsed;
+
+		private ConstantStep(final int index, final String value) {
+			this.index = index;
+			this.value = value;
+		}
+
+		@Override
+		void apply(final Configuration configuration,
+				final String[] values,
+				final PositionBuilder builder) throws ParseException {
+			Object[] valueAndUnit = parsed;
+			if (valueAndUnit == null) {
+				switch (index) {
+				case Position.LAT:
+					valueAndUnit = configuration.parseLat(value);
+					break;
+				case Position.LONG:
+					valueAndUnit = configuration.parseLon(value);
+					break;
+				default:
+					valueAndUnit = configuration.parseAlt(value);
+					break;
+				}
+				// result is immutable -> benign race
+				parsed = valueAndUnit;
+			}
+			builder.set(index, valueAndUnit);
+		}
+	}
+
+	private static final class EpsgStep extends Step {
+
+		private final String epsgCode;
+
+		private EpsgStep(final String epsgCode) {
+			this.epsgCode = epsgCode;
+		}
+
+		@Override
+		void apply(final Configuration configuration,
+				final String[] values,
+				final PositionBuilder builder) {
+			builder.epsgCode = Integer.valueOf(epsgCode);
+		}
+	}
+
+}
@@ -0,0 +1,240 @@
+/**
+ * Copyright (C) 2011-2015 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.importer.feeder;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.n52.sos.importer.feeder.model.FeatureOfInterest;
+import org.n52.sos.importer.feeder.model.ObservedProperty;
+import org.n52.sos.importer.feeder.model.Offering;
+import org.n52.sos.importer.feeder.model.Position;
+import org.n52.sos.importer.feeder.model.Resource;
+import org.n52.sos.importer.feeder.model.Sensor;
+import org.n52.sos.importer.feeder.model.UnitOfMeasurement;
+import org.n52.sos.importer.xml.NcNameTable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Interns the resources of one import: lines with the same values in the
+ * columns read by a {@link ResourceResolver} share one {@link Sensor},
+ * {@link FeatureOfInterest}, {@link ObservedProperty},
+ * {@link UnitOfMeasurement}, and {@link Offering} instance. Hence, names are
+ * generated and cleaned to match the NCName production once per distinct
+ * resource. The shared instances MUST NOT be changed. Thread safe.
+ *
+ * @author <a href="mailto:e.h.juerrens@52north.org">Eike Hinderk J&uuml;rrens</a>
+ */
+final class ResourceCache {
+
+	private static final Logger LOG = LoggerFactory.getLogger(ResourceCache.class);
+
+	// resources per resolver, the cache of a resolver is cleared if exceeded
+	private static final int MAX_RESOURCES_PER_RESOLVER = 4096;
+
+	private final AtomicLong hits = new AtomicLong();
+
+	private final AtomicLong misses = new AtomicLong();
+
+	private final Pool<Sensor> sensors = new Pool<Sensor>() {
+		@Override
+		Sensor create(final String name, final String uri, final Position position, final boolean isCleaningName) {
+			return new Sensor(name, uri);
+		}
+	};
+
+	private final Pool<FeatureOfInterest> featuresOfInterest = new Pool<FeatureOfInterest>() {
+		@Override
+		FeatureOfInterest create(final String name,
+				final String uri,
+				final Position position,
+				final boolean isCleaningName) {
+			final FeatureOfInterest featureOfInterest = new FeatureOfInterest(name, uri, position);
+			if (isCleaningName) {
+				cleanNCName(featureOfInterest, "Feature Of Interest");
+			}
+			return featureOfInterest;
+		}
+
+		@Override
+		Position getPosition(final FeatureOfInterest featureOfInterest) {
+			return featureOfInterest.getPosition();
+		}
+	};
+
+	private final Pool<ObservedProperty> observedProperties = new Pool<ObservedProperty>() {
+		@Override
+		ObservedProperty create(final String name, final String uri, final Position position, final boolean isCleaningName) {
+			return new ObservedProperty(name, uri);
+		}
+	};
+
+	private final Pool<UnitOfMeasurement> unitsOfMeasurement = new Pool<UnitOfMeasurement>() {
+		@Override
+		UnitOfMeasurement create(final String name, final String uri, final Position position, final boolean isCleaningName) {
+			return new UnitOfMeasurement(name, uri);
+		}
+	};
+
+	// offerings generated from the sensors
+	private final ConcurrentMap<Sensor, Offering> offerings = new ConcurrentHashMap<>();
+
+	Sensor getSensor(final ResourceResolver resolver, final String[] values) {
+		return sensors.get(resolver, values, null, false);
+	}
+
+	/**
+	 * @param position the position of the feature of interest. Positions
+	 *        are compared by identity, see {@link PositionResolver}.
+	 * @param isCleaningName if <code>true</code>, the name is changed to
+	 *        match the NCName production, if required
+	 */
+	FeatureOfInterest getFeatureOfInterest(final ResourceResolver resolver,
+			final String[] values,
+			final Position position,
+			final boolean isCleaningName) {
+		return featuresOfInterest.get(resolver, values, position, isCleaningName);
+	}
+
+	ObservedProperty getObservedProperty(final ResourceResolver resolver, final String[] values) {
+		return observedProperties.get(resolver, values, null, false);
+	}
+
+	UnitOfMeasurement getUnitOfMeasurement(final ResourceResolver resolver, final String[] values) {
+		return unitsOfMeasurement.get(resolver, values, null, false);
+	}
+
+	/**
+	 * @return the offering named like the given sensor with a name matching
+	 *         the NCName production
+	 */
+	Offering getOffering(final Sensor sensor) {
+		Offering offering = offerings.get(sensor);
+		if (offering != null) {
+			hits.incrementAndGet();
+			return offering;
+		}
+		misses.incrementAndGet();
+		offering = new Offering(sensor.getName(), sensor.getUri());
+		cleanNCName(offering, "Offering");
+		if (offerings.size() >= MAX_RESOURCES_PER_RESOLVER) {
+			offerings.clear();
+		}
+		offerings.put(sensor, offering);
+		return offering;
+	}
+
+	long getHits() {
+		return hits.get();
+	}
+
+	long getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * Changes the name of the given resource to match the NCName production,
+	 * if required.
+	 */
+	static void cleanNCName(final Resource res, final String label) {
+		final String origName = res.getName();
+		String name = NcNameTable.cleanToNCName(origName);
+		// the same instance, if the name is valid
+		if (name == origName) {
+			return;
+		}
+		// check if name is only containing "_"
+		if (Configuration.UNICODE_ONLY_REPLACER_LEFT_PATTERN.matcher(name).matches()) {
+			// if yes -> change to "className" + res.getUri().hashCode()
+			name = res.getClass().getSimpleName().toLowerCase() + res.getUri().hashCode();
+		}
+		res.setName(name);
+		LOG.debug("{} name changed to match NCName production: '{}' to '{}'",
+				label,
+				origName,
+				name);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("ResourceCache [hits=%s, misses=%s]", hits, misses);
+	}
+
+	/*
+	 * The resources of one type by resolver and key of the resolved line.
+	 */
+	private abstract class Pool<T extends Resource> {
+
+		private final ConcurrentMap<ResourceResolver, ConcurrentMap<String, T>> resources = new ConcurrentHashMap<>();
+
+		abstract T create(String name, String uri, Position position, boolean isCleaningName);
+
+		Position getPosition(final T resource) {
+			return null;
+		}
+
+		T get(final ResourceResolver resolver,
+				final String[] values,
+				final Position position,
+				final boolean isCleaningName) {
+			final String key = resolver.getKey(values);
+			if (key == null) {
+				final String[] a = resolver.resolve(values);
+				return a != null? create(a[0], a[1], position, isCleaningName) : null;
+			}
+			ConcurrentMap<String, T> byKey = resources.get(resolver);
+			if (byKey == null) {
+				byKey = new ConcurrentHashMap<>();
+				final ConcurrentMap<String, T> existing = resources.putIfAbsent(resolver, byKey);
+				if (existing != null) {
+					byKey = existing;
+				}
+			}
+			final T cached = byKey.get(key);
+			if (cached != null && getPosition(cached) == position) {
+				hits.incrementAndGet();
+				return cached;
+			}
+			misses.incrementAndGet();
+			final String[] a = resolver.resolve(values);
+			if (a == null) {
+				return null;
+			}
+			final T resource = create(a[0], a[1], position, isCleaningName);
+			if (byKey.size() >= MAX_RESOURCES_PER_RESOLVER) {
+				byKey.clear();
+			}
+			byKey.put(key, resource);
+			return resource;
+		}
+	}
+
+}
@@ -0,0 +1,210 @@
+/**
+ * Copyright (C) 2011-2015 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.importer.feeder;
+
+import org.x52North.sensorweb.sos.importer.x04.GeneratedResourceType;
+import org.x52North.sensorweb.sos.importer.x04.ManualResourceType;
+
+/**
+ * Resolves the name and uri of a resource (sensor, feature of interest,
+ * observed property, unit of measurement) for one line of the data file.
+ * Instances are compiled once from the configuration by {@link ImportPlan}
+ * and only perform array look ups and string concatenation per line.
+ *
+ * @author <a href="mailto:e.h.juerrens@52north.org">Eike Hinderk J&uuml;rrens</a>
+ */
+abstract class ResourceResolver {
+
+	// separates the values of several columns in keys
+	private static final char KEY_SEPARATOR = '\u001F';
+
+	/**
+	 * Resolver that never finds a resource.
+	 */
+	static final ResourceResolver NONE = new ResourceResolver() {
+		@Override
+		String[] resolve(final String[] values) {
+			return null;
+		}
+
+		@Override
+		String getKey(final String[] values) {
+			return null;
+		}
+	};
+
+	/**
+	 * @param values the values of the current line
+	 * @return <code>String[] result = {name,uri};</code> or <code>null</code>
+	 * 			if no resource could be resolved.
+	 */
+	abstract String[] resolve(String[] values);
+
+	/**
+	 * @param values the values of the current line
+	 * @return the values of the columns read by this resolver, such that
+	 * 			lines with the same key resolve to the same resource, or
+	 * 			<code>null</code> if the resolved resource must not be
+	 * 			cached.
+	 * @see ResourceCache
+	 */
+	abstract String getKey(String[] values);
+
+	/**
+	 * @return a resolver using the value of the given column as name and uri.
+	 */
+	static ResourceResolver column(final int columnId) {
+		return new ColumnResolver(columnId);
+	}
+
+	/**
+	 * @return a resolver returning the fixed name and uri.
+	 */
+	static ResourceResolver manual(final String name, final String uri) {
+		return new ManualResolver(name, uri);
+	}
+
+	static ResourceResolver manual(final ManualResourceType mRT) {
+		return manual(mRT.getName(), mRT.getURI().getStringValue());
+	}
+
+	/**
+	 * @param concatString might be <code>null</code>
+	 * @param uri might be <code>null</code>
+	 * @param useUriAsPrefixAfterNameAsUri
+	 * @param columnIds the columns to concatenate the name from
+	 * @return a resolver generating name and uri from the given columns.
+	 */
+	static ResourceResolver generated(final String concatString,
+			final String uri,
+			final boolean useUriAsPrefixAfterNameAsUri,
+			final int[] columnIds) {
+		return new GeneratedResolver(concatString, uri, useUriAsPrefixAfterNameAsUri, columnIds);
+	}
+
+	static ResourceResolver generated(final GeneratedResourceType gRT) {
+		return generated(
+				gRT.isSetConcatString()?gRT.getConcatString():null,
+				gRT.isSetURI()?gRT.getURI().getStringValue():null,
+				gRT.isSetURI()&&gRT.getURI().isSetUseAsPrefix()?gRT.getURI().getUseAsPrefix():false,
+				gRT.getNumberArray());
+	}
+
+	private static final class ColumnResolver extends ResourceResolver {
+
+		private final int columnId;
+
+		private ColumnResolver(final int columnId) {
+			this.columnId = columnId;
+		}
+
+		@Override
+		String[] resolve(final String[] values) {
+			final String value = values[columnId];
+			return new String[] { value, value };
+		}
+
+		@Override
+		String getKey(final String[] values) {
+			return values[columnId];
+		}
+	}
+
+	private static final class ManualResolver extends ResourceResolver {
+
+		private final String name;
+
+		private final String uri;
+
+		private ManualResolver(final String name, final String uri) {
+			this.name = name;
+			this.uri = uri;
+		}
+
+		@Override
+		String[] resolve(final String[] values) {
+			return new String[] { name, uri };
+		}
+
+		@Override
+		String getKey(final String[] values) {
+			return "";
+		}
+	}
+
+	private static final class GeneratedResolver extends ResourceResolver {
+
+		private final String concatString;
+
+		private final String uriPrefix;
+
+		private final int[] columnIds;
+
+		private GeneratedResolver(final String concatString,
+				final String uri,
+				final boolean useUriAsPrefixAfterNameAsUri,
+				final int[] columnIds) {
+			this.concatString = concatString == null? "" : concatString;
+			uriPrefix = uri != null && useUriAsPrefixAfterNameAsUri? uri : null;
+			this.columnIds = columnIds;
+		}
+
+		@Override
+		String[] resolve(final String[] values) {
+			final String name;
+			if (columnIds.length == 1) {
+				name = values[columnIds[0]];
+			} else {
+				final StringBuilder sb = new StringBuilder();
+				for (int i = 0; i < columnIds.length; i++) {
+					if (i > 0) {
+						sb.append(concatString);
+					}
+					sb.append(values[columnIds[i]]);
+				}
+				name = sb.toString();
+			}
+			final String uri = uriPrefix != null? uriPrefix + name : name;
+			return new String[] { name, uri };
+		}
+
+		@Override
+		String getKey(final String[] values) {
+			if (columnIds.length == 1) {
+				return values[columnIds[0]];
+			}
+			final StringBuilder sb = new StringBuilder();
+			for (final int columnId : columnIds) {
+				sb.append(values[columnId]).append(KEY_SEPARATOR);
+			}
+			return sb.toString();
+		}
+	}
+
+}
@@ -54,6 +54,12 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -64,16 +70,10 @@ import org.n52.oxf.ows.ExceptionReport;
 import org.n52.oxf.ows.OWSException;
 import org.n52.oxf.ows.OwsExceptionCode;
 import org.n52.oxf.ows.ServiceDescriptor;
-import org.n52.oxf.ows.capabilities.OperationsMetadata;
 import org.n52.oxf.request.MimetypeAwareRequestParameters;
 import org.n52.oxf.sos.adapter.ISOSRequestBuilder;
 import org.n52.oxf.sos.adapter.ISOSRequestBuilder.Binding;
-import org.n52.oxf.sos.adapter.SOSAdapter;
-import org.n52.oxf.sos.adapter.wrapper.SOSWrapper;
-import org.n52.oxf.sos.adapter.wrapper.SosWrapperFactory;
 import org.n52.oxf.sos.adapter.wrapper.builder.ObservationTemplateBuilder;
-import org.n52.oxf.sos.capabilities.ObservationOffering;
-import org.n52.oxf.sos.capabilities.SOSContents;
 import org.n52.oxf.sos.observation.BooleanObservationParameters;
 import org.n52.oxf.sos.observation.CountObservationParameters;
 import org.n52.oxf.sos.observation.MeasurementObservationParameters;
@@ -83,6 +83,9 @@ import org.n52.oxf.sos.request.v100.RegisterSensorParameters;
 import org.n52.oxf.sos.request.v200.InsertSensorParameters;
 import org.n52.sos.importer.feeder.Configuration.ImportStrategy;
 import org.n52.sos.importer.feeder.csv.CsvParser;
+import org.n52.sos.importer.feeder.csv.FileCsvParser;
+import org.n52.sos.importer.feeder.csv.MappedCsvParser;
+import org.n52.sos.importer.feeder.csv.SeekableCsvParser;
 import org.n52.sos.importer.feeder.exceptions.InvalidColumnCountException;
 import org.n52.sos.importer.feeder.model.FeatureOfInterest;
 import org.n52.sos.importer.feeder.model.ObservedProperty;
@@ -117,13 +120,19 @@ public final class SensorObservationService {
 
 	private static final String OM_200_SAMPLING_FEATURE = "http://www.opengis.net/def/samplingFeatureType/OGC-OM/2.0/SF_SamplingPoint";
 
+	private static final int OBSERVATION_XML_OVERHEAD = 2048;
+
 	private final URL sosUrl;
 	private final String sosVersion;
-	private final SOSWrapper sosWrapper;
-	private final ServiceDescriptor serviceDescriptor;
-	private final List<String> registeredSensors;
+	// re-resolved per import, hence long-lived instances use refreshed connections
+	private volatile SosConnection sosConnection;
+	private final SensorRegistry sensorRegistry;
 	private final List<InsertObservation> failedInsertObservations;
 	private int lastLine = 0;
+	// byte offset after the last imported row, if known
+	private long lastPosition = -1;
+	// byte offset after the last row to import, if not the end of the file
+	private long endPosition = -1;
 	private final Binding sosBinding;
 	private Map<String, String> offerings;
 	private final DescriptionBuilder sensorDescBuilder;
@@ -137,6 +146,9 @@ public final class SensorObservationService {
 	// Max possible value: 12500
 	private int hunkSize = 5000;
 
+	// not null, if the hunk size is adapted to the SOS
+	private HunkSizeController hunkSizeController;
+
 	private final Configuration config;
 
 	// stores the Timestamp of the last insertObservations
@@ -170,10 +182,24 @@ public final class SensorObservationService {
 
 	// adding 25s
 	private int sweArrayObservationTimeOutBuffer = 25000;
-
 	private int sampleSizeDivisor;
 
-	private String skipReason = "";
+	// not null while importData is using the insert pipeline
+	private InsertPipeline insertPipeline;
+
+	// not null while importData inserts the time series of a hunk concurrently
+	private ExecutorService timeSeriesExecutor;
+
+	// not null while importData inserts single observations in batches
+	private ObservationBatcher<BatchedObservation> observationBatcher;
+
+	// thread local because rows might be checked concurrently, see ChunkedFileParser
+	private final ThreadLocal<String> skipReason = new ThreadLocal<String>() {
+		@Override
+		protected String initialValue() {
+			return "";
+		}
+	};
 
 	public SensorObservationService(final Configuration config) throws ExceptionReport, OXFException, MalformedURLException {
 		LOG.trace(String.format("SensorObservationService(%s)", config.toString()));
@@ -192,25 +218,31 @@ public final class SensorObservationService {
 			sampleOffsetDifference = Math.abs(sampleDateOffset - sampleSizeOffset);
 			sampleDataOffset = config.getSampleDataOffset();
 		}
-		if (sosBinding == null) {
-			sosWrapper = SosWrapperFactory.newInstance(sosUrl.toString(),sosVersion);
-		} else {
-			sosWrapper = SosWrapperFactory.newInstance(sosUrl.toString(),sosVersion,sosBinding);
-		}
-		serviceDescriptor = sosWrapper.getServiceDescriptor();
+		sosConnection = SosConnection.get(sosUrl,
+				sosVersion,
+				sosBinding,
+				config.isRevalidateSensorRegistry(),
+				config.getCapabilitiesTimeToLive());
 		if (sosVersion.equals("2.0.0")) {
 			sensorDescBuilder = new DescriptionBuilder(false);
 		} else {
 			sensorDescBuilder = new DescriptionBuilder();
 		}
-		failedInsertObservations = new LinkedList<>();
-		registeredSensors = new LinkedList<>();
+		// synchronized because the insert workers of the pipeline add failures
+		failedInsertObservations = Collections.synchronizedList(new LinkedList<InsertObservation>());
+		sensorRegistry = sosConnection.getSensorRegistry();
 		if (sosVersion.equals("2.0.0")) {
-			offerings = new HashMap<>();
+			// written concurrently if sensors are registered before importing
+			offerings = new ConcurrentHashMap<>();
 		}
 		if (config.getHunkSize() > 0) {
 			hunkSize = config.getHunkSize();
 		}
+		if (config.isAdaptiveHunkSize()) {
+			hunkSizeController = sosConnection.getHunkSizeController(hunkSize,
+					config.getHunkTargetBytes(),
+					config.getHunkTargetLatency());
+		}
 		if (config.isIgnoreLineRegExSet()) {
 			ignorePatterns = config.getIgnoreLineRegExPatterns();
 		}
@@ -241,7 +273,18 @@ public final class SensorObservationService {
 	}
 
 	public boolean isAvailable() {
-		return sosWrapper.getServiceDescriptor() != null;
+		return sosConnection.isAvailable();
+	}
+
+	/**
+	 * @return <code>true</code>, if the SOS was not available or a request
+	 *         failed during transport or was not supported anymore, e.g.
+	 *         because the SOS was not reachable or restarted with another
+	 *         configuration,<br />
+	 *         else <code>false</code>.
+	 */
+	public boolean isConnectionLost() {
+		return !sosConnection.isAvailable() || sosConnection.isInvalidated();
 	}
 
 	/**
@@ -252,44 +295,104 @@ public final class SensorObservationService {
 	 *         else <code>false</code>.
 	 */
 	public boolean isTransactional() {
-		if (serviceDescriptor == null) {
+		if (!sosConnection.isAvailable()) {
 			LOG.error(String.format("Service descriptor not available for SOS '%s'", sosUrl));
 			return false;
 		}
-		final OperationsMetadata opMeta = serviceDescriptor.getOperationsMetadata();
-		LOG.debug(String.format("OperationsMetadata found: %s", opMeta));
-		// check for (Insert|Register)Sensor and InsertObservationOperation
-		if ((opMeta.getOperationByName(SOSAdapter.REGISTER_SENSOR) != null ||
-				opMeta.getOperationByName(SOSAdapter.INSERT_SENSOR) != null)
-				&&
-				opMeta.getOperationByName(SOSAdapter.INSERT_OBSERVATION) != null) {
-			LOG.debug(String.format("Found all required operations: (%s|%s), %s",
-					SOSAdapter.REGISTER_SENSOR,
-					SOSAdapter.INSERT_SENSOR,
-					SOSAdapter.INSERT_OBSERVATION));
-			return true;
-		}
-		return false;
+		return sosConnection.isTransactional();
 	}
 
+	/**
+	 * @param dataFile the data file to import starting after
+	 *        {@link #getLastLine()}
+	 * @return the observations of this data file that could not be inserted
+	 */
 	public List<InsertObservation> importData(final DataFile dataFile) throws IOException, OXFException, XmlException, IllegalArgumentException, ParseException {
 		LOG.trace("importData()");
+		refreshConnection();
+		if (config.isInsertThreadsSet()) {
+			insertPipeline = new InsertPipeline(config.getInsertThreads(), config.getInsertQueueCapacity());
+		} else if (config.getImportStrategy().equals(ImportStrategy.SweArrayObservationWithSplitExtension) &&
+				config.getInsertSweArrayObservationParallelism() > 1) {
+			LOG.info("Inserting up to {} time series of a hunk concurrently.", config.getInsertSweArrayObservationParallelism());
+			timeSeriesExecutor = Executors.newFixedThreadPool(config.getInsertSweArrayObservationParallelism());
+		}
+		if (config.getImportStrategy().equals(ImportStrategy.SingleObservation) &&
+				config.isInsertObservationBatchingEnabled()) {
+			LOG.info("Inserting up to {} observations or {} bytes per request.",
+					config.getInsertObservationBatchSize(),
+					config.getInsertObservationBatchBytes());
+			observationBatcher = new ObservationBatcher<>(config.getInsertObservationBatchSize(),
+					config.getInsertObservationBatchBytes(),
+					new ObservationBatchSender());
+		}
+		try {
+			return importLines(dataFile);
+		} finally {
+			if (insertPipeline != null) {
+				insertPipeline.abort();
+				insertPipeline = null;
+			}
+			if (timeSeriesExecutor != null) {
+				timeSeriesExecutor.shutdownNow();
+				timeSeriesExecutor = null;
+			}
+			observationBatcher = null;
+		}
+	}
+
+	/*
+	 * Re-resolves the shared connection, hence instances used for several
+	 * imports, e.g. by the FollowingFeeder, use refreshed capabilities and
+	 * replace invalidated connections. The previous connection is kept, if
+	 * the SOS is not available.
+	 */
+	private void refreshConnection() {
+		try {
+			final SosConnection connection = SosConnection.get(sosUrl,
+					sosVersion,
+					sosBinding,
+					config.isRevalidateSensorRegistry(),
+					config.getCapabilitiesTimeToLive());
+			if (connection.isAvailable()) {
+				sosConnection = connection;
+			} else {
+				LOG.warn("SOS '{}' is not available. Keeping previous connection.", sosUrl);
+			}
+		} catch (final ExceptionReport | OXFException e) {
+			LOG.warn("Could not connect to SOS '{}'. Keeping previous connection: {}", sosUrl, e.getMessage());
+			LOG.debug("Exception thrown:", e);
+		}
+	}
+
+	private List<InsertObservation> importLines(final DataFile dataFile) throws IOException, OXFException, XmlException, IllegalArgumentException, ParseException {
 		// 0 Get line
-		final CsvParser cr = dataFile.getCSVReader();
+		final boolean isResumed = lastPosition >= 0 && dataFile.isSeekingPossible();
+		final CsvParser cr = getCSVReader(dataFile, isResumed);
 		String[] values;
 		lineCounter = dataFile.getFirstLineWithData();
 		if (dataFile.getHeaderLine() > -1 && headerLine == null) {
 			headerLine = readHeaderLine(dataFile);
 		}
-		final int failedObservationsBefore = failedInsertObservations.size();
+		failedInsertObservations.clear();
 		int numOfObsTriedToInsert = 0;
 		// 1 Get all measured value columns =: mvCols
-		final int[] mVCols = dataFile.getMeasuredValueColumnIds();
+		final ImportPlan importPlan = dataFile.getImportPlan();
+		final int[] mVCols = importPlan.getMeasuredValueColumnIds();
 		if (mVCols == null || mVCols.length == 0) {
 			LOG.error("No measured value columns found in configuration");
 			return null;
 		}
-		if (config.getFirstLineWithData()==0){
+		if (config.getPreRegisterSensorsParallelism() > 0) {
+			preRegisterSensors(dataFile, importPlan, isResumed);
+		}
+		if (isResumed) {
+			LOG.info("Resuming import of data file '{}' at byte {} after line {}.",
+					dataFile.getFileName(),
+					lastPosition,
+					lastLine);
+			lineCounter = lastLine;
+		} else if (config.getFirstLineWithData()==0){
 			skipLines(cr, lastLine+1);
 		} else {
 			skipLines(cr, lastLine);
@@ -301,22 +404,25 @@ public final class SensorObservationService {
 			while ((values = cr.readNext()) != null) {
 				if (!isLineIgnorable(values) && isNotEmpty(values) && isSizeValid(dataFile, values) && !isHeaderLine(values)) {
 					LOG.debug(String.format("Handling CSV line #%d: %s",lineCounter+1,Arrays.toString(values)));
-					final InsertObservation[] ios = getInsertObservations(values,mVCols,dataFile);
+					final InsertObservation[] ios = getInsertObservations(values,importPlan);
 					numOfObsTriedToInsert += ios.length;
 					insertObservationsForOneLine(ios,values,dataFile);
 					LOG.debug(Feeder.heapSizeInformation());
 				} else {
 					LOG.trace(String.format("\t\tSkip CSV line #%d; %s; Raw data: '%s'",
 							lineCounter+1,
-							!skipReason.isEmpty()?String.format("Reason: %s", skipReason):"",
+							!skipReason.get().isEmpty()?String.format("Reason: %s", skipReason.get()):"",
 							Arrays.toString(values)));
-					skipReason = "";
+					skipReason.set("");
 				}
 				lineCounter++;
 				if (lineCounter % 10000 == 0) {
 					LOG.info("Processed line {}.",lineCounter);
 				}
 			}
+			finishInsertPipeline();
+			lastLine = lineCounter;
+			lastPosition = cr instanceof SeekableCsvParser? ((SeekableCsvParser) cr).getPosition() : -1;
 			long finishedImportData = System.currentTimeMillis();
 			LOG.debug("Timing:\nStart File: {}\nFinished importing: {}",
 					new Date(startReadingFile).toString(),
@@ -324,8 +430,15 @@ public final class SensorObservationService {
 			break;
 
 		case SweArrayObservationWithSplitExtension:
-			LOG.debug("Using hunkSize '{}'",hunkSize);
+			LOG.info("Using hunk size {}{}.", getHunkSize(), hunkSizeController != null? " adapted to the SOS" : "");
 			startReadingFile = System.currentTimeMillis();
+			if (cr instanceof MappedCsvParser && dataFile.isParallelParsingPossible()) {
+				numOfObsTriedToInsert += importDataInParallel((MappedCsvParser) cr, dataFile, importPlan);
+				LOG.debug("Timing:\nStart File: {}\nFinished importing: {}",
+						new Date(startReadingFile).toString(),
+						new Date(System.currentTimeMillis()).toString());
+				break;
+			}
 			TimeSeriesRepository timeSeriesRepository = new TimeSeriesRepository(mVCols.length);
 			int currentHunk = 0;
 			int sampleStartLine = lineCounter;
@@ -342,11 +455,11 @@ public final class SensorObservationService {
 				}
 				if (!isLineIgnorable(values) && isNotEmpty(values) && isSizeValid(dataFile, values) && !isHeaderLine(values)) {
 					LOG.debug(String.format("Handling CSV line #%d: %s",lineCounter+1,Arrays.toString(values)));
-					final InsertObservation[] ios = getInsertObservations(values,mVCols,dataFile);
+					final InsertObservation[] ios = getInsertObservations(values,importPlan);
 					timeSeriesRepository.addObservations(ios);
 					numOfObsTriedToInsert += ios.length;
 					LOG.debug(Feeder.heapSizeInformation());
-					if (currentHunk == hunkSize) {
+					if (currentHunk >= getHunkSize()) {
 						currentHunk = 0;
 						insertTimeSeries(timeSeriesRepository);
 						timeSeriesRepository = new TimeSeriesRepository(mVCols.length);
@@ -356,9 +469,9 @@ public final class SensorObservationService {
 				} else {
 					LOG.trace(String.format("\t\tSkip CSV line #%d; %s; Raw data: '%s'",
 							lineCounter+1,
-							!skipReason.isEmpty()?String.format("Reason: %s", skipReason):"",
+							!skipReason.get().isEmpty()?String.format("Reason: %s", skipReason.get()):"",
 							Arrays.toString(values)));
-					skipReason = "";
+					skipReason.set("");
 				}
 				lineCounter++;
 				if (lineCounter % 10000 == 0) {
@@ -377,17 +490,244 @@ public final class SensorObservationService {
 			if (!timeSeriesRepository.isEmpty()) {
 				insertTimeSeries(timeSeriesRepository);
 			}
+			finishInsertPipeline();
 			lastLine = lineCounter;
+			lastPosition = cr instanceof SeekableCsvParser? ((SeekableCsvParser) cr).getPosition() : -1;
 			finishedImportData = System.currentTimeMillis();
 			LOG.debug("Timing:\nStart File: {}\nFinished importing: {}",
 					new Date(startReadingFile).toString(),
 					new Date(finishedImportData).toString());
 		}
 
-		final int newFailedObservationsCount = failedInsertObservations.size()-failedObservationsBefore;
-		final int newObservationsCount = numOfObsTriedToInsert-newFailedObservationsCount;
-		LOG.info("New observations in SOS: {}. Failed observations: {}.", newObservationsCount,newFailedObservationsCount);
-		return failedInsertObservations;
+		final List<InsertObservation> failedObservations = new ArrayList<>(failedInsertObservations);
+		failedInsertObservations.clear();
+		final int newObservationsCount = numOfObsTriedToInsert-failedObservations.size();
+		LOG.info("New observations in SOS: {}. Failed observations: {}.", newObservationsCount,failedObservations.size());
+		LOG.debug("Resources of data file '{}': {}", dataFile.getFileName(), importPlan.getResources());
+		return failedObservations;
+	}
+
+	/*
+	 * Reads the rows in the byte range [lastPosition, endPosition) if the
+	 * import is resumed or limited to the end position.
+	 */
+	private CsvParser getCSVReader(final DataFile dataFile, final boolean isResumed) throws IOException {
+		if (isResumed || endPosition >= 0) {
+			return dataFile.getCSVReader(isResumed? lastPosition : -1, endPosition);
+		}
+		return dataFile.getCSVReader();
+	}
+
+	/*
+	 * Scans the remaining rows of the data file for distinct sensors using the
+	 * column plans without parsing the timestamps and registers the sensors
+	 * not registered yet concurrently. Hence, the data pass does not wait for
+	 * the registration of each new sensor. Sensors that could not be
+	 * registered are registered again while importing.
+	 */
+	private void preRegisterSensors(final DataFile dataFile,
+			final ImportPlan importPlan,
+			final boolean isResumed) throws IOException {
+		if (isSampleBasedDataFile) {
+			LOG.info("Sensors of sample based data file '{}' are registered while importing.", dataFile.getFileName());
+			return;
+		}
+		final long startScan = System.currentTimeMillis();
+		final SensorScan scan = new SensorScan();
+		final CsvParser cr = getCSVReader(dataFile, isResumed);
+		try {
+			// skip the lines already imported like the data pass does
+			int skipCount = isResumed? 0 : config.getFirstLineWithData()==0? lastLine+1 : lastLine;
+			while (skipCount > cr.getSkipLimit() && cr.readNext() != null) {
+				skipCount--;
+			}
+			String[] values;
+			while ((values = cr.readNext()) != null) {
+				if (!isLineIgnorable(values) &&
+						isNotEmpty(values) &&
+						values.length == dataFile.getExpectedColumnCount() &&
+						!isHeaderLine(values)) {
+					for (final ColumnPlan columnPlan : importPlan.getColumnPlans()) {
+						scanSensor(scan, columnPlan, values, importPlan);
+					}
+				}
+			}
+		} finally {
+			skipReason.set("");
+			if (cr instanceof FileCsvParser) {
+				((FileCsvParser) cr).close();
+			}
+		}
+		final List<RegisterSensor> registerSensors = new ArrayList<>(scan.size());
+		for (final RegisterSensor rs : scan.getRegisterSensors()) {
+			if (!isSensorRegistered(rs.getSensorURI())) {
+				registerSensors.add(rs);
+			}
+		}
+		LOG.info("Found {} sensors in data file '{}' within {}ms. {} of them are not registered.",
+				scan.size(),
+				dataFile.getFileName(),
+				System.currentTimeMillis() - startScan,
+				registerSensors.size());
+		if (registerSensors.isEmpty()) {
+			return;
+		}
+		final ExecutorService executor = Executors.newFixedThreadPool(
+				Math.min(config.getPreRegisterSensorsParallelism(), registerSensors.size()));
+		try {
+			final List<Future<String>> assignedSensorIds = new ArrayList<>(registerSensors.size());
+			for (final RegisterSensor rs : registerSensors) {
+				assignedSensorIds.add(executor.submit(new Callable<String>() {
+					@Override
+					public String call() throws OXFException, XmlException, IOException {
+						return registerSensor(rs);
+					}
+				}));
+			}
+			for (int i = 0; i < registerSensors.size(); i++) {
+				final RegisterSensor rs = registerSensors.get(i);
+				String assignedSensorId = null;
+				try {
+					assignedSensorId = assignedSensorIds.get(i).get();
+				} catch (final ExecutionException e) {
+					LOG.debug("Exception thrown:", e.getCause());
+				}
+				if (assignedSensorId == null || assignedSensorId.equalsIgnoreCase("")) {
+					LOG.warn("Sensor '{}'[{}] could not be registered at SOS '{}' before importing. Trying again while importing.",
+							rs.getSensorName(),
+							rs.getSensorURI(),
+							sosUrl.toExternalForm());
+				} else {
+					LOG.debug("Sensor registered at SOS '{}' with assigned id '{}'",
+							sosUrl.toExternalForm(),
+							assignedSensorId);
+					sensorRegistry.register(rs.getSensorURI(), assignedSensorId, getAssignedOffering(assignedSensorId));
+				}
+			}
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while registering sensors.", e);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private void scanSensor(final SensorScan scan,
+			final ColumnPlan columnPlan,
+			final String[] values,
+			final ImportPlan importPlan) {
+		final Sensor sensor = columnPlan.getSensor(values);
+		final ObservedProperty observedProperty = columnPlan.getObservedProperty(values);
+		if (scan.contains(sensor.getUri(), observedProperty)) {
+			return;
+		}
+		try {
+			// the value is required by the observation template of SOS 1.0.0
+			scan.add(columnPlan.createInsertObservation(values,
+					sensor,
+					columnPlan.getFeatureOfInterest(values),
+					null,
+					columnPlan.getUnitOfMeasurement(values),
+					observedProperty,
+					importPlan.getOffering(sensor)));
+		} catch (final ParseException | NumberFormatException e) {
+			// logged by the data pass
+			LOG.trace("Could not scan sensor of column {}: {}", columnPlan.getColumnId(), e.getMessage());
+		}
+	}
+
+	/*
+	 * Parses the remaining rows of the data file in parallel chunks and
+	 * merges the observations in file order into the hunks. Hence, the hunks
+	 * and the lastLine bookkeeping are the same as in sequential mode.
+	 */
+	private int importDataInParallel(final MappedCsvParser cr,
+			final DataFile dataFile,
+			final ImportPlan importPlan) throws IOException, OXFException, XmlException {
+		final int parallelism = Runtime.getRuntime().availableProcessors();
+		LOG.info("Parsing data file '{}' in parallel using {} threads.", dataFile.getFileName(), parallelism);
+		final long start = cr.getPosition();
+		final long rowsEnd = cr.getEnd();
+		cr.close();
+		final int numberOfTimeSeries = importPlan.getMeasuredValueColumnIds().length;
+		int numOfObsTriedToInsert = 0;
+		TimeSeriesRepository timeSeriesRepository = new TimeSeriesRepository(numberOfTimeSeries);
+		int currentHunk = 0;
+		final long end;
+		try (final ChunkedFileParser parser = new ChunkedFileParser(dataFile.getFile(),
+				config,
+				start,
+				rowsEnd,
+				parallelism,
+				new ChunkedFileParser.RowHandler() {
+
+					@Override
+					public InsertObservation[] handle(final String[] values) {
+						if (!isLineIgnorable(values) && isNotEmpty(values) && isSizeValid(dataFile, values) && !isHeaderLine(values)) {
+							LOG.debug("Handling CSV line: {}", Arrays.toString(values));
+							return getInsertObservations(values, importPlan);
+						}
+						LOG.trace("\t\tSkip CSV line; {}; Raw data: '{}'",
+								!skipReason.get().isEmpty()?String.format("Reason: %s", skipReason.get()):"",
+								Arrays.toString(values));
+						skipReason.set("");
+						return null;
+					}
+
+				})) {
+			ChunkedFileParser.Chunk chunk;
+			while ((chunk = parser.next()) != null) {
+				for (final InsertObservation[] ios : chunk.getObservations()) {
+					timeSeriesRepository.addObservations(ios);
+					numOfObsTriedToInsert += ios.length;
+					if (currentHunk >= getHunkSize()) {
+						currentHunk = 0;
+						insertTimeSeries(timeSeriesRepository);
+						timeSeriesRepository = new TimeSeriesRepository(numberOfTimeSeries);
+					} else {
+						currentHunk++;
+					}
+				}
+				lineCounter += chunk.getRowCount();
+				chunk.rethrowFailure();
+				LOG.info("Processed line {}.",lineCounter);
+			}
+			end = parser.getEnd();
+		}
+		if (!timeSeriesRepository.isEmpty()) {
+			insertTimeSeries(timeSeriesRepository);
+		}
+		finishInsertPipeline();
+		lastLine = lineCounter;
+		lastPosition = end;
+		return numOfObsTriedToInsert;
+	}
+
+	private int getHunkSize() {
+		return hunkSizeController != null? hunkSizeController.getHunkSize() : hunkSize;
+	}
+
+	/*
+	 * Sends the open observation batches and waits for all pending requests,
+	 * if the insert pipeline is used. Called once per data file.
+	 */
+	private void finishInsertPipeline() throws OXFException, XmlException, IOException {
+		if (insertPipeline != null) {
+			if (observationBatcher != null) {
+				insertPipeline.finish(new InsertPipeline.RequestBuilder() {
+					@Override
+					public List<Runnable> build() {
+						return observationBatcher.flush();
+					}
+				});
+			} else {
+				insertPipeline.finish();
+			}
+		} else if (observationBatcher != null) {
+			for (final Runnable request : observationBatcher.flush()) {
+				request.run();
+			}
+		}
 	}
 
 	private boolean isLineIgnorable(final String[] values) {
@@ -395,7 +735,7 @@ public final class SensorObservationService {
 			final String line = restoreLine(values);
 			for (final Pattern pattern : ignorePatterns) {
 				if (pattern.matcher(line).matches()) {
-					skipReason = "Matched ignore pattern.";
+					skipReason.set("Matched ignore pattern.");
 					return true;
 				}
 			}
@@ -502,7 +842,7 @@ public final class SensorObservationService {
 	private boolean isHeaderLine(final String[] values) {
 		boolean isHeaderLine = Arrays.equals(headerLine, values);
 		if (!isHeaderLine) {
-			skipReason = "Headerline found.";
+			skipReason.set("Headerline found.");
 		}
 		return isHeaderLine;
 	}
@@ -520,7 +860,7 @@ public final class SensorObservationService {
 	}
 
 	private boolean isNotEmpty(final String[] values) {
-		skipReason = "Line is empty.";
+		skipReason.set("Line is empty.");
 		if (values != null && values.length > 0) {
 			for (int i = 0; i < values.length; i++) {
 				final String value = values[i];
@@ -528,7 +868,7 @@ public final class SensorObservationService {
 					return false;
 				}
 			}
-			skipReason = "";
+			skipReason.set("");
 			return true;
 		}
 		return false;
@@ -546,17 +886,17 @@ public final class SensorObservationService {
 	}
 
 	private InsertObservation[] getInsertObservations(final String[] values,
-			final int[] mVColumns,
-			final DataFile df){
-		if (mVColumns == null || mVColumns.length == 0) {
-			LOG.error("Method called with bad arguments: values: {}, mVColumns: {}", Arrays.toString(values), Arrays.toString(mVColumns));
+			final ImportPlan importPlan){
+		final ColumnPlan[] columnPlans = importPlan.getColumnPlans();
+		if (columnPlans.length == 0) {
+			LOG.error("Method called with bad arguments: values: {}, mVColumns: {}", Arrays.toString(values), Arrays.toString(columnPlans));
 			return null;
 		}
-		final ArrayList<InsertObservation> result = new ArrayList<>(mVColumns.length);
-		for (final int mVColumn : mVColumns) {
-			LOG.debug("Parsing measured value column {}", mVColumn);
+		final ArrayList<InsertObservation> result = new ArrayList<>(columnPlans.length);
+		for (final ColumnPlan columnPlan : columnPlans) {
+			LOG.debug("Parsing measured value column {}", columnPlan.getColumnId());
 			try {
-				final InsertObservation io = getInsertObservationForColumnIdFromValues(mVColumn,values,df);
+				final InsertObservation io = getInsertObservationForColumnIdFromValues(columnPlan,values,importPlan);
 				if (io != null) {
 					result.add(io);
 				}
@@ -566,25 +906,20 @@ public final class SensorObservationService {
 				logExceptionThrownDuringParsing(nfe);
 			}
 		}
-		result.trimToSize();
 		return result.toArray(new InsertObservation[result.size()]);
 	}
 
-	private InsertObservation getInsertObservationForColumnIdFromValues(final int mVColumnId,
+	private InsertObservation getInsertObservationForColumnIdFromValues(final ColumnPlan columnPlan,
 			final String[] values,
-			final DataFile dataFile) throws ParseException{
+			final ImportPlan importPlan) throws ParseException{
 		// SENSOR
-		final Sensor sensor = dataFile.getSensorForColumn(mVColumnId,values);
+		final Sensor sensor = columnPlan.getSensor(values);
 		LOG.debug("Sensor: {}",sensor);
 		// FEATURE OF INTEREST incl. Position
-		final FeatureOfInterest foi = dataFile.getFoiForColumn(mVColumnId,values);
+		final FeatureOfInterest foi = columnPlan.getFeatureOfInterest(values);
 		LOG.debug("Feature of Interest: {}",foi);
-		// VALUE
-		final Object value = dataFile.getValue(mVColumnId,values);
-		LOG.debug("Value: {}", value.toString());
-		// TODO implement using different templates in later version depending on the class of value
 		// TIMESTAMP
-		final Timestamp timeStamp = dataFile.getTimeStamp(mVColumnId,values);
+		final Timestamp timeStamp = columnPlan.getTimestamp(values);
 		if (isSampleBasedDataFile) {
 			if (lastTimestamp != null && timeStamp.before(lastTimestamp)) {
 				sampleDate.applyDayDelta(1);
@@ -594,21 +929,24 @@ public final class SensorObservationService {
 		}
 		LOG.debug("Timestamp: {}", timeStamp);
 		// UOM CODE
-		final UnitOfMeasurement uom = dataFile.getUnitOfMeasurement(mVColumnId,values);
+		final UnitOfMeasurement uom = columnPlan.getUnitOfMeasurement(values);
 		LOG.debug("UomCode: '{}'", uom);
 		// OBSERVED_PROPERTY
-		final ObservedProperty observedProperty = dataFile.getObservedProperty(mVColumnId,values);
+		final ObservedProperty observedProperty = columnPlan.getObservedProperty(values);
 		LOG.debug("ObservedProperty: {}", observedProperty);
-		final Offering offer = dataFile.getOffering(sensor);
+		final Offering offer = importPlan.getOffering(sensor);
 		LOG.debug("Offering: {}", offer);
-		return new InsertObservation(sensor,
+		// VALUE
+		// TODO implement using different templates in later version depending on the class of value
+		final InsertObservation io = columnPlan.createInsertObservation(values,
+				sensor,
 				foi,
-				value,
 				timeStamp,
 				uom,
 				observedProperty,
-				offer,
-				dataFile.getType(mVColumnId));
+				offer);
+		LOG.debug("Value: {}", io.getResultValueAsString());
+		return io;
 	}
 
 	private void logExceptionThrownDuringParsing(final Exception exception) {
@@ -620,6 +958,60 @@ public final class SensorObservationService {
 
 	private void insertTimeSeries(final TimeSeriesRepository timeSeriesRepository) throws OXFException, XmlException, IOException {
 		LOG.trace("insertTimeSeries()");
+		if (insertPipeline != null) {
+			insertPipeline.submit(new InsertPipeline.RequestBuilder() {
+				@Override
+				public List<Runnable> build() throws OXFException, XmlException, IOException {
+					return createInsertTimeSeriesRequests(timeSeriesRepository);
+				}
+			});
+			return;
+		}
+		executeAndJoin(createInsertTimeSeriesRequests(timeSeriesRepository));
+	}
+
+	/*
+	 * Executes the requests of one hunk concurrently, if the timeSeriesExecutor
+	 * is available, and waits for all of them before the next hunk is flushed.
+	 */
+	private void executeAndJoin(final List<Runnable> requests) throws IOException {
+		if (timeSeriesExecutor == null || requests.size() < 2) {
+			for (final Runnable request : requests) {
+				request.run();
+			}
+			return;
+		}
+		final List<Callable<Object>> tasks = new ArrayList<>(requests.size());
+		for (final Runnable request : requests) {
+			tasks.add(Executors.callable(request));
+		}
+		try {
+			for (final Future<Object> future : timeSeriesExecutor.invokeAll(tasks)) {
+				future.get();
+			}
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while inserting time series.", e);
+		} catch (final ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			if (e.getCause() instanceof Error) {
+				throw (Error) e.getCause();
+			}
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+
+	/*
+	 * Registers the sensors of the time series, if required, and creates one
+	 * insert request per time series.
+	 */
+	private List<Runnable> createInsertTimeSeriesRequests(final TimeSeriesRepository timeSeriesRepository) throws OXFException, XmlException, IOException {
+		final List<TimeSeries> insertableTimeSeries = new ArrayList<>();
+		final List<org.n52.oxf.sos.request.InsertObservationParameters> sweArrayObservations = new ArrayList<>();
+		int lines = 0;
+		long bytes = 0;
 		insertObservationForATimeSeries:
 		for (final TimeSeries timeSeries : timeSeriesRepository.getTimeSeries()) {
 			// check if sensor is registered
@@ -638,26 +1030,102 @@ public final class SensorObservationService {
 					LOG.info(String.format("Sensor registered at SOS  '%s' with assigned id '%s'",
 							sosUrl.toExternalForm(),
 							assignedSensorId));
-					registeredSensors.add(assignedSensorId);
+					sensorRegistry.register(timeSeries.getSensorURI(), assignedSensorId, getAssignedOffering(assignedSensorId));
 				}
 			}
+			insertableTimeSeries.add(timeSeries);
+			sweArrayObservations.add(timeSeries.getSweArrayObservation(sosVersion));
+			lines = Math.max(lines, timeSeries.size());
+			bytes += timeSeries.getEncodedValuesLength();
+		}
+		final HunkResult hunkResult = hunkSizeController != null?
+				new HunkResult(lines, bytes, insertableTimeSeries.size()) :
+				null;
+		final List<Runnable> requests = new ArrayList<>(insertableTimeSeries.size());
+		for (int i = 0; i < insertableTimeSeries.size(); i++) {
+			final TimeSeries timeSeries = insertableTimeSeries.get(i);
+			final org.n52.oxf.sos.request.InsertObservationParameters sweArrayObservation = sweArrayObservations.get(i);
 			// insert observation
-			final String observationId = insertSweArrayObservation(timeSeries.getSweArrayObservation(sosVersion));
-			if (observationId == null || observationId.equalsIgnoreCase("")) {
-				LOG.error(String.format("Insert observation failed for sensor '%s'[%s]. Store: %s",
-						timeSeries.getSensorName(),
-						timeSeries.getSensorURI(),
-						timeSeries));
-				// TODO implement something useful here!
-				 failedInsertObservations.addAll(timeSeries.getInsertObservations());
-			} else if (observationId.equals(Configuration.SOS_OBSERVATION_ALREADY_CONTAINED)) {
-				LOG.debug(String.format("TimeSeries '%s' was already contained in SOS.",
-						timeSeries));
+			requests.add(new Runnable() {
+				@Override
+				public void run() {
+					final long start = System.currentTimeMillis();
+					final String observationId = insertSweArrayObservation(sweArrayObservation);
+					final boolean failed = observationId == null || observationId.equalsIgnoreCase("");
+					if (hunkResult != null) {
+						hunkResult.completed(System.currentTimeMillis() - start, failed);
+					}
+					if (failed) {
+						LOG.error(String.format("Insert observation failed for sensor '%s'[%s]. Store: %s",
+								timeSeries.getSensorName(),
+								timeSeries.getSensorURI(),
+								timeSeries));
+						// TODO implement something useful here!
+						 failedInsertObservations.addAll(timeSeries.getInsertObservations());
+					} else if (observationId.equals(Configuration.SOS_OBSERVATION_ALREADY_CONTAINED)) {
+						LOG.debug(String.format("TimeSeries '%s' was already contained in SOS.",
+								timeSeries));
+					}
+				}
+			});
+		}
+		return requests;
+	}
+
+	/*
+	 * Collects the results of the requests of one hunk and reports them to
+	 * the hunkSizeController after the last one.
+	 */
+	private final class HunkResult {
+
+		private final int lines;
+
+		private final long bytes;
+
+		// guarded by this
+		private int pendingRequests;
+
+		private long maxLatency = 0;
+
+		private boolean failed = false;
+
+		private HunkResult(final int lines, final long bytes, final int requests) {
+			this.lines = lines;
+			this.bytes = bytes;
+			pendingRequests = requests;
+		}
+
+		private synchronized void completed(final long latency, final boolean requestFailed) {
+			maxLatency = Math.max(maxLatency, latency);
+			failed |= requestFailed;
+			if (--pendingRequests == 0) {
+				hunkSizeController.completed(lines, bytes, maxLatency, failed);
 			}
 		}
+
 	}
 
 	private void insertObservationsForOneLine(final InsertObservation[] ios, final String[] values, final DataFile dataFile) throws OXFException, XmlException, IOException {
+		if (insertPipeline != null) {
+			insertPipeline.submit(new InsertPipeline.RequestBuilder() {
+				@Override
+				public List<Runnable> build() throws OXFException, XmlException, IOException {
+					return createInsertObservationRequests(ios);
+				}
+			});
+			return;
+		}
+		for (final Runnable request : createInsertObservationRequests(ios)) {
+			request.run();
+		}
+	}
+
+	/*
+	 * Registers the sensors of the observations, if required, and creates one
+	 * insert request per observation or per full batch of observations.
+	 */
+	private List<Runnable> createInsertObservationRequests(final InsertObservation[] ios) throws OXFException, XmlException, IOException {
+		final List<Runnable> requests = new ArrayList<>(ios.length);
 		insertObservationForALine:
 		for (final InsertObservation io : ios) {
 			if (io != null) {
@@ -678,23 +1146,57 @@ public final class SensorObservationService {
 						LOG.debug(String.format("Sensor registered at SOS  '%s' with assigned id '%s'",
 								sosUrl.toExternalForm(),
 								assignedSensorId));
-						registeredSensors.add(assignedSensorId);
+						sensorRegistry.register(io.getSensorURI(), assignedSensorId, getAssignedOffering(assignedSensorId));
 					}
 				}
 				// sensor is registered -> insert the data
-				final String observationId = insertObservation(io);
-				if (observationId == null || observationId.equalsIgnoreCase("")) {
-					LOG.error(String.format("Insert observation failed for sensor '%s'[%s]. Store: %s",
-							io.getSensorName(),
-							io.getSensorURI(),
-							io));
+				if (observationBatcher != null) {
+					final ObservationParameters obsParameter;
+					try {
+						obsParameter = createObservationParameters(io);
+					} catch (final OXFException e) {
+						LOG.error(String.format("Problem with OXF. Exception thrown: %s",e.getMessage()),e);
+						failedInsertObservations.add(io);
+						continue insertObservationForALine;
+					}
+					requests.addAll(observationBatcher.add(io.getOffering().getUri(),
+							new BatchedObservation(io, obsParameter),
+							estimateObservationSize(io)));
+					continue insertObservationForALine;
+				}
+				final org.n52.oxf.sos.request.InsertObservationParameters parameters;
+				try {
+					parameters = createParameterAssemblyFromIO(io);
+					setMimetype(parameters);
+				} catch (final OXFException e) {
+					LOG.error(String.format("Problem with OXF. Exception thrown: %s",e.getMessage()),e);
 					failedInsertObservations.add(io);
-				} else if (observationId.equals(Configuration.SOS_OBSERVATION_ALREADY_CONTAINED)) {
-					LOG.debug(String.format("Observation was already contained in SOS: %s",
-							io));
+					continue insertObservationForALine;
 				}
+				requests.add(new Runnable() {
+					@Override
+					public void run() {
+						String observationId = null;
+						try {
+							observationId = insertObservation(parameters);
+						} catch (final IOException e) {
+							LOG.error(String.format("Exception thrown: %s",e.getMessage()),e);
+						}
+						if (observationId == null || observationId.equalsIgnoreCase("")) {
+							LOG.error(String.format("Insert observation failed for sensor '%s'[%s]. Store: %s",
+									io.getSensorName(),
+									io.getSensorURI(),
+									io));
+							failedInsertObservations.add(io);
+						} else if (observationId.equals(Configuration.SOS_OBSERVATION_ALREADY_CONTAINED)) {
+							LOG.debug(String.format("Observation was already contained in SOS: %s",
+									io));
+						}
+					}
+				});
 			}
 		}
+		return requests;
 	}
 
 	private Map<ObservedProperty, String> getUnitsOfMeasurement(final String sensorURI,
@@ -740,14 +1242,8 @@ public final class SensorObservationService {
 		OperationResult opResult = null;
 		try {
 			try {
-				final int connectionTimeout = sosWrapper.getConnectionTimeout();
-				final int readTimeout = sosWrapper.getReadTimeout();
-				sosWrapper.setConnectionTimeOut(connectionTimeout + sweArrayObservationTimeOutBuffer);
-				sosWrapper.setReadTimeout(readTimeout + sweArrayObservationTimeOutBuffer);
 				setMimetype(sweArrayObservation);
-				opResult = sosWrapper.doInsertObservation(sweArrayObservation);
-				sosWrapper.setConnectionTimeOut(connectionTimeout);
-				sosWrapper.setReadTimeout(readTimeout);
+				opResult = sosConnection.getSosWrapper(sweArrayObservationTimeOutBuffer).doInsertObservation(sweArrayObservation);
 				if (sosVersion.equals("1.0.0")) {
 					try {
 						final InsertObservationResponse response = InsertObservationResponseDocument.Factory.parse(opResult.getIncomingResultAsAutoCloseStream()).getInsertObservationResponse();
@@ -790,10 +1286,12 @@ public final class SensorObservationService {
 				// some OER report logger which has unit tests
 				LOG.error(String.format("Exception thrown: %s\n%s",e.getMessage(),buf.toString()));
 				LOG.debug(e.getMessage(),e);
+				sosConnection.invalidateIfUnavailable(e);
 			}
 
 		} catch (final OXFException e) {
 			LOG.error(String.format("Problem with OXF. Exception thrown: %s",e.getMessage()),e);
+			sosConnection.invalidateIfUnavailable(e);
 		}
         return null;
 	}
@@ -808,16 +1306,13 @@ public final class SensorObservationService {
 						owsEx.getExceptionTexts()[0].indexOf(Configuration.SOS_200_DUPLICATE_OBSERVATION_CONSTRAINT) > -1);
 	}
 
-	private String insertObservation(final InsertObservation io) throws IOException {
+	private String insertObservation(final org.n52.oxf.sos.request.InsertObservationParameters parameters) throws IOException {
 		OperationResult opResult = null;
-		org.n52.oxf.sos.request.InsertObservationParameters parameters = null;
 
 		try {
-			parameters = createParameterAssemblyFromIO(io);
-			setMimetype(parameters);
 			try {
 				LOG.debug("\tBEFORE OXF - doOperation 'InsertObservation'");
-				opResult = sosWrapper.doInsertObservation(parameters);
+				opResult = sosConnection.getSosWrapper().doInsertObservation(parameters);
 				LOG.debug("\tAFTER OXF - doOperation 'InsertObservation'");
 				if (sosVersion.equals("1.0.0")) {
 					try {
@@ -861,16 +1356,26 @@ public final class SensorObservationService {
 				// some OER report logger which has unit tests
 				LOG.error(String.format("Exception thrown: %s\n%s",e.getMessage(),buf.toString()));
 				LOG.debug(e.getMessage(),e);
+				sosConnection.invalidateIfUnavailable(e);
 			}
 
 		} catch (final OXFException e) {
 			LOG.error(String.format("Problem with OXF. Exception thrown: %s",e.getMessage()),e);
+			sosConnection.invalidateIfUnavailable(e);
 		}
         return null;
 	}
 
 	private org.n52.oxf.sos.request.InsertObservationParameters createParameterAssemblyFromIO(
 			final InsertObservation io) throws OXFException {
+		final ObservationParameters obsParameter = createObservationParameters(io);
+		if (sosVersion.equalsIgnoreCase("2.0.0")) {
+			return new org.n52.oxf.sos.request.v200.InsertObservationParameters(obsParameter, Collections.singletonList(io.getOffering().getUri()));
+		}
+		return new org.n52.oxf.sos.request.v100.InsertObservationParameters(obsParameter);
+	}
+
+	private ObservationParameters createObservationParameters(final InsertObservation io) throws OXFException {
 		ObservationParameters obsParameter = null;
 
 		if (io.getMeasuredValueType().equals(Configuration.SOS_OBSERVATION_TYPE_TEXT)) {
@@ -880,16 +1385,16 @@ public final class SensorObservationService {
 		} else if (io.getMeasuredValueType().equals(Configuration.SOS_OBSERVATION_TYPE_COUNT)) {
 			// set count
 			obsParameter = new CountObservationParameters();
-			((CountObservationParameters) obsParameter).addObservationValue((Integer) io.getResultValue());
+			((CountObservationParameters) obsParameter).addObservationValue(io.getIntValue());
 		} else if (io.getMeasuredValueType().equals(Configuration.SOS_OBSERVATION_TYPE_BOOLEAN)) {
 			// set boolean
 			obsParameter = new BooleanObservationParameters();
-			((BooleanObservationParameters) obsParameter).addObservationValue((Boolean) io.getResultValue());
+			((BooleanObservationParameters) obsParameter).addObservationValue(io.getBooleanValue());
 		} else {
 			// set default value type
 			obsParameter = new MeasurementObservationParameters();
 			((MeasurementObservationParameters) obsParameter).addUom(io.getUnitOfMeasurementCode());
-			((MeasurementObservationParameters) obsParameter).addObservationValue(io.getResultValue().toString());
+			((MeasurementObservationParameters) obsParameter).addObservationValue(io.getResultValueAsString());
 		}
 		obsParameter.addObservedProperty(io.getObservedPropertyURI());
 		obsParameter.addNewFoiId(io.getFeatureOfInterestURI());
@@ -920,12 +1425,91 @@ public final class SensorObservationService {
 			obsParameter.addSrsPosition(Configuration.SOS_200_EPSG_CODE_PREFIX + io.getEpsgCode());
 			obsParameter.addPhenomenonTime(io.getTimeStamp().toString());
 			obsParameter.addResultTime(io.getTimeStamp().toString());
-			return new org.n52.oxf.sos.request.v200.InsertObservationParameters(obsParameter, Collections.singletonList(io.getOffering().getUri()));
+			return obsParameter;
 		}
 
 		obsParameter.addSrsPosition(Configuration.SOS_100_EPSG_CODE_PREFIX + io.getEpsgCode());
 		obsParameter.addSamplingTime(io.getTimeStamp().toString());
-		return new org.n52.oxf.sos.request.v100.InsertObservationParameters(obsParameter);
+		return obsParameter;
+	}
+
+	/*
+	 * Rough size of one om:observation member including the encoded feature
+	 * of interest, used to bound the size of batch requests.
+	 */
+	private int estimateObservationSize(final InsertObservation io) {
+		return OBSERVATION_XML_OVERHEAD +
+				length(io.getSensorURI()) +
+				length(io.getObservedPropertyURI()) * 2 +
+				length(io.getFeatureOfInterestURI()) * 2 +
+				length(io.getFeatureOfInterestName()) +
+				length(io.getUnitOfMeasurementCode()) +
+				length(io.getResultValueAsString()) +
+				length(io.getTimeStamp()) * 2;
+	}
+
+	private static int length(final Object value) {
+		return value == null? 0 : value.toString().length();
+	}
+
+	private static final class BatchedObservation {
+
+		private final InsertObservation io;
+
+		private final ObservationParameters parameters;
+
+		private BatchedObservation(final InsertObservation io, final ObservationParameters parameters) {
+			this.io = io;
+			this.parameters = parameters;
+		}
+
+	}
+
+	/*
+	 * Inserts a batch of observations of one offering with one SOS 2.0
+	 * InsertObservation request.
+	 */
+	private final class ObservationBatchSender implements ObservationBatcher.Sender<BatchedObservation> {
+
+		@Override
+		public boolean send(final String offering, final List<BatchedObservation> batch) {
+			final List<ObservationParameters> observations = new ArrayList<>(batch.size());
+			for (final BatchedObservation observation : batch) {
+				observations.add(observation.parameters);
+			}
+			final org.n52.oxf.sos.request.v200.InsertObservationParameters parameters =
+					new org.n52.oxf.sos.request.v200.InsertObservationParameters(observations,
+							Collections.singletonList(offering));
+			setMimetype(parameters);
+			String observationId = null;
+			try {
+				observationId = insertObservation(parameters);
+			} catch (final IOException e) {
+				LOG.error(String.format("Exception thrown: %s",e.getMessage()),e);
+			}
+			if (observationId == null || observationId.equalsIgnoreCase("")) {
+				return false;
+			}
+			if (observationId.equals(Configuration.SOS_OBSERVATION_ALREADY_CONTAINED)) {
+				if (batch.size() > 1) {
+					// isolate the contained observations to insert the others
+					return false;
+				}
+				LOG.debug(String.format("Observation was already contained in SOS: %s",
+						batch.get(0).io));
+			}
+			return true;
+		}
+
+		@Override
+		public void rejected(final BatchedObservation observation) {
+			LOG.error(String.format("Insert observation failed for sensor '%s'[%s]. Store: %s",
+					observation.io.getSensorName(),
+					observation.io.getSensorURI(),
+					observation.io));
+			failedInsertObservations.add(observation.io);
+		}
+
 	}
 
 	private String registerSensor(final RegisterSensor rs) throws OXFException, XmlException, IOException {
@@ -933,7 +1517,7 @@ public final class SensorObservationService {
 			if(sosVersion.equals("1.0.0")) {
 				final RegisterSensorParameters regSensorParameter = createRegisterSensorParametersFromRS(rs);
 				setMimetype(regSensorParameter);
-				final OperationResult opResult = sosWrapper.doRegisterSensor(regSensorParameter);
+				final OperationResult opResult = sosConnection.getSosWrapper().doRegisterSensor(regSensorParameter);
 				final RegisterSensorResponseDocument response = RegisterSensorResponseDocument.Factory.parse(opResult.getIncomingResultAsAutoCloseStream());
 				LOG.debug("RegisterSensorResponse parsed");
 				return response.getRegisterSensorResponse().getAssignedSensorId();
@@ -944,7 +1528,7 @@ public final class SensorObservationService {
 					insSensorParams.addParameterValue(ISOSRequestBuilder.BINDING, sosBinding.name());
 				}
 				setMimetype(insSensorParams);
-				final OperationResult opResult = sosWrapper.doInsertSensor(insSensorParams);
+				final OperationResult opResult = sosConnection.getSosWrapper().doInsertSensor(insSensorParams);
 				final InsertSensorResponseDocument response = InsertSensorResponseDocument.Factory.parse(opResult.getIncomingResultAsAutoCloseStream());
 				LOG.debug("InsertSensorResponse parsed");
 				offerings.put(response.getInsertSensorResponse().getAssignedProcedure(),response.getInsertSensorResponse().getAssignedOffering());
@@ -983,11 +1567,13 @@ public final class SensorObservationService {
 			LOG.error(String.format("Exception thrown: %s",
 					e.getMessage()),
 					e);
+			sosConnection.invalidateIfUnavailable(e);
 		} catch (final OXFException e) {
 			// TODO Auto-generated catch block generated on 21.06.2012 around 14:53:40
 			LOG.error(String.format("Exception thrown: %s",
 					e.getMessage()),
 					e);
+			sosConnection.invalidateIfUnavailable(e);
 		} catch (final XmlException e) {
 			// TODO Auto-generated catch block generated on 21.06.2012 around 14:53:54
 			LOG.error(String.format("Exception thrown: %s",
@@ -1088,6 +1674,7 @@ public final class SensorObservationService {
 	}
 
 	private boolean isSensorRegistered(final String sensorURI) {
+		final ServiceDescriptor serviceDescriptor = sosConnection.getSosWrapper().getServiceDescriptor();
 		if (serviceDescriptor == null) {
 			LOG.error(String.format("Service descriptor not available for SOS '%s'",
 					sosUrl));
@@ -1107,29 +1694,16 @@ public final class SensorObservationService {
 //			}
 //		}
 
-		// 1 check if offering is available
-		final SOSContents sosContent = (SOSContents) serviceDescriptor.getContents();
-		final String[] offeringIds = sosContent.getDataIdentificationIDArray();
-		if (offeringIds != null) {
-			for (final String offeringId : offeringIds) {
-				final ObservationOffering offering = sosContent.getDataIdentification(offeringId);
-				final String[] sensorIds = offering.getProcedures();
-				for (final String sensorId : sensorIds) {
-					if (sensorId.equals(sensorURI)) {
-						return true;
-					}
-				}
-			}
-		}
-		// 2 check the list of newly registered sensors because the capabilities update might take to long to wait for
-		if (registeredSensors != null && registeredSensors.size() > 0) {
-			for (final String sensorId : registeredSensors) {
-				if (sensorId.equals(sensorURI)) {
-					return true;
-				}
-			}
+		// 1 check if the sensor is listed in an offering
+		if (sosConnection.isInCapabilities(sensorURI)) {
+			return true;
 		}
-		return false;
+		// 2 check the registry of registered sensors because the capabilities update might take to long to wait for
+		return sensorRegistry.contains(sensorURI);
+	}
+
+	private String getAssignedOffering(final String assignedProcedure) {
+		return offerings != null? offerings.get(assignedProcedure) : null;
 	}
 
 	public int getLastLine() {
@@ -1141,4 +1715,31 @@ public final class SensorObservationService {
 		this.lastLine = lastLine;
 	}
 
+	/**
+	 * @return the byte offset after the last imported row, or a negative
+	 *         value if not known, e.g. because a custom CsvParser is used.
+	 */
+	public long getLastPosition() {
+		return lastPosition;
+	}
+
+	/**
+	 * @param lastPosition the byte offset after the row of
+	 *        {@link #getLastLine()} to seek to, or a negative value to skip
+	 *        the already imported lines by reading them
+	 */
+	public void setLastPosition(final long lastPosition) {
+		LOG.debug("Last position updated: old: {}; new: {}", this.lastPosition, lastPosition);
+		this.lastPosition = lastPosition;
+	}
+
+	/**
+	 * @param endPosition the byte offset after the last row to import, e.g.
+	 *        the end of the last complete line of a growing data file, or a
+	 *        negative value to import until the end of the file
+	 */
+	public void setEndPosition(final long endPosition) {
+		this.endPosition = endPosition;
+	}
+
 }
@@ -0,0 +1,189 @@
+/**
+ * Copyright (C) 2011-2015 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.importer.feeder;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Persistent registry of the sensors registered at one SOS, stored in the
+ * importer home. It maps the sensor URI to the procedure and, for SOS 2.0,
+ * the offering assigned by the SOS.
+ * <br>
+ * Hence, repeated feeding runs and restarts do not try to register known
+ * sensors again, even if the capabilities of the SOS do not list them yet.
+ * Each {@link #register(String, String, String)} appends one tab separated
+ * line <code>sensorURI procedure offering</code> to the store. The store is
+ * compacted when it is loaded.
+ *
+ * @author <a href="mailto:e.h.juerrens@52north.org">Eike Hinderk J&uuml;rrens</a>
+ */
+final class SensorRegistry {
+
+	private static final Logger LOG = LoggerFactory.getLogger(SensorRegistry.class);
+
+	private static final String SEPARATOR = "\t";
+
+	private final File store;
+
+	private final Map<String, String[]> sensors = new ConcurrentHashMap<>();
+
+	/**
+	 * @param store the file storing the registry, created if required
+	 */
+	SensorRegistry(final File store) {
+		this.store = store;
+		if (store.exists()) {
+			try {
+				load();
+			} catch (final IOException e) {
+				LOG.error("Sensor registry '{}' could not be read: {}", store, e.getMessage());
+				LOG.debug("Exception Stack Trace:", e);
+			}
+		}
+		LOG.debug("Loaded {} registered sensors from '{}'.", sensors.size(), store);
+	}
+
+	/**
+	 * @param sensorURI the URI of the sensor
+	 * @return <code>true</code>, if the sensor was registered
+	 */
+	boolean contains(final String sensorURI) {
+		return sensors.containsKey(sensorURI);
+	}
+
+	/**
+	 * @param sensorURI the URI of the sensor
+	 * @return the offering assigned to the sensor, or <code>null</code> if not
+	 *         known
+	 */
+	String getOffering(final String sensorURI) {
+		final String[] sensor = sensors.get(sensorURI);
+		return sensor == null || sensor[1].isEmpty()? null : sensor[1];
+	}
+
+	/**
+	 * @param sensorURI the URI of the sensor
+	 * @param procedure the procedure assigned by the SOS
+	 * @param offering the offering assigned by the SOS or <code>null</code>
+	 */
+	synchronized void register(final String sensorURI, final String procedure, final String offering) {
+		final String[] sensor = {procedure, offering == null? "" : offering};
+		sensors.put(sensorURI, sensor);
+		try (final PrintWriter out = new PrintWriter(
+				new OutputStreamWriter(new FileOutputStream(store, true), StandardCharsets.UTF_8))) {
+			out.println(toLine(sensorURI, sensor));
+		} catch (final IOException e) {
+			LOG.error("Sensor '{}' could not be stored in registry '{}': {}", sensorURI, store, e.getMessage());
+			LOG.debug("Exception Stack Trace:", e);
+		}
+	}
+
+	/**
+	 * Removes the sensors whose procedure is not listed in the capabilities
+	 * anymore, e.g. because the database of the SOS was reset.
+	 *
+	 * @param procedures the procedures listed in the capabilities
+	 * @return the number of removed sensors
+	 */
+	synchronized int revalidate(final Set<String> procedures) {
+		int removed = 0;
+		final Iterator<Map.Entry<String, String[]>> iterator = sensors.entrySet().iterator();
+		while (iterator.hasNext()) {
+			final Map.Entry<String, String[]> entry = iterator.next();
+			if (!procedures.contains(entry.getValue()[0])) {
+				LOG.debug("Sensor '{}' not listed in capabilities. Removing it from registry.", entry.getKey());
+				iterator.remove();
+				removed++;
+			}
+		}
+		if (removed > 0) {
+			compact();
+		}
+		return removed;
+	}
+
+	int size() {
+		return sensors.size();
+	}
+
+	private void load() throws IOException {
+		try (final BufferedReader reader = new BufferedReader(
+				new InputStreamReader(new FileInputStream(store), StandardCharsets.UTF_8))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				final String[] tokens = line.split(SEPARATOR, -1);
+				if (tokens.length != 3 || tokens[0].isEmpty()) {
+					LOG.warn("Ignoring invalid line '{}' of sensor registry '{}'.", line, store);
+					continue;
+				}
+				// later lines override earlier ones
+				sensors.put(tokens[0], new String[] {tokens[1], tokens[2]});
+			}
+		}
+		compact();
+	}
+
+	private void compact() {
+		final File compacted = new File(store.getPath() + ".tmp");
+		try {
+			try (final PrintWriter out = new PrintWriter(
+					new OutputStreamWriter(new FileOutputStream(compacted), StandardCharsets.UTF_8))) {
+				for (final Map.Entry<String, String[]> entry : sensors.entrySet()) {
+					out.println(toLine(entry.getKey(), entry.getValue()));
+				}
+			}
+			Files.move(compacted.toPath(), store.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		} catch (final IOException e) {
+			LOG.error("Sensor registry '{}' could not be compacted: {}", store, e.getMessage());
+			LOG.debug("Exception Stack Trace:", e);
+		}
+	}
+
+	private static String toLine(final String sensorURI, final String[] sensor) {
+		return sensorURI + SEPARATOR + sensor[0] + SEPARATOR + sensor[1];
+	}
+
+}
@@ -0,0 +1,120 @@
+/**
+ * Copyright (C) 2011-2015 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.importer.feeder;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.n52.sos.importer.feeder.model.ObservedProperty;
+import org.n52.sos.importer.feeder.model.requests.InsertObservation;
+import org.n52.sos.importer.feeder.model.requests.RegisterSensor;
+
+/**
+ * Collects the distinct sensors of a data file before its observations are
+ * inserted. The {@link RegisterSensor} request of a sensor is built from its
+ * first observation and the observed properties, measured value types, and
+ * units of measurement of all its observations. Not thread safe.
+ *
+ * @author <a href="mailto:e.h.juerrens@52north.org">Eike Hinderk J&uuml;rrens</a>
+ */
+final class SensorScan {
+
+	private final Map<String, ScannedSensor> sensors = new LinkedHashMap<>();
+
+	void add(final InsertObservation io) {
+		ScannedSensor sensor = sensors.get(io.getSensorURI());
+		if (sensor == null) {
+			sensor = new ScannedSensor(io);
+			sensors.put(io.getSensorURI(), sensor);
+		}
+		sensor.add(io);
+	}
+
+	/**
+	 * @param sensorURI the URI of a sensor
+	 * @param observedProperty an observed property
+	 * @return <code>true</code>, if an observation of the sensor and the
+	 *         observed property was added
+	 */
+	boolean contains(final String sensorURI, final ObservedProperty observedProperty) {
+		final ScannedSensor sensor = sensors.get(sensorURI);
+		return sensor != null && sensor.observedProperties.contains(observedProperty);
+	}
+
+	/**
+	 * @return the number of distinct sensors
+	 */
+	int size() {
+		return sensors.size();
+	}
+
+	/**
+	 * @return one {@link RegisterSensor} per distinct sensor in the order of
+	 *         their first observation
+	 */
+	List<RegisterSensor> getRegisterSensors() {
+		final List<RegisterSensor> registerSensors = new ArrayList<>(sensors.size());
+		for (final ScannedSensor sensor : sensors.values()) {
+			registerSensors.add(new RegisterSensor(sensor.first,
+					sensor.observedProperties,
+					sensor.measuredValueTypes,
+					sensor.unitsOfMeasurement));
+		}
+		return registerSensors;
+	}
+
+	private static final class ScannedSensor {
+
+		private final InsertObservation first;
+
+		private final Set<ObservedProperty> observedProperties = new LinkedHashSet<>();
+
+		private final Map<ObservedProperty, String> measuredValueTypes = new HashMap<>();
+
+		private final Map<ObservedProperty, String> unitsOfMeasurement = new HashMap<>();
+
+		private ScannedSensor(final InsertObservation first) {
+			this.first = first;
+		}
+
+		private void add(final InsertObservation io) {
+			if (observedProperties.add(io.getObservedProperty())) {
+				measuredValueTypes.put(io.getObservedProperty(), io.getMeasuredValueType());
+				unitsOfMeasurement.put(io.getObservedProperty(), io.getUnitOfMeasurementCode());
+			}
+		}
+
+	}
+
+}
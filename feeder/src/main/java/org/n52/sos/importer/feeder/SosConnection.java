@@ -0,0 +1,451 @@
+/**
+ * Copyright (C) 2011-2015 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.importer.feeder;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import org.n52.oxf.OXFException;
+import org.n52.oxf.ows.ExceptionReport;
+import org.n52.oxf.ows.OWSException;
+import org.n52.oxf.ows.OwsExceptionCode;
+import org.n52.oxf.ows.ServiceDescriptor;
+import org.n52.oxf.ows.capabilities.OperationsMetadata;
+import org.n52.oxf.sos.adapter.ISOSRequestBuilder.Binding;
+import org.n52.oxf.sos.adapter.SOSAdapter;
+import org.n52.oxf.sos.adapter.wrapper.SOSWrapper;
+import org.n52.oxf.sos.adapter.wrapper.SosWrapperFactory;
+import org.n52.oxf.sos.capabilities.ObservationOffering;
+import org.n52.oxf.sos.capabilities.SOSContents;
+import org.n52.sos.importer.feeder.util.FileHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * One {@link SOSWrapper} per SOS endpoint, i.e. URL, version, and binding,
+ * shared by all {@link SensorObservationService} instances of this JVM.
+ * <br>
+ * Hence, the HTTP client of the wrapper and its kept-alive connections are
+ * re-used for all data files and feeding runs instead of being set up again
+ * for each of them, and the capabilities are requested only once per time to
+ * live. Connections older than their time to live are still handed out while
+ * the capabilities are requested again in the background. A connection is
+ * replaced immediately, if it was {@link #invalidate() invalidated} because
+ * of a failed transactional request. The sensors registered at the SOS are
+ * shared, too. They are stored in a persistent {@link SensorRegistry} per SOS
+ * URL. Requests requiring longer timeouts use their own wrapper created from
+ * the same capabilities, hence the timeouts of the shared wrapper are never
+ * changed. The adaptive hunk sizes are kept per SOS endpoint and hunk
+ * configuration, hence they survive replaced connections.
+ *
+ * @author <a href="mailto:e.h.juerrens@52north.org">Eike Hinderk J&uuml;rrens</a>
+ */
+final class SosConnection {
+
+	private static final Logger LOG = LoggerFactory.getLogger(SosConnection.class);
+
+	private static final Map<String, SosConnection> CONNECTIONS = new HashMap<>();
+
+	private static final Map<String, SensorRegistry> REGISTRIES = new HashMap<>();
+
+	private static final Map<String, HunkSizeController> HUNK_SIZE_CONTROLLERS = new HashMap<>();
+
+	// keys of the connections being refreshed, guarded by SosConnection.class
+	private static final Set<String> REFRESHING = new HashSet<>();
+
+	private static ExecutorService refresher;
+
+	private final String key;
+
+	private final URL sosUrl;
+
+	private final String sosVersion;
+
+	private final Binding sosBinding;
+
+	private final SOSWrapper sosWrapper;
+
+	private final SensorRegistry sensorRegistry;
+
+	private final Set<String> procedures;
+
+	private final boolean available;
+
+	private final boolean transactional;
+
+	private final long created = System.currentTimeMillis();
+
+	private volatile boolean invalidated = false;
+
+	// wrappers with additional timeouts per timeout buffer, guarded by this
+	private final Map<Integer, SOSWrapper> bufferedWrappers = new HashMap<>();
+
+	private SosConnection(final String key,
+			final URL sosUrl,
+			final String sosVersion,
+			final Binding sosBinding,
+			final SOSWrapper sosWrapper,
+			final SensorRegistry sensorRegistry) {
+		this.key = key;
+		this.sosUrl = sosUrl;
+		this.sosVersion = sosVersion;
+		this.sosBinding = sosBinding;
+		this.sosWrapper = sosWrapper;
+		this.sensorRegistry = sensorRegistry;
+		final ServiceDescriptor serviceDescriptor = sosWrapper.getServiceDescriptor();
+		procedures = getProcedures(serviceDescriptor);
+		available = serviceDescriptor != null;
+		transactional = isTransactional(serviceDescriptor);
+	}
+
+	/**
+	 * @param sosUrl the URL of the SOS
+	 * @param sosVersion the version of the SOS, e.g. <code>2.0.0</code>
+	 * @param sosBinding the binding to use or <code>null</code> for the default
+	 * @param revalidateSensorRegistry if <code>true</code>, the sensors of the
+	 *        {@link SensorRegistry} not listed in the capabilities are removed
+	 *        when the connection is created
+	 * @param timeToLive the time to live of the capabilities in milliseconds.
+	 *        <code>0</code> to never request them again.
+	 * @return the shared connection. A new connection is created, if none is
+	 *         available, the SOS was not available before, or the connection
+	 *         was invalidated.
+	 * @throws ExceptionReport if the capabilities could not be requested
+	 * @throws OXFException if the wrapper could not be created
+	 */
+	static synchronized SosConnection get(final URL sosUrl,
+			final String sosVersion,
+			final Binding sosBinding,
+			final boolean revalidateSensorRegistry,
+			final long timeToLive) throws ExceptionReport, OXFException {
+		final String key = String.format("%s|%s|%s", sosUrl, sosVersion, sosBinding);
+		SosConnection connection = CONNECTIONS.get(key);
+		if (connection != null && connection.invalidated) {
+			LOG.debug("Connection to SOS '{}' was invalidated. Requesting capabilities again.", key);
+			CONNECTIONS.remove(key);
+			connection = null;
+		}
+		if (connection == null) {
+			connection = create(key, sosUrl, sosVersion, sosBinding);
+			if (connection.available) {
+				if (revalidateSensorRegistry) {
+					final int removed = connection.sensorRegistry.revalidate(connection.procedures);
+					LOG.debug("Removed {} sensors not listed in the capabilities of SOS '{}' from registry.", removed, sosUrl);
+				}
+				CONNECTIONS.put(key, connection);
+				LOG.debug("Created shared connection to SOS '{}'.", key);
+			}
+		} else {
+			LOG.debug("Re-using connection to SOS '{}'.", key);
+			if (timeToLive > 0 &&
+					System.currentTimeMillis() - connection.created > timeToLive &&
+					REFRESHING.add(key)) {
+				refreshInBackground(key, sosUrl, sosVersion, sosBinding);
+			}
+		}
+		return connection;
+	}
+
+	private static SosConnection create(final String key,
+			final URL sosUrl,
+			final String sosVersion,
+			final Binding sosBinding) throws ExceptionReport, OXFException {
+		return new SosConnection(key,
+				sosUrl,
+				sosVersion,
+				sosBinding,
+				createSosWrapper(sosUrl, sosVersion, sosBinding),
+				getSensorRegistry(sosUrl));
+	}
+
+	private static SOSWrapper createSosWrapper(final URL sosUrl,
+			final String sosVersion,
+			final Binding sosBinding) throws ExceptionReport, OXFException {
+		if (sosBinding == null) {
+			return SosWrapperFactory.newInstance(sosUrl.toString(),sosVersion);
+		}
+		return SosWrapperFactory.newInstance(sosUrl.toString(),sosVersion,sosBinding);
+	}
+
+	private static void refreshInBackground(final String key,
+			final URL sosUrl,
+			final String sosVersion,
+			final Binding sosBinding) {
+		if (refresher == null) {
+			refresher = Executors.newSingleThreadExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread(final Runnable r) {
+					final Thread thread = new Thread(r, "sos-capabilities-refresher");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		LOG.debug("Capabilities of SOS '{}' expired. Requesting them in the background.", key);
+		refresher.execute(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					final SosConnection connection = create(key, sosUrl, sosVersion, sosBinding);
+					if (connection.available) {
+						synchronized (SosConnection.class) {
+							CONNECTIONS.put(key, connection);
+						}
+						LOG.debug("Refreshed capabilities of SOS '{}'.", key);
+					} else {
+						LOG.warn("Could not refresh capabilities of SOS '{}'. Keeping previous ones.", key);
+					}
+				} catch (final ExceptionReport | OXFException e) {
+					LOG.warn("Could not refresh capabilities of SOS '{}': {}", key, e.getMessage());
+					LOG.debug("Exception thrown:", e);
+				} finally {
+					synchronized (SosConnection.class) {
+						REFRESHING.remove(key);
+					}
+				}
+			}
+		});
+	}
+
+	/*
+	 * Synchronized, because background refreshes create connections, too.
+	 */
+	private static synchronized SensorRegistry getSensorRegistry(final URL sosUrl) {
+		final String key = sosUrl.toString();
+		SensorRegistry registry = REGISTRIES.get(key);
+		if (registry == null) {
+			registry = new SensorRegistry(FileHelper.createFileInImporterHomeWithUniqueFileName(key + "_sensors"));
+			REGISTRIES.put(key, registry);
+		}
+		return registry;
+	}
+
+	private static Set<String> getProcedures(final ServiceDescriptor serviceDescriptor) {
+		final Set<String> procedures = new HashSet<>();
+		if (serviceDescriptor == null || !(serviceDescriptor.getContents() instanceof SOSContents)) {
+			return procedures;
+		}
+		final SOSContents sosContent = (SOSContents) serviceDescriptor.getContents();
+		final String[] offeringIds = sosContent.getDataIdentificationIDArray();
+		if (offeringIds != null) {
+			for (final String offeringId : offeringIds) {
+				final ObservationOffering offering = sosContent.getDataIdentification(offeringId);
+				if (offering.getProcedures() != null) {
+					procedures.addAll(Arrays.asList(offering.getProcedures()));
+				}
+			}
+		}
+		return procedures;
+	}
+
+	/**
+	 * Checks for <b>RegisterSensor</b> and <b>InsertObservation</b> operations.
+	 */
+	private static boolean isTransactional(final ServiceDescriptor serviceDescriptor) {
+		if (serviceDescriptor == null) {
+			return false;
+		}
+		final OperationsMetadata opMeta = serviceDescriptor.getOperationsMetadata();
+		LOG.debug(String.format("OperationsMetadata found: %s", opMeta));
+		// check for (Insert|Register)Sensor and InsertObservationOperation
+		if ((opMeta.getOperationByName(SOSAdapter.REGISTER_SENSOR) != null ||
+				opMeta.getOperationByName(SOSAdapter.INSERT_SENSOR) != null)
+				&&
+				opMeta.getOperationByName(SOSAdapter.INSERT_OBSERVATION) != null) {
+			LOG.debug(String.format("Found all required operations: (%s|%s), %s",
+					SOSAdapter.REGISTER_SENSOR,
+					SOSAdapter.INSERT_SENSOR,
+					SOSAdapter.INSERT_OBSERVATION));
+			return true;
+		}
+		return false;
+	}
+
+	SOSWrapper getSosWrapper() {
+		return sosWrapper;
+	}
+
+	/**
+	 * @return the sensors registered at the SOS. Thread safe.
+	 */
+	SensorRegistry getSensorRegistry() {
+		return sensorRegistry;
+	}
+
+	/**
+	 * @param procedure a procedure
+	 * @return <code>true</code>, if the procedure was listed in the
+	 *         capabilities when this connection was created
+	 */
+	boolean isInCapabilities(final String procedure) {
+		return procedures.contains(procedure);
+	}
+
+	/**
+	 * @return <code>true</code>, if the capabilities were received
+	 */
+	boolean isAvailable() {
+		return available;
+	}
+
+	/**
+	 * @return <code>true</code>, if RegisterSensor or InsertSensor and
+	 *         InsertObservation operations are listed in the capabilities
+	 */
+	boolean isTransactional() {
+		return transactional;
+	}
+
+	/**
+	 * Marks this connection as outdated after a failed transactional request,
+	 * e.g. because the SOS was restarted with another configuration. The
+	 * capabilities are requested again when the next
+	 * {@link SensorObservationService} is created or imports the next data
+	 * file. Running imports keep this connection.
+	 */
+	void invalidate() {
+		if (!invalidated) {
+			invalidated = true;
+			LOG.debug("Invalidated connection to SOS '{}'.", key);
+		}
+	}
+
+	/**
+	 * @return <code>true</code>, if this connection was
+	 *         {@link #invalidate() invalidated}
+	 */
+	boolean isInvalidated() {
+		return invalidated;
+	}
+
+	/**
+	 * Invalidates this connection, if the SOS does not support a requested
+	 * operation anymore. Rejected requests, e.g. because of invalid parameter
+	 * values or duplicate observations, do not invalidate it.
+	 *
+	 * @param e the exception report returned by the SOS
+	 */
+	void invalidateIfUnavailable(final ExceptionReport e) {
+		final Iterator<OWSException> iter = e.getExceptionsIterator();
+		while (iter.hasNext()) {
+			if (OwsExceptionCode.OperationNotSupported.name().equals(iter.next().getExceptionCode())) {
+				invalidate();
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Invalidates this connection, if the request failed during transport,
+	 * e.g. because the SOS was not reachable or timed out. Other OXF failures,
+	 * e.g. while building a request, do not invalidate it.
+	 *
+	 * @param e the exception thrown by OXF
+	 */
+	void invalidateIfUnavailable(final OXFException e) {
+		Throwable cause = e.getCause();
+		while (cause != null) {
+			if (cause instanceof IOException) {
+				invalidate();
+				return;
+			}
+			cause = cause.getCause();
+		}
+	}
+
+	/**
+	 * @param initialHunkSize the hunk size used until the first hunk was
+	 *        inserted
+	 * @param targetBytes the maximum payload of the requests of one hunk
+	 * @param targetLatency the maximum duration of one request in milliseconds
+	 * @return the {@link HunkSizeController} of this SOS endpoint for these
+	 *         arguments. It is shared by all configurations using the same
+	 *         arguments and is kept when this connection is replaced.
+	 */
+	HunkSizeController getHunkSizeController(final int initialHunkSize,
+			final long targetBytes,
+			final long targetLatency) {
+		return getHunkSizeController(key, initialHunkSize, targetBytes, targetLatency);
+	}
+
+	private static synchronized HunkSizeController getHunkSizeController(final String key,
+			final int initialHunkSize,
+			final long targetBytes,
+			final long targetLatency) {
+		final String controllerKey = String.format("%s|%d|%d|%d", key, initialHunkSize, targetBytes, targetLatency);
+		HunkSizeController controller = HUNK_SIZE_CONTROLLERS.get(controllerKey);
+		if (controller == null) {
+			controller = new HunkSizeController(initialHunkSize, targetBytes, targetLatency);
+			HUNK_SIZE_CONTROLLERS.put(controllerKey, controller);
+		}
+		return controller;
+	}
+
+	/**
+	 * @param timeOutBuffer additional connection and read timeout in
+	 *        milliseconds
+	 * @return a wrapper of this SOS used only by requests that require the
+	 *         additional timeout, e.g. inserting SWE array observations. It is
+	 *         created by the first call per buffer from the capabilities of
+	 *         this connection, hence they are not requested again.
+	 */
+	synchronized SOSWrapper getSosWrapper(final int timeOutBuffer) {
+		SOSWrapper bufferedWrapper = bufferedWrappers.get(timeOutBuffer);
+		if (bufferedWrapper == null) {
+			bufferedWrapper = new DescribedSosWrapper(sosWrapper.getServiceDescriptor(), sosBinding);
+			bufferedWrapper.setConnectionTimeOut(sosWrapper.getConnectionTimeout() + timeOutBuffer);
+			bufferedWrapper.setReadTimeout(sosWrapper.getReadTimeout() + timeOutBuffer);
+			bufferedWrappers.put(timeOutBuffer, bufferedWrapper);
+			LOG.debug("Created wrapper for SOS '{}' with {}ms timeout buffer.", key, timeOutBuffer);
+		}
+		return bufferedWrapper;
+	}
+
+	/*
+	 * SOSWrapper created from capabilities received already. The
+	 * SosWrapperFactory always requests them.
+	 */
+	private static final class DescribedSosWrapper extends SOSWrapper {
+
+		private DescribedSosWrapper(final ServiceDescriptor serviceDescriptor, final Binding binding) {
+			super(serviceDescriptor, binding);
+		}
+
+	}
+
+}
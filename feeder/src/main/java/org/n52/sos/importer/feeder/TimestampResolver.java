@@ -0,0 +1,210 @@
+/**
+ * Copyright (C) 2011-2015 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.importer.feeder;
+
+import java.text.ParseException;
+import java.util.TimeZone;
+
+import org.n52.sos.importer.feeder.model.Timestamp;
+import org.n52.sos.importer.feeder.util.TimestampParser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.x52North.sensorweb.sos.importer.x04.ColumnDocument.Column;
+import org.x52North.sensorweb.sos.importer.x04.KeyDocument.Key;
+import org.x52North.sensorweb.sos.importer.x04.MetadataDocument.Metadata;
+import org.x52North.sensorweb.sos.importer.x04.TypeDocument.Type;
+
+/**
+ * Compiled form of one DATE_TIME group of the configuration: the columns of
+ * the group, one {@link TimestampParser} per column, the time zone, and the
+ * static timestamp information from the column metadata and the data file
+ * are evaluated once. Instances are immutable and could be shared between
+ * threads.
+ *
+ * @author <a href="mailto:e.h.juerrens@52north.org">Eike Hinderk J&uuml;rrens</a>
+ */
+final class TimestampResolver {
+
+	private static final Logger LOG = LoggerFactory.getLogger(TimestampResolver.class);
+
+	private static final int MILLIES_PER_HOUR = 1000 * 60 * 60;
+
+	private final DateTimeColumn[] columns;
+
+	// timestamp information coming from the data file name and its
+	// modification date; null if not configured
+	private final Timestamp fileTimestamp;
+
+	// thrown again for each line to keep the behaviour of the per line parsing
+	private final ParseException fileTimestampException;
+
+	private TimestampResolver(final DateTimeColumn[] columns,
+			final Timestamp fileTimestamp,
+			final ParseException fileTimestampException) {
+		this.columns = columns;
+		this.fileTimestamp = fileTimestamp;
+		this.fileTimestampException = fileTimestampException;
+	}
+
+	/**
+	 * @return a {@link TimestampResolver} for the given group or
+	 * 			<code>null</code>, if no columns are available for the group.
+	 */
+	static TimestampResolver compile(final Configuration configuration,
+			final String group,
+			final Timestamp fileTimestamp,
+			final ParseException fileTimestampException) {
+		final Column[] cols = configuration.getAllColumnsForGroup(group, Type.DATE_TIME);
+		if (cols == null) {
+			return null;
+		}
+		final TimeZone timeZone = getTimeZone(cols);
+		final DateTimeColumn[] columns = new DateTimeColumn[cols.length];
+		for (int i = 0; i < cols.length; i++) {
+			columns[i] = new DateTimeColumn(cols[i], timeZone);
+		}
+		return new TimestampResolver(columns, fileTimestamp, fileTimestampException);
+	}
+
+	Timestamp resolve(final String[] values) throws ParseException {
+		final Timestamp ts = new Timestamp();
+		for (final DateTimeColumn column : columns) {
+			column.parseInto(values[column.columnId], ts);
+		}
+		if (fileTimestampException != null) {
+			throw fileTimestampException;
+		}
+		if (fileTimestamp != null) {
+			ts.enrich(fileTimestamp);
+		}
+		return ts;
+	}
+
+	private static TimeZone getTimeZone(final Column[] cols) {
+		if (cols == null || cols.length < 1) {
+			return TimeZone.getDefault();
+		}
+		for (final Column column : cols) {
+			if (column.getMetadataArray() == null ||
+					column.getMetadataArray().length < 1) {
+				continue;
+			}
+			for (final Metadata meta : column.getMetadataArray()) {
+				if (meta.getKey().equals(Key.TIME_ZONE)) {
+					try {
+						for (final String zoneId : TimeZone.getAvailableIDs(Integer.parseInt(meta.getValue())*MILLIES_PER_HOUR) ) {
+							return TimeZone.getTimeZone(zoneId);
+						}
+					} catch (final NumberFormatException nfe) {
+						LOG.error("Could not parse interger from timezone metadata value. Using default timezone");
+						LOG.debug("Exception thrown: ", nfe);
+						return TimeZone.getDefault();
+					}
+				}
+			}
+		}
+		return TimeZone.getDefault();
+	}
+
+	private static final class DateTimeColumn {
+
+		private final int columnId;
+
+		// null, if no parse pattern is given
+		private final TimestampParser parser;
+
+		// Timestamp with the information given in the column metadata
+		private final Timestamp metadata;
+
+		private DateTimeColumn(final Column column, final TimeZone timeZone) {
+			columnId = column.getNumber();
+			final String pattern = getParsePattern(column);
+			parser = pattern != null? new TimestampParser(pattern, timeZone) : null;
+			metadata = getMetadataTimestamp(column);
+			LOG.debug("Column {}: {}", columnId, parser);
+		}
+
+		private void parseInto(final String value, final Timestamp ts) throws ParseException {
+			if (parser != null) {
+				parser.parseInto(value, ts);
+			}
+			ts.enrich(metadata);
+		}
+
+		private static String getParsePattern(final Column column) {
+			if (column.getMetadataArray() != null && column.getMetadataArray().length > 1) {
+				for (final Metadata m : column.getMetadataArray()) {
+					if (m.getKey().equals(Key.PARSE_PATTERN)) {
+						LOG.debug("Parsepattern found: {}", m.getValue());
+						return m.getValue();
+					}
+				}
+			}
+			LOG.debug("No Metadata element found with key {} in column {}",
+					Key.PARSE_PATTERN.toString(),
+					column.getNumber());
+			return null;
+		}
+
+		/**
+		 * Collects the <code>Column.Metadata[]</code> with the keys
+		 * <ul><li>TIME_DAY</li>
+		 * <li>TIME_HOUR</li>
+		 * <li>TIME_MINUTE</li>
+		 * <li>TIME_MONTH</li>
+		 * <li>TIME_SECOND</li>
+		 * <li>TIME_YEAR</li>
+		 * <li>TIME_ZONE</li></ul>
+		 */
+		private static Timestamp getMetadataTimestamp(final Column col) {
+			final Timestamp ts = new Timestamp();
+			if (col.getMetadataArray() != null) {
+				for (final Metadata m : col.getMetadataArray()) {
+					if (m.getKey().equals(Key.TIME_ZONE)) {
+						ts.setTimezone( Byte.parseByte( m.getValue() ) );
+					} else if (m.getKey().equals(Key.TIME_YEAR)) {
+						ts.setYear( Short.parseShort( m.getValue() ) );
+					} else if (m.getKey().equals(Key.TIME_MONTH)) {
+						ts.setMonth( Byte.parseByte( m.getValue() ) );
+					} else if (m.getKey().equals(Key.TIME_DAY)) {
+						ts.setDay( Byte.parseByte( m.getValue() ) );
+					} else if (m.getKey().equals(Key.TIME_HOUR)) {
+						ts.setHour( Byte.parseByte( m.getValue() ) );
+					} else if (m.getKey().equals(Key.TIME_MINUTE)) {
+						ts.setMinute( Byte.parseByte( m.getValue() ) );
+					} else if (m.getKey().equals(Key.TIME_SECOND)) {
+						ts.setSeconds( Byte.parseByte( m.getValue() ) );
+					}
+				}
+			}
+			return ts;
+		}
+	}
+
+}
@@ -0,0 +1,134 @@
+/**
+ * Copyright (C) 2011-2015 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.importer.feeder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The subset of {@link java.text.MessageFormat MessageFormat} patterns used
+ * for positions: literal text, quoted with <code>'</code> if required, and
+ * arguments without format like <code>{0}</code>. Extracts the arguments like
+ * {@link java.text.MessageFormat#parse(String)}: each argument ends at the
+ * first occurrence of the following literal text, the last one at the end of
+ * the value. Immutable and thread safe.
+ *
+ * @see PositionResolver
+ *
+ * @author <a href="mailto:e.h.juerrens@52north.org">Eike Hinderk J&uuml;rrens</a>
+ */
+final class TokenPattern {
+
+	// literals[i] precedes arguments[i], the last literal follows the last argument
+	private final String[] literals;
+
+	private final int[] arguments;
+
+	private TokenPattern(final String[] literals, final int[] arguments) {
+		this.literals = literals;
+		this.arguments = arguments;
+	}
+
+	/**
+	 * @return <code>null</code>, if the pattern contains arguments with a
+	 *         format type or is malformed.
+	 */
+	static TokenPattern compile(final String pattern) {
+		final List<String> literals = new ArrayList<>();
+		final List<Integer> arguments = new ArrayList<>();
+		final StringBuilder literal = new StringBuilder();
+		boolean isQuoted = false;
+		for (int i = 0; i < pattern.length(); i++) {
+			final char c = pattern.charAt(i);
+			if (c == '\'') {
+				if (i + 1 < pattern.length() && pattern.charAt(i + 1) == '\'') {
+					literal.append(c);
+					i++;
+				} else {
+					isQuoted = !isQuoted;
+				}
+			} else if (c == '{' && !isQuoted) {
+				final int end = pattern.indexOf('}', i);
+				if (end < 0) {
+					return null;
+				}
+				final String argument = pattern.substring(i + 1, end).trim();
+				if (argument.isEmpty()) {
+					return null;
+				}
+				for (int j = 0; j < argument.length(); j++) {
+					if (argument.charAt(j) < '0' || argument.charAt(j) > '9') {
+						return null;
+					}
+				}
+				literals.add(literal.toString());
+				literal.setLength(0);
+				arguments.add(Integer.parseInt(argument));
+				i = end;
+			} else {
+				literal.append(c);
+			}
+		}
+		if (isQuoted) {
+			return null;
+		}
+		literals.add(literal.toString());
+		final int[] args = new int[arguments.size()];
+		for (int i = 0; i < args.length; i++) {
+			args[i] = arguments.get(i);
+		}
+		return new TokenPattern(literals.toArray(new String[literals.size()]), args);
+	}
+
+	/**
+	 * @param tokens receives the argument values at the argument
+	 *        indices
+	 * @return <code>false</code>, if the value does not match the
+	 *         pattern
+	 */
+	boolean extract(final String value, final String[] tokens) {
+		if (!value.startsWith(literals[0])) {
+			return false;
+		}
+		int offset = literals[0].length();
+		for (int i = 0; i < arguments.length; i++) {
+			final String next = literals[i + 1];
+			final int end = next.isEmpty()? value.length() : value.indexOf(next, offset);
+			if (end < 0) {
+				return false;
+			}
+			if (arguments[i] < tokens.length) {
+				tokens[arguments[i]] = value.substring(offset, end);
+			}
+			offset = end + next.length();
+		}
+		return true;
+	}
+
+}
@@ -0,0 +1,87 @@
+/**
+ * Copyright (C) 2011-2015 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.importer.feeder;
+
+import java.text.ParseException;
+
+import org.n52.sos.importer.feeder.util.DecimalParser;
+
+/**
+ * Decodes the cells of measured value columns into primitive values. The
+ * {@link ColumnPlan} of each column chooses the method matching its value
+ * type once, hence no value is boxed. Immutable and thread safe.
+ *
+ * @author <a href="mailto:e.h.juerrens@52north.org">Eike Hinderk J&uuml;rrens</a>
+ */
+final class ValueDecoder {
+
+	private final DecimalParser decimalParser;
+
+	/**
+	 * @param decimalParser the parser of NUMERIC values configured with the
+	 *        separators of the data file
+	 */
+	ValueDecoder(final DecimalParser decimalParser) {
+		this.decimalParser = decimalParser;
+	}
+
+	/**
+	 * @param value a NUMERIC value using the separators of the data file
+	 */
+	double decodeDouble(final String value) throws ParseException {
+		return decimalParser.parse(value);
+	}
+
+	/**
+	 * @param value a COUNT value
+	 * @throws NumberFormatException if the value is not an integer
+	 */
+	int decodeInt(final String value) {
+		return Integer.parseInt(value.trim());
+	}
+
+	/**
+	 * @param value a BOOLEAN value: <code>1</code> and <code>true</code>
+	 *        ignoring case are <code>true</code>, all others
+	 *        <code>false</code>.
+	 */
+	boolean decodeBoolean(final String value) {
+		final String trimmed = value.trim();
+		return trimmed.equals("1") || trimmed.equalsIgnoreCase("true");
+	}
+
+	/**
+	 * @param value a TEXT value
+	 * @return the value as is
+	 */
+	String decodeText(final String value) {
+		return value;
+	}
+
+}
@@ -0,0 +1,175 @@
+/**
+ * Copyright (C) 2011-2015 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.importer.feeder.csv;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Reads the lines of a byte range of a local file like
+ * {@link java.io.BufferedReader#readLine()} and counts the bytes consumed.
+ * Hence, {@link #getPosition()} is the offset of the first byte after the
+ * line terminator of the last line read.
+ * <br>
+ * Lines are terminated by <code>\n</code>, <code>\r</code>, or
+ * <code>\r\n</code>. Hence, the encoding MUST be ASCII compatible.
+ *
+ * @author <a href="mailto:e.h.juerrens@52north.org">Eike Hinderk J&uuml;rrens</a>
+ */
+class CountingLineReader implements Closeable {
+
+	private static final int BUFFER_SIZE = 8 * 1024;
+
+	private static final byte LF = '\n';
+
+	private static final byte CR = '\r';
+
+	private final FileChannel channel;
+
+	private final Charset charset;
+
+	private final long end;
+
+	private final byte[] buffer = new byte[BUFFER_SIZE];
+
+	private int bufferPosition;
+
+	private int bufferLimit;
+
+	/*
+	 * offset of the first byte not consumed yet
+	 */
+	private long position;
+
+	private byte[] line = new byte[256];
+
+	private int lineLength;
+
+	CountingLineReader(final File file,
+			final Charset charset,
+			final long start,
+			final long end) throws IOException {
+		this.charset = charset;
+		channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		this.end = end < 0 ? channel.size() : Math.min(end, channel.size());
+		position = Math.min(Math.max(start, 0), this.end);
+		channel.position(position);
+	}
+
+	/**
+	 * @return the next line without its terminator or <code>null</code> if
+	 *         the end of the byte range is reached
+	 * @throws IOException if the file could not be read
+	 */
+	String readLine() throws IOException {
+		if (peek() < 0) {
+			return null;
+		}
+		lineLength = 0;
+		int b;
+		while ((b = read()) >= 0) {
+			if (b == LF) {
+				break;
+			}
+			if (b == CR) {
+				if (peek() == LF) {
+					read();
+				}
+				break;
+			}
+			append((byte) b);
+		}
+		return new String(line, 0, lineLength, charset);
+	}
+
+	/**
+	 * @return the offset in the file of the first byte of the next line
+	 */
+	long getPosition() {
+		return position;
+	}
+
+	/**
+	 * @return the offset after the last byte of the last line to read
+	 */
+	long getEnd() {
+		return end;
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	private int read() throws IOException {
+		final int b = peek();
+		if (b >= 0) {
+			bufferPosition++;
+			position++;
+		}
+		return b;
+	}
+
+	private int peek() throws IOException {
+		if (bufferPosition == bufferLimit && !fill()) {
+			return -1;
+		}
+		return buffer[bufferPosition] & 0xFF;
+	}
+
+	private boolean fill() throws IOException {
+		final int length = (int) Math.min(buffer.length, end - position);
+		if (length <= 0 || !channel.isOpen()) {
+			return false;
+		}
+		final ByteBuffer target = ByteBuffer.wrap(buffer, 0, length);
+		while (target.hasRemaining()) {
+			if (channel.read(target) < 0) {
+				break;
+			}
+		}
+		bufferPosition = 0;
+		bufferLimit = target.position();
+		return bufferLimit > 0;
+	}
+
+	private void append(final byte b) {
+		if (lineLength == line.length) {
+			line = Arrays.copyOf(line, line.length * 2);
+		}
+		line[lineLength++] = b;
+	}
+
+}
@@ -0,0 +1,692 @@
+/**
+ * Copyright (C) 2011-2015 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.importer.feeder.csv;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import org.n52.sos.importer.feeder.Configuration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link CsvParser} reading the local data file through a read-only
+ * {@link java.nio.MappedByteBuffer}.
+ * <br>
+ * Rows are tokenized directly on the mapped bytes. Fields without quote or
+ * escape characters are slices of the mapping; only fields that need
+ * unescaping are copied into a reusable scratch array. No intermediate line
+ * {@link String}s are created and {@link #getFieldSlice(int)} gives access to
+ * the raw bytes of each field of the current row without decoding them.
+ * <br>
+ * Quoting and escaping follow the rules of the opencsv {@link WrappedCSVReader},
+ * including quoted fields spanning several lines. Large files are mapped in
+ * windows; a window is re-mapped at the start of a row crossing its end.
+ * <br>
+ * The configured encoding MUST be ASCII compatible, e.g. UTF-8, US-ASCII, or
+ * one of the ISO-8859 or windows code pages, and separator, quote, and escape
+ * MUST be ASCII characters.
+ * <br>
+ * Via {@link #init(BufferedReader, Configuration)} the rows are read from the
+ * given reader instead: its characters are encoded as UTF-8 into a heap
+ * window that is refilled like a mapped window is re-mapped. Hence, any
+ * encoding is supported, but {@link #getPosition()} returns offsets in the
+ * UTF-8 encoded characters, not in the file.
+ * <br>
+ * Select it via <code>CsvMetadata/CsvParserClass</code>:
+ * <code>org.n52.sos.importer.feeder.csv.MappedCsvParser</code>
+ *
+ * @author <a href="mailto:e.h.juerrens@52north.org">Eike Hinderk J&uuml;rrens</a>
+ */
+public class MappedCsvParser implements SeekableCsvParser {
+
+	private static final Logger LOG = LoggerFactory.getLogger(MappedCsvParser.class);
+
+	private static final int DEFAULT_WINDOW_SIZE = 64 * 1024 * 1024;
+
+	private static final int READER_WINDOW_SIZE = 64 * 1024;
+
+	private static final int READER_BUFFER_SIZE = 8 * 1024;
+
+	private static final int MAX_WINDOW_SIZE = Integer.MAX_VALUE - 8;
+
+	private static final int NEED_MORE_INPUT = -1;
+
+	private static final byte LF = '\n';
+
+	private static final byte CR = '\r';
+
+	private int windowSize;
+
+	private FileChannel channel;
+
+	/*
+	 * not null if the rows are read from a reader instead of a mapped file
+	 */
+	private Reader reader;
+
+	private CharsetEncoder encoder;
+
+	private CharBuffer pendingChars;
+
+	/*
+	 * exclusive end of the mapped byte range, normally the file size.
+	 * Reading from a reader, it is unknown until the reader is exhausted.
+	 */
+	private long end;
+
+	private ByteBuffer window;
+
+	/*
+	 * duplicate of window used for decoding without allocating views
+	 */
+	private ByteBuffer view;
+
+	private long windowStart;
+
+	private int position;
+
+	private byte separator;
+
+	private byte quote;
+
+	private byte escape;
+
+	private CharsetDecoder decoder;
+
+	private CharBuffer chars = CharBuffer.allocate(256);
+
+	private int fieldCount;
+
+	private int[] fieldStart = new int[16];
+
+	private int[] fieldEnd = new int[16];
+
+	private boolean[] fieldInScratch = new boolean[16];
+
+	private byte[] scratch = new byte[256];
+
+	private int scratchLength;
+
+	private boolean spanningLines;
+
+	public MappedCsvParser() {
+		this(DEFAULT_WINDOW_SIZE);
+	}
+
+	MappedCsvParser(final int windowSize) {
+		this.windowSize = windowSize;
+	}
+
+	@Override
+	public void init(final File file, final Configuration configuration) throws IOException {
+		init(file,
+				Charset.forName(configuration.getDataFileEncoding()),
+				configuration.getCsvSeparator(),
+				configuration.getCsvQuoteChar(),
+				configuration.getCsvEscape(),
+				configuration.getFirstLineWithData(),
+				0,
+				-1);
+	}
+
+	@Override
+	public void init(final File file,
+			final Configuration configuration,
+			final long end) throws IOException {
+		init(file,
+				Charset.forName(configuration.getDataFileEncoding()),
+				configuration.getCsvSeparator(),
+				configuration.getCsvQuoteChar(),
+				configuration.getCsvEscape(),
+				configuration.getFirstLineWithData(),
+				0,
+				end);
+	}
+
+	@Override
+	public void init(final File file,
+			final Configuration configuration,
+			final long start,
+			final long end) throws IOException {
+		init(file,
+				Charset.forName(configuration.getDataFileEncoding()),
+				configuration.getCsvSeparator(),
+				configuration.getCsvQuoteChar(),
+				configuration.getCsvEscape(),
+				0,
+				start,
+				end);
+	}
+
+	void init(final File file,
+			final Charset charset,
+			final char separator,
+			final char quote,
+			final char escape,
+			final int skipLines) throws IOException {
+		init(file, charset, separator, quote, escape, skipLines, 0, -1);
+	}
+
+	void init(final File file,
+			final Charset charset,
+			final char separator,
+			final char quote,
+			final char escape,
+			final int skipLines,
+			final long start,
+			final long end) throws IOException {
+		if (!isAsciiCompatible(charset)) {
+			throw new IllegalArgumentException(String.format(
+					"Encoding '%s' is not supported by %s. Use an ASCII compatible encoding or another CsvParser.",
+					charset.name(),
+					getClass().getSimpleName()));
+		}
+		setFormat(charset, separator, quote, escape);
+		channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		this.end = end < 0 ? channel.size() : Math.min(end, channel.size());
+		LOG.debug("Mapping bytes [{}, {}) of '{}' in windows of {} bytes", start, this.end, file, windowSize);
+		map(Math.min(start, this.end));
+		skipLines(skipLines);
+	}
+
+	/**
+	 * Reads the rows from the given reader, e.g. if the data file is not a
+	 * local file. {@link org.n52.sos.importer.feeder.DataFile#getCSVReader()}
+	 * calls {@link #init(File, Configuration)} instead to map the file.
+	 */
+	@Override
+	public void init(final BufferedReader bufferedReader, final Configuration configuration) throws IOException {
+		init(bufferedReader,
+				configuration.getCsvSeparator(),
+				configuration.getCsvQuoteChar(),
+				configuration.getCsvEscape(),
+				configuration.getFirstLineWithData());
+	}
+
+	void init(final Reader reader,
+			final char separator,
+			final char quote,
+			final char escape,
+			final int skipLines) throws IOException {
+		// the characters are decoded already => encode them as UTF-8
+		setFormat(StandardCharsets.UTF_8, separator, quote, escape);
+		encoder = StandardCharsets.UTF_8.newEncoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		pendingChars = CharBuffer.allocate(READER_BUFFER_SIZE);
+		((Buffer) pendingChars).flip();
+		this.reader = reader;
+		windowSize = Math.min(windowSize, READER_WINDOW_SIZE);
+		end = Long.MAX_VALUE;
+		map(0);
+		skipLines(skipLines);
+	}
+
+	private void setFormat(final Charset charset,
+			final char separator,
+			final char quote,
+			final char escape) {
+		this.separator = toByte(separator, "separator");
+		this.quote = toByte(quote, "quote");
+		this.escape = toByte(escape, "escape");
+		decoder = charset.newDecoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+	}
+
+	private void skipLines(final int skipLines) throws IOException {
+		for (int i = 0; i < skipLines && skipLine(); i++) {
+			// skip lines before first line with data like CSVReader does
+		}
+	}
+
+	@Override
+	public String[] readNext() throws IOException {
+		if (!nextRow()) {
+			return null;
+		}
+		final String[] values = new String[fieldCount];
+		for (int i = 0; i < fieldCount; i++) {
+			values[i] = decodeField(i);
+		}
+		return values;
+	}
+
+	/**
+	 * Tokenizes the next row without decoding its fields.
+	 *
+	 * @return <code>true</code>, if a row is available via
+	 *         {@link #getFieldCount()} and {@link #getFieldSlice(int)},<br>
+	 *         <code>false</code>, if the end of the file is reached.
+	 * @throws IOException if the file could not be mapped
+	 */
+	public boolean nextRow() throws IOException {
+		if (channel == null && reader == null) {
+			fieldCount = 0;
+			return false;
+		}
+		while (true) {
+			if (position == window.limit() && isLastWindow()) {
+				fieldCount = 0;
+				close();
+				return false;
+			}
+			final int rowEnd = scanRow(position);
+			if (rowEnd != NEED_MORE_INPUT) {
+				position = rowEnd;
+				return true;
+			}
+			remapAtPosition();
+		}
+	}
+
+	/**
+	 * @return the number of fields of the current row
+	 */
+	public int getFieldCount() {
+		return fieldCount;
+	}
+
+	/**
+	 * @return <code>true</code>, if the current row contains line breaks in
+	 *         quoted fields or ends within a quoted field at the end of the
+	 *         bytes to read
+	 */
+	public boolean isSpanningLines() {
+		return spanningLines;
+	}
+
+	/**
+	 * @param index the index of the field in the current row
+	 * @return a read-only view on the undecoded bytes of the field. It is only
+	 *         valid until the next call of {@link #nextRow()} or
+	 *         {@link #readNext()}.
+	 */
+	public ByteBuffer getFieldSlice(final int index) {
+		checkFieldIndex(index);
+		final ByteBuffer source = fieldInScratch[index] ? ByteBuffer.wrap(scratch) : window.duplicate();
+		((Buffer) source).limit(fieldEnd[index]);
+		((Buffer) source).position(fieldStart[index]);
+		return source.slice().asReadOnlyBuffer();
+	}
+
+	/**
+	 * @return the offset in the file of the first byte of the next row, see
+	 *         {@link #init(BufferedReader, Configuration)} for rows read from
+	 *         a reader
+	 */
+	@Override
+	public long getPosition() {
+		return windowStart + position;
+	}
+
+	@Override
+	public long getEnd() {
+		return end;
+	}
+
+	@Override
+	public int getSkipLimit() {
+		return 1;
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (channel != null) {
+			channel.close();
+			channel = null;
+		}
+		if (reader != null) {
+			reader.close();
+			reader = null;
+		}
+	}
+
+	private void map(final long start) throws IOException {
+		if (reader != null) {
+			fill(start);
+			return;
+		}
+		final long size = Math.min(windowSize, end - start);
+		window = channel.map(FileChannel.MapMode.READ_ONLY, start, size);
+		view = window.duplicate();
+		windowStart = start;
+		position = 0;
+	}
+
+	/*
+	 * Keeps the bytes of the current window from start on and appends the
+	 * encoded characters of the reader until the window is full or the
+	 * reader is exhausted.
+	 */
+	private void fill(final long start) throws IOException {
+		final ByteBuffer next = window != null && window.capacity() >= windowSize ?
+				window : ByteBuffer.allocate(windowSize);
+		if (window != null) {
+			((Buffer) window).position((int) (start - windowStart));
+			if (next == window) {
+				next.compact();
+			} else {
+				next.put(window);
+			}
+		}
+		while (next.hasRemaining()) {
+			if (!pendingChars.hasRemaining()) {
+				((Buffer) pendingChars).clear();
+				final int read = reader.read(pendingChars);
+				((Buffer) pendingChars).flip();
+				if (read < 0) {
+					if (!encoder.encode(pendingChars, next, true).isOverflow() &&
+							!encoder.flush(next).isOverflow()) {
+						end = start + next.position();
+					}
+					break;
+				}
+			}
+			if (encoder.encode(pendingChars, next, false).isOverflow()) {
+				break;
+			}
+		}
+		((Buffer) next).flip();
+		window = next;
+		view = window.duplicate();
+		windowStart = start;
+		position = 0;
+	}
+
+	private boolean isLastWindow() {
+		return windowStart + window.limit() == end;
+	}
+
+	/*
+	 * The row starting at position crosses the end of the window: map the next
+	 * window starting at this row. If the row started at the beginning of the
+	 * window it is longer than the window, hence the window is enlarged.
+	 */
+	private void remapAtPosition() throws IOException {
+		if (position == 0) {
+			if (windowSize == MAX_WINDOW_SIZE) {
+				throw new IOException(String.format("CSV row starting at byte %d is longer than %d bytes.",
+						windowStart,
+						MAX_WINDOW_SIZE));
+			}
+			windowSize = (int) Math.min(2L * windowSize, MAX_WINDOW_SIZE);
+		}
+		map(windowStart + position);
+	}
+
+	/*
+	 * Skips one physical line ignoring any quoting.
+	 */
+	private boolean skipLine() throws IOException {
+		while (true) {
+			final int limit = window.limit();
+			final boolean last = isLastWindow();
+			if (position == limit && last) {
+				return false;
+			}
+			for (int i = position; i < limit; i++) {
+				final byte c = window.get(i);
+				if (c == LF) {
+					position = i + 1;
+					return true;
+				}
+				if (c == CR) {
+					if (i + 1 < limit) {
+						position = window.get(i + 1) == LF ? i + 2 : i + 1;
+						return true;
+					}
+					if (last) {
+						position = i + 1;
+						return true;
+					}
+					break;
+				}
+			}
+			if (last) {
+				position = limit;
+				return true;
+			}
+			remapAtPosition();
+		}
+	}
+
+	/*
+	 * Tokenizes the row starting at start. Returns the index of the first byte
+	 * after the row or NEED_MORE_INPUT if the row crosses the window end.
+	 *
+	 * The rules are the ones of au.com.bytecode.opencsv.CSVParser: the escape
+	 * character is checked first and escapes quote and escape characters,
+	 * a doubled quote within a field is a literal quote, quotes embedded in a
+	 * field are kept, and line breaks in quoted fields become '\n'.
+	 */
+	private int scanRow(final int start) {
+		final ByteBuffer w = window;
+		final int limit = w.limit();
+		final boolean last = isLastWindow();
+		fieldCount = 0;
+		scratchLength = 0;
+		spanningLines = false;
+		int lineStart = start;
+		int fieldBegin = start;
+		int scratchBegin = -1;
+		boolean inQuotes = false;
+		boolean inField = false;
+		int i = start;
+		while (true) {
+			if (i >= limit) {
+				if (!last) {
+					return NEED_MORE_INPUT;
+				}
+				endField(fieldBegin, i, scratchBegin);
+				spanningLines |= inQuotes;
+				return i;
+			}
+			final byte c = w.get(i);
+			if (c == escape || c == quote) {
+				if (i + 1 >= limit && !last) {
+					return NEED_MORE_INPUT;
+				}
+				if (scratchBegin < 0) {
+					scratchBegin = copyToScratch(fieldBegin, i);
+				}
+				final byte next = i + 1 < limit ? w.get(i + 1) : LF;
+				if (c == escape) {
+					if ((inQuotes || inField) && (next == quote || next == escape)) {
+						append(next);
+						i++;
+					}
+				} else {
+					if ((inQuotes || inField) && next == quote) {
+						append(next);
+						i++;
+					} else {
+						if (i - lineStart > 2 &&
+								w.get(i - 1) != separator &&
+								next != LF && next != CR &&
+								next != separator) {
+							if (scratchLength > scratchBegin && isAllWhiteSpace(scratchBegin)) {
+								scratchLength = scratchBegin;
+							} else {
+								append(c);
+							}
+						}
+						inQuotes = !inQuotes;
+					}
+					inField = !inField;
+				}
+				i++;
+			} else if (c == separator && !inQuotes) {
+				endField(fieldBegin, i, scratchBegin);
+				i++;
+				fieldBegin = i;
+				scratchBegin = -1;
+				inField = false;
+			} else if (c == LF || c == CR) {
+				if (c == CR && i + 1 >= limit && !last) {
+					return NEED_MORE_INPUT;
+				}
+				final int lineEnd = c == CR && i + 1 < limit && w.get(i + 1) == LF ? i + 2 : i + 1;
+				if (!inQuotes) {
+					endField(fieldBegin, i, scratchBegin);
+					return lineEnd;
+				}
+				append(LF);
+				spanningLines = true;
+				i = lineEnd;
+				lineStart = i;
+			} else {
+				if (scratchBegin >= 0) {
+					append(c);
+				}
+				inField = true;
+				i++;
+			}
+		}
+	}
+
+	private int copyToScratch(final int begin, final int end) {
+		final int scratchBegin = scratchLength;
+		ensureScratchCapacity(end - begin);
+		for (int j = begin; j < end; j++) {
+			scratch[scratchLength++] = window.get(j);
+		}
+		return scratchBegin;
+	}
+
+	private void append(final byte c) {
+		ensureScratchCapacity(1);
+		scratch[scratchLength++] = c;
+	}
+
+	private void ensureScratchCapacity(final int additional) {
+		if (scratchLength + additional > scratch.length) {
+			scratch = Arrays.copyOf(scratch, Math.max(scratch.length * 2, scratchLength + additional));
+		}
+	}
+
+	private boolean isAllWhiteSpace(final int from) {
+		for (int j = from; j < scratchLength; j++) {
+			if (!Character.isWhitespace((char) scratch[j])) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void endField(final int begin, final int end, final int scratchBegin) {
+		if (fieldCount == fieldStart.length) {
+			final int capacity = fieldCount * 2;
+			fieldStart = Arrays.copyOf(fieldStart, capacity);
+			fieldEnd = Arrays.copyOf(fieldEnd, capacity);
+			fieldInScratch = Arrays.copyOf(fieldInScratch, capacity);
+		}
+		if (scratchBegin < 0) {
+			fieldStart[fieldCount] = begin;
+			fieldEnd[fieldCount] = end;
+			fieldInScratch[fieldCount] = false;
+		} else {
+			fieldStart[fieldCount] = scratchBegin;
+			fieldEnd[fieldCount] = scratchLength;
+			fieldInScratch[fieldCount] = true;
+		}
+		fieldCount++;
+	}
+
+	private String decodeField(final int index) {
+		final int start = fieldStart[index];
+		final int length = fieldEnd[index] - start;
+		if (fieldInScratch[index]) {
+			return new String(scratch, start, length, decoder.charset());
+		}
+		((Buffer) view).limit(fieldEnd[index]);
+		((Buffer) view).position(start);
+		final int maxChars = (int) Math.ceil(length * decoder.maxCharsPerByte());
+		if (chars.capacity() < maxChars) {
+			chars = CharBuffer.allocate(Math.max(maxChars, chars.capacity() * 2));
+		}
+		((Buffer) chars).clear();
+		decoder.reset();
+		decoder.decode(view, chars, true);
+		decoder.flush(chars);
+		((Buffer) chars).flip();
+		return chars.toString();
+	}
+
+	private void checkFieldIndex(final int index) {
+		if (index < 0 || index >= fieldCount) {
+			throw new IndexOutOfBoundsException(String.format("Field index %d; current row has %d fields.",
+					index,
+					fieldCount));
+		}
+	}
+
+	private static byte toByte(final char c, final String name) {
+		if (c > 0x7F) {
+			throw new IllegalArgumentException(String.format("CSV %s '%c' is not an ASCII character.", name, c));
+		}
+		return (byte) c;
+	}
+
+	/**
+	 * Multi-byte sequences of UTF-8 never contain ASCII bytes. Single byte
+	 * charsets are compatible if they encode ASCII as is.
+	 *
+	 * @param charset the encoding of the data file
+	 * @return <code>true</code>, if this parser supports the charset
+	 */
+	public static boolean isAsciiCompatible(final Charset charset) {
+		if (StandardCharsets.UTF_8.equals(charset) || StandardCharsets.US_ASCII.equals(charset)) {
+			return true;
+		}
+		if (!charset.canEncode() || charset.newEncoder().maxBytesPerChar() != 1.0f) {
+			return false;
+		}
+		final byte[] ascii = new byte[0x80];
+		for (int i = 0; i < ascii.length; i++) {
+			ascii[i] = (byte) i;
+		}
+		return Arrays.equals(ascii, new String(ascii, StandardCharsets.US_ASCII).getBytes(charset));
+	}
+
+}
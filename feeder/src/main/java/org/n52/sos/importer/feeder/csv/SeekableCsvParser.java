@@ -0,0 +1,85 @@
+/**
+ * Copyright (C) 2011-2015 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.importer.feeder.csv;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.n52.sos.importer.feeder.Configuration;
+
+/**
+ * A {@link FileCsvParser} reading a byte range of the data file that reports
+ * the byte offset of the next row. Hence, an import could be resumed at the
+ * offset of a {@link org.n52.sos.importer.feeder.util.Checkpoint} instead of
+ * reading and skipping the lines imported already.
+ * <br>
+ * The offsets are only valid for ASCII compatible encodings, see
+ * {@link MappedCsvParser#isAsciiCompatible(java.nio.charset.Charset)}.
+ *
+ * @author <a href="mailto:e.h.juerrens@52north.org">Eike Hinderk J&uuml;rrens</a>
+ */
+public interface SeekableCsvParser extends FileCsvParser {
+
+	/**
+	 * Initialises this parser like {@link #init(File, Configuration)} for the
+	 * rows before the given offset, e.g. the end of the last complete line
+	 * of a growing file.
+	 *
+	 * @param file the local data file to read
+	 * @param configuration the import configuration
+	 * @param end the offset after the last byte of the last row, or a
+	 *        negative value to read until the end of the file
+	 * @throws IOException if the file could not be opened
+	 */
+	void init(File file, Configuration configuration, long end) throws IOException;
+
+	/**
+	 * Initialises this parser for the rows in the byte range
+	 * <code>[start, end)</code> of the file. No lines are skipped.
+	 *
+	 * @param file the local data file to read
+	 * @param configuration the import configuration
+	 * @param start the offset of the first byte of the first row
+	 * @param end the offset after the last byte of the last row, or a
+	 *        negative value to read until the end of the file
+	 * @throws IOException if the file could not be opened
+	 */
+	void init(File file, Configuration configuration, long start, long end) throws IOException;
+
+	/**
+	 * @return the offset in the file of the first byte of the next row
+	 */
+	long getPosition();
+
+	/**
+	 * @return the offset after the last byte of the last row to read
+	 */
+	long getEnd();
+
+}
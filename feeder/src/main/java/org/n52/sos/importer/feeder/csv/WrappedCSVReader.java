@@ -29,22 +29,70 @@
 package org.n52.sos.importer.feeder.csv;
 
 import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
 
 import org.n52.sos.importer.feeder.Configuration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import au.com.bytecode.opencsv.CSVParser;
 import au.com.bytecode.opencsv.CSVReader;
 
 /**
+ * Default {@link CsvParser} based on the opencsv {@link CSVReader}.
+ * <br>
+ * Reading a local data file via {@link #init(File, Configuration)} with an
+ * ASCII compatible encoding, the lines are read by counting their bytes and
+ * tokenized by the opencsv {@link CSVParser}. Hence, {@link #getPosition()}
+ * returns the offset of the next row and an import could be resumed there
+ * via {@link #init(File, Configuration, long, long)}. Otherwise,
+ * {@link #getPosition()} returns <code>-1</code>.
+ *
  * @author <a href="mailto:e.h.juerrens@52north.org">Eike Hinderk J&uuml;rrens</a>
  */
-public class WrappedCSVReader implements CsvParser {
+public class WrappedCSVReader implements SeekableCsvParser {
+
+	private static final Logger LOG = LoggerFactory.getLogger(WrappedCSVReader.class);
 
 	private CSVReader csvReader;
 
+	/*
+	 * not null if the lines are read from a local file counting their bytes
+	 */
+	private CountingLineReader lineReader;
+
+	private CSVParser csvParser;
+
 	@Override
 	public String[] readNext() throws IOException {
-		return csvReader.readNext();
+		if (lineReader == null) {
+			return csvReader.readNext();
+		}
+		// join the lines of quoted fields with line breaks like CSVReader does
+		String[] result = null;
+		do {
+			final String nextLine = lineReader.readLine();
+			if (nextLine == null) {
+				lineReader.close();
+				return result;
+			}
+			final String[] row = csvParser.parseLineMulti(nextLine);
+			if (row.length > 0) {
+				if (result == null) {
+					result = row;
+				} else {
+					final String[] joined = new String[result.length + row.length];
+					System.arraycopy(result, 0, joined, 0, result.length);
+					System.arraycopy(row, 0, joined, result.length, row.length);
+					result = joined;
+				}
+			}
+		} while (csvParser.isPending());
+		return result;
 	}
 
 	@Override
@@ -57,9 +105,97 @@ public class WrappedCSVReader implements CsvParser {
 		csvReader = new CSVReader(bufferedReader, separator, quotechar, escape, flwd);
 	}
 
+	@Override
+	public void init(final File file, final Configuration configuration) throws IOException {
+		init(file, configuration, -1);
+	}
+
+	@Override
+	public void init(final File file,
+			final Configuration configuration,
+			final long end) throws IOException {
+		init(file, configuration, configuration.getFirstLineWithData(), 0, end);
+	}
+
+	@Override
+	public void init(final File file,
+			final Configuration configuration,
+			final long start,
+			final long end) throws IOException {
+		init(file, configuration, 0, start, end);
+	}
+
+	private void init(final File file,
+			final Configuration configuration,
+			final int skipLines,
+			final long start,
+			final long end) throws IOException {
+		final Charset charset = Charset.forName(configuration.getDataFileEncoding());
+		if (!MappedCsvParser.isAsciiCompatible(charset) && start <= 0 && end < 0) {
+			LOG.debug("Byte offsets of the rows not available for encoding '{}'.", charset.name());
+			init(new BufferedReader(new InputStreamReader(new FileInputStream(file), charset)), configuration);
+			return;
+		}
+		init(file,
+				charset,
+				configuration.getCsvSeparator(),
+				configuration.getCsvQuoteChar(),
+				configuration.getCsvEscape(),
+				skipLines,
+				start,
+				end);
+	}
+
+	void init(final File file,
+			final Charset charset,
+			final char separator,
+			final char quote,
+			final char escape,
+			final int skipLines,
+			final long start,
+			final long end) throws IOException {
+		if (!MappedCsvParser.isAsciiCompatible(charset)) {
+			throw new IllegalArgumentException(String.format(
+					"Encoding '%s' does not support reading byte ranges. Use an ASCII compatible encoding.",
+					charset.name()));
+		}
+		lineReader = new CountingLineReader(file, charset, start, end);
+		csvParser = new CSVParser(separator, quote, escape);
+		LOG.debug("Reading bytes [{}, {}) of '{}'", lineReader.getPosition(), lineReader.getEnd(), file);
+		for (int i = 0; i < skipLines && lineReader.readLine() != null; i++) {
+			// skip lines before first line with data like CSVReader does
+		}
+	}
+
+	/**
+	 * @return the offset in the file of the first byte of the next row or
+	 *         <code>-1</code> if the rows are not read via
+	 *         {@link #init(File, Configuration)} or the encoding is not ASCII
+	 *         compatible
+	 */
+	@Override
+	public long getPosition() {
+		return lineReader != null ? lineReader.getPosition() : -1;
+	}
+
+	@Override
+	public long getEnd() {
+		return lineReader != null ? lineReader.getEnd() : -1;
+	}
+
 	@Override
 	public int getSkipLimit() {
 		return 1;
 	}
 
+	@Override
+	public void close() throws IOException {
+		if (lineReader != null) {
+			lineReader.close();
+		}
+		if (csvReader != null) {
+			csvReader.close();
+		}
+	}
+
 }
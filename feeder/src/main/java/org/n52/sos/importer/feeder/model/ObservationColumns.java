@@ -0,0 +1,279 @@
+/**
+ * Copyright (C) 2011-2015 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.importer.feeder.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The time stamps and values of a {@link TimeSeries} in columns of primitive
+ * arrays that grow by doubling: the time stamps as packed
+ * {@link Timestamp#getFields() fields} and the values as <code>double</code>,
+ * <code>int</code>, or <code>boolean</code>, or as indices into a pool of the
+ * distinct texts. The storage is chosen by the type of the first value. It
+ * falls back to an <code>Object</code> array, if a later value has another
+ * type. Not thread safe.
+ *
+ * @author <a href="mailto:e.h.juerrens@52north.org">Eike Hinderk J&uuml;rrens</a>
+ */
+final class ObservationColumns {
+
+	private enum Storage { DOUBLE, INTEGER, BOOLEAN, TEXT, OBJECT }
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	private Storage storage;
+
+	private int size = 0;
+
+	private long[] timestamps = new long[0];
+
+	private double[] doubles;
+
+	private int[] integers;
+
+	private boolean[] booleans;
+
+	// indices into texts, the pool of distinct text values
+	private int[] textIds;
+
+	private List<String> texts;
+
+	private Map<String, Integer> textIndex;
+
+	private Object[] objects;
+
+	void add(final Timestamp timestamp, final Object value) {
+		if (append(timestamp, getStorage(value))) {
+			switch (storage) {
+			case DOUBLE:
+				doubles[size] = (Double) value;
+				break;
+			case INTEGER:
+				integers[size] = (Integer) value;
+				break;
+			case BOOLEAN:
+				booleans[size] = (Boolean) value;
+				break;
+			case TEXT:
+				textIds[size] = getTextId((String) value);
+				break;
+			default:
+				objects[size] = value;
+			}
+		} else {
+			objects[size] = value;
+		}
+		size++;
+	}
+
+	void add(final Timestamp timestamp, final double value) {
+		if (append(timestamp, Storage.DOUBLE)) {
+			doubles[size] = value;
+		} else {
+			objects[size] = value;
+		}
+		size++;
+	}
+
+	void add(final Timestamp timestamp, final int value) {
+		if (append(timestamp, Storage.INTEGER)) {
+			integers[size] = value;
+		} else {
+			objects[size] = value;
+		}
+		size++;
+	}
+
+	void add(final Timestamp timestamp, final boolean value) {
+		if (append(timestamp, Storage.BOOLEAN)) {
+			booleans[size] = value;
+		} else {
+			objects[size] = value;
+		}
+		size++;
+	}
+
+	/*
+	 * Chooses or converts the storage, reserves the next row, and stores the
+	 * time stamp. Returns true, if the value is stored in the column of its
+	 * own storage, and false, if it is stored as object.
+	 */
+	private boolean append(final Timestamp timestamp, final Storage valueStorage) {
+		if (storage == null) {
+			storage = valueStorage;
+		} else if (storage != Storage.OBJECT && valueStorage != storage) {
+			convertToObjects();
+		}
+		if (size == timestamps.length) {
+			grow(Math.max(INITIAL_CAPACITY, size * 2));
+		}
+		timestamps[size] = timestamp.getFields();
+		return storage == valueStorage;
+	}
+
+	int size() {
+		return size;
+	}
+
+	/**
+	 * @param index the index of an observation
+	 * @return the packed {@link Timestamp#getFields() fields} of its time stamp
+	 */
+	long getTimestampFields(final int index) {
+		checkIndex(index);
+		return timestamps[index];
+	}
+
+	/**
+	 * @param index the index of an observation
+	 * @return its value, boxed if required
+	 */
+	Object getValue(final int index) {
+		checkIndex(index);
+		switch (storage) {
+		case DOUBLE:
+			return doubles[index];
+		case INTEGER:
+			return integers[index];
+		case BOOLEAN:
+			return booleans[index];
+		case TEXT:
+			return texts.get(textIds[index]);
+		default:
+			return objects[index];
+		}
+	}
+
+	/**
+	 * Adds one block per observation to the encoder without boxing the
+	 * values.
+	 *
+	 * @param encoder the encoder of the time series
+	 */
+	void encode(final SweDataArrayEncoder encoder) {
+		final Timestamp timestamp = new Timestamp();
+		for (int i = 0; i < size; i++) {
+			timestamp.setFields(timestamps[i]);
+			switch (storage) {
+			case DOUBLE:
+				encoder.addBlock(timestamp, doubles[i]);
+				break;
+			case INTEGER:
+				encoder.addBlock(timestamp, integers[i]);
+				break;
+			case BOOLEAN:
+				encoder.addBlock(timestamp, booleans[i]);
+				break;
+			case TEXT:
+				encoder.addBlock(timestamp, texts.get(textIds[i]));
+				break;
+			default:
+				encoder.addBlock(timestamp, objects[i]);
+			}
+		}
+	}
+
+	private static Storage getStorage(final Object value) {
+		if (value instanceof Double) {
+			return Storage.DOUBLE;
+		}
+		if (value instanceof Integer) {
+			return Storage.INTEGER;
+		}
+		if (value instanceof Boolean) {
+			return Storage.BOOLEAN;
+		}
+		if (value instanceof String) {
+			return Storage.TEXT;
+		}
+		return Storage.OBJECT;
+	}
+
+	private int getTextId(final String text) {
+		Integer id = textIndex.get(text);
+		if (id == null) {
+			id = texts.size();
+			texts.add(text);
+			textIndex.put(text, id);
+		}
+		return id;
+	}
+
+	private void grow(final int capacity) {
+		timestamps = Arrays.copyOf(timestamps, capacity);
+		switch (storage) {
+		case DOUBLE:
+			doubles = doubles == null? new double[capacity] : Arrays.copyOf(doubles, capacity);
+			break;
+		case INTEGER:
+			integers = integers == null? new int[capacity] : Arrays.copyOf(integers, capacity);
+			break;
+		case BOOLEAN:
+			booleans = booleans == null? new boolean[capacity] : Arrays.copyOf(booleans, capacity);
+			break;
+		case TEXT:
+			if (textIds == null) {
+				textIds = new int[capacity];
+				texts = new ArrayList<>();
+				textIndex = new HashMap<>();
+			} else {
+				textIds = Arrays.copyOf(textIds, capacity);
+			}
+			break;
+		default:
+			objects = objects == null? new Object[capacity] : Arrays.copyOf(objects, capacity);
+		}
+	}
+
+	private void convertToObjects() {
+		final Object[] values = new Object[timestamps.length];
+		for (int i = 0; i < size; i++) {
+			values[i] = getValue(i);
+		}
+		objects = values;
+		doubles = null;
+		integers = null;
+		booleans = null;
+		textIds = null;
+		texts = null;
+		textIndex = null;
+		storage = Storage.OBJECT;
+	}
+
+	private void checkIndex(final int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException(String.format("Index: %d, Size: %d", index, size));
+		}
+	}
+
+}
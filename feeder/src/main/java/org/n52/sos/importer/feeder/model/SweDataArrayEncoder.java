@@ -0,0 +1,195 @@
+/**
+ * Copyright (C) 2011-2015 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.importer.feeder.model;
+
+/**
+ * Writes the <code>swe:DataArray</code> of a {@link TimeSeries} as XML text
+ * into one pre-sized {@link StringBuilder}: the element count, the element
+ * type with the phenomenon time and the observed property, the text encoding,
+ * and the values block. The blocks are appended while the observations are
+ * iterated. Hence, no XmlBeans document and no intermediate copies of the
+ * values are created. Not thread safe.
+ *
+ * @author <a href="mailto:e.h.juerrens@52north.org">Eike Hinderk J&uuml;rrens</a>
+ */
+final class SweDataArrayEncoder {
+
+	static final String SWE_20_NS = "http://www.opengis.net/swe/2.0";
+
+	static final String XLINK_NS = "http://www.w3.org/1999/xlink";
+
+	private static final String PHENOMENON_TIME_DEFINITION = "http://www.opengis.net/def/property/OGC/0/PhenomenonTime";
+
+	private static final String GREGORIAN_UOM = "http://www.opengis.net/def/uom/ISO-8601/0/Gregorian";
+
+	// element type, encoding, and namespaces without the observed property
+	private static final int HEADER_LENGTH = 768;
+
+	// yyyy-MM-ddTHH:mm:ss+hh:mm, separators, and a short value
+	private static final int ESTIMATED_BLOCK_LENGTH = 48;
+
+	private final StringBuilder sb;
+
+	private final int elementCount;
+
+	private final String tokenSeparator;
+
+	private final String blockSeparator;
+
+	private final int valuesStart;
+
+	private int blocks = 0;
+
+	/**
+	 * Writes everything before the first block.
+	 *
+	 * @param elementCount the number of blocks that will be added
+	 * @param fieldName the NCName of the observed property field
+	 * @param definition the URI of the observed property
+	 * @param uomCode the unit of measurement code of the values
+	 * @param tokenSeparator the separator of time and value of a block
+	 * @param blockSeparator the separator of the blocks
+	 */
+	SweDataArrayEncoder(final int elementCount,
+			final String fieldName,
+			final String definition,
+			final String uomCode,
+			final String tokenSeparator,
+			final String blockSeparator) {
+		this.elementCount = elementCount;
+		this.tokenSeparator = tokenSeparator;
+		this.blockSeparator = blockSeparator;
+		sb = new StringBuilder(HEADER_LENGTH
+				+ fieldName.length() + definition.length() + uomCode.length()
+				+ elementCount * ESTIMATED_BLOCK_LENGTH);
+		sb.append("<swe:DataArray xmlns:swe=\"").append(SWE_20_NS)
+			.append("\" xmlns:xlink=\"").append(XLINK_NS).append("\">")
+			.append("<swe:elementCount><swe:Count><swe:value>").append(elementCount)
+			.append("</swe:value></swe:Count></swe:elementCount>")
+			.append("<swe:elementType name=\"definition\"><swe:DataRecord>")
+			.append("<swe:field name=\"phenomenonTime\"><swe:Time definition=\"").append(PHENOMENON_TIME_DEFINITION)
+			.append("\"><swe:uom xlink:href=\"").append(GREGORIAN_UOM).append("\"/></swe:Time></swe:field>")
+			.append("<swe:field name=\"");
+		appendEscaped(fieldName);
+		sb.append("\"><swe:Quantity definition=\"");
+		appendEscaped(definition);
+		sb.append("\"><swe:uom code=\"");
+		appendEscaped(uomCode);
+		sb.append("\"/></swe:Quantity></swe:field>")
+			.append("</swe:DataRecord></swe:elementType>")
+			.append("<swe:encoding><swe:TextEncoding tokenSeparator=\"");
+		appendEscaped(tokenSeparator);
+		sb.append("\" blockSeparator=\"");
+		appendEscaped(blockSeparator);
+		sb.append("\"/></swe:encoding>")
+			.append("<swe:values>");
+		valuesStart = sb.length();
+	}
+
+	/**
+	 * Appends the block of one observation.
+	 *
+	 * @param timestamp the phenomenon time
+	 * @param value the value. Its {@link String#valueOf(Object)} representation
+	 *        is used.
+	 * @return this
+	 * @throws IllegalStateException if all blocks were added before
+	 */
+	SweDataArrayEncoder addBlock(final Timestamp timestamp, final Object value) {
+		startBlock(timestamp);
+		appendEscaped(String.valueOf(value));
+		return this;
+	}
+
+	SweDataArrayEncoder addBlock(final Timestamp timestamp, final double value) {
+		startBlock(timestamp).append(value);
+		return this;
+	}
+
+	SweDataArrayEncoder addBlock(final Timestamp timestamp, final int value) {
+		startBlock(timestamp).append(value);
+		return this;
+	}
+
+	SweDataArrayEncoder addBlock(final Timestamp timestamp, final boolean value) {
+		startBlock(timestamp).append(value);
+		return this;
+	}
+
+	private StringBuilder startBlock(final Timestamp timestamp) {
+		if (blocks == elementCount) {
+			throw new IllegalStateException(String.format("All %d blocks added already.", elementCount));
+		}
+		if (blocks++ > 0) {
+			sb.append(blockSeparator);
+		}
+		return timestamp.appendTo(sb).append(tokenSeparator);
+	}
+
+	/**
+	 * @return the number of characters of the values block added so far
+	 */
+	int getValuesLength() {
+		return sb.length() - valuesStart;
+	}
+
+	/**
+	 * @return the XML text of the <code>swe:DataArray</code>
+	 * @throws IllegalStateException if less blocks than announced were added
+	 */
+	String finish() {
+		if (blocks != elementCount) {
+			throw new IllegalStateException(String.format("Only %d of %d blocks added.", blocks, elementCount));
+		}
+		return sb.append("</swe:values></swe:DataArray>").toString();
+	}
+
+	private void appendEscaped(final String text) {
+		for (int i = 0; i < text.length(); i++) {
+			final char c = text.charAt(i);
+			switch (c) {
+			case '&':
+				sb.append("&amp;");
+				break;
+			case '<':
+				sb.append("&lt;");
+				break;
+			case '>':
+				sb.append("&gt;");
+				break;
+			case '"':
+				sb.append("&quot;");
+				break;
+			default:
+				sb.append(c);
+			}
+		}
+	}
+
+}
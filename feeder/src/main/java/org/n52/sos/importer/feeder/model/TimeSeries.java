@@ -28,28 +28,16 @@
  */
 package org.n52.sos.importer.feeder.model;
 
-import java.math.BigInteger;
+import java.util.ArrayList;
 import java.util.Collections;
-import java.util.LinkedList;
 import java.util.List;
 
-import net.opengis.swe.x20.DataArrayDocument;
-import net.opengis.swe.x20.DataArrayType;
-import net.opengis.swe.x20.DataArrayType.ElementType;
-import net.opengis.swe.x20.DataRecordType;
-import net.opengis.swe.x20.DataRecordType.Field;
-import net.opengis.swe.x20.QuantityType;
-import net.opengis.swe.x20.TextEncodingType;
-import net.opengis.swe.x20.TimeType;
-
-import org.apache.xmlbeans.XmlString;
 import org.n52.oxf.sos.observation.ObservationParameters;
 import org.n52.oxf.sos.observation.SweArrayObservationParameters;
 import org.n52.oxf.sos.request.InsertObservationParameters;
-import org.n52.oxf.xml.NcNameResolver;
-import org.n52.oxf.xml.XMLConstants;
 import org.n52.sos.importer.feeder.Configuration;
 import org.n52.sos.importer.feeder.model.requests.InsertObservation;
+import org.n52.sos.importer.xml.NcNameTable;
 
 public class TimeSeries {
 
@@ -63,21 +51,62 @@ public class TimeSeries {
 
 	public static final String SENSOR_NAME_NOT_SET = "SENSOR_NAME_NOT_SET";
 
-	private final LinkedList<InsertObservation> timeseries = new LinkedList<>();
+	// holds the metadata used for the requests of this time series
+	private InsertObservation first;
+
+	/*
+	 * The observations holding the metadata of the rows starting at the same
+	 * index of metadataStarts. A new one is only added if the metadata
+	 * changed, e.g. the feature of interest of a moving sensor.
+	 */
+	private final List<InsertObservation> metadata = new ArrayList<>();
+
+	private final List<Integer> metadataStarts = new ArrayList<>();
+
+	private final ObservationColumns columns = new ObservationColumns();
 
 	private final String tokenSeparator = ";";
 
 	private final String blockSeparator = "@";
 
+	private int encodedValuesLength = 0;
+
+	/**
+	 * Stores the time stamp and the value of the observation. Its other
+	 * properties are only stored, if they differ from the ones of the
+	 * previous observation. The requests of this time series use the ones of
+	 * the first observation.
+	 */
 	public boolean addObservation(final InsertObservation insertObservation) {
-		return timeseries.add(insertObservation);
+		if (first == null) {
+			first = insertObservation;
+		}
+		if (metadata.isEmpty() || !metadata.get(metadata.size() - 1).hasSameMetadata(insertObservation)) {
+			metadata.add(insertObservation);
+			metadataStarts.add(columns.size());
+		}
+		final Timestamp timestamp = insertObservation.getTimeStamp();
+		switch (insertObservation.getResultType()) {
+		case DOUBLE:
+			columns.add(timestamp, insertObservation.getDoubleValue());
+			break;
+		case INTEGER:
+			columns.add(timestamp, insertObservation.getIntValue());
+			break;
+		case BOOLEAN:
+			columns.add(timestamp, insertObservation.getBooleanValue());
+			break;
+		default:
+			columns.add(timestamp, insertObservation.getResultValue());
+		}
+		return true;
 	}
 
 	public String getSensorURI() {
-		if (timeseries.isEmpty()) {
+		if (first == null) {
 			return SENSOR_ID_NOT_SET;
 		}
-		final String sensorURI = timeseries.getFirst().getSensorURI();
+		final String sensorURI = first.getSensorURI();
 		if (sensorURI == null || sensorURI.isEmpty()) {
 			return SENSOR_ID_NOT_SET;
 		}
@@ -85,28 +114,36 @@ public class TimeSeries {
 	}
 
 	public Object getSensorName() {
-		if (timeseries.isEmpty()) {
+		if (first == null) {
 			return SENSOR_NAME_NOT_SET;
 		}
-		final String sensorName = timeseries.getFirst().getSensorName();
+		final String sensorName = first.getSensorName();
 		if (sensorName == null || sensorName.isEmpty()) {
 			return SENSOR_NAME_NOT_SET;
 		}
 		return sensorName;
 	}
 
+	/**
+	 * @return the number of characters of the values encoded by the last call
+	 *         of {@link #getSweArrayObservation(String)} or 0
+	 */
+	public int getEncodedValuesLength() {
+		return encodedValuesLength;
+	}
+
 	public InsertObservation getFirst() {
-		if (timeseries.isEmpty()) {
+		if (first == null) {
 			return null;
 		}
-		return timeseries.getFirst();
+		return first;
 	}
 
 	public ObservedProperty getObservedProperty() {
-		if (timeseries.isEmpty()) {
+		if (first == null) {
 			return OBSERVED_PROPERTY_NOT_SET;
 		}
-		final ObservedProperty obsProp = timeseries.getFirst().getObservedProperty();
+		final ObservedProperty obsProp = first.getObservedProperty();
 		if (obsProp == null) {
 			return OBSERVED_PROPERTY_NOT_SET;
 		}
@@ -114,10 +151,10 @@ public class TimeSeries {
 	}
 
 	public String getUnitOfMeasurementCode() {
-		if (timeseries.isEmpty()) {
+		if (first == null) {
 			return UOM_CODE_NOT_SET;
 		}
-		final String uomCode = timeseries.getFirst().getUnitOfMeasurementCode();
+		final String uomCode = first.getUnitOfMeasurementCode();
 		if (uomCode == null || uomCode.isEmpty()) {
 			return UOM_CODE_NOT_SET;
 		}
@@ -125,10 +162,10 @@ public class TimeSeries {
 	}
 
 	public String getMeasuredValueType() {
-		if (timeseries.isEmpty()) {
+		if (first == null) {
 			return MV_TYPE_NOT_SET;
 		}
-		final String mVType = timeseries.getFirst().getMeasuredValueType();
+		final String mVType = first.getMeasuredValueType();
 		if (mVType == null || mVType.isEmpty()) {
 			return MV_TYPE_NOT_SET;
 		}
@@ -149,90 +186,31 @@ public class TimeSeries {
 		addFeature(obsParameter);
 			// result
     	addResult(obsParameter);
+		final Timestamp[] timeBounds = getTimeBounds();
 		if (sosVersion.equalsIgnoreCase("2.0.0")) {
 			obsParameter.addSrsPosition(Configuration.SOS_200_EPSG_CODE_PREFIX + getFirst().getEpsgCode());
 			// phentime
-			obsParameter.addPhenomenonTime(getPhenomenonTime());
+			obsParameter.addPhenomenonTime(getPhenomenonTime(timeBounds));
 			// temporal bbox for result time
-			obsParameter.addResultTime(getResultTime());
+			obsParameter.addResultTime(getResultTime(timeBounds));
 			return new org.n52.oxf.sos.request.v200.InsertObservationParameters(obsParameter, Collections.singletonList(getFirst().getOffering().getUri()));
 		}
 
 		obsParameter.addSrsPosition(Configuration.SOS_100_EPSG_CODE_PREFIX + getFirst().getEpsgCode());
-		obsParameter.addSamplingTime(getPhenomenonTime());
+		obsParameter.addSamplingTime(getPhenomenonTime(timeBounds));
 		return new org.n52.oxf.sos.request.v100.InsertObservationParameters(obsParameter);
 	}
 
 	private void addResult(final SweArrayObservationParameters obsParameter) {
-		final DataArrayDocument xbDataArrayDoc = DataArrayDocument.Factory.newInstance();
-		final DataArrayType xbDataArray = xbDataArrayDoc.addNewDataArray1();
-		// count
-		xbDataArray.addNewElementCount().addNewCount().setValue(BigInteger.valueOf(timeseries.size()));
-		// element type
-		final DataRecordType xbDataRecord = DataRecordType.Factory.newInstance();
-		// phentime
-		final Field xbPhenTime = xbDataRecord.addNewField();
-		xbPhenTime.setName("phenomenonTime");
-		final TimeType xbTimeWithUom = TimeType.Factory.newInstance();
-		xbTimeWithUom.setDefinition("http://www.opengis.net/def/property/OGC/0/PhenomenonTime");
-		xbTimeWithUom.addNewUom().setHref("http://www.opengis.net/def/uom/ISO-8601/0/Gregorian");
-		xbPhenTime.addNewAbstractDataComponent().set(xbTimeWithUom);
-		xbPhenTime
-			.getAbstractDataComponent()
-			.substitute(XMLConstants.QN_SWE_2_0_TIME, TimeType.type);
-		// obsProp
-		final Field xbObsProperty = xbDataRecord.addNewField();
-		xbObsProperty.setName(NcNameResolver.fixNcName(getObservedProperty().getName()));
-		final QuantityType xbQuantityWithUom = QuantityType.Factory.newInstance();
-		xbQuantityWithUom.setDefinition(getObservedProperty().getUri());
-		xbQuantityWithUom.addNewUom().setCode(getUnitOfMeasurementCode());
-		xbObsProperty.addNewAbstractDataComponent().set(xbQuantityWithUom);
-		xbObsProperty
-			.getAbstractDataComponent()
-			.substitute(XMLConstants.QN_SWE_2_0_QUANTITY, QuantityType.type);
-
-		final ElementType xbElementType = xbDataArray.addNewElementType();
-		xbElementType.setName("definition");
-		xbElementType.addNewAbstractDataComponent().set(xbDataRecord);
-		xbElementType
-			.getAbstractDataComponent()
-			.substitute(XMLConstants.QN_SWE_2_0_DATA_RECORD, DataRecordType.type);
-
-		// encoding
-		final TextEncodingType textEncoding = TextEncodingType.Factory.newInstance();
-		// token
-		textEncoding.setTokenSeparator(tokenSeparator);
-		// block seperator
-		textEncoding.setBlockSeparator(blockSeparator);
-		xbDataArray.addNewEncoding().addNewAbstractEncoding().set(textEncoding);
-		xbDataArray
-			.getEncoding().getAbstractEncoding()
-			.substitute(XMLConstants.QN_SWE_2_0_TEXT_ENCODING, TextEncodingType.type);
-
-		// values
-		xbDataArray.addNewValues().set(createValuesString());
-		obsParameter.addObservationValue(xbDataArrayDoc.xmlText());
-	}
-
-	private XmlString createValuesString() {
-		// values <-- linebreak every 100 lines?
-		final StringBuilder sb = new StringBuilder();
-		int counter = 0;
-		for (final InsertObservation io : timeseries) {
-			sb.append(io.getTimeStamp().toString());
-			sb.append(tokenSeparator);
-			sb.append(io.getResultValue());
-			sb.append(blockSeparator);
-			if (counter > 0 && counter++ % 100 == 0) {
-				sb.append("\n");
-			}
-		}
-		sb.trimToSize();
-		String valueString = sb.toString();
-		valueString = valueString.substring(0, valueString.lastIndexOf(blockSeparator));
-		final XmlString xbValueString = XmlString.Factory.newInstance();
-        xbValueString.setStringValue(valueString);
-        return xbValueString;
+		final SweDataArrayEncoder encoder = new SweDataArrayEncoder(columns.size(),
+				NcNameTable.fixNCName(getObservedProperty().getName()),
+				getObservedProperty().getUri(),
+				getUnitOfMeasurementCode(),
+				tokenSeparator,
+				blockSeparator);
+		columns.encode(encoder);
+		encodedValuesLength = encoder.getValuesLength();
+		obsParameter.addObservationValue(encoder.finish());
 	}
 
 	private void addFeature(final ObservationParameters obsParameter) {
@@ -260,34 +238,48 @@ public class TimeSeries {
 		obsParameter.addFoiPosition(pos);
 	}
 
-	private String getResultTime() {
-		Timestamp resultTime = null;
-		for (final InsertObservation io : timeseries) {
-			if (resultTime == null || resultTime.before(io.getTimeStamp())) {
-				resultTime = io.getTimeStamp();
-			}
-		}
-		if (resultTime == null || resultTime.toString().isEmpty()) {
+	private String getResultTime(final Timestamp[] timeBounds) {
+		if (timeBounds == null || timeBounds[1].toString().isEmpty()) {
 			return "Could not get result time date of timeseries";
 		}
-		return resultTime.toString();
+		return timeBounds[1].toString();
+	}
+
+	private String getPhenomenonTime(final Timestamp[] timeBounds) {
+		if (timeBounds == null || timeBounds[0].toString().isEmpty() || timeBounds[1].toString().isEmpty()) {
+			return "Could not get start and/or end date of timeseries";
+		}
+		return new StringBuffer(timeBounds[0].toString()).append("/").append(timeBounds[1].toString()).toString();
 	}
 
-	private String getPhenomenonTime() {
-		Timestamp start = null;
-		Timestamp end = null;
-		for (final InsertObservation io : timeseries) {
-			if (start == null || start.after(io.getTimeStamp())) {
-				start = io.getTimeStamp();
+	/*
+	 * Returns the first earliest and the first latest time stamp or null, if
+	 * this time series is empty.
+	 */
+	private Timestamp[] getTimeBounds() {
+		if (columns.size() == 0) {
+			return null;
+		}
+		final Timestamp timestamp = new Timestamp();
+		int start = 0;
+		int end = 0;
+		long startTime = timestamp.setFields(columns.getTimestampFields(0)).getTime();
+		long endTime = startTime;
+		for (int i = 1; i < columns.size(); i++) {
+			final long time = timestamp.setFields(columns.getTimestampFields(i)).getTime();
+			if (time < startTime) {
+				start = i;
+				startTime = time;
 			}
-			if (end == null || end.before(io.getTimeStamp())) {
-				end = io.getTimeStamp();
+			if (time > endTime) {
+				end = i;
+				endTime = time;
 			}
 		}
-		if (start == null || start.toString().isEmpty() || end == null || end.toString().isEmpty()) {
-			return "Could not get start and/or end date of timeseries";
-		}
-		return new StringBuffer(start.toString()).append("/").append(end.toString()).toString();
+		return new Timestamp[] {
+				new Timestamp().setFields(columns.getTimestampFields(start)),
+				new Timestamp().setFields(columns.getTimestampFields(end))
+		};
 	}
 
 	@Override
@@ -295,18 +287,39 @@ public class TimeSeries {
 		return String.format("TimeSeries [sensor=%s, observedProperty=%s, feature=%s]",
 				getSensorURI(),
 				getObservedProperty(),
-				timeseries.getFirst().getFeatureOfInterestURI());
+				first.getFeatureOfInterestURI());
 	}
 
 	/**
 	 * @return <code>true</code>, if this time series contains no {@link InsertObservation} objects.
 	 */
 	public boolean isEmpty() {
-		return timeseries.isEmpty();
+		return columns.size() == 0;
+	}
+
+	/**
+	 * @return the number of observations of this time series
+	 */
+	public int size() {
+		return columns.size();
 	}
 
+	/**
+	 * @return the observations of this time series, created from the stored
+	 *         time stamps and values and the metadata of the observation
+	 *         added at the same position
+	 */
 	public List<? extends InsertObservation> getInsertObservations() {
-		return Collections.unmodifiableList(timeseries);
+		final List<InsertObservation> observations = new ArrayList<>(columns.size());
+		int current = 0;
+		for (int i = 0; i < columns.size(); i++) {
+			while (current + 1 < metadataStarts.size() && metadataStarts.get(current + 1) <= i) {
+				current++;
+			}
+			observations.add(metadata.get(current).copy(columns.getValue(i),
+					new Timestamp().setFields(columns.getTimestampFields(i))));
+		}
+		return Collections.unmodifiableList(observations);
 	}
 
 }
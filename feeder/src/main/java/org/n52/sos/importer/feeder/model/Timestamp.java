@@ -39,97 +39,177 @@ import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 
 /**
- * @author <a href="mailto:e.h.juerrens@52north.org">Eike Hinderk J&uuml;rrens</a>
+ * The fields of a timestamp. All fields are optional and packed into one
+ * <code>long</code>: year (16 bit), month, day, hour, minute, seconds and
+ * time zone offset in hours (8 bit each). <code>MIN_VALUE</code> marks a
+ * field as not set.<br />
+ * Comparison, day arithmetic and ISO 8601 formatting work on the packed
+ * fields without creating intermediate objects.
  *
- * TODO switch to Joda time or java 8 to get time zone problems fixed
+ * @author <a href="mailto:e.h.juerrens@52north.org">Eike Hinderk J&uuml;rrens</a>
  */
 public class Timestamp {
 
 	private static final int millisPerHour = 1000 * 60 * 60;
 	private static final int millisPerDay = millisPerHour * 24;
-	private short year = Short.MIN_VALUE;
-	private byte month = Byte.MIN_VALUE;
-	private byte day = Byte.MIN_VALUE;
-	private byte hour = Byte.MIN_VALUE;
-	private byte minute = Byte.MIN_VALUE;
-	private byte seconds = Byte.MIN_VALUE;
-	private byte timezone = Byte.MIN_VALUE;
+
+	private static final int YEAR_SHIFT = 48;
+	private static final int MONTH_SHIFT = 40;
+	private static final int DAY_SHIFT = 32;
+	private static final int HOUR_SHIFT = 24;
+	private static final int MINUTE_SHIFT = 16;
+	private static final int SECONDS_SHIFT = 8;
+	private static final int TIMEZONE_SHIFT = 0;
+
+	private static final long NOTHING_SET = pack(Short.MIN_VALUE,
+			Byte.MIN_VALUE, Byte.MIN_VALUE, Byte.MIN_VALUE, Byte.MIN_VALUE, Byte.MIN_VALUE, Byte.MIN_VALUE);
+
+	/*
+	 * Resolves local times like SimpleDateFormat did in former versions,
+	 * e.g. a local time in a daylight saving gap.
+	 */
+	private static final ThreadLocal<Calendar> LOCAL_CALENDARS = new ThreadLocal<Calendar>() {
+		@Override
+		protected Calendar initialValue() {
+			return new GregorianCalendar();
+		}
+	};
+
+	private long fields = NOTHING_SET;
+
+	private static long pack(final short year,
+			final byte month,
+			final byte day,
+			final byte hour,
+			final byte minute,
+			final byte seconds,
+			final byte timezone) {
+		return (year & 0xFFFFL) << YEAR_SHIFT |
+				(month & 0xFFL) << MONTH_SHIFT |
+				(day & 0xFFL) << DAY_SHIFT |
+				(hour & 0xFFL) << HOUR_SHIFT |
+				(minute & 0xFFL) << MINUTE_SHIFT |
+				(seconds & 0xFFL) << SECONDS_SHIFT |
+				(timezone & 0xFFL) << TIMEZONE_SHIFT;
+	}
+
+	private byte getByte(final int shift) {
+		return (byte) (fields >>> shift);
+	}
+
+	private void setByte(final int shift, final byte value) {
+		fields = (fields & ~(0xFFL << shift)) | (value & 0xFFL) << shift;
+	}
+
+	private boolean isSet(final int shift) {
+		return getByte(shift) != Byte.MIN_VALUE;
+	}
+
+	private boolean isYearSet() {
+		return getYear() != Short.MIN_VALUE;
+	}
+
+	private boolean isDateSet() {
+		return isYearSet() || isSet(MONTH_SHIFT) || isSet(DAY_SHIFT);
+	}
+
+	private boolean isTimeSet() {
+		return isSet(HOUR_SHIFT) || isSet(MINUTE_SHIFT) || isSet(SECONDS_SHIFT);
+	}
 
 	@Override
 	public String toString() {
 		// yyyy-MM-ddTHH:mm:ss+hh:mm => 31 chars
-		final StringBuffer ts = new StringBuffer(31);
+		return appendTo(new StringBuilder(31)).toString();
+	}
+
+	/**
+	 * Appends the ISO 8601 representation of all set fields to the given
+	 * {@link StringBuilder}, e.g. <code>2015-01-31T23:59:59+01:00</code>.
+	 *
+	 * @return the given {@link StringBuilder}
+	 */
+	public StringBuilder appendTo(final StringBuilder ts) {
+		final short year = getYear();
+		final byte month = getMonth();
+		final byte day = getDay();
+		final byte hour = getHour();
+		final byte minute = getMinute();
+		final byte seconds = getSeconds();
+		final byte timezone = getTimezone();
 		if (year != Short.MIN_VALUE) {
 			ts.append(year);
 			if (month != Byte.MIN_VALUE) {
-				ts.append("-");
+				ts.append('-');
 			}
 		}
 		if (month != Byte.MIN_VALUE) {
-			ts.append(month<10?"0"+month:month);
+			appendTwoDigits(ts, month);
 			if (day != Byte.MIN_VALUE) {
-				ts.append("-");
+				ts.append('-');
 			}
 		}
 		if (day != Byte.MIN_VALUE) {
-			ts.append(day<10?"0"+day:day);
+			appendTwoDigits(ts, day);
 		}
-		if ( (year != Short.MIN_VALUE || month != Byte.MIN_VALUE || day != Byte.MIN_VALUE )
-				&& (hour != Byte.MIN_VALUE || minute != Byte.MIN_VALUE || seconds != Byte.MIN_VALUE)) {
-			ts.append("T");
+		if (isDateSet() && isTimeSet()) {
+			ts.append('T');
 		}
 		if (hour != Byte.MIN_VALUE) {
-			ts.append(hour<10?"0"+hour:hour);
+			appendTwoDigits(ts, hour);
 			if (minute != Byte.MIN_VALUE) {
-				ts.append(":");
+				ts.append(':');
 			}
 		}
 		if (minute != Byte.MIN_VALUE) {
-			ts.append( (minute<10?"0"+minute:minute)+":");
+			appendTwoDigits(ts, minute);
+			ts.append(':');
 		} else if (hour != Byte.MIN_VALUE) {
 			ts.append("00:");
 		}
 		if (seconds != Byte.MIN_VALUE ) {
-			ts.append(seconds<10?"0"+seconds:seconds);
+			appendTwoDigits(ts, seconds);
 		} else if (minute != Byte.MIN_VALUE && hour != Byte.MIN_VALUE) {
 			ts.append("00");
 		}
-		if (timezone != Byte.MIN_VALUE &&
-				(hour != Byte.MIN_VALUE || minute != Byte.MIN_VALUE || seconds != Byte.MIN_VALUE)) {
-			ts.append(convertTimeZone(timezone));
+		if (timezone != Byte.MIN_VALUE && isTimeSet()) {
+			appendTimeZone(ts, timezone);
 		}
-		return ts.toString();
+		return ts;
 	}
 
-	private String convertTimeZone(final int timeZone) {
+	private static void appendTwoDigits(final StringBuilder sb, final int value) {
+		if (value < 10 && value >= 0) {
+			sb.append('0');
+		}
+		sb.append(value);
+	}
+
+	private static void appendTimeZone(final StringBuilder sb, final int timeZone) {
 		if (timeZone >= 0) {
-			if (timeZone >= 10) {
-				return "+" + timeZone + ":00";
-			} else {
-				return "+0" + timeZone + ":00";
-			}
+			sb.append('+');
+			appendTwoDigits(sb, timeZone);
+		} else if (timeZone <= -10) {
+			sb.append(timeZone);
 		} else {
-			if (timeZone <= -10) {
-				return timeZone + ":00";
-			} else {
-				return "-0" + Math.abs(timeZone) + ":00";
-			}
+			sb.append("-0").append(-timeZone);
 		}
+		sb.append(":00");
 	}
 
 	public Timestamp set(final long dateToSet) {
 		final Calendar cal = new GregorianCalendar();
-		if (timezone != Byte.MIN_VALUE) {
-			cal.setTimeZone(TimeZone.getTimeZone(TimeZone.getAvailableIDs(timezone*millisPerHour)[0]));
+		if (isSet(TIMEZONE_SHIFT)) {
+			cal.setTimeZone(TimeZone.getTimeZone(TimeZone.getAvailableIDs(getTimezone()*millisPerHour)[0]));
 		}
 		cal.setTimeInMillis(dateToSet);
-		year = (short) cal.get(Calendar.YEAR);
-		month = (byte) (cal.get(Calendar.MONTH)+1);
-		day = (byte) cal.get(Calendar.DAY_OF_MONTH);
-		hour = (byte) cal.get(Calendar.HOUR_OF_DAY);
-		minute = (byte) cal.get(Calendar.MINUTE);
-		seconds = (byte) cal.get(Calendar.SECOND);
-		timezone = (byte) (cal.getTimeZone().getOffset(dateToSet)/millisPerHour);
+		fields = pack((short) cal.get(Calendar.YEAR),
+				(byte) (cal.get(Calendar.MONTH)+1),
+				(byte) cal.get(Calendar.DAY_OF_MONTH),
+				(byte) cal.get(Calendar.HOUR_OF_DAY),
+				(byte) cal.get(Calendar.MINUTE),
+				(byte) cal.get(Calendar.SECOND),
+				(byte) (cal.getTimeZone().getOffset(dateToSet)/millisPerHour));
 		return this;
 	}
 
@@ -189,76 +269,130 @@ public class Timestamp {
 		return this;
 	}
 
+	/**
+	 * @return all fields packed into one <code>long</code>, e.g. to store
+	 *         many timestamps without creating objects
+	 */
+	long getFields() {
+		return fields;
+	}
+
+	/**
+	 * @param fields the packed fields returned by {@link #getFields()}
+	 * @return this
+	 */
+	Timestamp setFields(final long fields) {
+		this.fields = fields;
+		return this;
+	}
+
 	protected Date toDate() {
-		final String datePattern = getDatePattern();
-		try {
-			return new SimpleDateFormat(datePattern).parse(toString());
-		} catch (final ParseException e) {
-			throw new RuntimeException("Could not execute toDate()",e);
-		}
+		return new Date(getTime());
 	}
 
-	private String getDatePattern() {
-		// "yyyy-MM-dd'T'HH:mm:ssX";
-		final StringBuffer ts = new StringBuffer(31);
-		if (year != Short.MIN_VALUE) {
-			ts.append("yyyy");
-			if (month != Byte.MIN_VALUE) {
-				ts.append("-");
-			}
-		}
-		if (month != Byte.MIN_VALUE) {
-			ts.append("MM");
-			if (day != Byte.MIN_VALUE) {
-				ts.append("-");
-			}
-		}
-		if (day != Byte.MIN_VALUE) {
-			ts.append("dd");
+	/**
+	 * Fields that are not set are handled like in former versions: date
+	 * defaults to <code>1970-01-01</code>, time to <code>00:00:00</code>,
+	 * and the default time zone is used if no time zone is set or no time
+	 * field is set.
+	 *
+	 * @return the milliseconds since epoch
+	 */
+	public long getTime() {
+		if (isSet(TIMEZONE_SHIFT) && isTimeSet()) {
+			return getLocalMillis() - (long) getTimezone() * millisPerHour;
 		}
-		if ( (year != Short.MIN_VALUE || month != Byte.MIN_VALUE || day != Byte.MIN_VALUE )
-				&& (hour != Byte.MIN_VALUE || minute != Byte.MIN_VALUE || seconds != Byte.MIN_VALUE)) {
-			ts.append("'T'");
+		final Calendar cal = LOCAL_CALENDARS.get();
+		cal.clear();
+		cal.set(isYearSet()? getYear() : 1970,
+				isSet(MONTH_SHIFT)? getMonth() - 1 : Calendar.JANUARY,
+				isSet(DAY_SHIFT)? getDay() : 1,
+				isSet(HOUR_SHIFT)? getHour() : 0,
+				isSet(MINUTE_SHIFT)? getMinute() : 0,
+				isSet(SECONDS_SHIFT)? getSeconds() : 0);
+		return cal.getTimeInMillis();
+	}
+
+	/**
+	 * @return the milliseconds since epoch of the fields ignoring any time zone
+	 */
+	private long getLocalMillis() {
+		final long year = isYearSet()? getYear() : 1970;
+		final int month = isSet(MONTH_SHIFT)? getMonth() : 1;
+		final int day = isSet(DAY_SHIFT)? getDay() : 1;
+		final int hour = isSet(HOUR_SHIFT)? getHour() : 0;
+		final int minute = isSet(MINUTE_SHIFT)? getMinute() : 0;
+		final int seconds = isSet(SECONDS_SHIFT)? getSeconds() : 0;
+		final long epochDay = toEpochDay(year, month, day);
+		return ((epochDay * 24 + hour) * 60 + minute) * 60000L + seconds * 1000L;
+	}
+
+	/*
+	 * Proleptic gregorian calendar, see java.time.LocalDate.toEpochDay()
+	 */
+	private static long toEpochDay(final long year, final int month, final int day) {
+		long total = 365 * year;
+		if (year >= 0) {
+			total += (year + 3) / 4 - (year + 99) / 100 + (year + 399) / 400;
+		} else {
+			total -= year / -4 - year / -100 + year / -400;
 		}
-		if (hour != Byte.MIN_VALUE) {
-			ts.append("HH");
-			if (minute != Byte.MIN_VALUE) {
-				ts.append(":");
+		total += (367 * month - 362) / 12;
+		total += day - 1;
+		if (month > 2) {
+			total--;
+			if (!isLeapYear(year)) {
+				total--;
 			}
 		}
-		if (minute != Byte.MIN_VALUE) {
-			ts.append("mm:");
-		} else if (hour != Byte.MIN_VALUE) {
-			ts.append("mm:");
-		}
-		if (seconds != Byte.MIN_VALUE ) {
-			ts.append("ss");
-		} else if (minute != Byte.MIN_VALUE && hour != Byte.MIN_VALUE) {
-			ts.append("ss");
-		}
-		if (timezone != Byte.MIN_VALUE &&
-				(hour != Byte.MIN_VALUE || minute != Byte.MIN_VALUE || seconds != Byte.MIN_VALUE)) {
-			ts.append("X");
+		// days 0000 to 1970
+		return total - 719528;
+	}
+
+	private static boolean isLeapYear(final long year) {
+		return (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+	}
+
+	/*
+	 * Inverse of toEpochDay, see java.time.LocalDate.ofEpochDay()
+	 */
+	private void setDate(final long epochDay) {
+		long zeroDay = epochDay + 719528 - 60;
+		long adjust = 0;
+		if (zeroDay < 0) {
+			final long adjustCycles = (zeroDay + 1) / 146097 - 1;
+			adjust = adjustCycles * 400;
+			zeroDay += -adjustCycles * 146097;
 		}
-		final String datePattern = ts.toString();
-		if (datePattern.isEmpty()) {
-			return "yyyy-MM-dd'T'HH:mm:ssX";
+		long yearEst = (400 * zeroDay + 591) / 146097;
+		long doyEst = zeroDay - (365 * yearEst + yearEst / 4 - yearEst / 100 + yearEst / 400);
+		if (doyEst < 0) {
+			yearEst--;
+			doyEst = zeroDay - (365 * yearEst + yearEst / 4 - yearEst / 100 + yearEst / 400);
 		}
-		return datePattern;
+		yearEst += adjust;
+		final long marchDoy0 = doyEst;
+		final long marchMonth0 = (marchDoy0 * 5 + 2) / 153;
+		final long month = (marchMonth0 + 2) % 12 + 1;
+		final long dom = marchDoy0 - (marchMonth0 * 306 + 5) / 10 + 1;
+		yearEst += marchMonth0 / 10;
+		setYear((short) yearEst);
+		setMonth((byte) month);
+		setDay((byte) dom);
 	}
 
 	public boolean after(final Timestamp timeStamp) {
 		if (timeStamp == null) {
 			throw new IllegalArgumentException("parameter timeStamp is mandatory.");
 		}
-		return toDate().after(timeStamp.toDate());
+		return getTime() > timeStamp.getTime();
 	}
 
 	public boolean before(final Timestamp timeStamp) {
 		if (timeStamp == null) {
 			throw new IllegalArgumentException("parameter timeStamp is mandatory.");
 		}
-		return toDate().before(timeStamp.toDate());
+		return getTime() < timeStamp.getTime();
 	}
 
 	/**
@@ -279,10 +413,10 @@ public class Timestamp {
 	}
 
 	public Timestamp applyDayDelta(final int daysToAdd) {
-		final Timestamp tmp = new Timestamp().set(toDate().getTime() + (daysToAdd * millisPerDay));
-		setYear(tmp.getYear());
-		setMonth(tmp.getMonth());
-		setDay(tmp.getDay());
+		setDate(toEpochDay(
+				isYearSet()? getYear() : 1970,
+				isSet(MONTH_SHIFT)? getMonth() : 1,
+				isSet(DAY_SHIFT)? getDay() : 1) + daysToAdd);
 		return this;
 	}
 
@@ -291,82 +425,69 @@ public class Timestamp {
 			if (other.getYear() > Short.MIN_VALUE) {
 				setYear(other.getYear());
 			}
-			if (other.getMonth() > Byte.MIN_VALUE) {
-				setMonth(other.getMonth());
-			}
-			if (other.getDay() > Byte.MIN_VALUE) {
-				setDay(other.getDay());
-			}
-			if (other.getHour() > Byte.MIN_VALUE) {
-				setHour(other.getHour());
-			}
-			if (other.getMinute() > Byte.MIN_VALUE) {
-				setMinute(other.getMinute());
-			}
-			if (other.getSeconds() > Byte.MIN_VALUE) {
-				setSeconds(other.getSeconds());
-			}
-			if (other.getTimezone() > Byte.MIN_VALUE) {
-				setTimezone(other.getTimezone());
+			for (int shift = MONTH_SHIFT; shift >= TIMEZONE_SHIFT; shift -= 8) {
+				if (other.isSet(shift)) {
+					setByte(shift, other.getByte(shift));
+				}
 			}
 		}
 		return this;
 	}
 
 	public void setYear(final short year) {
-		this.year = year;
+		fields = (fields & ~(0xFFFFL << YEAR_SHIFT)) | (year & 0xFFFFL) << YEAR_SHIFT;
 	}
 
 	public void setMonth(final byte month) {
-		this.month = month;
+		setByte(MONTH_SHIFT, month);
 	}
 
 	public void setDay(final byte day) {
-		this.day = day;
+		setByte(DAY_SHIFT, day);
 	}
 
 	public void setHour(final byte hour) {
-		this.hour = hour;
+		setByte(HOUR_SHIFT, hour);
 	}
 
 	public void setMinute(final byte minute) {
-		this.minute = minute;
+		setByte(MINUTE_SHIFT, minute);
 	}
 
 	public void setSeconds(final byte seconds) {
-		this.seconds = seconds;
+		setByte(SECONDS_SHIFT, seconds);
 	}
 
 	public void setTimezone(final byte timezone) {
-		this.timezone = timezone;
+		setByte(TIMEZONE_SHIFT, timezone);
 	}
 
 	public short getYear() {
-		return year;
+		return (short) (fields >>> YEAR_SHIFT);
 	}
 
 	public byte getMonth() {
-		return month;
+		return getByte(MONTH_SHIFT);
 	}
 
 	public byte getDay() {
-		return day;
+		return getByte(DAY_SHIFT);
 	}
 
 	public byte getHour() {
-		return hour;
+		return getByte(HOUR_SHIFT);
 	}
 
 	public byte getMinute() {
-		return minute;
+		return getByte(MINUTE_SHIFT);
 	}
 
 	public byte getSeconds() {
-		return seconds;
+		return getByte(SECONDS_SHIFT);
 	}
 
 	public byte getTimezone() {
-		return timezone;
+		return getByte(TIMEZONE_SHIFT);
 	}
 
 }
@@ -28,6 +28,8 @@
  */
 package org.n52.sos.importer.feeder.model.requests;
 
+import java.util.Objects;
+
 import org.n52.sos.importer.feeder.model.FeatureOfInterest;
 import org.n52.sos.importer.feeder.model.ObservedProperty;
 import org.n52.sos.importer.feeder.model.Offering;
@@ -42,6 +44,17 @@ import org.n52.sos.importer.feeder.model.UnitOfMeasurement;
  */
 public class InsertObservation {
 
+	/**
+	 * The type of the result value. The values of the types
+	 * {@link #DOUBLE}, {@link #INTEGER}, and {@link #BOOLEAN} are stored
+	 * unboxed.
+	 */
+	public enum ResultType { DOUBLE, INTEGER, BOOLEAN, TEXT, OBJECT }
+
+	private final ResultType resultType;
+	// the value of the primitive result types, booleans as 1 and 0
+	private final double primitiveValue;
+	// the value of the other result types
 	private final Object resultValue;
 	private final Timestamp timeStamp;
 	private final Sensor sensor;
@@ -59,16 +72,95 @@ public class InsertObservation {
 			final ObservedProperty obsProp,
 			final Offering off,
 			final String mvType) {
+		this(sensor, foi, getResultType(value), toPrimitive(value), isPrimitive(value)? null : value,
+				timeStamp, uom, obsProp, off, mvType);
+	}
+
+	public InsertObservation(final Sensor sensor,
+			final FeatureOfInterest foi,
+			final double value,
+			final Timestamp timeStamp,
+			final UnitOfMeasurement uom,
+			final ObservedProperty obsProp,
+			final Offering off,
+			final String mvType) {
+		this(sensor, foi, ResultType.DOUBLE, value, null, timeStamp, uom, obsProp, off, mvType);
+	}
+
+	public InsertObservation(final Sensor sensor,
+			final FeatureOfInterest foi,
+			final int value,
+			final Timestamp timeStamp,
+			final UnitOfMeasurement uom,
+			final ObservedProperty obsProp,
+			final Offering off,
+			final String mvType) {
+		this(sensor, foi, ResultType.INTEGER, value, null, timeStamp, uom, obsProp, off, mvType);
+	}
+
+	public InsertObservation(final Sensor sensor,
+			final FeatureOfInterest foi,
+			final boolean value,
+			final Timestamp timeStamp,
+			final UnitOfMeasurement uom,
+			final ObservedProperty obsProp,
+			final Offering off,
+			final String mvType) {
+		this(sensor, foi, ResultType.BOOLEAN, value? 1 : 0, null, timeStamp, uom, obsProp, off, mvType);
+	}
+
+	private InsertObservation(final Sensor sensor,
+			final FeatureOfInterest foi,
+			final ResultType resultType,
+			final double primitiveValue,
+			final Object resultValue,
+			final Timestamp timeStamp,
+			final UnitOfMeasurement uom,
+			final ObservedProperty obsProp,
+			final Offering off,
+			final String mvType) {
 		featureOfInterest = foi;
 		this.sensor = sensor;
 		observedProperty = obsProp;
 		this.timeStamp = timeStamp;
 		unitOfMeasurement = uom;
-		resultValue = value;
+		this.resultType = resultType;
+		this.primitiveValue = primitiveValue;
+		this.resultValue = resultValue;
 		offering = off;
 		measuredValueType = mvType;
 	}
 
+	private static ResultType getResultType(final Object value) {
+		if (value instanceof Double) {
+			return ResultType.DOUBLE;
+		}
+		if (value instanceof Integer) {
+			return ResultType.INTEGER;
+		}
+		if (value instanceof Boolean) {
+			return ResultType.BOOLEAN;
+		}
+		if (value instanceof String) {
+			return ResultType.TEXT;
+		}
+		return ResultType.OBJECT;
+	}
+
+	private static boolean isPrimitive(final Object value) {
+		return value instanceof Double || value instanceof Integer || value instanceof Boolean;
+	}
+
+	private static double toPrimitive(final Object value) {
+		if (value instanceof Boolean) {
+			return (Boolean) value? 1 : 0;
+		}
+		if (value instanceof Double || value instanceof Integer) {
+			return ((Number) value).doubleValue();
+		}
+		return 0;
+	}
+
 	public String getSensorName() {
 		return sensor.getName();
 	}
@@ -93,8 +185,76 @@ public class InsertObservation {
 		return unitOfMeasurement.getCode();
 	}
 
+	public ResultType getResultType() {
+		return resultType;
+	}
+
+	/**
+	 * @return the result value, boxed if its type is primitive
+	 */
 	public Object getResultValue() {
-		return resultValue;
+		switch (resultType) {
+		case DOUBLE:
+			return primitiveValue;
+		case INTEGER:
+			return (int) primitiveValue;
+		case BOOLEAN:
+			return primitiveValue != 0;
+		default:
+			return resultValue;
+		}
+	}
+
+	/**
+	 * @return the result value without boxing
+	 * @throws IllegalStateException if the result type is neither
+	 *         {@link ResultType#DOUBLE} nor {@link ResultType#INTEGER}
+	 */
+	public double getDoubleValue() {
+		if (resultType != ResultType.DOUBLE && resultType != ResultType.INTEGER) {
+			throw new IllegalStateException("Result value is not a number: " + resultType);
+		}
+		return primitiveValue;
+	}
+
+	/**
+	 * @return the result value without boxing
+	 * @throws IllegalStateException if the result type is not
+	 *         {@link ResultType#INTEGER}
+	 */
+	public int getIntValue() {
+		if (resultType != ResultType.INTEGER) {
+			throw new IllegalStateException("Result value is not an integer: " + resultType);
+		}
+		return (int) primitiveValue;
+	}
+
+	/**
+	 * @return the result value without boxing
+	 * @throws IllegalStateException if the result type is not
+	 *         {@link ResultType#BOOLEAN}
+	 */
+	public boolean getBooleanValue() {
+		if (resultType != ResultType.BOOLEAN) {
+			throw new IllegalStateException("Result value is not a boolean: " + resultType);
+		}
+		return primitiveValue != 0;
+	}
+
+	/**
+	 * @return the result value as encoded in requests, or <code>null</code>
+	 */
+	public String getResultValueAsString() {
+		switch (resultType) {
+		case DOUBLE:
+			return Double.toString(primitiveValue);
+		case INTEGER:
+			return Integer.toString((int) primitiveValue);
+		case BOOLEAN:
+			return Boolean.toString(primitiveValue != 0);
+		default:
+			return resultValue != null? resultValue.toString() : null;
+		}
 	}
 
 	public Timestamp getTimeStamp() {
@@ -144,11 +304,58 @@ public class InsertObservation {
 		return measuredValueType;
 	}
 
+	/**
+	 * @param value the result value of the copy
+	 * @param timeStamp the time stamp of the copy
+	 * @return an {@link InsertObservation} with the sensor, feature of
+	 *         interest, observed property, unit of measurement, offering,
+	 *         and measured value type of this one
+	 */
+	public InsertObservation copy(final Object value, final Timestamp timeStamp) {
+		return new InsertObservation(sensor,
+				featureOfInterest,
+				value,
+				timeStamp,
+				unitOfMeasurement,
+				observedProperty,
+				offering,
+				measuredValueType);
+	}
+
+	/**
+	 * @param other another observation
+	 * @return <code>true</code>, if the other observation has the same
+	 *         sensor, feature of interest incl. position, observed property,
+	 *         unit of measurement, offering, and measured value type. Its time
+	 *         stamp and value are ignored.
+	 */
+	public boolean hasSameMetadata(final InsertObservation other) {
+		return Objects.equals(sensor, other.sensor) &&
+				Objects.equals(featureOfInterest, other.featureOfInterest) &&
+				hasSamePosition(other) &&
+				Objects.equals(observedProperty, other.observedProperty) &&
+				Objects.equals(unitOfMeasurement, other.unitOfMeasurement) &&
+				Objects.equals(offering, other.offering) &&
+				Objects.equals(measuredValueType, other.measuredValueType);
+	}
+
+	private boolean hasSamePosition(final InsertObservation other) {
+		final Position position = featureOfInterest != null? featureOfInterest.getPosition() : null;
+		final Position otherPosition = other.featureOfInterest != null? other.featureOfInterest.getPosition() : null;
+		if (position == null || otherPosition == null) {
+			return position == otherPosition;
+		}
+		return position.getEpsgCode() == otherPosition.getEpsgCode() &&
+				Double.compare(position.getLongitude(), otherPosition.getLongitude()) == 0 &&
+				Double.compare(position.getLatitude(), otherPosition.getLatitude()) == 0 &&
+				Double.compare(position.getAltitude(), otherPosition.getAltitude()) == 0;
+	}
+
 	@Override
 	public String toString() {
 		final StringBuilder builder = new StringBuilder();
 		builder.append("InsertObservation [resultValue=");
-		builder.append(resultValue);
+		builder.append(getResultValueAsString());
 		builder.append(", timeStamp=");
 		builder.append(timeStamp);
 		builder.append(", sensor=");
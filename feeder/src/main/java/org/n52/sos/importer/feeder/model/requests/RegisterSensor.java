@@ -68,19 +68,18 @@ public class RegisterSensor {
 	}
 
 	public String getDefaultValue() {
-		if (io.getResultValue() instanceof Boolean) {
+		switch (io.getResultType()) {
+		case BOOLEAN:
 			return "false";
-		}
-		if (io.getResultValue() instanceof Integer) {
+		case INTEGER:
 			return "0";
-		}
-		if (io.getResultValue() instanceof Double) {
+		case DOUBLE:
 			return "0.0";
-		}
-		if (io.getResultValue() instanceof String) {
+		case TEXT:
 			return " ";
+		default:
+			return "notDefined";
 		}
-		return "notDefined";
 	}
 
 	public String getEpsgCode() {
@@ -0,0 +1,292 @@
+/**
+ * Copyright (C) 2011-2015 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.importer.feeder.task;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.n52.sos.importer.feeder.Configuration;
+import org.n52.sos.importer.feeder.util.FileHelper;
+import org.n52.sos.importer.feeder.util.ProcessedFiles;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Imports the data files of a directory as soon as they are created or
+ * modified, until the thread is interrupted.
+ * <br>
+ * In contrast to the {@link RepeatedFeeder}, the directory is not listed
+ * periodically. A {@link WatchService} queues the files matching
+ * {@link Configuration#getLocaleFilePattern()}. A queued file is imported
+ * via the {@link OneTimeFeeder} when its size and modification time did
+ * not change for <code>DataFile@watchStableInterval</code> milliseconds.
+ * The imported files are stored in a persistent {@link ProcessedFiles} set
+ * in the importer home. Hence, the directory is only listed once at start
+ * up, to find files created while the feeder was not running, and after
+ * the watch service lost events. Failed files are retried with an
+ * exponential backoff. A file failing {@value #MAX_FAILURES} times because
+ * of its content is dropped until it is modified again.
+ *
+ * @author <a href="mailto:e.h.juerrens@52north.org">Eike Hinderk J&uuml;rrens</a>
+ */
+public class DirectoryWatchingFeeder implements Runnable {
+
+	private static final Logger LOG = LoggerFactory.getLogger(DirectoryWatchingFeeder.class);
+
+	private static final long MAX_POLL_INTERVAL_MILLIS = 1000;
+
+	private static final long MAX_RETRY_DELAY_MILLIS = 60 * 60 * 1000;
+
+	private static final int MAX_FAILURES = 5;
+
+	private final Configuration config;
+
+	private final File directory;
+
+	private final Map<Path, PendingFile> pendingFiles = new HashMap<>();
+
+	private ProcessedFiles processedFiles;
+
+	public DirectoryWatchingFeeder(final Configuration config, final File directory) {
+		this.config = config;
+		this.directory = directory;
+	}
+
+	@Override
+	public void run() {
+		LOG.trace("run()");
+		LOG.info("Start watching directory '{}' via configuration '{}'.", directory, config.getFileName());
+		final Path dir = directory.toPath();
+		try (final WatchService watchService = FileSystems.getDefault().newWatchService()) {
+			processedFiles = new ProcessedFiles(FileHelper.createFileInImporterHomeWithUniqueFileName(
+					config.getConfigFile().getCanonicalPath() +
+					"_" +
+					directory.getCanonicalPath() +
+					"_processed"));
+			dir.register(watchService,
+					StandardWatchEventKinds.ENTRY_CREATE,
+					StandardWatchEventKinds.ENTRY_MODIFY);
+			// after registering to not miss files created in between
+			queueUnprocessedFiles(dir);
+			final long pollInterval = Math.min(MAX_POLL_INTERVAL_MILLIS, Math.max(1, config.getWatchStableInterval()));
+			while (!Thread.currentThread().isInterrupted()) {
+				final WatchKey key = watchService.poll(pollInterval, TimeUnit.MILLISECONDS);
+				if (key != null) {
+					handleEvents(dir, key);
+					if (!key.reset()) {
+						LOG.error("Directory '{}' is not accessible anymore.", directory);
+						return;
+					}
+				}
+				importStableFiles();
+			}
+		} catch (final IOException e) {
+			LOG.error("Exception thrown: {}", e.getMessage());
+			LOG.debug("Exception Stack Trace:", e);
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			LOG.info("Stopped watching directory '{}'.", directory);
+		}
+	}
+
+	private void handleEvents(final Path dir, final WatchKey key) throws IOException {
+		for (final WatchEvent<?> event : key.pollEvents()) {
+			if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+				LOG.warn("Events of directory '{}' lost. Listing it again.", directory);
+				queueUnprocessedFiles(dir);
+				continue;
+			}
+			final Path file = dir.resolve((Path) event.context());
+			if (isDataFile(file)) {
+				queue(file);
+			}
+		}
+	}
+
+	private void queueUnprocessedFiles(final Path dir) throws IOException {
+		try (final DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+			for (final Path file : files) {
+				if (isDataFile(file) && !processedFiles.contains(file.toFile())) {
+					queue(file);
+				}
+			}
+		}
+		LOG.debug("{} files of directory '{}' queued.", pendingFiles.size(), directory);
+	}
+
+	private boolean isDataFile(final Path file) {
+		return (config.getLocaleFilePattern() == null ||
+				config.getLocaleFilePattern().matcher(file.getFileName().toString()).matches()) &&
+				Files.isRegularFile(file) &&
+				Files.isReadable(file);
+	}
+
+	private void queue(final Path file) {
+		if (!pendingFiles.containsKey(file)) {
+			pendingFiles.put(file, new PendingFile(file.toFile()));
+		}
+	}
+
+	/*
+	 * Imports the files that did not change for the stable interval in the
+	 * order of their modification. A file is only stored as processed after
+	 * it was imported. Otherwise, it is queued again to retry it after a
+	 * delay doubled with each retry. Files failing because of their content
+	 * are dropped after MAX_FAILURES attempts, files failing because the SOS
+	 * is not available are retried until the SOS is available again.
+	 */
+	private void importStableFiles() throws IOException {
+		if (pendingFiles.isEmpty()) {
+			return;
+		}
+		final long now = System.currentTimeMillis();
+		final List<PendingFile> stableFiles = new ArrayList<>();
+		final Iterator<PendingFile> iterator = pendingFiles.values().iterator();
+		while (iterator.hasNext()) {
+			final PendingFile pendingFile = iterator.next();
+			if (!pendingFile.file.exists()) {
+				iterator.remove();
+			} else if (pendingFile.isStable(now, config.getWatchStableInterval()) && now >= pendingFile.retryAtMillis) {
+				iterator.remove();
+				stableFiles.add(pendingFile);
+			}
+		}
+		Collections.sort(stableFiles, new Comparator<PendingFile>() {
+			@Override
+			public int compare(final PendingFile f1, final PendingFile f2) {
+				if (f1.lastModified != f2.lastModified) {
+					return f1.lastModified < f2.lastModified? -1 : 1;
+				}
+				return f1.file.getName().compareTo(f2.file.getName());
+			}
+		});
+		for (final PendingFile stableFile : stableFiles) {
+			if (processedFiles.contains(stableFile.file)) {
+				continue;
+			}
+			LOG.info("Start feeding file {}", stableFile.file.getName());
+			final OneTimeFeeder feeder = new OneTimeFeeder(config, stableFile.file);
+			boolean imported = false;
+			try {
+				imported = feeder.feed();
+			} catch (final RuntimeException e) {
+				LOG.error("Exception catched. Switch logging to debug for more details: {}", e.getMessage());
+				LOG.debug("StackTrace:", e);
+			}
+			if (imported) {
+				processedFiles.add(stableFile.file, stableFile.length, stableFile.lastModified);
+				LOG.info("Finished feeding file {}.", stableFile.file.getName());
+			} else {
+				retry(stableFile, !feeder.isSosUnavailable());
+			}
+		}
+	}
+
+	private void retry(final PendingFile failedFile, final boolean isContentFailure) {
+		if (isContentFailure && ++failedFile.failures >= MAX_FAILURES) {
+			LOG.error("Feeding file {} failed {} times. Dropping it until it is modified again.",
+					failedFile.file.getName(),
+					failedFile.failures);
+			return;
+		}
+		final long delay = getRetryDelay(++failedFile.retries);
+		failedFile.retryAtMillis = System.currentTimeMillis() + delay;
+		LOG.warn("Feeding file {} failed. Retrying it after {}ms.", failedFile.file.getName(), delay);
+		if (!pendingFiles.containsKey(failedFile.file.toPath())) {
+			pendingFiles.put(failedFile.file.toPath(), failedFile);
+		}
+	}
+
+	private long getRetryDelay(final int retries) {
+		long delay = Math.max(MAX_POLL_INTERVAL_MILLIS, config.getWatchStableInterval());
+		for (int i = 1; i < retries && delay < MAX_RETRY_DELAY_MILLIS; i++) {
+			delay *= 2;
+		}
+		return Math.min(delay, MAX_RETRY_DELAY_MILLIS);
+	}
+
+	private static final class PendingFile {
+
+		private final File file;
+
+		private long length;
+
+		private long lastModified;
+
+		private long lastChangeMillis;
+
+		private int failures;
+
+		private int retries;
+
+		private long retryAtMillis;
+
+		private PendingFile(final File file) {
+			this.file = file;
+			length = file.length();
+			lastModified = file.lastModified();
+			lastChangeMillis = System.currentTimeMillis();
+		}
+
+		private boolean isStable(final long now, final long stableInterval) {
+			final long currentLength = file.length();
+			final long currentLastModified = file.lastModified();
+			if (currentLength != length || currentLastModified != lastModified) {
+				length = currentLength;
+				lastModified = currentLastModified;
+				lastChangeMillis = now;
+				// retry modified files immediately
+				failures = 0;
+				retries = 0;
+				retryAtMillis = 0;
+				return false;
+			}
+			return now - lastChangeMillis >= stableInterval;
+		}
+
+	}
+
+}
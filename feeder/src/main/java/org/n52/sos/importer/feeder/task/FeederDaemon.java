@@ -0,0 +1,165 @@
+/**
+ * Copyright (C) 2011-2015 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.importer.feeder.task;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.xmlbeans.XmlException;
+import org.n52.sos.importer.feeder.Configuration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs the {@link RepeatedFeeder}s of all import configurations of a
+ * directory in one JVM.
+ * <br>
+ * The feeders are scheduled with a fixed delay on one
+ * {@link ScheduledExecutorService}, hence at most the given parallelism
+ * feeders run at the same time and a feeder never overlaps with itself.
+ * Their first runs are spread over the period to avoid that all feeders
+ * start at once. The SOS connections and registered sensors are shared per
+ * SOS by the {@link org.n52.sos.importer.feeder.SensorObservationService}s,
+ * the counter and last used data files are stored per configuration.
+ *
+ * @author <a href="mailto:e.h.juerrens@52north.org">Eike Hinderk J&uuml;rrens</a>
+ */
+public class FeederDaemon {
+
+	private static final Logger LOG = LoggerFactory.getLogger(FeederDaemon.class);
+
+	private final File configDirectory;
+
+	private final int periodInMinutes;
+
+	private final ScheduledExecutorService scheduler;
+
+	/**
+	 * @param configDirectory the directory containing the import
+	 *        configurations (<code>*.xml</code>)
+	 * @param periodInMinutes the time between the end of a feeding run and the
+	 *        start of the next one of the same configuration
+	 * @param parallelism the maximum number of feeders running at the same
+	 *        time
+	 */
+	public FeederDaemon(final File configDirectory, final int periodInMinutes, final int parallelism) {
+		if (periodInMinutes < 1 || parallelism < 1) {
+			throw new IllegalArgumentException(String.format("Invalid period '%d' or parallelism '%d'.",
+					periodInMinutes,
+					parallelism));
+		}
+		this.configDirectory = configDirectory;
+		this.periodInMinutes = periodInMinutes;
+		scheduler = Executors.newScheduledThreadPool(parallelism, new ThreadFactory() {
+
+			private final AtomicInteger threadNumber = new AtomicInteger();
+
+			@Override
+			public Thread newThread(final Runnable r) {
+				return new Thread(r, "FeederDaemon-" + threadNumber.incrementAndGet());
+			}
+
+		});
+	}
+
+	/**
+	 * Loads the configurations and schedules their feeders. Invalid
+	 * configurations are logged and skipped.
+	 *
+	 * @return the number of scheduled feeders
+	 */
+	public int start() {
+		final List<Configuration> configurations = loadConfigurations();
+		if (configurations.isEmpty()) {
+			LOG.error("No valid configuration found in directory '{}'.", configDirectory.getAbsolutePath());
+			scheduler.shutdown();
+			return 0;
+		}
+		final long periodInSeconds = TimeUnit.MINUTES.toSeconds(periodInMinutes);
+		for (int i = 0; i < configurations.size(); i++) {
+			final Configuration configuration = configurations.get(i);
+			final long initialDelay = i * periodInSeconds / configurations.size();
+			scheduler.scheduleWithFixedDelay(
+					new RepeatedFeeder(configuration, configuration.getDataFile(), periodInMinutes),
+					initialDelay,
+					periodInSeconds,
+					TimeUnit.SECONDS);
+			LOG.debug("Scheduled configuration '{}' with initial delay of {}s.", configuration.getFileName(), initialDelay);
+		}
+		LOG.info("Feeding data of {} configurations every {} minute{}.",
+				configurations.size(),
+				periodInMinutes,
+				periodInMinutes>1?"s":"");
+		return configurations.size();
+	}
+
+	/**
+	 * Stops scheduling feeders and interrupts the running ones.
+	 */
+	public void stop() {
+		scheduler.shutdownNow();
+	}
+
+	private List<Configuration> loadConfigurations() {
+		final File[] files = configDirectory.listFiles(new FileFilter() {
+			@Override
+			public boolean accept(final File pathname) {
+				return pathname.isFile() &&
+						pathname.canRead() &&
+						pathname.getName().toLowerCase().endsWith(".xml");
+			}
+		});
+		final List<Configuration> configurations = new ArrayList<>();
+		if (files == null) {
+			return configurations;
+		}
+		Arrays.sort(files);
+		for (final File file : files) {
+			try {
+				configurations.add(new Configuration(file.getAbsolutePath()));
+			} catch (final XmlException | IOException | IllegalArgumentException e) {
+				LOG.error("Configuration file '{}' could not be loaded. Exception thrown: {}",
+						file.getAbsolutePath(),
+						e.getMessage());
+				LOG.debug("", e);
+			}
+		}
+		return configurations;
+	}
+
+}
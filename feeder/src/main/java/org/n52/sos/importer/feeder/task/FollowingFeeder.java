@@ -0,0 +1,274 @@
+/**
+ * Copyright (C) 2011-2015 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.importer.feeder.task;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.text.ParseException;
+import java.util.List;
+
+import org.apache.xmlbeans.XmlException;
+import org.n52.oxf.OXFException;
+import org.n52.oxf.ows.ExceptionReport;
+import org.n52.sos.importer.feeder.Configuration;
+import org.n52.sos.importer.feeder.DataFile;
+import org.n52.sos.importer.feeder.SensorObservationService;
+import org.n52.sos.importer.feeder.model.requests.InsertObservation;
+import org.n52.sos.importer.feeder.util.Checkpoint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Follows a growing local data file, e.g. written by a station logger, until
+ * the thread is interrupted.
+ * <br>
+ * In contrast to the {@link RepeatedFeeder}, the
+ * {@link SensorObservationService} is created once and the appended bytes
+ * are watched via an open file channel. The appended lines are imported as
+ * soon as <code>DataFile@followFlushLineCount</code> complete lines are
+ * available or <code>DataFile@followFlushInterval</code> has elapsed since
+ * the first of them was appended. Each import reads the rows from the byte
+ * offset after the last imported row to the end of the last complete line,
+ * hence only the new bytes are parsed and a line still being written is
+ * imported by a later flush. The checkpoint is stored in the counter file
+ * after each import like the {@link OneTimeFeeder} does. A failed import is
+ * retried with the lines appended meanwhile after the flush interval.
+ *
+ * @author <a href="mailto:e.h.juerrens@52north.org">Eike Hinderk J&uuml;rrens</a>
+ */
+public class FollowingFeeder implements Runnable {
+
+	private static final Logger LOG = LoggerFactory.getLogger(FollowingFeeder.class);
+
+	private static final long MAX_POLL_INTERVAL_MILLIS = 500;
+
+	private final Configuration config;
+
+	private final DataFile dataFile;
+
+	private final File file;
+
+	private final ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+
+	private SensorObservationService sos;
+
+	private File counterFile;
+
+	/*
+	 * offset up to which the appended bytes were counted
+	 */
+	private long scanned;
+
+	/*
+	 * offset after the last complete line
+	 */
+	private long lineEnd;
+
+	/*
+	 * complete lines since the start of the file, if it is read from the
+	 * start, i.e. no row was imported yet
+	 */
+	private int completeLines;
+
+	private int pendingLines;
+
+	private byte previousByte;
+
+	private long firstPendingMillis = -1;
+
+	/*
+	 * earliest time to retry a failed import of the pending lines
+	 */
+	private long retryMillis = -1;
+
+	public FollowingFeeder(final Configuration config, final File file) {
+		this.config = config;
+		this.file = file;
+		dataFile = new DataFile(config, file);
+	}
+
+	@Override
+	public void run() {
+		LOG.trace("run()");
+		LOG.info("Start following data file '{}' via configuration '{}'.", file, config.getFileName());
+		if (config.isRemoteFile() || !dataFile.isAvailable()) {
+			LOG.error("Following is only supported for available local data files: '{}'", file);
+			return;
+		}
+		if (!dataFile.isSeekingPossible()) {
+			LOG.error("Following data file '{}' requires an ASCII compatible encoding and no custom CsvParser.", file);
+			return;
+		}
+		final String sosURL = config.getSosUrl().toString();
+		try {
+			sos = new SensorObservationService(config);
+			if (!sos.isAvailable()) {
+				LOG.error(String.format("SOS '%s' is not available. Please check the configuration!", sosURL));
+				return;
+			}
+			if (!sos.isTransactional()) {
+				LOG.error(String.format("SOS '%s' does not support required transactional operations!", sosURL));
+				return;
+			}
+			counterFile = OneTimeFeeder.getCounterFile(config, dataFile);
+			OneTimeFeeder.restoreCheckpoint(sos, counterFile, file);
+			scanned = Math.max(0, sos.getLastPosition());
+			lineEnd = scanned;
+			follow();
+		} catch (final ExceptionReport | OXFException e) {
+			LOG.error("SOS " + sosURL + " is not available. Please check the configuration!", e);
+		} catch (final MalformedURLException mue) {
+			LOG.error("SOS URL syntax not correct in configuration file '{}'. Exception thrown: {}",
+					config.getFileName(),
+					mue.getMessage());
+			LOG.debug("Exception Stack Trace:", mue);
+		} catch (final IOException e) {
+			log(e);
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		LOG.info("Stopped following data file '{}'.", file);
+	}
+
+	private void follow() throws IOException, InterruptedException {
+		final long pollInterval = Math.min(MAX_POLL_INTERVAL_MILLIS, config.getFollowFlushInterval());
+		try (final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			while (!Thread.currentThread().isInterrupted()) {
+				final long size = channel.size();
+				if (size < scanned) {
+					LOG.warn("Data file '{}' was truncated. Importing it from the start.", file);
+					sos.setLastLine(0);
+					sos.setLastPosition(-1);
+					resetPending();
+					scanned = 0;
+					lineEnd = 0;
+					completeLines = 0;
+					previousByte = 0;
+				}
+				if (size > scanned) {
+					countAppendedLines(channel, size);
+				}
+				if (isFlushRequired()) {
+					if (importAppendedLines()) {
+						resetPending();
+					} else {
+						// keep the pending lines and retry after the flush interval
+						retryMillis = System.currentTimeMillis() + config.getFollowFlushInterval();
+					}
+				}
+				Thread.sleep(pollInterval);
+			}
+		}
+	}
+
+	private void countAppendedLines(final FileChannel channel, final long size) throws IOException {
+		while (scanned < size) {
+			buffer.clear();
+			final int read = channel.read(buffer, scanned);
+			if (read <= 0) {
+				break;
+			}
+			for (int i = 0; i < read; i++) {
+				final byte b = buffer.get(i);
+				final long offset = scanned + i;
+				if (previousByte == '\r') {
+					// a line ending with \r is complete when the next byte is known
+					completeLine(b == '\n' ? offset + 1 : offset);
+					if (b == '\n') {
+						previousByte = b;
+						continue;
+					}
+				}
+				if (b == '\n') {
+					completeLine(offset + 1);
+				}
+				previousByte = b;
+			}
+			scanned += read;
+		}
+	}
+
+	private void completeLine(final long end) {
+		lineEnd = end;
+		completeLines++;
+		pendingLines++;
+		if (firstPendingMillis < 0) {
+			firstPendingMillis = System.currentTimeMillis();
+		}
+	}
+
+	/*
+	 * Before the first row is imported, the lines to skip MUST be complete.
+	 */
+	private boolean isFlushRequired() {
+		if (pendingLines == 0 || System.currentTimeMillis() < retryMillis) {
+			return false;
+		}
+		if (sos.getLastPosition() < 0 &&
+				completeLines <= Math.max(config.getFirstLineWithData(), sos.getLastLine())) {
+			return false;
+		}
+		return pendingLines >= config.getFollowFlushLineCount() ||
+				System.currentTimeMillis() - firstPendingMillis >= config.getFollowFlushInterval();
+	}
+
+	private void resetPending() {
+		pendingLines = 0;
+		firstPendingMillis = -1;
+		retryMillis = -1;
+	}
+
+	private boolean importAppendedLines() {
+		try {
+			sos.setEndPosition(lineEnd);
+			final List<InsertObservation> failedInserts = sos.importData(dataFile);
+			Checkpoint.create(sos.getLastLine(), file, sos.getLastPosition()).write(counterFile);
+			OneTimeFeeder.saveFailedInsertObservations(failedInserts);
+			LOG.debug("Imported data file '{}' until line {}, byte {}.",
+					file.getName(),
+					sos.getLastLine(),
+					sos.getLastPosition());
+			return true;
+		} catch (final IOException | OXFException | XmlException | ParseException | IllegalArgumentException e) {
+			// retried with the next flush
+			log(e);
+			return false;
+		}
+	}
+
+	private void log(final Exception e) {
+		LOG.error("Exception thrown: {}", e.getMessage());
+		LOG.debug("Exception Stack Trace:", e);
+	}
+
+}
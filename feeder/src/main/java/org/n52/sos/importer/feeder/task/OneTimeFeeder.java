@@ -30,14 +30,11 @@ package org.n52.sos.importer.feeder.task;
 
 import java.io.File;
 import java.io.FileOutputStream;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.io.PrintWriter;
 import java.net.MalformedURLException;
 import java.net.SocketException;
 import java.text.ParseException;
 import java.util.List;
-import java.util.Scanner;
 
 import org.apache.commons.net.ftp.FTPClient;
 import org.apache.commons.net.ftp.FTPHTTPClient;
@@ -48,6 +45,7 @@ import org.n52.sos.importer.feeder.Configuration;
 import org.n52.sos.importer.feeder.DataFile;
 import org.n52.sos.importer.feeder.SensorObservationService;
 import org.n52.sos.importer.feeder.model.requests.InsertObservation;
+import org.n52.sos.importer.feeder.util.Checkpoint;
 import org.n52.sos.importer.feeder.util.FileHelper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -64,6 +62,8 @@ public class OneTimeFeeder implements Runnable {
 
 	private DataFile dataFile;
 
+	private boolean sosUnavailable;
+
 	private static final Logger LOG = LoggerFactory.getLogger(OneTimeFeeder.class);
 
 	public OneTimeFeeder(final Configuration config) {
@@ -148,6 +148,20 @@ public class OneTimeFeeder implements Runnable {
 	@Override
 	public void run() {
 		LOG.trace("run()");
+		feed();
+	}
+
+	/**
+	 * Feeds the data file to the SOS instance like {@link #run()} does.
+	 *
+	 * @return <code>true</code>, if the data file was imported and the
+	 *         counter file was updated, else <code>false</code>, e.g. if the
+	 *         file or the SOS instance was not available.
+	 * @see #isSosUnavailable()
+	 */
+	public boolean feed() {
+		LOG.trace("feed()");
+		sosUnavailable = false;
 		LOG.info("Starting feeding data from file via configuration '{}' to SOS instance", config.getFileName());
 		// csv / ftp
 		if (config.isRemoteFile()) {
@@ -157,11 +171,12 @@ public class OneTimeFeeder implements Runnable {
 		}
 		if (dataFile == null) {
 			LOG.error("No datafile was found!");
+			return false;
 		}
 		if (dataFile.isAvailable()) {
+			SensorObservationService sos = null;
 			try {
 				// check SOS
-				SensorObservationService sos = null;
 				final String sosURL = config.getSosUrl().toString();
 				try {
 					sos = new SensorObservationService(config);
@@ -172,36 +187,19 @@ public class OneTimeFeeder implements Runnable {
 				}
 				if (sos == null || !sos.isAvailable()) {
 					LOG.error(String.format("SOS '%s' is not available. Please check the configuration!", sosURL));
+					sosUnavailable = true;
 				} else if (!sos.isTransactional()){
 					LOG.error(String.format("SOS '%s' does not support required transactional operations!", sosURL));
+					sosUnavailable = true;
 				} else {
-					final String directory = dataFile.getFileName();
-					File counterFile = null;
-					String fileName = null;
-					if (config.isRemoteFile()) {
-						fileName = directory + "_counter";
-					} else {
-						fileName = config.getConfigFile().getCanonicalPath() +
-								"_" +
-								dataFile.getCanonicalPath() +
-								"_counter";
-					}
-					counterFile = FileHelper.createFileInImporterHomeWithUniqueFileName(fileName);
-					LOG.debug("Check counter file '{}'.", counterFile.getCanonicalPath());
-					// read already inserted line count
-					if (counterFile.exists()) {
-						LOG.debug("Read already read lines from file");
-						try (final Scanner sc = new Scanner(counterFile)){
-    						final int count = sc.nextInt();
-    						sos.setLastLine(count);
-						}
-					} else {
-						LOG.debug("Counter file does not exist.");
-					}
+					final File counterFile = getCounterFile(config, dataFile);
+					final File file = new File(dataFile.getCanonicalPath());
+					restoreCheckpoint(sos, counterFile, file);
 
 					// SOS is available and transactional
 					final List<InsertObservation> failedInserts = sos.importData(dataFile);
 					int lastLine = sos.getLastLine();
+					long lastPosition = sos.getLastPosition();
 					LOG.info("OneTimeFeeder: save read lines count: {} to '{}'",
 							lastLine,
 							counterFile.getCanonicalPath());
@@ -213,17 +211,15 @@ public class OneTimeFeeder implements Runnable {
 					 */
 					if (config.getFileName().contains("EPC_import-config.xml") && isLinuxOrSimilar()) {
 						lastLine = lastLine - 1;
+						lastPosition = -1;
 						LOG.info("Decrement lastLine counter: {}",lastLine);
 					}
 					// override counter file
-					try (
-							final FileWriter counterFileWriter = new FileWriter(counterFile.getAbsoluteFile());
-							final PrintWriter out = new PrintWriter(counterFileWriter);) {
-						out.println(lastLine);
-					}
+					Checkpoint.create(lastLine, file, lastPosition).write(counterFile.getAbsoluteFile());
 
 					saveFailedInsertObservations(failedInserts);
 					LOG.info("Feeding data from file {} to SOS instance finished.",dataFile.getFileName());
+					return true;
 				}
 			} catch (final MalformedURLException mue) {
 				LOG.error("SOS URL syntax not correct in configuration file '{}'. Exception thrown: {}",
@@ -241,6 +237,58 @@ public class OneTimeFeeder implements Runnable {
 			} catch (final IllegalArgumentException e) {
 				log(e);
 			}
+			if (sos != null && sos.isConnectionLost()) {
+				sosUnavailable = true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return <code>true</code>, if the last {@link #feed()} failed because
+	 *         the SOS instance was not available, not transactional, or the
+	 *         connection failed while importing,<br />
+	 *         else <code>false</code>, e.g. if the data file could not be
+	 *         imported because of its content.
+	 */
+	public boolean isSosUnavailable() {
+		return sosUnavailable;
+	}
+
+	static File getCounterFile(final Configuration config, final DataFile dataFile) throws IOException {
+		String fileName = null;
+		if (config.isRemoteFile()) {
+			fileName = dataFile.getFileName() + "_counter";
+		} else {
+			fileName = config.getConfigFile().getCanonicalPath() +
+					"_" +
+					dataFile.getCanonicalPath() +
+					"_counter";
+		}
+		final File counterFile = FileHelper.createFileInImporterHomeWithUniqueFileName(fileName);
+		LOG.debug("Check counter file '{}'.", counterFile.getCanonicalPath());
+		return counterFile;
+	}
+
+	/*
+	 * Reads the already inserted line count and byte offset, if available.
+	 */
+	static void restoreCheckpoint(final SensorObservationService sos,
+			final File counterFile,
+			final File file) throws IOException {
+		if (counterFile.exists()) {
+			LOG.debug("Read already read lines from file");
+			final Checkpoint checkpoint = Checkpoint.read(counterFile);
+			sos.setLastLine(checkpoint.getLastLine());
+			if (checkpoint.isValidFor(file)) {
+				sos.setLastPosition(checkpoint.getOffset());
+			} else if (checkpoint.hasOffset()) {
+				LOG.info("Data file '{}' changed before the last imported line. Skipping {} lines instead of seeking.",
+						file.getName(),
+						checkpoint.getLastLine());
+			}
+		} else {
+			LOG.debug("Counter file does not exist.");
 		}
 	}
 
@@ -259,7 +307,7 @@ public class OneTimeFeeder implements Runnable {
 	 * Method should store failed insertObservations in a defined directory and
 	 * created configuration for this.
 	 */
-	private void saveFailedInsertObservations(
+	static void saveFailedInsertObservations(
 			final List<InsertObservation> failedInserts) throws IOException {
 		// TODO Auto-generated method stub generated on 25.06.2012 around 11:39:44 by eike
 		LOG.trace("saveFailedInsertObservations() <-- NOT YET IMPLEMENTED");
@@ -35,8 +35,16 @@ import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Properties;
 import java.util.TimerTask;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -44,6 +52,7 @@ import org.n52.sos.importer.feeder.Configuration;
 import org.n52.sos.importer.feeder.exceptions.InvalidColumnCountException;
 import org.n52.sos.importer.feeder.exceptions.JavaApiBugJDL6203387Exception;
 import org.n52.sos.importer.feeder.util.FileHelper;
+import org.n52.sos.importer.feeder.util.ProcessedFiles;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -60,9 +69,19 @@ public class RepeatedFeeder extends TimerTask{
 
 	private final int periodInMinutes;
 
-	final private static Lock oneFeederLock = new ReentrantLock(true);
+	/*
+	 * Per feeder, hence the feeders of different configurations run
+	 * concurrently, e.g. in the FeederDaemon.
+	 */
+	private final Lock oneFeederLock = new ReentrantLock(true);
 
-	private static File lastUsedDateFile;
+	private File lastUsedDateFile;
+
+	/*
+	 * Files of the directory that could not be imported because of their
+	 * content. They are skipped until they change.
+	 */
+	private ProcessedFiles failedFiles;
 
 	public RepeatedFeeder(final Configuration c, final File f, final int periodInMinutes) {
 		configuration = c;
@@ -74,7 +93,7 @@ public class RepeatedFeeder extends TimerTask{
 	public void run() {
 		LOG.trace("run()");
 		File datafile;
-		 // used to sync access to lastUsedDateFile and to not have more than one feeder at a time.
+		 // used to sync access to lastUsedDateFile and to not run this feeder more than once at a time.
 		oneFeederLock.lock();
 		try {
 			/*
@@ -87,30 +106,29 @@ public class RepeatedFeeder extends TimerTask{
 			// if file is a directory, get latest from file list
 			if (file.isDirectory()) {
 				final ArrayList<File> filesToFeed = new ArrayList<File>();
+				if (failedFiles == null) {
+					failedFiles = new ProcessedFiles(FileHelper.createFileInImporterHomeWithUniqueFileName(
+							configuration.getConfigFile().getCanonicalPath() +
+							"_" +
+							file.getCanonicalPath() +
+							"_failed"));
+				}
 				getLastFeedFile();
 				if (lastUsedDateFile != null) {
 					filesToFeed.add(lastUsedDateFile);
 				}
 				addNewerFiles(filesToFeed);
-				for (final File fileToFeed : filesToFeed) {
-					LOG.info("Start feeding file {}",fileToFeed.getName());
-					try {
-						new OneTimeFeeder(configuration, fileToFeed).run();
-						lastUsedDateFile = fileToFeed;
-						saveLastFeedFile();
-						LOG.info("Finished feeding file {}.",fileToFeed.getName());
-					}
-					catch (final InvalidColumnCountException iae) {
-						// Exception is already logged -> nothing to do
-					}
-					catch (final JavaApiBugJDL6203387Exception e) {
-						// Exception is already logged -> nothing to do
-					}
-				}
+				feedFiles(filesToFeed);
 			} else {
 				datafile = file;
 				// OneTimeFeeder with file override used not as thread
-				new OneTimeFeeder(configuration, datafile).run();
+				if (!new OneTimeFeeder(configuration, datafile).feed()) {
+					LOG.error("Feeding file {} failed. Retrying it in {} minute{}.",
+							datafile.getName(),
+							periodInMinutes,
+							periodInMinutes>1?"s":"");
+					return;
+				}
 				LOG.info("Finished feeding file {}. Next run in {} minute{}.",
 						datafile.getName(),
 						periodInMinutes,
@@ -144,9 +162,19 @@ public class RepeatedFeeder extends TimerTask{
 			}
 		});
 		if (files != null) {
-
+			// oldest first, hence the last used data file is the newest one fed
+			Arrays.sort(files, new Comparator<File>() {
+				@Override
+				public int compare(final File f1, final File f2) {
+					if (f1.lastModified() != f2.lastModified()) {
+						return f1.lastModified() < f2.lastModified()? -1 : 1;
+					}
+					return f1.getName().compareTo(f2.getName());
+				}
+			});
 			for (final File file : files) {
-				if (lastUsedDateFile == null || file.lastModified() >= lastUsedDateFile.lastModified()) {
+				if (lastUsedDateFile == null ||
+						(file.lastModified() >= lastUsedDateFile.lastModified() && !file.equals(lastUsedDateFile))) {
 					filesToFeed.add(file);
 				}
 			}
@@ -160,6 +188,96 @@ public class RepeatedFeeder extends TimerTask{
 		}
 	}
 
+	/*
+	 * Feeds the files concurrently, if configured. The last used data file is
+	 * updated in the order of the files, hence it never passes a file that is
+	 * still fed. It stops at the first file that failed because the SOS was
+	 * not available, hence this file and all following ones are fed again in
+	 * the next run. Files failing because of their content are passed.
+	 */
+	private void feedFiles(final List<File> filesToFeed) throws InterruptedException, ExecutionException {
+		final int parallelism = Math.min(configuration.getBacklogFileParallelism(), filesToFeed.size());
+		if (parallelism <= 1) {
+			for (final File fileToFeed : filesToFeed) {
+				if (!feedFile(fileToFeed)) {
+					return;
+				}
+				lastUsedDateFile = fileToFeed;
+				saveLastFeedFile();
+			}
+			return;
+		}
+		LOG.info("Feeding {} files using {} threads.", filesToFeed.size(), parallelism);
+		final ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+		try {
+			final List<Future<Boolean>> results = new ArrayList<>(filesToFeed.size());
+			for (final File fileToFeed : filesToFeed) {
+				results.add(executor.submit(new Callable<Boolean>() {
+					@Override
+					public Boolean call() {
+						return feedFile(fileToFeed);
+					}
+				}));
+			}
+			boolean fed = true;
+			for (int i = 0; i < results.size(); i++) {
+				// wait for all files, hence no import is interrupted
+				fed = results.get(i).get() && fed;
+				if (fed) {
+					lastUsedDateFile = filesToFeed.get(i);
+					saveLastFeedFile();
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/*
+	 * Returns false, if the file should be fed again in the next run, i.e.
+	 * the SOS was not available or the file was locked. Files that could not
+	 * be imported because of their content are recorded as failed and
+	 * skipped until they change.
+	 */
+	private boolean feedFile(final File fileToFeed) {
+		if (failedFiles.contains(fileToFeed)) {
+			LOG.info("Skipping file {}. Feeding it failed before and it did not change since.", fileToFeed.getName());
+			return true;
+		}
+		LOG.info("Start feeding file {}",fileToFeed.getName());
+		final long length = fileToFeed.length();
+		final long lastModified = fileToFeed.lastModified();
+		try {
+			final OneTimeFeeder feeder = new OneTimeFeeder(configuration, fileToFeed);
+			if (feeder.feed()) {
+				LOG.info("Finished feeding file {}.",fileToFeed.getName());
+				return true;
+			}
+			if (feeder.isSosUnavailable()) {
+				LOG.error("Feeding file {} failed because the SOS is not available. Retrying it in {} minute{}.",
+						fileToFeed.getName(),
+						periodInMinutes,
+						periodInMinutes>1?"s":"");
+				return false;
+			}
+		}
+		catch (final InvalidColumnCountException iae) {
+			// Exception is already logged -> nothing to do
+		}
+		catch (final JavaApiBugJDL6203387Exception e) {
+			// Exception is already logged -> retry the locked file
+			return false;
+		}
+		LOG.error("Feeding file {} failed. Skipping it until it changes.",fileToFeed.getName());
+		try {
+			failedFiles.add(fileToFeed, length, lastModified);
+		} catch (final IOException e) {
+			LOG.error("Could not store failed file {}: {}", fileToFeed.getName(), e.getMessage());
+			LOG.debug("Exception thrown:", e);
+		}
+		return true;
+	}
+
 	private void saveLastFeedFile()
 	{
 		final Properties prop = new Properties();
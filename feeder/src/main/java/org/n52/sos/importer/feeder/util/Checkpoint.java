@@ -0,0 +1,247 @@
+/**
+ * Copyright (C) 2011-2015 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.importer.feeder.util;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The state of an import stored in the <code>_counter</code> file of a data
+ * file: the number of imported lines and, if available, the byte offset
+ * after the last imported row together with the size and the last
+ * modification time of the data file and a hash of the bytes before the
+ * offset.
+ * <br>
+ * The first line of the counter file contains the line count as before,
+ * hence counter files written by older versions can still be read. The
+ * optional second line contains
+ * <code>offset size lastModified hash</code>.
+ * <br>
+ * A resumed import seeks to the offset if {@link #isValidFor(File)}, else
+ * it has to skip the imported lines.
+ *
+ * @author <a href="mailto:e.h.juerrens@52north.org">Eike Hinderk J&uuml;rrens</a>
+ */
+public final class Checkpoint {
+
+	private static final Logger LOG = LoggerFactory.getLogger(Checkpoint.class);
+
+	/**
+	 * The number of bytes before the offset covered by the hash. It covers
+	 * at least the last imported row of usual data files.
+	 */
+	static final int HASHED_BYTES = 4096;
+
+	private static final long UNKNOWN = -1;
+
+	private final int lastLine;
+
+	private final long offset;
+
+	private final long size;
+
+	private final long lastModified;
+
+	private final long hash;
+
+	private Checkpoint(final int lastLine,
+			final long offset,
+			final long size,
+			final long lastModified,
+			final long hash) {
+		this.lastLine = lastLine;
+		this.offset = offset;
+		this.size = size;
+		this.lastModified = lastModified;
+		this.hash = hash;
+	}
+
+	/**
+	 * @param lastLine the number of imported lines
+	 * @param dataFile the imported data file
+	 * @param offset the byte offset after the last imported row or a negative
+	 *        value, if not available
+	 * @return a new checkpoint for the current state of the data file. The
+	 *         offset is only stored if the last imported row is terminated by
+	 *         a line break, because a partially written row might be
+	 *         continued.
+	 * @throws IOException if the data file could not be read
+	 */
+	public static Checkpoint create(final int lastLine,
+			final File dataFile,
+			final long offset) throws IOException {
+		if (offset <= 0 || offset > dataFile.length() || !isLineBreakBefore(dataFile, offset)) {
+			return new Checkpoint(lastLine, UNKNOWN, UNKNOWN, UNKNOWN, UNKNOWN);
+		}
+		return new Checkpoint(lastLine,
+				offset,
+				dataFile.length(),
+				dataFile.lastModified(),
+				hash(dataFile, offset));
+	}
+
+	/**
+	 * @param counterFile the counter file to read
+	 * @return the checkpoint stored in the counter file
+	 * @throws IOException if the counter file could not be read
+	 * @throws NumberFormatException if the counter file is not valid
+	 */
+	public static Checkpoint read(final File counterFile) throws IOException {
+		try (final BufferedReader reader = new BufferedReader(
+				new InputStreamReader(new FileInputStream(counterFile), StandardCharsets.UTF_8))) {
+			final String countLine = reader.readLine();
+			if (countLine == null) {
+				throw new NumberFormatException(String.format("Counter file '%s' is empty.", counterFile));
+			}
+			final int lastLine = Integer.parseInt(countLine.trim());
+			final String offsetLine = reader.readLine();
+			if (offsetLine == null || offsetLine.trim().isEmpty()) {
+				return new Checkpoint(lastLine, UNKNOWN, UNKNOWN, UNKNOWN, UNKNOWN);
+			}
+			final String[] tokens = offsetLine.trim().split(" ");
+			if (tokens.length != 4) {
+				LOG.warn("Ignoring invalid offset line '{}' of counter file '{}'.", offsetLine, counterFile);
+				return new Checkpoint(lastLine, UNKNOWN, UNKNOWN, UNKNOWN, UNKNOWN);
+			}
+			return new Checkpoint(lastLine,
+					Long.parseLong(tokens[0]),
+					Long.parseLong(tokens[1]),
+					Long.parseLong(tokens[2]),
+					Long.parseLong(tokens[3]));
+		}
+	}
+
+	/**
+	 * @param counterFile the counter file to (over)write
+	 * @throws IOException if the counter file could not be written
+	 */
+	public void write(final File counterFile) throws IOException {
+		try (final PrintWriter out = new PrintWriter(
+				new OutputStreamWriter(new FileOutputStream(counterFile), StandardCharsets.UTF_8))) {
+			out.println(lastLine);
+			if (hasOffset()) {
+				out.println(String.format("%d %d %d %d", offset, size, lastModified, hash));
+			}
+		}
+	}
+
+	/**
+	 * The checkpoint is valid if the data file still contains the bytes
+	 * before the offset, e.g. because data has only been appended since the
+	 * checkpoint was created.
+	 *
+	 * @param dataFile the data file to check
+	 * @return <code>true</code>, if an import could seek to the
+	 *         {@link #getOffset()},<br />
+	 *         else <code>false</code>.
+	 * @throws IOException if the data file could not be read
+	 */
+	public boolean isValidFor(final File dataFile) throws IOException {
+		if (!hasOffset()) {
+			return false;
+		}
+		final long currentSize = dataFile.length();
+		if (currentSize < offset) {
+			LOG.debug("Data file '{}' is smaller than checkpoint offset {}.", dataFile, offset);
+			return false;
+		}
+		if (currentSize == size && dataFile.lastModified() == lastModified) {
+			// not modified: no need to hash
+			return true;
+		}
+		if (hash(dataFile, offset) != hash) {
+			LOG.debug("Data file '{}' changed before checkpoint offset {}.", dataFile, offset);
+			return false;
+		}
+		return true;
+	}
+
+	public boolean hasOffset() {
+		return offset >= 0;
+	}
+
+	public int getLastLine() {
+		return lastLine;
+	}
+
+	/**
+	 * @return the byte offset after the last imported row or a negative value,
+	 *         if not available
+	 */
+	public long getOffset() {
+		return offset;
+	}
+
+	private static boolean isLineBreakBefore(final File dataFile, final long offset) throws IOException {
+		final ByteBuffer buffer = ByteBuffer.allocate(1);
+		try (final FileChannel channel = FileChannel.open(dataFile.toPath(), StandardOpenOption.READ)) {
+			if (channel.read(buffer, offset - 1) != 1) {
+				return false;
+			}
+		}
+		final byte b = buffer.get(0);
+		return b == '\n' || b == '\r';
+	}
+
+	static long hash(final File dataFile, final long offset) throws IOException {
+		final long start = Math.max(0, offset - HASHED_BYTES);
+		final ByteBuffer buffer = ByteBuffer.allocate((int) (offset - start));
+		try (final FileChannel channel = FileChannel.open(dataFile.toPath(), StandardOpenOption.READ)) {
+			while (buffer.hasRemaining()) {
+				if (channel.read(buffer, start + buffer.position()) < 0) {
+					break;
+				}
+			}
+		}
+		final CRC32 crc = new CRC32();
+		crc.update(buffer.array(), 0, buffer.position());
+		return crc.getValue();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("Checkpoint [lastLine=%s, offset=%s, size=%s, lastModified=%s, hash=%s]",
+				lastLine, offset, size, lastModified, hash);
+	}
+
+}
@@ -0,0 +1,275 @@
+/**
+ * Copyright (C) 2011-2015 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.importer.feeder.util;
+
+import java.text.ParseException;
+
+/**
+ * Parses decimal numbers using a decimal separator and an optional grouping
+ * separator without {@link java.text.DecimalFormat}. The text is scanned once
+ * char by char: an optional sign, digits with grouping separators, an
+ * optional fraction, and an optional exponent, e.g.
+ * <code>-1,234.5e-3</code>. Leading white space is ignored. Like
+ * {@link java.text.DecimalFormat#parse(String)}, parsing stops at the first
+ * character that does not belong to the number, e.g. <code>12.5*</code> and
+ * <code>12.5 mm</code> are parsed as <code>12.5</code>.
+ * <br />
+ * Numbers with up to 15 significant digits and small exponents are computed
+ * exactly from the digits. All others are handed to
+ * {@link Double#parseDouble(String)}. Hence, the result is always the
+ * <code>double</code> closest to the decimal number. Immutable and thread
+ * safe.
+ *
+ * @author <a href="mailto:e.h.juerrens@52north.org">Eike Hinderk J&uuml;rrens</a>
+ */
+public final class DecimalParser {
+
+	// all powers of ten that are exact doubles
+	private static final double[] POWERS_OF_TEN = {
+		1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+		1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20,
+		1e21, 1e22
+	};
+
+	// digits of a long without overflow
+	private static final int MAX_MANTISSA_DIGITS = 18;
+
+	// exponents beyond are infinity or zero anyway
+	private static final int MAX_EXPONENT = 100000;
+
+	private final char decimalSeparator;
+
+	private final char groupingSeparator;
+
+	/**
+	 * @param decimalSeparator the decimal separator
+	 * @param groupingSeparator the grouping separator or <code>0</code>, if
+	 *        none is used
+	 * @throws IllegalArgumentException if both separators are the same or a
+	 *         separator is a digit, a sign, or an exponent character
+	 */
+	public DecimalParser(final char decimalSeparator, final char groupingSeparator) {
+		checkSeparator(decimalSeparator, "decimal");
+		if (groupingSeparator != 0) {
+			checkSeparator(groupingSeparator, "grouping");
+		}
+		if (decimalSeparator == groupingSeparator) {
+			throw new IllegalArgumentException(String.format(
+					"Decimal and grouping separator must differ: '%s'", decimalSeparator));
+		}
+		this.decimalSeparator = decimalSeparator;
+		this.groupingSeparator = groupingSeparator;
+	}
+
+	/**
+	 * @param decimalSeparator the decimal separator, e.g. from
+	 *        <code>CsvMetadata/DecimalSeparator</code>
+	 * @return a parser using <code>,</code> as grouping separator for
+	 *         <code>.</code> as decimal separator, <code>.</code> for
+	 *         <code>,</code>, and no grouping separator else.
+	 */
+	public static DecimalParser forDecimalSeparator(final char decimalSeparator) {
+		if (decimalSeparator == '.') {
+			return new DecimalParser('.', ',');
+		} else if (decimalSeparator == ',') {
+			return new DecimalParser(',', '.');
+		}
+		return new DecimalParser(decimalSeparator, (char) 0);
+	}
+
+	private static void checkSeparator(final char separator, final String name) {
+		if (separator >= '0' && separator <= '9' ||
+				separator == '-' || separator == '+' ||
+				separator == 'e' || separator == 'E') {
+			throw new IllegalArgumentException(String.format(
+					"Character '%s' is not allowed as %s separator.", separator, name));
+		}
+	}
+
+	public char getDecimalSeparator() {
+		return decimalSeparator;
+	}
+
+	/**
+	 * @param text a text starting with a decimal number
+	 * @return the <code>double</code> closest to the number
+	 * @throws ParseException if the text does not start with a decimal
+	 *         number. The error offset is the index of the first unexpected
+	 *         character.
+	 */
+	public double parse(final CharSequence text) throws ParseException {
+		if (text == null) {
+			throw new ParseException("Number to parse is null.", 0);
+		}
+		int start = 0;
+		final int end = text.length();
+		while (start < end && Character.isWhitespace(text.charAt(start))) {
+			start++;
+		}
+		int i = start;
+		boolean negative = false;
+		if (i < end && (text.charAt(i) == '-' || text.charAt(i) == '+')) {
+			negative = text.charAt(i) == '-';
+			i++;
+		}
+		long mantissa = 0;
+		int mantissaDigits = 0;
+		// decimal exponent of the mantissa
+		int exponent = 0;
+		boolean hasDigits = false;
+		boolean isInFraction = false;
+		// non zero digits not in the mantissa
+		boolean isTruncated = false;
+		for (; i < end; i++) {
+			final char c = text.charAt(i);
+			if (c >= '0' && c <= '9') {
+				hasDigits = true;
+				if (mantissa == 0 && c == '0') {
+					if (isInFraction) {
+						exponent--;
+					}
+				} else if (mantissaDigits < MAX_MANTISSA_DIGITS) {
+					mantissa = mantissa * 10 + (c - '0');
+					mantissaDigits++;
+					if (isInFraction) {
+						exponent--;
+					}
+				} else {
+					isTruncated |= c != '0';
+					if (!isInFraction) {
+						exponent++;
+					}
+				}
+			} else if (c == decimalSeparator && !isInFraction) {
+				isInFraction = true;
+			} else if (c == groupingSeparator && groupingSeparator != 0 && hasDigits && !isInFraction) {
+				continue;
+			} else if ((c == 'e' || c == 'E') && hasDigits) {
+				// an exponent without digits does not belong to the number
+				final int exponentEnd = getExponentEnd(text, i + 1, end);
+				if (exponentEnd > 0) {
+					exponent = addExponent(exponent, parseExponent(text, i + 1, exponentEnd));
+					i = exponentEnd;
+				}
+				break;
+			} else {
+				break;
+			}
+		}
+		if (!hasDigits) {
+			if (i < end) {
+				throw unexpected(text, i);
+			}
+			throw new ParseException(String.format("No digits found in number '%s'.", text), i);
+		}
+		double value;
+		if (mantissa == 0) {
+			value = 0.0;
+		} else if (!isTruncated &&
+				mantissaDigits <= 15 &&
+				exponent >= -22 &&
+				exponent <= 22) {
+			// both operands are exact doubles, hence the result is rounded once
+			value = exponent < 0?
+					mantissa / POWERS_OF_TEN[-exponent] :
+					mantissa * POWERS_OF_TEN[exponent];
+		} else {
+			value = Double.parseDouble(normalize(text, start, i));
+		}
+		return negative? -value : value;
+	}
+
+	/*
+	 * Returns the index after the optional sign and the digits of the exponent
+	 * starting at i or -1, if it has no digits.
+	 */
+	private static int getExponentEnd(final CharSequence text, int i, final int end) {
+		if (i < end && (text.charAt(i) == '-' || text.charAt(i) == '+')) {
+			i++;
+		}
+		final int digitsStart = i;
+		while (i < end && text.charAt(i) >= '0' && text.charAt(i) <= '9') {
+			i++;
+		}
+		return i > digitsStart? i : -1;
+	}
+
+	/*
+	 * Parses the exponent from i to end. Its syntax was checked before.
+	 */
+	private static int parseExponent(final CharSequence text, int i, final int end) {
+		boolean negative = false;
+		if (text.charAt(i) == '-' || text.charAt(i) == '+') {
+			negative = text.charAt(i) == '-';
+			i++;
+		}
+		int exponent = 0;
+		for (; i < end; i++) {
+			final char c = text.charAt(i);
+			if (exponent < MAX_EXPONENT) {
+				exponent = exponent * 10 + (c - '0');
+			}
+		}
+		return negative? -exponent : exponent;
+	}
+
+	private static int addExponent(final int exponent, final int summand) {
+		return (int) Math.max(-MAX_EXPONENT, Math.min(MAX_EXPONENT, (long) exponent + summand));
+	}
+
+	/*
+	 * Returns the number in the syntax of Double.parseDouble(), i.e. without
+	 * sign, grouping separators, and with '.' as decimal separator. The
+	 * syntax was checked before.
+	 */
+	private String normalize(final CharSequence text, final int start, final int end) {
+		final StringBuilder sb = new StringBuilder(end - start);
+		for (int i = start; i < end; i++) {
+			final char c = text.charAt(i);
+			if (c == decimalSeparator) {
+				sb.append('.');
+			} else if (c == groupingSeparator && groupingSeparator != 0) {
+				continue;
+			} else if (i == start && (c == '-' || c == '+')) {
+				continue;
+			} else {
+				sb.append(c);
+			}
+		}
+		return sb.toString();
+	}
+
+	private static ParseException unexpected(final CharSequence text, final int index) {
+		return new ParseException(String.format("Unexpected character '%s' at index %d of number '%s'.",
+				text.charAt(index),
+				index,
+				text), index);
+	}
+
+}
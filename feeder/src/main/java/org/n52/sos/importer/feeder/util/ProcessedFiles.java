@@ -0,0 +1,144 @@
+/**
+ * Copyright (C) 2011-2015 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.importer.feeder.util;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Persistent set of the data files of a directory that were already
+ * imported, together with their size and last modification time when they
+ * were imported. A file is processed again if it changed afterwards.
+ * <br>
+ * Each {@link #add(File, long, long)} appends one line
+ * <code>size lastModified name</code> to the store, hence a crash loses at
+ * most the file being imported. The store is compacted when it is loaded.
+ *
+ * @author <a href="mailto:e.h.juerrens@52north.org">Eike Hinderk J&uuml;rrens</a>
+ */
+public final class ProcessedFiles {
+
+	private static final Logger LOG = LoggerFactory.getLogger(ProcessedFiles.class);
+
+	private final File store;
+
+	private final Map<String, String> states = new HashMap<>();
+
+	/**
+	 * @param store the file storing the set, created if required
+	 * @throws IOException if the store could not be read or compacted
+	 */
+	public ProcessedFiles(final File store) throws IOException {
+		this.store = store;
+		if (store.exists()) {
+			load();
+			compact();
+		}
+		LOG.debug("Loaded {} processed files from '{}'.", states.size(), store);
+	}
+
+	/**
+	 * @param file a data file
+	 * @return <code>true</code>, if the file was processed and did not change
+	 *         afterwards,<br />
+	 *         else <code>false</code>.
+	 */
+	public synchronized boolean contains(final File file) {
+		return state(file).equals(states.get(file.getName()));
+	}
+
+	/**
+	 * Stores the given state of the file as processed.
+	 *
+	 * @param file the processed data file
+	 * @param length the length of the file when its processing started
+	 * @param lastModified the modification time of the file when its
+	 *        processing started
+	 * @throws IOException if the store could not be written
+	 */
+	public synchronized void add(final File file, final long length, final long lastModified) throws IOException {
+		final String state = length + " " + lastModified;
+		states.put(file.getName(), state);
+		try (final PrintWriter out = new PrintWriter(
+				new OutputStreamWriter(new FileOutputStream(store, true), StandardCharsets.UTF_8))) {
+			out.println(state + " " + file.getName());
+		}
+	}
+
+	public synchronized int size() {
+		return states.size();
+	}
+
+	private static String state(final File file) {
+		return file.length() + " " + file.lastModified();
+	}
+
+	private void load() throws IOException {
+		try (final BufferedReader reader = new BufferedReader(
+				new InputStreamReader(new FileInputStream(store), StandardCharsets.UTF_8))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				final int sizeEnd = line.indexOf(' ');
+				final int lastModifiedEnd = sizeEnd < 0? -1 : line.indexOf(' ', sizeEnd + 1);
+				if (lastModifiedEnd < 0) {
+					LOG.warn("Ignoring invalid line '{}' of processed files store '{}'.", line, store);
+					continue;
+				}
+				// later lines override earlier ones
+				states.put(line.substring(lastModifiedEnd + 1), line.substring(0, lastModifiedEnd));
+			}
+		}
+	}
+
+	private void compact() throws IOException {
+		final File compacted = new File(store.getPath() + ".tmp");
+		try (final PrintWriter out = new PrintWriter(
+				new OutputStreamWriter(new FileOutputStream(compacted), StandardCharsets.UTF_8))) {
+			for (final Map.Entry<String, String> entry : states.entrySet()) {
+				out.println(entry.getValue() + " " + entry.getKey());
+			}
+		}
+		Files.move(compacted.toPath(), store.toPath(), StandardCopyOption.REPLACE_EXISTING);
+	}
+
+}
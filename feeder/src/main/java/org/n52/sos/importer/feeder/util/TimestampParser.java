@@ -0,0 +1,351 @@
+/**
+ * Copyright (C) 2011-2015 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.importer.feeder.util;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.ResolverStyle;
+import java.time.format.SignStyle;
+import java.time.temporal.ChronoField;
+import java.time.temporal.TemporalAccessor;
+import java.time.temporal.TemporalQueries;
+import java.util.TimeZone;
+
+import org.n52.sos.importer.feeder.model.Timestamp;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Parses the value of one date/time column into a {@link Timestamp}.<br />
+ * The {@link SimpleDateFormat} pattern of the column is translated once into
+ * an immutable {@link DateTimeFormatter}, hence one instance could be shared
+ * between threads. Patterns that could not be translated, and values that
+ * could not be parsed by the {@link DateTimeFormatter}, are parsed using a
+ * {@link SimpleDateFormat} to keep the behaviour of former versions.
+ *
+ * @author <a href="mailto:e.h.juerrens@52north.org">Eike Hinderk J&uuml;rrens</a>
+ */
+public final class TimestampParser {
+
+	private static final Logger LOG = LoggerFactory.getLogger(TimestampParser.class);
+
+	private static final int SECONDS_PER_HOUR = 60 * 60;
+
+	// pattern letters of SimpleDateFormat with the same meaning in DateTimeFormatter
+	private static final String SUPPORTED_LETTERS = "GyMLdHkKhmsSEaDzZX";
+
+	private static final String NUMERIC_LETTERS = "yMLdHkKhmsSD";
+
+	private final String pattern;
+
+	private final ZoneId zoneId;
+
+	private final TimeZone timeZone;
+
+	// null, if the pattern could not be translated
+	private final DateTimeFormatter formatter;
+
+	private final boolean hasYear;
+
+	private final boolean hasMonth;
+
+	private final boolean hasDay;
+
+	private final boolean hasHour;
+
+	private final boolean hasMinute;
+
+	private final boolean hasSecond;
+
+	private final boolean hasZone;
+
+	/**
+	 * @param pattern {@link SimpleDateFormat} pattern of the column
+	 * @param timeZone the time zone of the values without time zone information.
+	 * 			The values of the {@link Timestamp} are set in this time zone.
+	 */
+	public TimestampParser(final String pattern, final TimeZone timeZone) {
+		if (pattern == null || pattern.isEmpty()) {
+			throw new IllegalArgumentException("parameter pattern is mandatory.");
+		}
+		this.pattern = pattern;
+		this.timeZone = timeZone;
+		zoneId = timeZone.toZoneId();
+		formatter = createFormatter(pattern);
+		hasYear = pattern.indexOf('y') != -1;
+		hasMonth = pattern.indexOf('M') != -1 ||
+				pattern.indexOf('w') != -1 ||
+				pattern.indexOf('D') != -1;
+		hasDay = pattern.indexOf('d') != -1;
+		hasHour = pattern.indexOf('H') != -1 ||
+				pattern.indexOf('k') != -1 ||
+				pattern.indexOf('K') != -1 ||
+				pattern.indexOf('h') != -1 && pattern.indexOf('a') != -1;
+		hasMinute = pattern.indexOf('m') != -1;
+		hasSecond = pattern.indexOf('s') != -1;
+		hasZone = pattern.indexOf('Z') != -1 || pattern.indexOf('z') != -1;
+	}
+
+	/**
+	 * Parses the given value and sets all fields of the given
+	 * {@link Timestamp} that are contained in the pattern.
+	 *
+	 * @throws ParseException if the value does not match the pattern
+	 */
+	public void parseInto(final String value, final Timestamp ts) throws ParseException {
+		ZonedDateTime dateTime = null;
+		if (formatter != null) {
+			try {
+				dateTime = toZonedDateTime(formatter.parse(value));
+			} catch (final DateTimeException | ArithmeticException e) {
+				LOG.trace("Could not parse '{}' with '{}'; using SimpleDateFormat: {}", value, formatter, e.getMessage());
+			}
+		}
+		if (dateTime == null) {
+			dateTime = parseWithSimpleDateFormat(value);
+		}
+		if (hasYear) {
+			ts.setYear((short) dateTime.getYear());
+		}
+		if (hasMonth) {
+			ts.setMonth((byte) dateTime.getMonthValue());
+		}
+		if (hasDay) {
+			ts.setDay((byte) dateTime.getDayOfMonth());
+		}
+		if (hasHour) {
+			ts.setHour((byte) dateTime.getHour());
+		}
+		if (hasMinute) {
+			ts.setMinute((byte) dateTime.getMinute());
+		}
+		if (hasSecond) {
+			ts.setSeconds((byte) dateTime.getSecond());
+		}
+		if (hasZone) {
+			ts.setTimezone((byte) (dateTime.getOffset().getTotalSeconds() / SECONDS_PER_HOUR));
+		}
+	}
+
+	/**
+	 * @return <code>true</code>, if the pattern could be translated into a
+	 * 			{@link DateTimeFormatter}.
+	 */
+	public boolean isCompiled() {
+		return formatter != null;
+	}
+
+	private ZonedDateTime parseWithSimpleDateFormat(final String value) throws ParseException {
+		// SimpleDateFormat is not thread safe
+		final SimpleDateFormat sdf = new SimpleDateFormat(pattern);
+		sdf.setTimeZone(timeZone);
+		return ZonedDateTime.ofInstant(Instant.ofEpochMilli(sdf.parse(value).getTime()), zoneId);
+	}
+
+	/*
+	 * Missing fields are set like SimpleDateFormat does: 1970-01-01T00:00:00
+	 */
+	private ZonedDateTime toZonedDateTime(final TemporalAccessor parsed) {
+		LocalDate date = parsed.query(TemporalQueries.localDate());
+		if (date == null) {
+			final int year = parsed.isSupported(ChronoField.YEAR)? parsed.get(ChronoField.YEAR) : 1970;
+			if (parsed.isSupported(ChronoField.DAY_OF_YEAR)) {
+				date = LocalDate.ofYearDay(year, parsed.get(ChronoField.DAY_OF_YEAR));
+			} else {
+				date = LocalDate.of(year,
+						parsed.isSupported(ChronoField.MONTH_OF_YEAR)? parsed.get(ChronoField.MONTH_OF_YEAR) : 1,
+						parsed.isSupported(ChronoField.DAY_OF_MONTH)? parsed.get(ChronoField.DAY_OF_MONTH) : 1);
+			}
+		}
+		LocalTime time = parsed.query(TemporalQueries.localTime());
+		if (time == null) {
+			int hour = 0;
+			if (parsed.isSupported(ChronoField.HOUR_OF_DAY)) {
+				hour = parsed.get(ChronoField.HOUR_OF_DAY);
+			} else if (parsed.isSupported(ChronoField.HOUR_OF_AMPM)) {
+				hour = parsed.get(ChronoField.HOUR_OF_AMPM);
+			}
+			time = LocalTime.of(hour,
+					parsed.isSupported(ChronoField.MINUTE_OF_HOUR)? parsed.get(ChronoField.MINUTE_OF_HOUR) : 0,
+					parsed.isSupported(ChronoField.SECOND_OF_MINUTE)? parsed.get(ChronoField.SECOND_OF_MINUTE) : 0);
+		}
+		final LocalDateTime localDateTime = LocalDateTime.of(date, time);
+		final ZoneId parsedZone = parsed.query(TemporalQueries.zone());
+		if (parsedZone != null) {
+			return localDateTime.atZone(parsedZone).withZoneSameInstant(zoneId);
+		}
+		return localDateTime.atZone(zoneId);
+	}
+
+	/**
+	 * @return the {@link DateTimeFormatter} for the given
+	 * 			{@link SimpleDateFormat} pattern or <code>null</code>, if the
+	 * 			pattern contains elements not supported by this class.
+	 */
+	private static DateTimeFormatter createFormatter(final String pattern) {
+		final DateTimeFormatterBuilder builder = new DateTimeFormatterBuilder()
+				.parseCaseInsensitive();
+		final int length = pattern.length();
+		int i = 0;
+		while (i < length) {
+			final char c = pattern.charAt(i);
+			if (c == '\'') {
+				// quoted text; '' is a single quote
+				final StringBuilder literal = new StringBuilder();
+				i++;
+				if (i < length && pattern.charAt(i) == '\'') {
+					builder.appendLiteral('\'');
+					i++;
+					continue;
+				}
+				while (i < length) {
+					if (pattern.charAt(i) == '\'') {
+						if (i + 1 < length && pattern.charAt(i + 1) == '\'') {
+							literal.append('\'');
+							i += 2;
+							continue;
+						}
+						break;
+					}
+					literal.append(pattern.charAt(i++));
+				}
+				if (i >= length) {
+					LOG.debug("Unterminated quote in pattern '{}'", pattern);
+					return null;
+				}
+				i++;
+				builder.appendLiteral(literal.toString());
+			} else if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')) {
+				int count = 1;
+				while (i + count < length && pattern.charAt(i + count) == c) {
+					count++;
+				}
+				if (SUPPORTED_LETTERS.indexOf(c) == -1) {
+					LOG.debug("Pattern letter '{}' of pattern '{}' not supported by DateTimeFormatter", c, pattern);
+					return null;
+				}
+				final boolean isAdjacentToNumber = i + count < length &&
+						NUMERIC_LETTERS.indexOf(pattern.charAt(i + count)) != -1;
+				if (!appendField(builder, c, count, isAdjacentToNumber)) {
+					LOG.debug("Pattern element '{}' of pattern '{}' not supported by DateTimeFormatter",
+							pattern.substring(i, i + count), pattern);
+					return null;
+				}
+				i += count;
+			} else {
+				builder.appendLiteral(c);
+				i++;
+			}
+		}
+		try {
+			return builder.toFormatter().withResolverStyle(ResolverStyle.SMART);
+		} catch (final IllegalArgumentException e) {
+			LOG.debug("Could not create DateTimeFormatter for pattern '{}': {}", pattern, e.getMessage());
+			return null;
+		}
+	}
+
+	/*
+	 * SimpleDateFormat parses numbers with any count of digits unless the
+	 * next element is a number, too. DateTimeFormatter requires the exact
+	 * width for fixed width fields.
+	 */
+	private static boolean appendField(final DateTimeFormatterBuilder builder,
+			final char letter,
+			final int count,
+			final boolean isAdjacentToNumber) {
+		if (NUMERIC_LETTERS.indexOf(letter) != -1 && (letter != 'M' && letter != 'L' || count < 3)) {
+			final ChronoField field = getNumericField(letter);
+			if (letter == 'y' && count == 2) {
+				// same as SimpleDateFormat: within 80 years before and 20 years after now
+				builder.appendValueReduced(ChronoField.YEAR, 2, 2, LocalDate.now().minusYears(80));
+			} else if (letter == 'S' && count > 3) {
+				return false;
+			} else if (isAdjacentToNumber) {
+				builder.appendValue(field, count);
+			} else {
+				builder.appendValue(field, 1, Math.max(count, 10), SignStyle.NORMAL);
+			}
+			return true;
+		}
+		builder.appendPattern(repeat(letter, count));
+		return true;
+	}
+
+	private static ChronoField getNumericField(final char letter) {
+		switch (letter) {
+		case 'y':
+			return ChronoField.YEAR_OF_ERA;
+		case 'M':
+		case 'L':
+			return ChronoField.MONTH_OF_YEAR;
+		case 'd':
+			return ChronoField.DAY_OF_MONTH;
+		case 'H':
+			return ChronoField.HOUR_OF_DAY;
+		case 'k':
+			return ChronoField.CLOCK_HOUR_OF_DAY;
+		case 'K':
+			return ChronoField.HOUR_OF_AMPM;
+		case 'h':
+			return ChronoField.CLOCK_HOUR_OF_AMPM;
+		case 'm':
+			return ChronoField.MINUTE_OF_HOUR;
+		case 's':
+			return ChronoField.SECOND_OF_MINUTE;
+		case 'S':
+			return ChronoField.MILLI_OF_SECOND;
+		default:
+			return ChronoField.DAY_OF_YEAR;
+		}
+	}
+
+	private static String repeat(final char c, final int count) {
+		final char[] chars = new char[count];
+		for (int i = 0; i < count; i++) {
+			chars[i] = c;
+		}
+		return String.valueOf(chars);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("TimestampParser [pattern=%s, zoneId=%s, compiled=%b]", pattern, zoneId, formatter != null);
+	}
+
+}
@@ -0,0 +1,140 @@
+/**
+ * Copyright (C) 2011-2015 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.importer.feeder;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.xmlbeans.XmlException;
+import org.junit.After;
+import org.junit.Test;
+import org.n52.sos.importer.feeder.model.requests.InsertObservation;
+
+public class ChunkedFileParserTest {
+
+	private static final int LINES = 1000;
+
+	private File file;
+
+	@After
+	public void deleteFile() throws IOException {
+		if (file != null) {
+			Files.deleteIfExists(file.toPath());
+		}
+	}
+
+	@Test public void
+	shouldParseEachRowExactlyOnceUsingLineAlignedChunks() throws IOException, XmlException {
+		final Configuration configuration = new Configuration("src/test/resources/issue-099/config-2.xml");
+		final StringBuilder content = new StringBuilder();
+		for (int i = 0; i < LINES; i++) {
+			content.append(i).append(",\"value ").append(i).append('"').append(i % 2 == 0? "\n" : "\r\n");
+		}
+		file = File.createTempFile("chunked-file-parser", ".csv");
+		Files.write(file.toPath(), content.toString().getBytes(StandardCharsets.UTF_8));
+		final ConcurrentMap<String, AtomicInteger> seen = new ConcurrentHashMap<>();
+		int rowCount = 0;
+		int chunkCount = 0;
+		try (final ChunkedFileParser parser = new ChunkedFileParser(file, configuration, 0, -1, 4, 64,
+				new ChunkedFileParser.RowHandler() {
+
+					@Override
+					public InsertObservation[] handle(final String[] values) {
+						assertThat(values[1], is("value " + values[0]));
+						seen.putIfAbsent(values[0], new AtomicInteger());
+						seen.get(values[0]).incrementAndGet();
+						return new InsertObservation[0];
+					}
+
+				})) {
+			ChunkedFileParser.Chunk chunk;
+			while ((chunk = parser.next()) != null) {
+				chunk.rethrowFailure();
+				rowCount += chunk.getRowCount();
+				assertThat(chunk.getObservations().size(), is(chunk.getRowCount()));
+				chunkCount++;
+			}
+		}
+		assertThat(rowCount, is(LINES));
+		assertThat(seen.size(), is(LINES));
+		for (final AtomicInteger count : seen.values()) {
+			assertThat(count.get(), is(1));
+		}
+		assertThat(chunkCount > 1, is(true));
+	}
+
+	@Test public void
+	shouldParseRowsWithQuotedLineBreaksSequentially() throws IOException, XmlException {
+		final Configuration configuration = new Configuration("src/test/resources/issue-099/config-2.xml");
+		final StringBuilder content = new StringBuilder();
+		for (int i = 0; i < LINES; i++) {
+			content.append(i).append(",\"").append(expectedValue(i)).append("\"\n");
+		}
+		file = File.createTempFile("chunked-file-parser", ".csv");
+		Files.write(file.toPath(), content.toString().getBytes(StandardCharsets.UTF_8));
+		final ConcurrentMap<String, AtomicInteger> seen = new ConcurrentHashMap<>();
+		int rowCount = 0;
+		try (final ChunkedFileParser parser = new ChunkedFileParser(file, configuration, 0, -1, 4, 64,
+				new ChunkedFileParser.RowHandler() {
+
+					@Override
+					public InsertObservation[] handle(final String[] values) {
+						assertThat(values.length, is(2));
+						assertThat(values[1], is(expectedValue(Integer.parseInt(values[0]))));
+						seen.putIfAbsent(values[0], new AtomicInteger());
+						seen.get(values[0]).incrementAndGet();
+						return new InsertObservation[0];
+					}
+
+				})) {
+			ChunkedFileParser.Chunk chunk;
+			while ((chunk = parser.next()) != null) {
+				chunk.rethrowFailure();
+				rowCount += chunk.getRowCount();
+				assertThat(chunk.getObservations().size(), is(chunk.getRowCount()));
+			}
+		}
+		// rows of dropped parallel chunks might be handled twice
+		assertThat(rowCount, is(LINES));
+		assertThat(seen.size(), is(LINES));
+	}
+
+	private static String expectedValue(final int row) {
+		return row % 7 == 3? "first line\nsecond line " + row : "value " + row;
+	}
+
+}
@@ -0,0 +1,80 @@
+/**
+ * Copyright (C) 2011-2015 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.importer.feeder;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+public class HunkSizeControllerTest {
+
+	@Test public void
+	shouldIncreaseAdditivelyWhileFastAndSmall() {
+		final HunkSizeController controller = new HunkSizeController(100, 1000000, 1000);
+		controller.completed(100, 1000, 10, false);
+		assertThat(controller.getHunkSize(), is(110));
+		controller.completed(110, 1100, 10, false);
+		assertThat(controller.getHunkSize(), is(120));
+	}
+
+	@Test public void
+	shouldHalveAfterFailure() {
+		final HunkSizeController controller = new HunkSizeController(100, 1000000, 1000);
+		controller.completed(100, 1000, 10, true);
+		assertThat(controller.getHunkSize(), is(50));
+	}
+
+	@Test public void
+	shouldDecreaseIfSlow() {
+		final HunkSizeController controller = new HunkSizeController(100, 1000000, 1000);
+		controller.completed(100, 1000, 2000, false);
+		assertThat(controller.getHunkSize(), is(75));
+	}
+
+	@Test public void
+	shouldLimitToTargetBytes() {
+		final HunkSizeController controller = new HunkSizeController(100, 5000, 1000);
+		controller.completed(100, 10000, 10, false);
+		assertThat(controller.getHunkSize(), is(50));
+	}
+
+	@Test public void
+	shouldNotDecreaseBelowOneLine() {
+		final HunkSizeController controller = new HunkSizeController(1, 1000000, 1000);
+		controller.completed(1, 10, 10, true);
+		assertThat(controller.getHunkSize(), is(1));
+	}
+
+	@Test(expected = IllegalArgumentException.class) public void
+	shouldRejectTargetLatencyBelowOne() {
+		new HunkSizeController(100, 1000, 0);
+	}
+
+}
@@ -0,0 +1,199 @@
+/**
+ * Copyright (C) 2011-2015 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.importer.feeder;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.text.ParseException;
+
+import org.apache.xmlbeans.XmlException;
+import org.junit.Test;
+import org.n52.sos.importer.feeder.model.FeatureOfInterest;
+import org.n52.sos.importer.feeder.model.Offering;
+import org.n52.sos.importer.feeder.model.Position;
+import org.n52.sos.importer.feeder.model.Resource;
+import org.n52.sos.importer.feeder.model.Sensor;
+
+/**
+ * The expected values are the ones resolved by the former implementation of
+ * {@link DataFile}, which read the configuration for each line.
+ */
+public class ImportPlanTest {
+
+	private static final String[] COLUMN_VALUES = {
+		"4326", "51.141977", "7.369473", "805", "property", "uom", "1970-01-01T11:00:00", "feature 1", "sensor-1" };
+
+	private static final String[] GENERATED_VALUES = {
+		"4326", "52.5", "7.25", "12.5", "3", "station", "1", "temperature", "degC", "2015-01-01T00:00:00" };
+
+	private static final String[] MANUAL_VALUES = { "12.5", "2015-01-01T00:00:00" };
+
+	@Test public void
+	shouldResolveResourcesFromColumns() throws XmlException, IOException, ParseException {
+		final ColumnPlan columnPlan = compile("issue-099/config-2.xml", "issue-099/data.csv").getColumnPlan(3);
+		assertResource(columnPlan.getSensor(COLUMN_VALUES), "sensor-1", "sensor-1");
+		assertResource(columnPlan.getObservedProperty(COLUMN_VALUES), "property", "property");
+		assertResource(columnPlan.getUnitOfMeasurement(COLUMN_VALUES), "uom", "uom");
+		assertThat((Double) columnPlan.getValue(COLUMN_VALUES), is(805.0));
+	}
+
+	@Test public void
+	shouldNotCleanNameOfFeatureOfInterestFromColumn() throws XmlException, IOException, ParseException {
+		final ColumnPlan columnPlan = compile("issue-099/config-2.xml", "issue-099/data.csv").getColumnPlan(3);
+		final FeatureOfInterest foi = columnPlan.getFeatureOfInterest(COLUMN_VALUES);
+		assertResource(foi, "feature 1", "feature 1");
+		assertPosition(foi.getPosition(), 4326, 51.141977, 7.369473);
+	}
+
+	@Test public void
+	shouldGenerateOfferingFromSensor() throws XmlException, IOException, ParseException {
+		final ImportPlan plan = compile("issue-099/config-2.xml", "issue-099/data.csv");
+		final Sensor sensor = plan.getColumnPlan(3).getSensor(COLUMN_VALUES);
+		final Offering offering = plan.getOffering(sensor);
+		assertResource(offering, "sensor-1", "sensor-1");
+		assertThat(plan.getOffering(sensor), is(sameInstance(offering)));
+	}
+
+	@Test public void
+	shouldResolveGeneratedResources() throws XmlException, IOException, ParseException {
+		final ImportPlan plan = compile("import-plan/config-generated.xml", "import-plan/data-generated.csv");
+		assertThat(plan.getMeasuredValueColumnIds(), is(new int[] { 3, 4 }));
+		final ColumnPlan columnPlan = plan.getColumnPlan(3);
+		final Sensor sensor = columnPlan.getSensor(GENERATED_VALUES);
+		assertResource(sensor, "station-1", "http://example.org/sensors/station-1");
+		assertResource(columnPlan.getObservedProperty(GENERATED_VALUES),
+				"temperature",
+				"http://example.org/properties/temperature");
+		assertResource(plan.getOffering(sensor), "station-1", "http://example.org/sensors/station-1");
+		assertThat((Double) columnPlan.getValue(GENERATED_VALUES), is(12.5));
+	}
+
+	@Test public void
+	shouldIgnoreUriOfGeneratedUnitOfMeasurement() throws XmlException, IOException, ParseException {
+		final ColumnPlan columnPlan = compile("import-plan/config-generated.xml", "import-plan/data-generated.csv")
+				.getColumnPlan(3);
+		assertResource(columnPlan.getUnitOfMeasurement(GENERATED_VALUES), "degC", "degC");
+	}
+
+	@Test public void
+	shouldCleanNameOfGeneratedFeatureOfInterest() throws XmlException, IOException, ParseException {
+		final ColumnPlan columnPlan = compile("import-plan/config-generated.xml", "import-plan/data-generated.csv")
+				.getColumnPlan(3);
+		final FeatureOfInterest foi = columnPlan.getFeatureOfInterest(GENERATED_VALUES);
+		// the uri is not used as prefix
+		assertResource(foi, "station_1", "station 1");
+		assertPosition(foi.getPosition(), 4326, 52.5, 7.25);
+	}
+
+	@Test public void
+	shouldReplaceNameOfFeatureOfInterestContainingOnlyReplacements() throws XmlException, IOException, ParseException {
+		final ColumnPlan columnPlan = compile("import-plan/config-generated.xml", "import-plan/data-generated.csv")
+				.getColumnPlan(3);
+		final String[] values = GENERATED_VALUES.clone();
+		values[5] = "?";
+		values[6] = "!";
+		assertResource(columnPlan.getFeatureOfInterest(values), "featureofinterest" + "? !".hashCode(), "? !");
+		// only the names of features of interest are cleaned
+		assertResource(columnPlan.getSensor(values), "?-!", "http://example.org/sensors/?-!");
+	}
+
+	@Test public void
+	shouldResolveResourcesFromRelatedColumns() throws XmlException, IOException, ParseException {
+		final ColumnPlan columnPlan = compile("import-plan/config-generated.xml", "import-plan/data-generated.csv")
+				.getColumnPlan(4);
+		assertResource(columnPlan.getSensor(GENERATED_VALUES), "station-1", "http://example.org/sensors/station-1");
+		assertResource(columnPlan.getObservedProperty(GENERATED_VALUES), "temperature", "temperature");
+		assertResource(columnPlan.getUnitOfMeasurement(GENERATED_VALUES), "degC", "degC");
+		assertThat((Integer) columnPlan.getValue(GENERATED_VALUES), is(3));
+	}
+
+	@Test public void
+	shouldResolveManualResources() throws XmlException, IOException, ParseException {
+		final ColumnPlan columnPlan = compile("import-plan/config-manual.xml", "import-plan/data-manual.csv")
+				.getColumnPlan(0);
+		// the only sensor of the additional metadata
+		assertResource(columnPlan.getSensor(MANUAL_VALUES), "Thermometer", "http://example.org/sensors/thermometer");
+		assertResource(columnPlan.getObservedProperty(MANUAL_VALUES),
+				"Temperature",
+				"http://example.org/properties/temperature");
+		assertResource(columnPlan.getUnitOfMeasurement(MANUAL_VALUES), "degC", "http://example.org/units/degC");
+	}
+
+	@Test public void
+	shouldCleanNameOfManualFeatureOfInterest() throws XmlException, IOException, ParseException {
+		final ColumnPlan columnPlan = compile("import-plan/config-manual.xml", "import-plan/data-manual.csv")
+				.getColumnPlan(0);
+		final FeatureOfInterest foi = columnPlan.getFeatureOfInterest(MANUAL_VALUES);
+		assertResource(foi, "weather_station", "http://example.org/features/weather-station");
+		assertPosition(foi.getPosition(), 4326, 52.5, 7.25);
+	}
+
+	@Test public void
+	shouldCleanNameOfFixedOffering() throws XmlException, IOException, ParseException {
+		final ImportPlan plan = compile("import-plan/config-manual.xml", "import-plan/data-manual.csv");
+		final Sensor sensor = plan.getColumnPlan(0).getSensor(MANUAL_VALUES);
+		assertResource(plan.getOffering(sensor), "my_offering", "my offering");
+	}
+
+	@Test public void
+	shouldReturnNoColumnPlanForOtherColumns() throws XmlException, IOException, ParseException {
+		final ImportPlan plan = compile("import-plan/config-manual.xml", "import-plan/data-manual.csv");
+		assertThat(plan.getColumnPlan(1), is(nullValue()));
+		assertThat(plan.getColumnPlan(42), is(nullValue()));
+	}
+
+	private static ImportPlan compile(final String configuration, final String dataFile)
+			throws XmlException, IOException {
+		return ImportPlan.compile(new Configuration("src/test/resources/" + configuration),
+				new File("src/test/resources/" + dataFile));
+	}
+
+	private static void assertResource(final Resource resource, final String name, final String uri) {
+		assertThat(resource, is(notNullValue()));
+		assertThat(resource.getName(), is(name));
+		assertThat(resource.getUri(), is(uri));
+	}
+
+	private static void assertPosition(final Position position,
+			final int epsgCode,
+			final double latitude,
+			final double longitude) {
+		assertThat(position, is(notNullValue()));
+		assertThat(position.getEpsgCode(), is(epsgCode));
+		assertThat(position.getLatitude(), is(latitude));
+		assertThat(position.getLongitude(), is(longitude));
+	}
+
+}
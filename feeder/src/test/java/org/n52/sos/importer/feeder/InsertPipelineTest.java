@@ -0,0 +1,224 @@
+/**
+ * Copyright (C) 2011-2015 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.importer.feeder;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.xmlbeans.XmlException;
+import org.junit.Test;
+import org.n52.oxf.OXFException;
+
+public class InsertPipelineTest {
+
+	@Test public void
+	shouldBuildInSubmissionOrderAndExecuteAllRequests() throws OXFException, XmlException, IOException {
+		final InsertPipeline pipeline = new InsertPipeline(4, 2);
+		final List<Integer> built = Collections.synchronizedList(new ArrayList<Integer>());
+		final AtomicInteger executed = new AtomicInteger();
+		for (int i = 0; i < 100; i++) {
+			final int line = i;
+			pipeline.submit(new InsertPipeline.RequestBuilder() {
+				@Override
+				public List<Runnable> build() {
+					built.add(line);
+					final List<Runnable> requests = new ArrayList<>();
+					for (int j = 0; j < 3; j++) {
+						requests.add(new Runnable() {
+							@Override
+							public void run() {
+								executed.incrementAndGet();
+							}
+						});
+					}
+					return requests;
+				}
+			});
+		}
+		pipeline.finish();
+		assertThat(built.size(), is(100));
+		for (int i = 0; i < 100; i++) {
+			assertThat(built.get(i), is(i));
+		}
+		assertThat(executed.get(), is(300));
+	}
+
+	@Test public void
+	shouldSendOpenBatchesOnceWhenFinishingBatchedInserts() throws OXFException, XmlException, IOException {
+		final InsertPipeline pipeline = new InsertPipeline(4, 2);
+		final List<Integer> sent = Collections.synchronizedList(new ArrayList<Integer>());
+		final ObservationBatcher<Integer> batcher = new ObservationBatcher<>(7, 1000, new ObservationBatcher.Sender<Integer>() {
+			@Override
+			public boolean send(final String key, final List<Integer> batch) {
+				sent.addAll(batch);
+				return true;
+			}
+
+			@Override
+			public void rejected(final Integer observation) {
+				throw new IllegalStateException("not expected");
+			}
+		});
+		for (int i = 0; i < 100; i++) {
+			final int observation = i;
+			pipeline.submit(new InsertPipeline.RequestBuilder() {
+				@Override
+				public List<Runnable> build() {
+					return batcher.add("offering-" + observation % 3, observation, 10);
+				}
+			});
+		}
+		final InsertPipeline.RequestBuilder flush = new InsertPipeline.RequestBuilder() {
+			@Override
+			public List<Runnable> build() {
+				return batcher.flush();
+			}
+		};
+		pipeline.finish(flush);
+		// finishing again must neither fail nor send the batches twice
+		pipeline.finish(flush);
+		pipeline.finish();
+
+		assertThat(sent.size(), is(100));
+		final Set<Integer> distinct = new HashSet<>(sent);
+		assertThat(distinct.size(), is(100));
+	}
+
+	@Test(expected = IOException.class) public void
+	shouldRethrowExceptionOfRequestBuilder() throws OXFException, XmlException, IOException {
+		final InsertPipeline pipeline = new InsertPipeline(2, 1);
+		try {
+			for (int i = 0; i < 10; i++) {
+				pipeline.submit(new InsertPipeline.RequestBuilder() {
+					@Override
+					public List<Runnable> build() throws IOException {
+						throw new IOException("registration failed");
+					}
+				});
+			}
+			pipeline.finish();
+		} finally {
+			pipeline.abort();
+		}
+	}
+
+	@Test public void
+	shouldStopBusyInsertWorkersAfterRequestBuilderFailed() throws Exception {
+		final InsertPipeline pipeline = new InsertPipeline(2, 4);
+		final CountDownLatch busy = new CountDownLatch(2);
+		final AtomicInteger executed = new AtomicInteger();
+		pipeline.submit(new InsertPipeline.RequestBuilder() {
+			@Override
+			public List<Runnable> build() {
+				final List<Runnable> requests = new ArrayList<>();
+				for (int i = 0; i < 2; i++) {
+					requests.add(new Runnable() {
+						@Override
+						public void run() {
+							busy.countDown();
+							try {
+								Thread.sleep(500);
+							} catch (final InterruptedException e) {
+								Thread.currentThread().interrupt();
+							}
+							executed.incrementAndGet();
+						}
+					});
+				}
+				return requests;
+			}
+		});
+		busy.await();
+		try {
+			pipeline.submit(new InsertPipeline.RequestBuilder() {
+				@Override
+				public List<Runnable> build() throws IOException {
+					throw new IOException("registration failed");
+				}
+			});
+		} catch (final IOException e) {
+			// rethrown, if the builder failed already
+		}
+		final ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			final Future<Void> finished = executor.submit(new Callable<Void>() {
+				@Override
+				public Void call() throws Exception {
+					pipeline.finish();
+					return null;
+				}
+			});
+			finished.get(10, TimeUnit.SECONDS);
+			fail("IOException expected");
+		} catch (final ExecutionException e) {
+			assertThat(e.getCause() instanceof IOException, is(true));
+		} catch (final TimeoutException e) {
+			fail("Insert pipeline did not finish.");
+		} finally {
+			executor.shutdownNow();
+			pipeline.abort();
+		}
+		assertThat(executed.get(), is(2));
+	}
+
+	@Test(expected = IllegalStateException.class) public void
+	shouldRethrowRuntimeExceptionOfInsertRequest() throws OXFException, XmlException, IOException {
+		final InsertPipeline pipeline = new InsertPipeline(1, 1);
+		pipeline.submit(new InsertPipeline.RequestBuilder() {
+			@Override
+			public List<Runnable> build() {
+				return Collections.<Runnable>singletonList(new Runnable() {
+					@Override
+					public void run() {
+						throw new IllegalStateException("insert failed");
+					}
+				});
+			}
+		});
+		pipeline.finish();
+	}
+
+}
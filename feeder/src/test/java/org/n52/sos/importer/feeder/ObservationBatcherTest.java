@@ -0,0 +1,145 @@
+/**
+ * Copyright (C) 2011-2015 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.importer.feeder;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class ObservationBatcherTest {
+
+	private static class RecordingSender implements ObservationBatcher.Sender<Integer> {
+
+		private final List<Integer> invalid;
+
+		private final List<List<Integer>> sent = new ArrayList<>();
+
+		private final List<Integer> accepted = new ArrayList<>();
+
+		private final List<Integer> rejected = new ArrayList<>();
+
+		RecordingSender(final Integer... invalid) {
+			this.invalid = Arrays.asList(invalid);
+		}
+
+		@Override
+		public boolean send(final String key, final List<Integer> batch) {
+			sent.add(new ArrayList<>(batch));
+			for (final Integer observation : batch) {
+				if (invalid.contains(observation)) {
+					return false;
+				}
+			}
+			accepted.addAll(batch);
+			return true;
+		}
+
+		@Override
+		public void rejected(final Integer observation) {
+			rejected.add(observation);
+		}
+
+	}
+
+	private static void run(final List<Runnable> requests) {
+		for (final Runnable request : requests) {
+			request.run();
+		}
+	}
+
+	@Test public void
+	shouldCloseBatchWhenMaxCountIsReached() {
+		final RecordingSender sender = new RecordingSender();
+		final ObservationBatcher<Integer> batcher = new ObservationBatcher<>(3, 1000, sender);
+
+		assertThat(batcher.add("o", 1, 10).size(), is(0));
+		assertThat(batcher.add("o", 2, 10).size(), is(0));
+		final List<Runnable> requests = batcher.add("o", 3, 10);
+		assertThat(requests.size(), is(1));
+		run(requests);
+
+		assertThat(sender.sent.size(), is(1));
+		assertThat(sender.sent.get(0), is(Arrays.asList(1, 2, 3)));
+		assertThat(batcher.flush().size(), is(0));
+	}
+
+	@Test public void
+	shouldCloseBatchBeforeMaxBytesAreExceeded() {
+		final RecordingSender sender = new RecordingSender();
+		final ObservationBatcher<Integer> batcher = new ObservationBatcher<>(10, 100, sender);
+
+		assertThat(batcher.add("o", 1, 40).size(), is(0));
+		assertThat(batcher.add("o", 2, 40).size(), is(0));
+		run(batcher.add("o", 3, 40));
+		run(batcher.flush());
+
+		assertThat(sender.sent.size(), is(2));
+		assertThat(sender.sent.get(0), is(Arrays.asList(1, 2)));
+		assertThat(sender.sent.get(1), is(Arrays.asList(3)));
+	}
+
+	@Test public void
+	shouldBatchByKey() {
+		final RecordingSender sender = new RecordingSender();
+		final ObservationBatcher<Integer> batcher = new ObservationBatcher<>(2, 1000, sender);
+
+		assertThat(batcher.add("a", 1, 10).size(), is(0));
+		assertThat(batcher.add("b", 2, 10).size(), is(0));
+		run(batcher.add("a", 3, 10));
+		run(batcher.flush());
+
+		assertThat(sender.sent.size(), is(2));
+		assertThat(sender.sent.get(0), is(Arrays.asList(1, 3)));
+		assertThat(sender.sent.get(1), is(Arrays.asList(2)));
+	}
+
+	@Test public void
+	shouldIsolateRejectedObservationsBySplitting() {
+		final RecordingSender sender = new RecordingSender(3, 6);
+		final ObservationBatcher<Integer> batcher = new ObservationBatcher<>(8, 1000, sender);
+
+		for (int i = 1; i <= 8; i++) {
+			run(batcher.add("o", i, 10));
+		}
+
+		assertThat(sender.rejected, is(Arrays.asList(3, 6)));
+		assertThat(sender.accepted, is(Arrays.asList(1, 2, 4, 5, 7, 8)));
+	}
+
+	@Test(expected = IllegalArgumentException.class) public void
+	shouldRejectInvalidLimits() {
+		new ObservationBatcher<>(0, 1000, new RecordingSender());
+	}
+
+}
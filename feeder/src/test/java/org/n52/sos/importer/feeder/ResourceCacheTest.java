@@ -0,0 +1,97 @@
+/**
+ * Copyright (C) 2011-2015 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.importer.feeder;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+import org.n52.sos.importer.feeder.model.FeatureOfInterest;
+import org.n52.sos.importer.feeder.model.Position;
+import org.n52.sos.importer.feeder.model.Sensor;
+
+public class ResourceCacheTest {
+
+	private final ResourceCache cache = new ResourceCache();
+
+	@Test public void
+	shouldShareResourcesOfLinesWithSameValues() {
+		final ResourceResolver resolver = ResourceResolver.column(1);
+		final Sensor sensor = cache.getSensor(resolver, new String[] { "1", "sensor-a" });
+		assertThat(cache.getSensor(resolver, new String[] { "2", "sensor-a" }), is(sameInstance(sensor)));
+		assertThat(cache.getSensor(resolver, new String[] { "3", "sensor-b" }), is(not(sameInstance(sensor))));
+		assertThat(cache.getHits(), is(1L));
+		assertThat(cache.getMisses(), is(2L));
+	}
+
+	@Test public void
+	shouldGenerateNamesOncePerDistinctTuple() {
+		final ResourceResolver resolver = ResourceResolver.generated("-", "http://example.org/", true, new int[] { 0, 1 });
+		final Sensor sensor = cache.getSensor(resolver, new String[] { "a", "b", "1" });
+		assertThat(sensor.getName(), is("a-b"));
+		assertThat(sensor.getUri(), is("http://example.org/a-b"));
+		assertThat(cache.getSensor(resolver, new String[] { "a", "b", "2" }), is(sameInstance(sensor)));
+		assertThat(cache.getSensor(resolver, new String[] { "a-b", "", "2" }).getName(), is("a-b-"));
+	}
+
+	@Test public void
+	shouldCreateNewFeatureOfInterestIfPositionChanges() {
+		final ResourceResolver resolver = ResourceResolver.manual("foi", "http://example.org/foi");
+		final Position p1 = new Position(new double[] { 7.0, 52.0, 0.0 }, new String[3], 4326);
+		final Position p2 = new Position(new double[] { 8.0, 51.0, 0.0 }, new String[3], 4326);
+		final FeatureOfInterest foi = cache.getFeatureOfInterest(resolver, new String[0], p1, false);
+		assertThat(cache.getFeatureOfInterest(resolver, new String[0], p1, false), is(sameInstance(foi)));
+		assertThat(cache.getFeatureOfInterest(resolver, new String[0], p2, false).getPosition(), is(p2));
+	}
+
+	@Test public void
+	shouldCleanNamesOncePerDistinctResource() {
+		final ResourceResolver resolver = ResourceResolver.column(0);
+		final FeatureOfInterest foi = cache.getFeatureOfInterest(resolver, new String[] { "my station" }, null, true);
+		assertThat(foi.getName(), is("my_station"));
+		assertThat(foi.getUri(), is("my station"));
+		assertThat(cache.getFeatureOfInterest(resolver, new String[] { "my station" }, null, true), is(sameInstance(foi)));
+	}
+
+	@Test public void
+	shouldShareOfferingsOfEqualSensors() {
+		assertThat(cache.getOffering(new Sensor("s", "http://example.org/s")),
+				is(sameInstance(cache.getOffering(new Sensor("s", "http://example.org/s")))));
+	}
+
+	@Test public void
+	shouldNotCacheUnresolvedResources() {
+		assertThat(cache.getSensor(ResourceResolver.NONE, new String[0]), is(nullValue()));
+		assertThat(cache.getMisses(), is(0L));
+	}
+
+}
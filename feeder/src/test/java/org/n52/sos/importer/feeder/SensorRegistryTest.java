@@ -0,0 +1,96 @@
+/**
+ * Copyright (C) 2011-2015 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.importer.feeder;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SensorRegistryTest {
+
+	private File store;
+
+	@Before
+	public void createStore() throws IOException {
+		store = File.createTempFile("sensor-registry", ".txt");
+		Files.delete(store.toPath());
+	}
+
+	@After
+	public void deleteStore() throws IOException {
+		Files.deleteIfExists(store.toPath());
+	}
+
+	@Test public void
+	shouldContainRegisteredSensor() {
+		final SensorRegistry registry = new SensorRegistry(store);
+		assertThat(registry.contains("sensor-1"), is(false));
+
+		registry.register("sensor-1", "procedure-1", "offering-1");
+
+		assertThat(registry.contains("sensor-1"), is(true));
+		assertThat(registry.getOffering("sensor-1"), is("offering-1"));
+	}
+
+	@Test public void
+	shouldPersistRegisteredSensors() {
+		new SensorRegistry(store).register("sensor-1", "procedure-1", null);
+		new SensorRegistry(store).register("sensor-2", "procedure-2", "offering-2");
+
+		final SensorRegistry registry = new SensorRegistry(store);
+
+		assertThat(registry.size(), is(2));
+		assertThat(registry.contains("sensor-1"), is(true));
+		assertThat(registry.getOffering("sensor-1"), is(nullValue()));
+		assertThat(registry.getOffering("sensor-2"), is("offering-2"));
+	}
+
+	@Test public void
+	shouldRemoveSensorsNotListedInCapabilities() {
+		final SensorRegistry registry = new SensorRegistry(store);
+		registry.register("sensor-1", "procedure-1", null);
+		registry.register("sensor-2", "procedure-2", null);
+
+		assertThat(registry.revalidate(Collections.singleton("procedure-2")), is(1));
+
+		assertThat(registry.contains("sensor-1"), is(false));
+		assertThat(new SensorRegistry(store).contains("sensor-1"), is(false));
+		assertThat(new SensorRegistry(store).contains("sensor-2"), is(true));
+	}
+
+}
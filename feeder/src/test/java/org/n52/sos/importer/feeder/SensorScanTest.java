@@ -0,0 +1,93 @@
+/**
+ * Copyright (C) 2011-2015 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.importer.feeder;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.List;
+
+import org.junit.Test;
+import org.n52.sos.importer.feeder.model.FeatureOfInterest;
+import org.n52.sos.importer.feeder.model.ObservedProperty;
+import org.n52.sos.importer.feeder.model.Offering;
+import org.n52.sos.importer.feeder.model.Sensor;
+import org.n52.sos.importer.feeder.model.UnitOfMeasurement;
+import org.n52.sos.importer.feeder.model.requests.InsertObservation;
+import org.n52.sos.importer.feeder.model.requests.RegisterSensor;
+
+public class SensorScanTest {
+
+	private static final ObservedProperty TEMPERATURE = new ObservedProperty("temperature", "http://example.org/temperature");
+
+	private static final ObservedProperty HUMIDITY = new ObservedProperty("humidity", "http://example.org/humidity");
+
+	@Test public void
+	shouldCollectDistinctSensorsInOrderOfFirstObservation() {
+		final SensorScan scan = new SensorScan();
+		scan.add(observation("b", "foi-1", TEMPERATURE, "Cel"));
+		scan.add(observation("a", "foi-1", TEMPERATURE, "Cel"));
+		scan.add(observation("b", "foi-2", TEMPERATURE, "Cel"));
+		assertThat(scan.size(), is(2));
+		final List<RegisterSensor> registerSensors = scan.getRegisterSensors();
+		assertThat(registerSensors.get(0).getSensorURI(), is("b"));
+		assertThat(registerSensors.get(0).getFeatureOfInterestURI(), is("foi-1"));
+		assertThat(registerSensors.get(1).getSensorURI(), is("a"));
+	}
+
+	@Test public void
+	shouldMergeObservedPropertiesOfAllObservationsOfASensor() {
+		final SensorScan scan = new SensorScan();
+		scan.add(observation("a", "foi-1", TEMPERATURE, "Cel"));
+		scan.add(observation("a", "foi-1", HUMIDITY, "%"));
+		scan.add(observation("a", "foi-1", TEMPERATURE, "K"));
+		final RegisterSensor registerSensor = scan.getRegisterSensors().get(0);
+		assertThat(registerSensor.getObservedProperties().size(), is(2));
+		assertThat(registerSensor.getUnitOfMeasurementCode(TEMPERATURE), is("Cel"));
+		assertThat(registerSensor.getUnitOfMeasurementCode(HUMIDITY), is("%"));
+		assertThat(registerSensor.getMeasuredValueType(HUMIDITY), is("NUMERIC"));
+		assertThat(scan.contains("a", HUMIDITY), is(true));
+		assertThat(scan.contains("b", HUMIDITY), is(false));
+	}
+
+	private static InsertObservation observation(final String sensor,
+			final String foi,
+			final ObservedProperty observedProperty,
+			final String uom) {
+		return new InsertObservation(new Sensor(sensor, sensor),
+				new FeatureOfInterest(foi, foi, null),
+				1.0,
+				null,
+				new UnitOfMeasurement(uom, uom),
+				observedProperty,
+				new Offering("offering", "offering"),
+				"NUMERIC");
+	}
+
+}
@@ -0,0 +1,88 @@
+/**
+ * Copyright (C) 2011-2015 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.importer.feeder;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.text.MessageFormat;
+import java.text.ParseException;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class TokenPatternTest {
+
+	@Test public void
+	shouldExtractLikeMessageFormat() throws ParseException {
+		assertExtractsLikeMessageFormat("{0}", "52.1");
+		assertExtractsLikeMessageFormat("{0} {1}", "52.1 7.3");
+		assertExtractsLikeMessageFormat("{0};{1};{2}", "52.1;7.3;125m");
+		assertExtractsLikeMessageFormat("{1}, {0} ({3})", "7.3, 52.1 (4326)");
+		assertExtractsLikeMessageFormat("lat={0} lon={1}", "lat=52.1 lon=7.3 ignored");
+		assertExtractsLikeMessageFormat("'{'{0}'}'", "{52.1}");
+		assertExtractsLikeMessageFormat("{0}''{1}", "52'7");
+		assertExtractsLikeMessageFormat("{0}{1}", "52.17.3");
+	}
+
+	@Test public void
+	shouldNotMatchWhereMessageFormatFails() {
+		assertNoMatch("{0} {1}", "52.1;7.3");
+		assertNoMatch("lat={0}", "lon=7.3");
+	}
+
+	@Test public void
+	shouldNotCompileFormattedArguments() {
+		assertThat(TokenPattern.compile("{0,number}"), is(nullValue()));
+		assertThat(TokenPattern.compile("{0"), is(nullValue()));
+		assertThat(TokenPattern.compile("'{0}"), is(nullValue()));
+	}
+
+	private void assertExtractsLikeMessageFormat(final String pattern, final String value) throws ParseException {
+		final TokenPattern tokenPattern = TokenPattern.compile(pattern);
+		assertThat(pattern, tokenPattern, is(notNullValue()));
+		final String[] tokens = new String[4];
+		assertThat(value, tokenPattern.extract(value, tokens), is(true));
+		final Object[] expected = new MessageFormat(pattern).parse(value);
+		assertThat(value, Arrays.asList(tokens).subList(0, expected.length), is(Arrays.asList(expected)));
+	}
+
+	private void assertNoMatch(final String pattern, final String value) {
+		assertThat(value, TokenPattern.compile(pattern).extract(value, new String[4]), is(false));
+		try {
+			new MessageFormat(pattern).parse(value);
+			throw new AssertionError("MessageFormat matched " + value);
+		} catch (final ParseException e) {
+			// expected
+		}
+	}
+
+}
@@ -0,0 +1,179 @@
+/**
+ * Copyright (C) 2011-2015 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.importer.feeder.csv;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class MappedCsvParserTest {
+
+	private File file;
+
+	private MappedCsvParser parser;
+
+	@After
+	public void deleteFile() throws IOException {
+		if (parser != null) {
+			parser.close();
+		}
+		if (file != null) {
+			Files.deleteIfExists(file.toPath());
+		}
+	}
+
+	private MappedCsvParser parse(final String content,
+			final Charset charset,
+			final int windowSize,
+			final int skipLines) throws IOException {
+		file = File.createTempFile("mapped-csv-parser", ".csv");
+		Files.write(file.toPath(), content.getBytes(charset));
+		parser = new MappedCsvParser(windowSize);
+		parser.init(file, charset, ';', '"', '\\', skipLines);
+		return parser;
+	}
+
+	private MappedCsvParser parse(final String content) throws IOException {
+		return parse(content, StandardCharsets.UTF_8, 1024, 0);
+	}
+
+	@Test public void
+	shouldSplitRowsAtSeparatorAndLineBreaks() throws IOException {
+		final MappedCsvParser csv = parse("a;b;c\r\n1;2;3\n4;;6");
+		assertThat(csv.readNext(), is(new String[] {"a", "b", "c"}));
+		assertThat(csv.readNext(), is(new String[] {"1", "2", "3"}));
+		assertThat(csv.readNext(), is(new String[] {"4", "", "6"}));
+		assertThat(csv.readNext(), is(nullValue()));
+	}
+
+	@Test public void
+	shouldSkipLinesBeforeFirstLineWithData() throws IOException {
+		final MappedCsvParser csv = parse("header\r\nunits\n1;2\n", StandardCharsets.UTF_8, 1024, 2);
+		assertThat(csv.readNext(), is(new String[] {"1", "2"}));
+		assertThat(csv.readNext(), is(nullValue()));
+	}
+
+	@Test public void
+	shouldHandleQuotesAndEscapes() throws IOException {
+		final MappedCsvParser csv = parse("\"a;b\";\"say \"\"hi\"\"\";x\\\"y\n");
+		assertThat(csv.readNext(), is(new String[] {"a;b", "say \"hi\"", "x\"y"}));
+	}
+
+	@Test public void
+	shouldJoinQuotedFieldsSpanningLines() throws IOException {
+		final MappedCsvParser csv = parse("1;\"first\r\nsecond\";3\n4;5;6\n");
+		assertThat(csv.readNext(), is(new String[] {"1", "first\nsecond", "3"}));
+		assertThat(csv.readNext(), is(new String[] {"4", "5", "6"}));
+	}
+
+	@Test public void
+	shouldReadRowsCrossingAndExceedingTheWindow() throws IOException {
+		final StringBuilder content = new StringBuilder();
+		for (int i = 0; i < 100; i++) {
+			content.append(i).append(";value-").append(i).append('\n');
+		}
+		content.append("long;").append(new String(new char[50]).replace('\0', 'x')).append('\n');
+		final MappedCsvParser csv = parse(content.toString(), StandardCharsets.UTF_8, 16, 0);
+		for (int i = 0; i < 100; i++) {
+			assertThat(csv.readNext(), is(new String[] {Integer.toString(i), "value-" + i}));
+		}
+		assertThat(csv.readNext()[1].length(), is(50));
+		assertThat(csv.readNext(), is(nullValue()));
+	}
+
+	@Test public void
+	shouldReadRowsFromReaderInRefilledWindows() throws IOException {
+		final StringBuilder content = new StringBuilder("header\r\n");
+		for (int i = 0; i < 100; i++) {
+			content.append(i).append(";\"Münster\r\n°C ").append(i).append("\";").append(i % 2 == 0? "\n" : "\r\n");
+		}
+		content.append("long;").append(new String(new char[50]).replace('\0', 'x'));
+		parser = new MappedCsvParser(16);
+		parser.init(new StringReader(content.toString()), ';', '"', '\\', 1);
+
+		for (int i = 0; i < 100; i++) {
+			assertThat(parser.readNext(), is(new String[] {Integer.toString(i), "Münster\n°C " + i, ""}));
+		}
+		assertThat(parser.readNext()[1].length(), is(50));
+		assertThat(parser.readNext(), is(nullValue()));
+		assertThat(parser.readNext(), is(nullValue()));
+	}
+
+	@Test public void
+	shouldDecodeUsingTheConfiguredEncoding() throws IOException {
+		assertThat(parse("Münster;°C\n", StandardCharsets.ISO_8859_1, 1024, 0).readNext(),
+				is(new String[] {"Münster", "°C"}));
+		deleteFile();
+		assertThat(parse("Münster;°C\n", StandardCharsets.UTF_8, 1024, 0).readNext(),
+				is(new String[] {"Münster", "°C"}));
+	}
+
+	@Test public void
+	shouldExposeUndecodedFieldSlices() throws IOException {
+		final MappedCsvParser csv = parse("12.5;\"a\"\"b\"\n");
+		assertThat(csv.nextRow(), is(true));
+		assertThat(csv.getFieldCount(), is(2));
+		final ByteBuffer first = csv.getFieldSlice(0);
+		assertThat(first.remaining(), is(4));
+		assertThat(first.get(0), is((byte) '1'));
+		assertThat(StandardCharsets.UTF_8.decode(csv.getFieldSlice(1)).toString(), is("a\"b"));
+		assertThat(csv.nextRow(), is(false));
+	}
+
+	@Test public void
+	shouldNotReadPartiallyWrittenLineBeyondEnd() throws IOException {
+		final String content = "header\n1;12.34\r\n2;12.3";
+		file = File.createTempFile("mapped-csv-parser", ".csv");
+		Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+		final long end = content.indexOf("2;");
+		parser = new MappedCsvParser(1024);
+		parser.init(file, StandardCharsets.UTF_8, ';', '"', '\\', 1, 0, end);
+
+		assertThat(parser.readNext(), is(new String[] {"1", "12.34"}));
+		assertThat(parser.readNext(), is(nullValue()));
+		assertThat(parser.getPosition(), is(end));
+	}
+
+	@Test(expected = IllegalArgumentException.class) public void
+	shouldRejectEncodingsThatAreNotAsciiCompatible() throws IOException {
+		parse("a;b\n", StandardCharsets.UTF_16, 1024, 0);
+	}
+
+}
@@ -0,0 +1,127 @@
+/**
+ * Copyright (C) 2011-2015 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.importer.feeder.csv;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class WrappedCSVReaderTest {
+
+	private File file;
+
+	private WrappedCSVReader reader;
+
+	@Before
+	public void createFile() throws IOException {
+		file = File.createTempFile("wrapped-csv-reader", ".csv");
+	}
+
+	@After
+	public void deleteFile() throws IOException {
+		if (reader != null) {
+			reader.close();
+		}
+		Files.deleteIfExists(file.toPath());
+	}
+
+	private void write(final String content, final StandardOpenOption... options) throws IOException {
+		Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8), options);
+	}
+
+	private WrappedCSVReader read(final int skipLines, final long start, final long end) throws IOException {
+		if (reader != null) {
+			reader.close();
+		}
+		reader = new WrappedCSVReader();
+		reader.init(file, StandardCharsets.UTF_8, ';', '"', '\\', skipLines, start, end);
+		return reader;
+	}
+
+	@Test public void
+	shouldTrackPositionOfNextRow() throws IOException {
+		write("header\r\n1;2\n3;4\r5;6");
+		final WrappedCSVReader csv = read(1, 0, -1);
+		assertThat(csv.getPosition(), is(8L));
+		assertThat(csv.readNext(), is(new String[] {"1", "2"}));
+		assertThat(csv.getPosition(), is(12L));
+		assertThat(csv.readNext(), is(new String[] {"3", "4"}));
+		assertThat(csv.getPosition(), is(16L));
+		assertThat(csv.readNext(), is(new String[] {"5", "6"}));
+		assertThat(csv.getPosition(), is(19L));
+		assertThat(csv.readNext(), is(nullValue()));
+	}
+
+	@Test public void
+	shouldResumeAtStoredPosition() throws IOException {
+		write("header\n1;2\n3;4\n");
+		WrappedCSVReader csv = read(1, 0, -1);
+		while (csv.readNext() != null) {
+			// first run imports all rows
+		}
+		final long position = csv.getPosition();
+		write("5;6\n7;8\n", StandardOpenOption.APPEND);
+
+		csv = read(0, position, -1);
+		assertThat(csv.readNext(), is(new String[] {"5", "6"}));
+		assertThat(csv.readNext(), is(new String[] {"7", "8"}));
+		assertThat(csv.readNext(), is(nullValue()));
+		assertThat(csv.getPosition(), is(file.length()));
+	}
+
+	@Test public void
+	shouldNotReadRowsAfterEnd() throws IOException {
+		write("1;2\n3;4\n5;");
+		final WrappedCSVReader csv = read(0, 0, 8);
+		assertThat(csv.readNext(), is(new String[] {"1", "2"}));
+		assertThat(csv.readNext(), is(new String[] {"3", "4"}));
+		assertThat(csv.readNext(), is(nullValue()));
+		assertThat(csv.getPosition(), is(8L));
+	}
+
+	@Test public void
+	shouldJoinQuotedFieldsSpanningLines() throws IOException {
+		write("1;\"first\r\nsecond\";3\n4;5;6\n");
+		final WrappedCSVReader csv = read(0, 0, -1);
+		assertThat(csv.readNext(), is(new String[] {"1", "first\nsecond", "3"}));
+		assertThat(csv.getPosition(), is(20L));
+		assertThat(csv.readNext(), is(new String[] {"4", "5", "6"}));
+	}
+
+}
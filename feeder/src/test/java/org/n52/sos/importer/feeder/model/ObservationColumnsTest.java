@@ -0,0 +1,93 @@
+/**
+ * Copyright (C) 2011-2015 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.importer.feeder.model;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+public class ObservationColumnsTest {
+
+	@Test public void
+	shouldStoreTimestampsAndValuesBeyondInitialCapacity() {
+		final ObservationColumns columns = new ObservationColumns();
+		for (int i = 0; i < 100; i++) {
+			columns.add(new Timestamp().set(i * 1000L), i * 0.5);
+		}
+		assertThat(columns.size(), is(100));
+		assertThat(columns.getValue(99), is((Object) 49.5));
+		assertThat(new Timestamp().setFields(columns.getTimestampFields(99)).toString(),
+				is(new Timestamp().set(99000L).toString()));
+	}
+
+	@Test public void
+	shouldPoolTexts() {
+		final ObservationColumns columns = new ObservationColumns();
+		columns.add(new Timestamp().set(0), "a");
+		columns.add(new Timestamp().set(0), "b");
+		columns.add(new Timestamp().set(0), "a");
+		assertThat(columns.getValue(0), is((Object) "a"));
+		assertThat(columns.getValue(1), is((Object) "b"));
+		assertThat(columns.getValue(2), is((Object) "a"));
+	}
+
+	@Test public void
+	shouldKeepValuesIfTypeChanges() {
+		final ObservationColumns columns = new ObservationColumns();
+		columns.add(new Timestamp().set(0), 1);
+		columns.add(new Timestamp().set(0), true);
+		columns.add(new Timestamp().set(0), "c");
+		assertThat(columns.getValue(0), is((Object) 1));
+		assertThat(columns.getValue(1), is((Object) true));
+		assertThat(columns.getValue(2), is((Object) "c"));
+	}
+
+	@Test public void
+	shouldEncodeLikeBoxedValues() {
+		final Timestamp timestamp = new Timestamp().set(0);
+		final ObservationColumns columns = new ObservationColumns();
+		columns.add(timestamp, 1.0E-5);
+		columns.add(timestamp, 42.0);
+		final SweDataArrayEncoder expected = new SweDataArrayEncoder(2, "a", "b", "c", ";", "@")
+				.addBlock(timestamp, (Object) 1.0E-5)
+				.addBlock(timestamp, (Object) 42.0);
+		final SweDataArrayEncoder encoder = new SweDataArrayEncoder(2, "a", "b", "c", ";", "@");
+		columns.encode(encoder);
+		assertThat(encoder.finish(), is(expected.finish()));
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class) public void
+	shouldRejectIndexBeyondSize() {
+		final ObservationColumns columns = new ObservationColumns();
+		columns.add(new Timestamp().set(0), 1);
+		columns.getValue(1);
+	}
+
+}
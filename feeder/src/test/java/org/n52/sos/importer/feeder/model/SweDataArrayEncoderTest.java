@@ -0,0 +1,109 @@
+/**
+ * Copyright (C) 2011-2015 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.importer.feeder.model;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.StringReader;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.xml.sax.InputSource;
+
+public class SweDataArrayEncoderTest {
+
+	@Test public void
+	shouldEncodeDataArray() throws Exception {
+		final String xml = new SweDataArrayEncoder(2, "temperature", "http://example.org/temperature", "Cel", ";", "@")
+				.addBlock(new Timestamp().set(0), 1.5)
+				.addBlock(new Timestamp().set(60000), 2.5)
+				.finish();
+		final Document document = parse(xml);
+		final Element dataArray = document.getDocumentElement();
+		assertThat(dataArray.getLocalName(), is("DataArray"));
+		assertThat(dataArray.getNamespaceURI(), is(SweDataArrayEncoder.SWE_20_NS));
+		assertThat(text(dataArray, "value"), is("2"));
+		final Element field = (Element) dataArray.getElementsByTagNameNS(SweDataArrayEncoder.SWE_20_NS, "field").item(1);
+		assertThat(field.getAttribute("name"), is("temperature"));
+		final Element uom = (Element) field.getElementsByTagNameNS(SweDataArrayEncoder.SWE_20_NS, "uom").item(0);
+		assertThat(uom.getAttribute("code"), is("Cel"));
+		final Element textEncoding = (Element) dataArray.getElementsByTagNameNS(SweDataArrayEncoder.SWE_20_NS, "TextEncoding").item(0);
+		assertThat(textEncoding.getAttribute("blockSeparator"), is("@"));
+		assertThat(text(dataArray, "values"), is(new Timestamp().set(0) + ";1.5@" + new Timestamp().set(60000) + ";2.5"));
+	}
+
+	@Test public void
+	shouldEscapeValuesAndAttributes() throws Exception {
+		final SweDataArrayEncoder encoder = new SweDataArrayEncoder(1, "a", "http://example.org/?a=1&b=\"2\"", "<>", ";", "@")
+				.addBlock(new Timestamp().set(0), "R&D <1>");
+		final String xml = encoder.finish();
+		final Element dataArray = parse(xml).getDocumentElement();
+		final Element quantity = (Element) dataArray.getElementsByTagNameNS(SweDataArrayEncoder.SWE_20_NS, "Quantity").item(0);
+		assertThat(quantity.getAttribute("definition"), is("http://example.org/?a=1&b=\"2\""));
+		assertThat(text(dataArray, "values"), is(new Timestamp().set(0) + ";R&D <1>"));
+	}
+
+	@Test public void
+	shouldCountValuesLength() {
+		final SweDataArrayEncoder encoder = new SweDataArrayEncoder(2, "a", "b", "c", ";", "@")
+				.addBlock(new Timestamp().set(0), 1)
+				.addBlock(new Timestamp().set(0), 2);
+		final int timestampLength = new Timestamp().set(0).toString().length();
+		assertThat(encoder.getValuesLength(), is(2 * (timestampLength + 2) + 1));
+	}
+
+	@Test(expected = IllegalStateException.class) public void
+	shouldRejectMissingBlocks() {
+		new SweDataArrayEncoder(2, "a", "b", "c", ";", "@")
+				.addBlock(new Timestamp().set(0), 1)
+				.finish();
+	}
+
+	@Test(expected = IllegalStateException.class) public void
+	shouldRejectAdditionalBlocks() {
+		new SweDataArrayEncoder(1, "a", "b", "c", ";", "@")
+				.addBlock(new Timestamp().set(0), 1)
+				.addBlock(new Timestamp().set(0), 2);
+	}
+
+	private static Document parse(final String xml) throws Exception {
+		final DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+		factory.setNamespaceAware(true);
+		return factory.newDocumentBuilder().parse(new InputSource(new StringReader(xml)));
+	}
+
+	private static String text(final Element element, final String localName) {
+		return element.getElementsByTagNameNS(SweDataArrayEncoder.SWE_20_NS, localName).item(0).getTextContent();
+	}
+
+}
@@ -0,0 +1,116 @@
+/**
+ * Copyright (C) 2011-2015 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.importer.feeder.model;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.List;
+
+import org.junit.Test;
+import org.n52.sos.importer.feeder.model.requests.InsertObservation;
+
+public class TimeSeriesTest {
+
+	private final Sensor sensor = new Sensor("sensor-name", "sensor-uri");
+
+	private final ObservedProperty observedProperty = new ObservedProperty("obs-prop-name", "obs-prop-uri");
+
+	private final UnitOfMeasurement uom = new UnitOfMeasurement("uom-code", "uom-uri");
+
+	private final Offering offering = new Offering("offering-name", "offering-uri");
+
+	@Test public void
+	shouldKeepMetadataOfEachRowForInsertObservations() {
+		final FeatureOfInterest foi1 = createFeature("foi-1", 52.0, 7.0);
+		final FeatureOfInterest foi2 = createFeature("foi-2", 53.0, 8.0);
+		final Offering offering2 = new Offering("offering-2-name", "offering-2-uri");
+		final InsertObservation[] added = {
+				createObservation(sensor, foi1, offering, 0),
+				createObservation(sensor, foi1, offering, 1),
+				createObservation(sensor, foi2, offering, 2),
+				createObservation(new Sensor("sensor-2-name", "sensor-2-uri"), foi2, offering, 3),
+				createObservation(sensor, foi2, offering2, 4),
+				createObservation(sensor, foi1, offering, 5)
+		};
+		final TimeSeries timeSeries = new TimeSeries();
+		for (final InsertObservation io : added) {
+			timeSeries.addObservation(io);
+		}
+
+		final List<? extends InsertObservation> observations = timeSeries.getInsertObservations();
+
+		assertThat(observations.size(), is(added.length));
+		for (int i = 0; i < added.length; i++) {
+			final InsertObservation io = observations.get(i);
+			assertThat(io.hasSameMetadata(added[i]), is(true));
+			assertThat(io.getSensorURI(), is(added[i].getSensorURI()));
+			assertThat(io.getFeatureOfInterestURI(), is(added[i].getFeatureOfInterestURI()));
+			assertThat(io.getOffering(), is(added[i].getOffering()));
+			assertThat(io.getIntValue(), is(i));
+			assertThat(io.getTimeStamp().toString(), is(added[i].getTimeStamp().toString()));
+		}
+		assertThat(timeSeries.getSensorURI(), is("sensor-uri"));
+	}
+
+	@Test public void
+	shouldKeepPositionOfMovingFeature() {
+		final TimeSeries timeSeries = new TimeSeries();
+		timeSeries.addObservation(createObservation(sensor, createFeature("foi", 52.0, 7.0), offering, 0));
+		timeSeries.addObservation(createObservation(sensor, createFeature("foi", 52.5, 7.0), offering, 1));
+
+		final List<? extends InsertObservation> observations = timeSeries.getInsertObservations();
+
+		assertThat(observations.get(0).getLatitudeValue(), is(52.0));
+		assertThat(observations.get(1).getLatitudeValue(), is(52.5));
+	}
+
+	private FeatureOfInterest createFeature(final String name, final double latitude, final double longitude) {
+		return new FeatureOfInterest(name + "-name",
+				name + "-uri",
+				new Position(new double[] { longitude, latitude, Position.VALUE_NOT_SET },
+						new String[] { "deg", "deg", Position.UNIT_NOT_SET },
+						4326));
+	}
+
+	private InsertObservation createObservation(final Sensor sensor,
+			final FeatureOfInterest foi,
+			final Offering offering,
+			final int value) {
+		return new InsertObservation(sensor,
+				foi,
+				value,
+				new Timestamp().set(value * 1000L),
+				uom,
+				observedProperty,
+				offering,
+				"mv-type");
+	}
+
+}
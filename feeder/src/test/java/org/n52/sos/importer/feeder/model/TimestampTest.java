@@ -32,8 +32,16 @@ import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
 
 import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.time.LocalDate;
+import java.time.ZonedDateTime;
 import java.util.Date;
+import java.util.Random;
 import java.util.TimeZone;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -199,6 +207,227 @@ public class TimestampTest {
 		assertThat(timestamp.getTimezone(), is(Byte.MIN_VALUE));
 	}
 
+	@Test public void
+	shouldAppendSameRepresentationAsToString() {
+		final byte[] timezones = { -11, -3, 0, 5, 12 };
+		for (int setFields = 0; setFields < 128; setFields++) {
+			for (final byte timezone : timezones) {
+				final Timestamp ts = new Timestamp();
+				ts.setYear((setFields & 1) != 0? (short) 2015 : Short.MIN_VALUE);
+				ts.setMonth((setFields & 2) != 0? (byte) 1 : Byte.MIN_VALUE);
+				ts.setDay((setFields & 4) != 0? (byte) 31 : Byte.MIN_VALUE);
+				ts.setHour((setFields & 8) != 0? (byte) 9 : Byte.MIN_VALUE);
+				ts.setMinute((setFields & 16) != 0? (byte) 5 : Byte.MIN_VALUE);
+				ts.setSeconds((setFields & 32) != 0? (byte) 17 : Byte.MIN_VALUE);
+				ts.setTimezone((setFields & 64) != 0? timezone : Byte.MIN_VALUE);
+
+				final String appended = ts.appendTo(new StringBuilder("value: ")).toString();
+
+				assertThat(appended, is("value: " + ts.toString()));
+			}
+		}
+	}
+
+	@Test public void
+	shouldFormatTimestampsAsIso8601() {
+		assertThat(timestamp(2015, 1, 31, 9, 5, 7, 1).toString(), is("2015-01-31T09:05:07+01:00"));
+		assertThat(timestamp(2015, 12, 1, 23, 59, 59, -11).toString(), is("2015-12-01T23:59:59-11:00"));
+		assertThat(timestamp(2015, 12, 1, 0, 0, 0, -3).toString(), is("2015-12-01T00:00:00-03:00"));
+		assertThat(timestamp(2015, 12, 1, 12, 30, 0, 12).toString(), is("2015-12-01T12:30:00+12:00"));
+		final Timestamp dateOnly = timestamp(2015, 6, 15, 0, 0, 0, 2);
+		dateOnly.setHour(Byte.MIN_VALUE);
+		dateOnly.setMinute(Byte.MIN_VALUE);
+		dateOnly.setSeconds(Byte.MIN_VALUE);
+		assertThat(dateOnly.toString(), is("2015-06-15"));
+		final Timestamp timeOnly = timestamp(2015, 6, 15, 8, 15, 0, 0);
+		timeOnly.setYear(Short.MIN_VALUE);
+		timeOnly.setMonth(Byte.MIN_VALUE);
+		timeOnly.setDay(Byte.MIN_VALUE);
+		timeOnly.setSeconds(Byte.MIN_VALUE);
+		timeOnly.setTimezone(Byte.MIN_VALUE);
+		assertThat(timeOnly.toString(), is("08:15:00"));
+	}
+
+	@Test public void
+	shouldCompareTimestampsWithTimeZones() {
+		final Timestamp berlin = timestamp(2015, 1, 1, 10, 0, 0, 2);
+		final Timestamp utc = timestamp(2015, 1, 1, 9, 0, 0, 0);
+		final Timestamp sameInstant = timestamp(2015, 1, 1, 4, 0, 0, -5);
+		final Timestamp dayBefore = timestamp(2014, 12, 31, 23, 0, 0, -11);
+
+		assertThat(berlin.before(utc), is(true));
+		assertThat(berlin.after(utc), is(false));
+		assertThat(utc.after(berlin), is(true));
+		assertThat(utc.before(sameInstant), is(false));
+		assertThat(utc.after(sameInstant), is(false));
+		// 2015-01-01T10:00:00Z
+		assertThat(dayBefore.after(utc), is(true));
+		assertThat(dayBefore.getTime(), is(ZonedDateTime.parse("2015-01-01T10:00:00Z").toInstant().toEpochMilli()));
+	}
+
+	@Test public void
+	shouldCompareLocalTimestampsLikeFormerVersions() throws Exception {
+		final String[] localTimes = {
+				"2015-03-29T01:30:00",
+				"2015-03-29T02:00:00",
+				"2015-03-29T02:30:00",
+				"2015-03-29T03:00:00",
+				"2015-03-29T03:15:00",
+				"2015-10-25T01:59:59",
+				"2015-10-25T02:30:00",
+				"2015-10-25T03:00:00"
+		};
+		for (final String timeZone : new String[] { "Europe/Berlin", "America/New_York", "Australia/Lord_Howe", "UTC" }) {
+			inTimeZone(timeZone, new Callable<Void>() {
+				@Override
+				public Void call() throws Exception {
+					final SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss");
+					for (final String first : localTimes) {
+						final Timestamp firstTimestamp = localTimestamp(first);
+						final long firstExpected = format.parse(first).getTime();
+						assertThat(firstTimestamp.getTime(), is(firstExpected));
+						for (final String second : localTimes) {
+							final long secondExpected = format.parse(second).getTime();
+							assertThat(firstTimestamp.before(localTimestamp(second)), is(firstExpected < secondExpected));
+							assertThat(firstTimestamp.after(localTimestamp(second)), is(firstExpected > secondExpected));
+						}
+					}
+					return null;
+				}
+			});
+		}
+	}
+
+	@Test public void
+	shouldResolveLocalTimeInDaylightSavingGap() throws Exception {
+		inTimeZone("Europe/Berlin", new Callable<Void>() {
+			@Override
+			public Void call() throws Exception {
+				final Timestamp inGap = localTimestamp("2015-03-29T02:30:00");
+				final Timestamp afterGap = localTimestamp("2015-03-29T03:15:00");
+				final Timestamp zoned = timestamp(2015, 3, 29, 1, 20, 0, 0);
+
+				assertThat(inGap.getTime(), is(ZonedDateTime.parse("2015-03-29T01:30:00Z").toInstant().toEpochMilli()));
+				assertThat(inGap.after(afterGap), is(true));
+				assertThat(inGap.after(zoned), is(true));
+				assertThat(afterGap.before(zoned), is(true));
+				return null;
+			}
+		});
+	}
+
+	@Test public void
+	shouldApplyDayDeltaAcrossMonthAndYearBoundaries() {
+		assertDayDelta(2015, 1, 31, 1, "2015-02-01");
+		assertDayDelta(2015, 4, 30, 1, "2015-05-01");
+		assertDayDelta(2015, 12, 31, 1, "2016-01-01");
+		assertDayDelta(2016, 1, 1, -1, "2015-12-31");
+		assertDayDelta(2015, 3, 1, -1, "2015-02-28");
+		assertDayDelta(2015, 1, 15, 365, "2016-01-15");
+	}
+
+	@Test public void
+	shouldApplyDayDeltaInLeapYears() {
+		assertDayDelta(2016, 2, 28, 1, "2016-02-29");
+		assertDayDelta(2016, 2, 29, 1, "2016-03-01");
+		assertDayDelta(2016, 3, 1, -1, "2016-02-29");
+		assertDayDelta(2015, 2, 28, 1, "2015-03-01");
+		assertDayDelta(2000, 2, 28, 1, "2000-02-29");
+		assertDayDelta(1900, 2, 28, 1, "1900-03-01");
+		assertDayDelta(2016, 2, 29, 366, "2017-03-01");
+	}
+
+	@Test public void
+	shouldApplyLargeAndNegativeDayDeltas() {
+		assertDayDelta(2015, 6, 15, 25, "2015-07-10");
+		assertDayDelta(2015, 6, 15, -25, "2015-05-21");
+		assertDayDelta(2015, 6, 15, 100000, "2289-03-30");
+		assertDayDelta(2015, 6, 15, -100000, "1741-08-30");
+		final Random random = new Random(42);
+		for (int i = 0; i < 10000; i++) {
+			final LocalDate date = LocalDate.ofEpochDay(random.nextInt(100000) - 20000);
+			final int delta = random.nextInt(40000) - 20000;
+			assertDayDelta(date.getYear(), date.getMonthValue(), date.getDayOfMonth(), delta,
+					date.plusDays(delta).toString());
+		}
+	}
+
+	@Test public void
+	shouldKeepTimeWhenApplyingDayDeltaOnDaylightSavingDay() throws Exception {
+		inTimeZone("Europe/Berlin", new Callable<Void>() {
+			@Override
+			public Void call() throws Exception {
+				final Timestamp ts = localTimestamp("2015-10-25T00:00:00").applyDayDelta(1);
+				assertThat(ts.toString(), is("2015-10-26T00:00:00"));
+				return null;
+			}
+		});
+	}
+
+	private static void assertDayDelta(final int year,
+			final int month,
+			final int day,
+			final int delta,
+			final String expected) {
+		final Timestamp ts = new Timestamp();
+		ts.setYear((short) year);
+		ts.setMonth((byte) month);
+		ts.setDay((byte) day);
+		assertThat(ts.applyDayDelta(delta).toString(), is(expected));
+	}
+
+	private static Timestamp timestamp(final int year,
+			final int month,
+			final int day,
+			final int hour,
+			final int minute,
+			final int seconds,
+			final int timezone) {
+		final Timestamp ts = new Timestamp();
+		ts.setYear((short) year);
+		ts.setMonth((byte) month);
+		ts.setDay((byte) day);
+		ts.setHour((byte) hour);
+		ts.setMinute((byte) minute);
+		ts.setSeconds((byte) seconds);
+		ts.setTimezone((byte) timezone);
+		return ts;
+	}
+
+	private static Timestamp localTimestamp(final String localTime) {
+		final Timestamp ts = timestamp(
+				Integer.parseInt(localTime.substring(0, 4)),
+				Integer.parseInt(localTime.substring(5, 7)),
+				Integer.parseInt(localTime.substring(8, 10)),
+				Integer.parseInt(localTime.substring(11, 13)),
+				Integer.parseInt(localTime.substring(14, 16)),
+				Integer.parseInt(localTime.substring(17, 19)),
+				0);
+		ts.setTimezone(Byte.MIN_VALUE);
+		return ts;
+	}
+
+	/*
+	 * Local times are resolved with a calendar per thread => use a new
+	 * thread to pick up the default time zone.
+	 */
+	private static void inTimeZone(final String timeZone, final Callable<Void> test) throws Exception {
+		final TimeZone defaultTimeZone = TimeZone.getDefault();
+		final ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			TimeZone.setDefault(TimeZone.getTimeZone(timeZone));
+			executor.submit(test).get();
+		} catch (final ExecutionException e) {
+			if (e.getCause() instanceof Error) {
+				throw (Error) e.getCause();
+			}
+			throw (Exception) e.getCause();
+		} finally {
+			TimeZone.setDefault(defaultTimeZone);
+			executor.shutdown();
+		}
+	}
+
 	private long getCurrentTimeMillisTimestampCompatible() {
 		// Timestamp is not storing milliseconds now => remove them
 		return (System.currentTimeMillis() / 1000) * 1000;
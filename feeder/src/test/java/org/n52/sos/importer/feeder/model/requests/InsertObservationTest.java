@@ -58,4 +58,36 @@ public class InsertObservationTest {
 		assertThat(insertObservation.isSetAltitudeValue(), is(false));
 	}
 	
+	@Test public void
+	shouldKeepPrimitiveValuesUnboxed()
+	{
+		final InsertObservation measurement = new InsertObservation(null, null, 52.5, null, null, null, null, null);
+		assertThat(measurement.getResultType(), is(InsertObservation.ResultType.DOUBLE));
+		assertThat(measurement.getDoubleValue(), is(52.5));
+		assertThat(measurement.getResultValue(), is((Object) 52.5));
+		final InsertObservation count = new InsertObservation(null, null, 7, null, null, null, null, null);
+		assertThat(count.getResultType(), is(InsertObservation.ResultType.INTEGER));
+		assertThat(count.getIntValue(), is(7));
+		assertThat(count.getResultValueAsString(), is("7"));
+		final InsertObservation bool = new InsertObservation(null, null, true, null, null, null, null, null);
+		assertThat(bool.getBooleanValue(), is(true));
+		assertThat(bool.getResultValue(), is((Object) Boolean.TRUE));
+	}
+
+	@Test public void
+	shouldDetectTypeOfBoxedValues()
+	{
+		assertThat(new InsertObservation(null, null, (Object) 1.5, null, null, null, null, null).getDoubleValue(), is(1.5));
+		assertThat(new InsertObservation(null, null, (Object) 3, null, null, null, null, null).getIntValue(), is(3));
+		final InsertObservation text = new InsertObservation(null, null, "text", null, null, null, null, null);
+		assertThat(text.getResultType(), is(InsertObservation.ResultType.TEXT));
+		assertThat(text.getResultValue(), is((Object) "text"));
+	}
+
+	@Test(expected = IllegalStateException.class) public void
+	shouldRejectIntValueOfMeasurement()
+	{
+		new InsertObservation(null, null, 1.0, null, null, null, null, null).getIntValue();
+	}
+
 }
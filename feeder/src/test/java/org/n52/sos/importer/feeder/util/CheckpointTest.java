@@ -0,0 +1,139 @@
+/**
+ * Copyright (C) 2011-2015 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.importer.feeder.util;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CheckpointTest {
+
+	private static final String LINES = "1;2\n3;4\n";
+
+	private File dataFile;
+
+	private File counterFile;
+
+	@Before
+	public void createFiles() throws IOException {
+		dataFile = File.createTempFile("checkpoint", ".csv");
+		counterFile = File.createTempFile("checkpoint", "_counter");
+		write(LINES);
+	}
+
+	@After
+	public void deleteFiles() throws IOException {
+		Files.deleteIfExists(dataFile.toPath());
+		Files.deleteIfExists(counterFile.toPath());
+	}
+
+	private void write(final String content) throws IOException {
+		Files.write(dataFile.toPath(), content.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private void append(final String content) throws IOException {
+		Files.write(dataFile.toPath(), content.getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+	}
+
+	@Test public void
+	shouldWriteAndReadCheckpoint() throws IOException {
+		Checkpoint.create(2, dataFile, LINES.length()).write(counterFile);
+
+		final Checkpoint checkpoint = Checkpoint.read(counterFile);
+
+		assertThat(checkpoint.getLastLine(), is(2));
+		assertThat(checkpoint.hasOffset(), is(true));
+		assertThat(checkpoint.getOffset(), is((long) LINES.length()));
+		assertThat(checkpoint.isValidFor(dataFile), is(true));
+	}
+
+	@Test public void
+	shouldReadCounterFileWithLineCountOnly() throws IOException {
+		Files.write(counterFile.toPath(), "42\n".getBytes(StandardCharsets.UTF_8));
+
+		final Checkpoint checkpoint = Checkpoint.read(counterFile);
+
+		assertThat(checkpoint.getLastLine(), is(42));
+		assertThat(checkpoint.hasOffset(), is(false));
+		assertThat(checkpoint.isValidFor(dataFile), is(false));
+	}
+
+	@Test public void
+	shouldKeepLineCountFirstForOlderVersions() throws IOException {
+		Checkpoint.create(2, dataFile, LINES.length()).write(counterFile);
+
+		final String firstLine = Files.readAllLines(counterFile.toPath(), StandardCharsets.UTF_8).get(0);
+
+		assertThat(firstLine, is("2"));
+	}
+
+	@Test public void
+	shouldBeValidAfterAppendingData() throws IOException {
+		final Checkpoint checkpoint = Checkpoint.create(2, dataFile, LINES.length());
+		append("5;6\n");
+
+		assertThat(checkpoint.isValidFor(dataFile), is(true));
+	}
+
+	@Test public void
+	shouldBeInvalidIfDataBeforeOffsetChanged() throws IOException {
+		final Checkpoint checkpoint = Checkpoint.create(2, dataFile, LINES.length());
+		write("1;2\n3;5\n7;8\n");
+
+		assertThat(checkpoint.isValidFor(dataFile), is(false));
+	}
+
+	@Test public void
+	shouldBeInvalidIfFileIsTruncated() throws IOException {
+		final Checkpoint checkpoint = Checkpoint.create(2, dataFile, LINES.length());
+		write("1;2\n");
+
+		assertThat(checkpoint.isValidFor(dataFile), is(false));
+	}
+
+	@Test public void
+	shouldNotStoreOffsetAfterPartialRow() throws IOException {
+		append("5;");
+
+		final Checkpoint checkpoint = Checkpoint.create(3, dataFile, LINES.length() + 2);
+
+		assertThat(checkpoint.hasOffset(), is(false));
+		assertThat(checkpoint.getLastLine(), is(3));
+	}
+
+}
@@ -0,0 +1,183 @@
+/**
+ * Copyright (C) 2011-2015 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.importer.feeder.util;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.text.ParseException;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class DecimalParserTest {
+
+	private final DecimalParser dotParser = DecimalParser.forDecimalSeparator('.');
+
+	private final DecimalParser commaParser = DecimalParser.forDecimalSeparator(',');
+
+	@Test public void
+	shouldParseSimpleNumbers() throws ParseException {
+		assertThat(dotParser.parse("0"), is(0.0));
+		assertThat(dotParser.parse("42"), is(42.0));
+		assertThat(dotParser.parse("-3.25"), is(-3.25));
+		assertThat(dotParser.parse("+0.1"), is(0.1));
+		assertThat(dotParser.parse(" 52.7 "), is(52.7));
+		assertThat(dotParser.parse(".5"), is(0.5));
+		assertThat(dotParser.parse("7."), is(7.0));
+	}
+
+	@Test public void
+	shouldParseGroupingAndDecimalSeparators() throws ParseException {
+		assertThat(dotParser.parse("1,234,567.89"), is(1234567.89));
+		assertThat(commaParser.parse("1.234.567,89"), is(1234567.89));
+		assertThat(commaParser.parse("-0,001"), is(-0.001));
+		assertThat(new DecimalParser(';', (char) 0).parse("2;5"), is(2.5));
+	}
+
+	@Test public void
+	shouldParseExponents() throws ParseException {
+		assertThat(dotParser.parse("1.5e3"), is(1500.0));
+		assertThat(dotParser.parse("1.5E-3"), is(0.0015));
+		assertThat(commaParser.parse("2,5e+2"), is(250.0));
+		assertThat(dotParser.parse("1e400"), is(Double.POSITIVE_INFINITY));
+		assertThat(dotParser.parse("1e-400"), is(0.0));
+	}
+
+	@Test public void
+	shouldReturnClosestDoubleLikeDoubleParseDouble() throws ParseException {
+		final String[] numbers = {
+				"0.1", "0.3", "123456789012345678", "9007199254740993",
+				"3.141592653589793238462643383279", "2.2250738585072014E-308",
+				"4.9e-324", "1.7976931348623157e308", "0.000000000000000000000000123",
+				"123456.000000000000000000001"
+		};
+		for (final String number : numbers) {
+			assertThat(number, dotParser.parse(number), is(Double.parseDouble(number)));
+		}
+		final Random random = new Random(52);
+		for (int i = 0; i < 10000; i++) {
+			final String number = Double.toString((random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(40) - 20));
+			assertThat(number, dotParser.parse(number), is(Double.parseDouble(number)));
+		}
+	}
+
+	@Test public void
+	shouldParseLikeDecimalFormat() throws ParseException {
+		final DecimalFormatSymbols symbols = new DecimalFormatSymbols();
+		symbols.setDecimalSeparator(',');
+		symbols.setGroupingSeparator('.');
+		final DecimalFormat format = new DecimalFormat("#,##0.########");
+		format.setDecimalFormatSymbols(symbols);
+		final Random random = new Random(4);
+		for (int i = 0; i < 10000; i++) {
+			final String number = format.format((random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(12) - 4));
+			assertThat(number, commaParser.parse(number), is(format.parse(number).doubleValue()));
+		}
+	}
+
+	@Test public void
+	shouldIgnoreCharactersAfterNumber() throws ParseException {
+		assertThat(dotParser.parse("12.5*"), is(12.5));
+		assertThat(dotParser.parse("3.1 mm"), is(3.1));
+		assertThat(dotParser.parse("1.2.3"), is(1.2));
+		assertThat(dotParser.parse("12a"), is(12.0));
+		assertThat(dotParser.parse("1.000,5"), is(1.0));
+		assertThat(dotParser.parse("1e"), is(1.0));
+		assertThat(dotParser.parse("2e+x"), is(2.0));
+		assertThat(dotParser.parse("1e5x"), is(100000.0));
+		assertThat(commaParser.parse("1.5,3,2"), is(15.3));
+		assertThat(dotParser.parse("3.141592653589793238462643383279 rad"), is(Math.PI));
+	}
+
+	@Test public void
+	shouldParseNumericPrefixLikeDecimalFormat() throws ParseException {
+		final String[] dotNumbers = {
+				"12.5*", "3.1 mm", "1.2.3", "12a", "1.000,5", "1,234.5kg", "7.x", "-0.5%",
+				"1E5x", "1E", "1E+", "2.5E-2;", "42 ", "1,234,", "0.1)", "123456789012345678901 m"
+		};
+		final DecimalFormat dotFormat = createDecimalFormat('.', ',');
+		for (final String number : dotNumbers) {
+			assertThat(number, dotParser.parse(number), is(dotFormat.parse(number).doubleValue()));
+		}
+		final String[] commaNumbers = {
+				"3,1 mm", "1.234,5°", "1,5,3", "12,5*", "-7,25 %", "1.000.000,01€"
+		};
+		final DecimalFormat commaFormat = createDecimalFormat(',', '.');
+		for (final String number : commaNumbers) {
+			assertThat(number, commaParser.parse(number), is(commaFormat.parse(number).doubleValue()));
+		}
+	}
+
+	@Test public void
+	shouldRejectTextsNotStartingWithNumber() {
+		assertInvalid(dotParser, "", 0);
+		assertInvalid(dotParser, "-", 1);
+		assertInvalid(dotParser, "-x", 1);
+		assertInvalid(dotParser, "a12", 0);
+		assertInvalid(dotParser, ",5", 0);
+		assertInvalid(dotParser, "e5", 0);
+		assertInvalid(commaParser, "mm 3,1", 0);
+	}
+
+	@Test(expected = IllegalArgumentException.class) public void
+	shouldRejectEqualSeparators() {
+		new DecimalParser('.', '.');
+	}
+
+	@Test(expected = IllegalArgumentException.class) public void
+	shouldRejectDigitAsSeparator() {
+		new DecimalParser('1', (char) 0);
+	}
+
+	/*
+	 * The format used to parse numbers before the DecimalParser.
+	 */
+	private static DecimalFormat createDecimalFormat(final char decimalSeparator, final char groupingSeparator) {
+		final DecimalFormatSymbols symbols = new DecimalFormatSymbols();
+		symbols.setDecimalSeparator(decimalSeparator);
+		symbols.setGroupingSeparator(groupingSeparator);
+		final DecimalFormat format = new DecimalFormat();
+		format.setDecimalFormatSymbols(symbols);
+		return format;
+	}
+
+	private void assertInvalid(final DecimalParser parser, final String number, final int errorOffset) {
+		try {
+			parser.parse(number);
+			fail("ParseException expected for '" + number + "'");
+		} catch (final ParseException e) {
+			assertThat(number, e.getErrorOffset(), is(errorOffset));
+		}
+	}
+
+}
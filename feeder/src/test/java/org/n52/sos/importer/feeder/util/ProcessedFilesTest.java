@@ -0,0 +1,100 @@
+/**
+ * Copyright (C) 2011-2015 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.importer.feeder.util;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ProcessedFilesTest {
+
+	private File store;
+
+	private File dataFile;
+
+	@Before
+	public void createFiles() throws IOException {
+		store = File.createTempFile("processed-files", ".txt");
+		Files.delete(store.toPath());
+		dataFile = File.createTempFile("processed files", ".csv");
+		Files.write(dataFile.toPath(), "1;2\n".getBytes(StandardCharsets.UTF_8));
+	}
+
+	@After
+	public void deleteFiles() throws IOException {
+		Files.deleteIfExists(store.toPath());
+		Files.deleteIfExists(dataFile.toPath());
+	}
+
+	private void add(final ProcessedFiles processedFiles) throws IOException {
+		processedFiles.add(dataFile, dataFile.length(), dataFile.lastModified());
+	}
+
+	@Test public void
+	shouldContainAddedFile() throws IOException {
+		final ProcessedFiles processedFiles = new ProcessedFiles(store);
+		assertThat(processedFiles.contains(dataFile), is(false));
+
+		add(processedFiles);
+
+		assertThat(processedFiles.contains(dataFile), is(true));
+	}
+
+	@Test public void
+	shouldPersistProcessedFiles() throws IOException {
+		add(new ProcessedFiles(store));
+		add(new ProcessedFiles(store));
+
+		final ProcessedFiles processedFiles = new ProcessedFiles(store);
+
+		assertThat(processedFiles.contains(dataFile), is(true));
+		assertThat(processedFiles.size(), is(1));
+		assertThat(Files.readAllLines(store.toPath(), StandardCharsets.UTF_8).size(), is(1));
+	}
+
+	@Test public void
+	shouldNotContainFileModifiedAfterProcessing() throws IOException {
+		final ProcessedFiles processedFiles = new ProcessedFiles(store);
+		add(processedFiles);
+
+		Files.write(dataFile.toPath(), "3;4\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+		assertThat(processedFiles.contains(dataFile), is(false));
+	}
+
+}
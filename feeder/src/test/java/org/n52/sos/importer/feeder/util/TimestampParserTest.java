@@ -0,0 +1,102 @@
+/**
+ * Copyright (C) 2011-2015 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.importer.feeder.util;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.text.ParseException;
+import java.util.TimeZone;
+
+import org.junit.Test;
+import org.n52.sos.importer.feeder.model.Timestamp;
+
+public class TimestampParserTest {
+
+	private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+
+	private Timestamp parse(final String pattern, final String value, final TimeZone timeZone) throws ParseException {
+		final Timestamp timestamp = new Timestamp();
+		new TimestampParser(pattern, timeZone).parseInto(value, timestamp);
+		return timestamp;
+	}
+
+	@Test public void
+	shouldParseDateAndTimeWithSeparators() throws ParseException {
+		assertThat(parse("dd.MM.yyyy HH:mm", "01.12.2015 13:04", UTC).toString(), is("2015-12-01T13:04:00"));
+	}
+
+	@Test public void
+	shouldParseNumbersWithoutLeadingZerosLikeSimpleDateFormat() throws ParseException {
+		assertThat(parse("dd.MM.yyyy HH:mm", "1.2.2015 3:04", UTC).toString(), is("2015-02-01T03:04:00"));
+	}
+
+	@Test public void
+	shouldParseAdjacentNumericFields() throws ParseException {
+		assertThat(parse("yyyyMMddHHmmss", "20150102030405", UTC).toString(), is("2015-01-02T03:04:05"));
+	}
+
+	@Test public void
+	shouldOnlySetFieldsContainedInPattern() throws ParseException {
+		final Timestamp timestamp = parse("HH:mm:ss", "23:59:58", UTC);
+		assertThat(timestamp.getYear(), is(Short.MIN_VALUE));
+		assertThat(timestamp.getMonth(), is(Byte.MIN_VALUE));
+		assertThat(timestamp.getDay(), is(Byte.MIN_VALUE));
+		assertThat(timestamp.getHour(), is((byte) 23));
+		assertThat(timestamp.getMinute(), is((byte) 59));
+		assertThat(timestamp.getSeconds(), is((byte) 58));
+	}
+
+	@Test public void
+	shouldParseTwelveHourClock() throws ParseException {
+		assertThat(parse("hh:mm a", "03:15 PM", UTC).toString(), is("15:15:00"));
+	}
+
+	@Test public void
+	shouldConvertParsedOffsetIntoConfiguredTimeZone() throws ParseException {
+		final Timestamp timestamp = parse("yyyy-MM-dd HH:mm:ssZ", "2014-06-30 22:00:00+0000",
+				TimeZone.getTimeZone("GMT+2"));
+		assertThat(timestamp.toString(), is("2014-07-01T00:00:00+02:00"));
+	}
+
+	@Test public void
+	shouldFallBackToSimpleDateFormatForUnsupportedPatterns() throws ParseException {
+		final TimestampParser parser = new TimestampParser("yyyy-MM-dd u", UTC);
+		assertThat(parser.isCompiled(), is(false));
+		final Timestamp timestamp = new Timestamp();
+		parser.parseInto("2015-01-02 5", timestamp);
+		assertThat(timestamp.toString(), is("2015-01-02"));
+	}
+
+	@Test(expected = ParseException.class) public void
+	shouldThrowParseExceptionForInvalidValues() throws ParseException {
+		parse("dd.MM.yyyy", "not a date", UTC);
+	}
+
+}
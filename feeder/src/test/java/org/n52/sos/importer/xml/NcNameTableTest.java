@@ -0,0 +1,129 @@
+/**
+ * Copyright (C) 2011-2015 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.importer.xml;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.util.Random;
+
+import org.junit.Test;
+import org.n52.oxf.xml.NcNameResolver;
+
+/**
+ * Checks the {@link NcNameTable} against the {@link NcNameResolver} formerly
+ * used by the feeder.
+ */
+public class NcNameTableTest {
+
+	@Test public void
+	shouldClassifyAllCharactersLikeNcNameResolver() {
+		for (int i = Character.MIN_VALUE; i <= Character.MAX_VALUE; i++) {
+			final char c = (char) i;
+			assertThat(Integer.toHexString(i), NcNameTable.isNCNameChar(c), is(NcNameResolver.isNCNameChar(c)));
+		}
+	}
+
+	@Test public void
+	shouldCheckNamesLikeNcNameResolver() {
+		final Random random = new Random(52);
+		for (int i = 0; i < 100000; i++) {
+			final String name = randomName(random);
+			assertThat(name, NcNameTable.isNCName(name), is(NcNameResolver.isNCName(name)));
+		}
+	}
+
+	@Test public void
+	shouldCleanNamesLikeFormerImplementation() {
+		final Random random = new Random(4);
+		for (int i = 0; i < 100000; i++) {
+			final String name = randomName(random);
+			final String cleaned = NcNameTable.cleanToNCName(name);
+			assertThat(name, cleaned, is(createCleanNCName(name)));
+			if (NcNameResolver.isNCName(name)) {
+				assertThat(name, cleaned, is(sameInstance(name)));
+			}
+		}
+	}
+
+	@Test public void
+	shouldReplaceInvalidCharacters() {
+		assertThat(NcNameTable.cleanToNCName("air temperature [°C]"), is("air_temperature___C_"));
+		assertThat(NcNameTable.cleanToNCName("2m-temperature"), is("2m-temperature"));
+		assertThat(NcNameTable.cleanToNCName(".5 m"), is(".5_m"));
+		assertThat(NcNameTable.cleanToNCName(new StringBuilder("ns:name")), is("ns_name"));
+		assertThat(NcNameTable.cleanToNCName(""), is(""));
+	}
+
+	@Test public void
+	shouldFixNamesLikeNcNameResolver() {
+		final Random random = new Random(25);
+		for (int i = 0; i < 100000; i++) {
+			final String name = randomName(random);
+			if (name.isEmpty()) {
+				continue;
+			}
+			final String fixed = NcNameTable.fixNCName(name);
+			assertThat(name, fixed, is(NcNameResolver.fixNcName(name)));
+			assertThat(name, NcNameTable.isNCName(fixed), is(true));
+		}
+	}
+
+	@Test public void
+	shouldPrependReplacementToNamesNotStartingWithLetter() {
+		assertThat(NcNameTable.fixNCName("2m temperature"), is("_2m_temperature"));
+		assertThat(NcNameTable.fixNCName("2m temperature"), is(NcNameResolver.fixNcName("2m temperature")));
+		assertThat(NcNameTable.fixNCName(".5 m"), is("_.5_m"));
+		assertThat(NcNameTable.fixNCName("#1"), is(NcNameResolver.fixNcName("#1")));
+		assertThat(NcNameTable.fixNCName("air temperature [°C]"), is("air_temperature___C_"));
+		assertThat(NcNameTable.fixNCName("_1"), is("_1"));
+		assertThat(NcNameTable.fixNCName(""), is("_"));
+	}
+
+	// the former DataFile.createCleanNCName without the fallback name
+	private static String createCleanNCName(final String name) {
+		final char[] chars = name.toCharArray();
+		for (int i = 0; i < chars.length; i++) {
+			if (!NcNameResolver.isNCNameChar(chars[i])) {
+				chars[i] = '_';
+			}
+		}
+		return String.valueOf(chars);
+	}
+
+	private static String randomName(final Random random) {
+		final char[] name = new char[random.nextInt(8)];
+		for (int j = 0; j < name.length; j++) {
+			name[j] = (char) random.nextInt(random.nextInt(4) == 0? Character.MAX_VALUE + 1 : 0x80);
+		}
+		return String.valueOf(name);
+	}
+
+}
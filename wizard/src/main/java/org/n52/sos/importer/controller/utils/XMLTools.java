@@ -7,6 +7,8 @@
  */
 package org.n52.sos.importer.controller.utils;
 
+import org.n52.sos.importer.xml.NcNameTable;
+
 /**
  * {@link http://www.java2s.com/Code/Java/XML/CheckswhetherthesuppliedStringisanNCNameNamespaceClassifiedName.htm}
  * 
@@ -23,41 +25,14 @@ public class XMLTools {
 	 * http://www.w3.org/TR/REC-xml-names/#NT-NCName</a>.
 	 */
 	public static final boolean isNCName(String name) {
-		int nameLength = name.length();
-
-		if (nameLength == 0) {
-			return false;
-		}
-
-		// Check first character
-		char c = name.charAt(0);
-
-		if (c == '_' || isLetter(c)) {
-			// Check the rest of the characters
-			for (int i = 1; i < nameLength; i++) {
-				c = name.charAt(i);
-				if (!isNCNameChar(c)) {
-					return false;
-				}
-			}
-
-			// All characters have been checked
-			return true;
-		}
-
-		return false;
+		return NcNameTable.isNCName(name);
 	}
 
+	/**
+	 * Looks the character up in the precomputed {@link NcNameTable}.
+	 */
 	public static final boolean isNCNameChar(char c) {
-		return 
-				_isAsciiBaseChar(c) ||
-				_isAsciiDigit(c) ||
-				c == '.' || c == '-' || c == '_' ||
-				_isNonAsciiBaseChar(c) ||
-				_isNonAsciiDigit(c) ||
-				isIdeographic(c) ||
-				isCombiningChar(c) ||
-				isExtender(c);
+		return NcNameTable.isNCNameChar(c);
 	}
 
 	public static final boolean isLetter(char c) {
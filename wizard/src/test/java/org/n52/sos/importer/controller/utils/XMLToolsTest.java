@@ -0,0 +1,124 @@
+/**
+ * Copyright (C) 2011-2015 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *     - Apache License, version 2.0
+ *     - Apache Software License, version 1.0
+ *     - GNU Lesser General Public License, version 3
+ *     - Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *     - Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.sos.importer.controller.utils;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.Random;
+
+import org.junit.Test;
+import org.n52.sos.importer.xml.NcNameTable;
+
+/**
+ * Checks the {@link NcNameTable} against the character classes of
+ * {@link XMLTools}.
+ *
+ * @author <a href="mailto:e.h.juerrens@52north.org">Eike Hinderk J&uuml;rrens</a>
+ */
+public class XMLToolsTest {
+
+	@Test
+	public void shouldClassifyAllCharactersLikeCharacterClasses() {
+		for (int i = Character.MIN_VALUE; i <= Character.MAX_VALUE; i++) {
+			final char c = (char) i;
+			final boolean isNCNameChar = XMLTools.isLetter(c) ||
+					XMLTools.isDigit(c) ||
+					c == '.' || c == '-' || c == '_' ||
+					XMLTools.isCombiningChar(c) ||
+					XMLTools.isExtender(c);
+			assertThat(Integer.toHexString(i), XMLTools.isNCNameChar(c), is(isNCNameChar));
+			assertThat(Integer.toHexString(i), NcNameTable.isNCNameStartChar(c), is(c == '_' || XMLTools.isLetter(c)));
+		}
+	}
+
+	@Test
+	public void shouldCheckNamesLikeCharacterClasses() {
+		final Random random = new Random(52);
+		final char[] samples = { 'a', 'Z', '_', '1', '.', '-', ' ', ':', '\u00e4', '\u0300', '\u00b7', '\u4e00', '\ud800' };
+		for (int i = 0; i < 10000; i++) {
+			final char[] name = new char[random.nextInt(5)];
+			for (int j = 0; j < name.length; j++) {
+				name[j] = samples[random.nextInt(samples.length)];
+			}
+			final String s = String.valueOf(name);
+			assertThat(s, XMLTools.isNCName(s), is(isNCName(s)));
+		}
+	}
+
+	@Test
+	public void shouldCleanNamesLikeFormerImplementation() {
+		final Random random = new Random(4);
+		for (int i = 0; i < 10000; i++) {
+			final char[] name = new char[random.nextInt(6)];
+			for (int j = 0; j < name.length; j++) {
+				name[j] = (char) random.nextInt(random.nextBoolean()? 0x80 : Character.MAX_VALUE + 1);
+			}
+			final String s = String.valueOf(name);
+			final String cleaned = NcNameTable.cleanToNCName(s);
+			final char[] expected = s.toCharArray();
+			for (int j = 0; j < expected.length; j++) {
+				if (!XMLTools.isNCNameChar(expected[j])) {
+					expected[j] = '_';
+				}
+			}
+			assertThat(s, cleaned, is(String.valueOf(expected)));
+			if (isNCName(s)) {
+				assertThat(s, cleaned == s, is(true));
+			}
+		}
+		assertThat(NcNameTable.cleanToNCName("my station"), is("my_station"));
+		assertThat(NcNameTable.cleanToNCName("1st"), is("1st"));
+		assertThat(NcNameTable.cleanToNCName("#1"), is("_1"));
+		assertThat(NcNameTable.cleanToNCName(""), is(""));
+	}
+
+	// the former implementation of XMLTools.isNCName
+	private static boolean isNCName(final String name) {
+		if (name.isEmpty()) {
+			return false;
+		}
+		final char first = name.charAt(0);
+		if (first != '_' && !XMLTools.isLetter(first)) {
+			return false;
+		}
+		for (int i = 1; i < name.length(); i++) {
+			final char c = name.charAt(i);
+			if (!(XMLTools.isLetter(c) ||
+					XMLTools.isDigit(c) ||
+					c == '.' || c == '-' || c == '_' ||
+					XMLTools.isCombiningChar(c) ||
+					XMLTools.isExtender(c))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+}